@@ -0,0 +1,56 @@
+package com.ibsec.ncdnotifier.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Notification policy (ncd.policy.*): which offsets before maturity alert holders, how long a
+ * missed send date is still caught up, rules per bond type and quiet hours per channel.
+ * Bond types without a rule use ncd.notify-before-days and the default catch-up window.
+ */
+@ConfigurationProperties(prefix = "ncd.policy")
+public class NotificationPolicyProperties {
+
+    // days after a missed send date its alert still goes out, 0 = exact day only
+    private int catchUpDays = 0;
+
+    private List<Rule> rules = new ArrayList<>();
+
+    // channel (email / sms) -> "HH:mm-HH:mm" in ncd.schedule.zone, may wrap midnight
+    private Map<String, String> quietHours = new LinkedHashMap<>();
+
+    public int getCatchUpDays() { return catchUpDays; }
+    public void setCatchUpDays(int catchUpDays) { this.catchUpDays = catchUpDays; }
+
+    public List<Rule> getRules() { return rules; }
+    public void setRules(List<Rule> rules) { this.rules = rules; }
+
+    public Map<String, String> getQuietHours() { return quietHours; }
+    public void setQuietHours(Map<String, String> quietHours) { this.quietHours = quietHours; }
+
+    public static class Rule {
+        private String name;
+        // GSEC | CORPORATE | OTHER, see NotificationPolicy.BondType
+        private String bondType;
+        // empty = ncd.notify-before-days
+        private List<Integer> offsets = new ArrayList<>();
+        // null = ncd.policy.catch-up-days
+        private Integer catchUpDays;
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public String getBondType() { return bondType; }
+        public void setBondType(String bondType) { this.bondType = bondType; }
+
+        public List<Integer> getOffsets() { return offsets; }
+        public void setOffsets(List<Integer> offsets) { this.offsets = offsets; }
+
+        public Integer getCatchUpDays() { return catchUpDays; }
+        public void setCatchUpDays(Integer catchUpDays) { this.catchUpDays = catchUpDays; }
+    }
+}
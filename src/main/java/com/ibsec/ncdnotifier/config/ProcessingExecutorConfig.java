@@ -0,0 +1,45 @@
+package com.ibsec.ncdnotifier.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ProcessingExecutorConfig {
+
+    /**
+     * Runs the per-ISIN notification tasks. "fork-join" (default) or "fixed".
+     * Size it to what the holdings / cust_mst connection pools and gateways can absorb.
+     */
+    @Bean(name = "notificationProcessingExecutor", destroyMethod = "shutdown")
+    public ExecutorService notificationProcessingExecutor(
+            @Value("${ncd.processing.executor:fork-join}") String type,
+            @Value("${ncd.processing.parallelism:8}") int parallelism) {
+
+        if ("fixed".equalsIgnoreCase(type)) {
+            AtomicInteger n = new AtomicInteger();
+            return Executors.newFixedThreadPool(parallelism, r -> {
+                Thread t = new Thread(r, "ncd-process-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        // async mode: FIFO for tasks that are never joined
+        return new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    /**
+     * Runs the notification job itself, off the scheduler threads, so polling, holdings refresh
+     * and the watchdog keep their cadence during a long run. Runs never overlap (see
+     * NotificationScheduler), so one thread is enough.
+     */
+    @Bean(name = "notificationJobExecutor", destroyMethod = "shutdown")
+    public ExecutorService notificationJobExecutor() {
+        return Executors.newSingleThreadExecutor(r -> new Thread(r, "ncd-job"));
+    }
+}
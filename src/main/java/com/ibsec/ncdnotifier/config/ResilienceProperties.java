@@ -0,0 +1,80 @@
+package com.ibsec.ncdnotifier.config;
+
+import com.ibsec.ncdnotifier.resilience.Dependency;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Breaker / bulkhead / timeout settings per dependency (ncd.resilience.dependencies.primary-db.*,
+ * secondary-db, smtp, sms, nse) and the retry of notifications deferred while a breaker is open.
+ */
+@ConfigurationProperties(prefix = "ncd.resilience")
+public class ResilienceProperties {
+
+    private Map<Dependency, Guard> dependencies = new EnumMap<>(Dependency.class);
+
+    // how often deferred notifications are retried, and how long before they are given up as failed
+    private long retryIntervalMs = 60000;
+    private long retryMaxAgeMs = 6 * 60 * 60 * 1000L;
+    // deferred log rows loaded per retry page
+    private int retryPageSize = 5000;
+    // a retry claim older than this is taken to belong to a dead process and released
+    private long retryClaimLeaseMs = 15 * 60 * 1000L;
+
+    public Map<Dependency, Guard> getDependencies() { return dependencies; }
+    public void setDependencies(Map<Dependency, Guard> dependencies) { this.dependencies = dependencies; }
+
+    public long getRetryIntervalMs() { return retryIntervalMs; }
+    public void setRetryIntervalMs(long retryIntervalMs) { this.retryIntervalMs = retryIntervalMs; }
+
+    public long getRetryMaxAgeMs() { return retryMaxAgeMs; }
+    public void setRetryMaxAgeMs(long retryMaxAgeMs) { this.retryMaxAgeMs = retryMaxAgeMs; }
+
+    public int getRetryPageSize() { return retryPageSize; }
+    public void setRetryPageSize(int retryPageSize) { this.retryPageSize = retryPageSize; }
+
+    public long getRetryClaimLeaseMs() { return retryClaimLeaseMs; }
+    public void setRetryClaimLeaseMs(long retryClaimLeaseMs) { this.retryClaimLeaseMs = retryClaimLeaseMs; }
+
+    public Guard guard(Dependency dependency) {
+        return dependencies.getOrDefault(dependency, new Guard());
+    }
+
+    public static class Guard {
+        // breaker: open when failure-rate-percent of the last window-size calls failed (after minimum-calls)
+        private int windowSize = 50;
+        private int minimumCalls = 20;
+        private int failureRatePercent = 50;
+        private long openMs = 30000;
+
+        // bulkhead: concurrent calls, and how long a caller waits for a free slot
+        private int maxConcurrent = 16;
+        private long maxWaitMs = 2000;
+
+        // per-call budget
+        private long timeoutMs = 10000;
+
+        public int getWindowSize() { return windowSize; }
+        public void setWindowSize(int windowSize) { this.windowSize = windowSize; }
+
+        public int getMinimumCalls() { return minimumCalls; }
+        public void setMinimumCalls(int minimumCalls) { this.minimumCalls = minimumCalls; }
+
+        public int getFailureRatePercent() { return failureRatePercent; }
+        public void setFailureRatePercent(int failureRatePercent) { this.failureRatePercent = failureRatePercent; }
+
+        public long getOpenMs() { return openMs; }
+        public void setOpenMs(long openMs) { this.openMs = openMs; }
+
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+
+        public long getMaxWaitMs() { return maxWaitMs; }
+        public void setMaxWaitMs(long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+
+        public long getTimeoutMs() { return timeoutMs; }
+        public void setTimeoutMs(long timeoutMs) { this.timeoutMs = timeoutMs; }
+    }
+}
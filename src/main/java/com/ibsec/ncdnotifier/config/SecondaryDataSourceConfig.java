@@ -1,10 +1,13 @@
 package com.ibsec.ncdnotifier.config;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
 import org.springframework.context.annotation.*;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.repository.config.BootstrapMode;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
@@ -13,22 +16,48 @@ import org.springframework.transaction.PlatformTransactionManager;
 import javax.sql.DataSource;
 
 @Configuration
-@EnableJpaRepositories(
-        basePackages = "com.ibsec.ncdnotifier.repository",
-        entityManagerFactoryRef = "secondaryEntityManagerFactory",
-        transactionManagerRef = "secondaryTransactionManager"
-)
 public class SecondaryDataSourceConfig {
 
+    @Configuration
+    @Profile("!fast-start")
+    @EnableJpaRepositories(
+            basePackages = "com.ibsec.ncdnotifier.repository",
+            entityManagerFactoryRef = "secondaryEntityManagerFactory",
+            transactionManagerRef = "secondaryTransactionManager"
+    )
+    static class Repositories {
+    }
+
+    // repositories are created once the context has refreshed, so the background JPA bootstrap
+    // overlaps with the rest of startup instead of being waited on by the first injection
+    @Configuration
+    @Profile("fast-start")
+    @EnableJpaRepositories(
+            basePackages = "com.ibsec.ncdnotifier.repository",
+            entityManagerFactoryRef = "secondaryEntityManagerFactory",
+            transactionManagerRef = "secondaryTransactionManager",
+            bootstrapMode = BootstrapMode.DEFERRED
+    )
+    static class DeferredRepositories {
+    }
+
     @Bean(name = "secondaryDataSource")
     @ConfigurationProperties("spring.datasource.secondary")
     public DataSource secondaryDataSource() {
         return DataSourceBuilder.create().build();
     }
 
+    // the partition manager lays out the notification log before ddl-auto inspects it
     @Bean(name = "secondaryEntityManagerFactory")
+    @DependsOn("notificationLogPartitionManager")
     public LocalContainerEntityManagerFactoryBean secondaryEntityManagerFactory(
-            EntityManagerFactoryBuilder builder) {
+            EntityManagerFactoryBuilder builder,
+            @Value("${ncd.jpa.bootstrap-in-background:false}") boolean bootstrapInBackground) {
+        if (bootstrapInBackground) {
+            SimpleAsyncTaskExecutor bootstrap = new SimpleAsyncTaskExecutor("ncd-jpa-bootstrap-");
+            bootstrap.setDaemon(true);
+            builder.setBootstrapExecutor(bootstrap);
+        }
         return builder
                 .dataSource(secondaryDataSource())
                 .packages("com.ibsec.ncdnotifier.entity")
@@ -0,0 +1,95 @@
+package com.ibsec.ncdnotifier.config;
+
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extra sender profiles (ncd.senders.profiles[n].*) on top of the default email / SMS channels.
+ * Email profiles need host / username / password / from; SMS profiles base-url / auth.
+ */
+@ConfigurationProperties(prefix = "ncd.senders")
+public class SenderProfilesProperties {
+
+    // how many other profiles of the same type a failed send is retried on
+    private int failoverAttempts = 1;
+
+    // rate limit (messages / second) of the default profiles, 0 = unlimited
+    private double defaultRatePerSecond = 0;
+
+    private List<Profile> profiles = new ArrayList<>();
+
+    public int getFailoverAttempts() { return failoverAttempts; }
+    public void setFailoverAttempts(int failoverAttempts) { this.failoverAttempts = failoverAttempts; }
+
+    public double getDefaultRatePerSecond() { return defaultRatePerSecond; }
+    public void setDefaultRatePerSecond(double defaultRatePerSecond) { this.defaultRatePerSecond = defaultRatePerSecond; }
+
+    public List<Profile> getProfiles() { return profiles; }
+    public void setProfiles(List<Profile> profiles) { this.profiles = profiles; }
+
+    public static class Profile {
+        private String name;
+        private NotificationType type;
+        private String group = "default";
+        private String senderId;
+        private double ratePerSecond = 0;
+
+        // EMAIL
+        private String host;
+        private int port = 25;
+        private String username;
+        private String password;
+        private String from;
+        private int connections = 4;
+        private int bulkMaxRecipients = 50;
+
+        // SMS
+        private String baseUrl;
+        private String auth;
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public NotificationType getType() { return type; }
+        public void setType(NotificationType type) { this.type = type; }
+
+        public String getGroup() { return group; }
+        public void setGroup(String group) { this.group = group; }
+
+        public String getSenderId() { return senderId; }
+        public void setSenderId(String senderId) { this.senderId = senderId; }
+
+        public double getRatePerSecond() { return ratePerSecond; }
+        public void setRatePerSecond(double ratePerSecond) { this.ratePerSecond = ratePerSecond; }
+
+        public String getHost() { return host; }
+        public void setHost(String host) { this.host = host; }
+
+        public int getPort() { return port; }
+        public void setPort(int port) { this.port = port; }
+
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+
+        public String getFrom() { return from; }
+        public void setFrom(String from) { this.from = from; }
+
+        public int getConnections() { return connections; }
+        public void setConnections(int connections) { this.connections = connections; }
+
+        public int getBulkMaxRecipients() { return bulkMaxRecipients; }
+        public void setBulkMaxRecipients(int bulkMaxRecipients) { this.bulkMaxRecipients = bulkMaxRecipients; }
+
+        public String getBaseUrl() { return baseUrl; }
+        public void setBaseUrl(String baseUrl) { this.baseUrl = baseUrl; }
+
+        public String getAuth() { return auth; }
+        public void setAuth(String auth) { this.auth = auth; }
+    }
+}
@@ -0,0 +1,37 @@
+package com.ibsec.ncdnotifier.config;
+
+import com.ibsec.ncdnotifier.tracing.RunSpanAggregator;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Local OpenTelemetry SDK: every span is recorded and handed to the in-memory run aggregator.
+ * Not registered as the global instance and no network exporter.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public RunSpanAggregator runSpanAggregator(@Value("${ncd.tracing.slowest-spans:50}") int slowestSpans) {
+        return new RunSpanAggregator(slowestSpans);
+    }
+
+    @Bean(destroyMethod = "close")
+    public OpenTelemetrySdk openTelemetry(RunSpanAggregator runSpanAggregator) {
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(runSpanAggregator))
+                .build();
+        return OpenTelemetrySdk.builder().setTracerProvider(tracerProvider).build();
+    }
+
+    @Bean
+    public Tracer ncdTracer(OpenTelemetry openTelemetry) {
+        return openTelemetry.getTracer("com.ibsec.ncdnotifier");
+    }
+}
@@ -0,0 +1,125 @@
+package com.ibsec.ncdnotifier.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.service.DeliveryReportBuffer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivery-report (DLR) webhook for the SMS gateway and the email relay. Callbacks are persisted
+ * to the inbox and buffered (see DeliveryReportBuffer) before 202 is returned; 503 with
+ * Retry-After asks the gateway to resend when the buffer is full or the inbox can't be written.
+ *
+ * Callbacks must carry ncd.dlr.secret, in the X-Dlr-Secret header or, for gateways that can only
+ * be given a URL, a secret query parameter; without a configured secret every callback is refused.
+ */
+@RestController
+@Profile("!simulation & !batch")
+@RequestMapping("/api/notifier/dlr")
+public class DeliveryReportController {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryReportController.class);
+
+    static final String SECRET_HEADER = "X-Dlr-Secret";
+
+    private final DeliveryReportBuffer buffer;
+    private final ObjectMapper objectMapper;
+    private final byte[] secret;
+
+    public DeliveryReportController(DeliveryReportBuffer buffer, ObjectMapper objectMapper,
+                                    @Value("${ncd.dlr.secret:}") String secret) {
+        this.buffer = buffer;
+        this.objectMapper = objectMapper;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        if (secret.isBlank()) {
+            log.warn("⚠️ ncd.dlr.secret is not set, delivery report callbacks will be refused");
+        }
+    }
+
+    /**
+     * One report or a JSON array of them: {"messageId", "recipient" (required for email), "status", "timestamp"}.
+     */
+    @PostMapping("/{channel}")
+    public ResponseEntity<Map<String, Object>> receive(@PathVariable String channel, @RequestBody JsonNode body,
+                                                       HttpServletRequest request) {
+        if (!authorized(request)) {
+            return unauthorized();
+        }
+        List<DeliveryReportBuffer.DeliveryReport> reports = new ArrayList<>();
+        for (JsonNode node : body.isArray() ? body : List.of(body)) {
+            reports.add(objectMapper.convertValue(node, DeliveryReportBuffer.DeliveryReport.class));
+        }
+        return accept(channel, reports);
+    }
+
+    /**
+     * Query-string callbacks (?msgid=...&status=...&ts=...), as most SMS gateways send them.
+     */
+    @GetMapping("/{channel}")
+    public ResponseEntity<Map<String, Object>> receive(@PathVariable String channel,
+                                                       @RequestParam("msgid") String messageId,
+                                                       @RequestParam String status,
+                                                       @RequestParam(value = "to", required = false) String recipient,
+                                                       @RequestParam(value = "ts", required = false) String timestamp,
+                                                       HttpServletRequest request) {
+        if (!authorized(request)) {
+            return unauthorized();
+        }
+        return accept(channel, List.of(new DeliveryReportBuffer.DeliveryReport(messageId, recipient, status, timestamp)));
+    }
+
+    @GetMapping("/stats")
+    public DeliveryReportBuffer.DeliveryReportStats stats() {
+        return buffer.stats();
+    }
+
+    private boolean authorized(HttpServletRequest request) {
+        String given = request.getHeader(SECRET_HEADER);
+        if (given == null) {
+            given = request.getParameter("secret");
+        }
+        return secret.length > 0 && given != null
+                && MessageDigest.isEqual(secret, given.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ResponseEntity<Map<String, Object>> unauthorized() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "missing or wrong secret"));
+    }
+
+    private ResponseEntity<Map<String, Object>> accept(String channel, List<DeliveryReportBuffer.DeliveryReport> reports) {
+        NotificationType type;
+        try {
+            type = NotificationType.valueOf(channel.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "unknown channel " + channel));
+        }
+        int accepted = buffer.submit(type, reports);
+        if (accepted < reports.size()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Map.of("accepted", accepted, "rejected", reports.size() - accepted));
+        }
+        return ResponseEntity.accepted().body(Map.of("accepted", accepted));
+    }
+}
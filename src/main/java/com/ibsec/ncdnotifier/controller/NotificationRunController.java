@@ -0,0 +1,135 @@
+package com.ibsec.ncdnotifier.controller;
+
+import com.ibsec.ncdnotifier.entity.BondUniverseChange;
+import com.ibsec.ncdnotifier.repository.BondUniverseChangeRepository;
+import com.ibsec.ncdnotifier.repository.HoldingsDao;
+import com.ibsec.ncdnotifier.resilience.DependencyGuards;
+import com.ibsec.ncdnotifier.service.NotificationRetryQueue;
+import com.ibsec.ncdnotifier.service.NotificationScheduler;
+import com.ibsec.ncdnotifier.service.RunHistory;
+import com.ibsec.ncdnotifier.service.PreflightPlanner;
+import com.ibsec.ncdnotifier.service.TriggerSource;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@Profile("!simulation & !batch")
+@RequestMapping("/api/notifier")
+public class NotificationRunController {
+
+    private final NotificationScheduler notificationScheduler;
+    private final RunHistory runHistory;
+    private final PreflightPlanner preflightPlanner;
+    private final DependencyGuards dependencyGuards;
+    private final NotificationRetryQueue retryQueue;
+    private final BondUniverseChangeRepository universeChanges;
+    private final HoldingsDao holdingsDao;
+
+    public NotificationRunController(NotificationScheduler notificationScheduler,
+                                     RunHistory runHistory,
+                                     PreflightPlanner preflightPlanner,
+                                     DependencyGuards dependencyGuards,
+                                     NotificationRetryQueue retryQueue,
+                                     BondUniverseChangeRepository universeChanges,
+                                     HoldingsDao holdingsDao) {
+        this.notificationScheduler = notificationScheduler;
+        this.runHistory = runHistory;
+        this.preflightPlanner = preflightPlanner;
+        this.dependencyGuards = dependencyGuards;
+        this.retryQueue = retryQueue;
+        this.universeChanges = universeChanges;
+        this.holdingsDao = holdingsDao;
+    }
+
+    /**
+     * On-demand trigger. The run starts in the background (202); answers 409 when a run is
+     * already in progress and the trigger was skipped rather than queued.
+     */
+    @PostMapping("/runs")
+    public ResponseEntity<Map<String, Object>> triggerRun() {
+        NotificationScheduler.TriggerDecision decision = notificationScheduler.trigger(TriggerSource.ON_DEMAND);
+        if (decision == NotificationScheduler.TriggerDecision.SKIPPED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("started", false, "reason", "run already in progress"));
+        }
+        return ResponseEntity.accepted().body(Map.of(
+                "started", decision == NotificationScheduler.TriggerDecision.STARTED,
+                "queued", decision == NotificationScheduler.TriggerDecision.QUEUED));
+    }
+
+    /**
+     * Most recent runs first: trigger, start / end, duration and outcome.
+     */
+    @GetMapping("/runs")
+    public List<RunHistory.RunRecord> runs(@RequestParam(defaultValue = "50") int limit) {
+        return runHistory.recent(limit);
+    }
+
+    /**
+     * Whether a run is in flight or queued, skipped triggers, and the missed-run / long-run alarms.
+     */
+    @GetMapping("/runs/status")
+    public Map<String, Object> runStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", notificationScheduler.isRunning());
+        status.put("current", runHistory.current().orElse(null));
+        status.put("queued", notificationScheduler.getPendingSource());
+        status.put("skippedTriggers", runHistory.getCoalescedTriggers());
+        status.put("alarms", runHistory.alarms());
+        return status;
+    }
+
+    /**
+     * Expected recipients per channel for the calendar entries still due on the date (default today),
+     * and the worker / batch sizing a run would use. Sends nothing.
+     */
+    @GetMapping("/preflight")
+    public PreflightPlanner.PreflightEstimate preflight(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return preflightPlanner.estimate(date != null ? date : LocalDate.now());
+    }
+
+    /**
+     * Breaker state, bulkhead usage and rejections per dependency, and the deferred notifications waiting to be retried.
+     */
+    @GetMapping("/dependencies")
+    public Map<String, Object> dependencies() {
+        return Map.of("dependencies", dependencyGuards.status(),
+                "deferredNotifications", retryQueue.size());
+    }
+
+    /**
+     * Audited bond universe changes (listings, delistings, maturity corrections, renames),
+     * for one ISIN or detected since a date (default: the last 30 days).
+     */
+    @GetMapping("/universe/changes")
+    public List<BondUniverseChange> universeChanges(
+            @RequestParam(required = false) String isin,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since) {
+        if (isin != null) {
+            return universeChanges.findByIsinOrderByDetectedOnAscIdAsc(isin);
+        }
+        LocalDate from = since != null ? since : LocalDate.now().minusDays(30);
+        return universeChanges.findByDetectedOnGreaterThanEqualOrderByDetectedOnAscIdAsc(from.atStartOfDay());
+    }
+
+    /**
+     * Calls, rows and latency per holdings query kind since startup (see HoldingsDao).
+     */
+    @GetMapping("/holdings/queries")
+    public Map<String, HoldingsDao.QueryTiming> holdingsQueries() {
+        return holdingsDao.timings();
+    }
+}
@@ -0,0 +1,11 @@
+package com.ibsec.ncdnotifier.entity;
+
+/**
+ * How an ISIN differs between two versions of the NSE bond universe.
+ */
+public enum BondChangeType {
+    ADDED,
+    REMOVED,
+    MATURITY_CHANGED,
+    RENAMED
+}
@@ -1,11 +1,20 @@
 package com.ibsec.ncdnotifier.entity;
 
+import com.ibsec.ncdnotifier.notification.request.MessageTemplate;
+import com.ibsec.ncdnotifier.notification.request.NotificationStatus;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
 import jakarta.persistence.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
-@Table(name = "bond_maturity_notification_log")
+@Table(name = "bond_maturity_notification_log", indexes = {
+        @Index(name = "idx_ncd_log_isin_client_channel_maturity", columnList = "isin, clientId, channel, maturityDate"),
+        @Index(name = "idx_ncd_log_client_notified", columnList = "clientId, notifiedOn"),
+        @Index(name = "idx_ncd_log_provider_message", columnList = "providerMessageId")
+})
 public class BondMaturityNotificationLog {
 
     @Id
@@ -16,23 +25,53 @@ public class BondMaturityNotificationLog {
     private String bondName;
     private String isin;
     private LocalDate maturityDate;
-    private String message;
-    private String channel;
-    private String status;
+    private String message;            // legacy rows only; new rows use templateId + templateParams
+
+    @Enumerated(EnumType.STRING)
+    private MessageTemplate templateId;
+    private String templateParams;
+
+    @Enumerated(EnumType.STRING)
+    private NotificationType channel;
+
+    // email address / mobile number the message goes to; DEFERRED rows are re-sent to it
+    private String recipient;
+
+    @Enumerated(EnumType.STRING)
+    private NotificationStatus status;
+
+    // partition key on PostgreSQL (monthly ranges, see NotificationLogPartitionManager)
+    @Column(nullable = false)
     private LocalDateTime notifiedOn;
 
+    // gateway message ID, set when accepted; delivery reports update status / deliveredOn by it
+    private String providerMessageId;
+    private LocalDateTime deliveredOn;
+
+    // when a process claimed this DEFERRED row for a retry (status RETRYING), see NotificationRetryQueue
+    private LocalDateTime claimedAt;
+
+    // rows of other clients reached by the same message (a contact shared across accounts);
+    // they get this row's status and time when it is logged
+    @Transient
+    private List<BondMaturityNotificationLog> sharedWith;
+
     // === Constructors ===
     public BondMaturityNotificationLog() {}
 
     public BondMaturityNotificationLog(Long id, String clientId, String bondName, String isin,
-                                       LocalDate maturityDate, String message, String channel,
-                                       String status, LocalDateTime notifiedOn) {
+                                       LocalDate maturityDate, String message,
+                                       MessageTemplate templateId, String templateParams,
+                                       NotificationType channel, NotificationStatus status,
+                                       LocalDateTime notifiedOn) {
         this.id = id;
         this.clientId = clientId;
         this.bondName = bondName;
         this.isin = isin;
         this.maturityDate = maturityDate;
         this.message = message;
+        this.templateId = templateId;
+        this.templateParams = templateParams;
         this.channel = channel;
         this.status = status;
         this.notifiedOn = notifiedOn;
@@ -57,15 +96,51 @@ public class BondMaturityNotificationLog {
     public String getMessage() { return message; }
     public void setMessage(String message) { this.message = message; }
 
-    public String getChannel() { return channel; }
-    public void setChannel(String channel) { this.channel = channel; }
+    public MessageTemplate getTemplateId() { return templateId; }
+    public void setTemplateId(MessageTemplate templateId) { this.templateId = templateId; }
 
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
+    public String getTemplateParams() { return templateParams; }
+    public void setTemplateParams(String templateParams) { this.templateParams = templateParams; }
+
+    public NotificationType getChannel() { return channel; }
+    public void setChannel(NotificationType channel) { this.channel = channel; }
+
+    public String getRecipient() { return recipient; }
+    public void setRecipient(String recipient) { this.recipient = recipient; }
+
+    public NotificationStatus getStatus() { return status; }
+    public void setStatus(NotificationStatus status) { this.status = status; }
 
     public LocalDateTime getNotifiedOn() { return notifiedOn; }
     public void setNotifiedOn(LocalDateTime notifiedOn) { this.notifiedOn = notifiedOn; }
 
+    public String getProviderMessageId() { return providerMessageId; }
+    public void setProviderMessageId(String providerMessageId) { this.providerMessageId = providerMessageId; }
+
+    public LocalDateTime getDeliveredOn() { return deliveredOn; }
+    public void setDeliveredOn(LocalDateTime deliveredOn) { this.deliveredOn = deliveredOn; }
+
+    public LocalDateTime getClaimedAt() { return claimedAt; }
+    public void setClaimedAt(LocalDateTime claimedAt) { this.claimedAt = claimedAt; }
+
+    public List<BondMaturityNotificationLog> getSharedWith() {
+        return sharedWith == null ? List.of() : sharedWith;
+    }
+
+    public void shareWith(BondMaturityNotificationLog other) {
+        if (sharedWith == null) sharedWith = new ArrayList<>(1);
+        sharedWith.add(other);
+    }
+
+    /**
+     * Text that was sent: the stored message for legacy rows, otherwise rendered from the template.
+     */
+    @Transient
+    public String getRenderedMessage() {
+        if (message != null || templateId == null) return message;
+        return templateId.render(bondName, isin, maturityDate, templateParams);
+    }
+
     // === Manual Builder ===
     public static Builder builder() {
         return new Builder();
@@ -78,8 +153,11 @@ public class BondMaturityNotificationLog {
         private String isin;
         private LocalDate maturityDate;
         private String message;
-        private String channel;
-        private String status;
+        private MessageTemplate templateId;
+        private String templateParams;
+        private NotificationType channel;
+        private String recipient;
+        private NotificationStatus status;
         private LocalDateTime notifiedOn;
 
         public Builder id(Long id) {
@@ -112,12 +190,27 @@ public class BondMaturityNotificationLog {
             return this;
         }
 
-        public Builder channel(String channel) {
+        public Builder templateId(MessageTemplate templateId) {
+            this.templateId = templateId;
+            return this;
+        }
+
+        public Builder templateParams(String templateParams) {
+            this.templateParams = templateParams;
+            return this;
+        }
+
+        public Builder channel(NotificationType channel) {
             this.channel = channel;
             return this;
         }
 
-        public Builder status(String status) {
+        public Builder recipient(String recipient) {
+            this.recipient = recipient;
+            return this;
+        }
+
+        public Builder status(NotificationStatus status) {
             this.status = status;
             return this;
         }
@@ -128,10 +221,13 @@ public class BondMaturityNotificationLog {
         }
 
         public BondMaturityNotificationLog build() {
-            return new BondMaturityNotificationLog(
+            BondMaturityNotificationLog log = new BondMaturityNotificationLog(
                     id, clientId, bondName, isin,
-                    maturityDate, message, channel, status, notifiedOn
+                    maturityDate, message, templateId, templateParams,
+                    channel, status, notifiedOn
             );
+            log.setRecipient(recipient);
+            return log;
         }
     }
 }
@@ -0,0 +1,78 @@
+package com.ibsec.ncdnotifier.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Audit row for one change in the NSE bond universe: listing, delisting, maturity correction
+ * or rename, with the values before and after.
+ */
+@Entity
+@Table(name = "ncd_bond_universe_change", indexes = {
+        @Index(name = "idx_ncd_universe_change_isin", columnList = "isin"),
+        @Index(name = "idx_ncd_universe_change_detected", columnList = "detectedOn")
+})
+public class BondUniverseChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String isin;
+
+    @Enumerated(EnumType.STRING)
+    private BondChangeType changeType;
+
+    private String oldBondName;
+    private String newBondName;
+    private LocalDate oldMaturityDate;
+    private LocalDate newMaturityDate;
+    private long sourceVersion;
+    private LocalDateTime detectedOn;
+
+    // === Constructors ===
+    public BondUniverseChange() {}
+
+    public BondUniverseChange(String isin, BondChangeType changeType,
+                              String oldBondName, String newBondName,
+                              LocalDate oldMaturityDate, LocalDate newMaturityDate,
+                              long sourceVersion, LocalDateTime detectedOn) {
+        this.isin = isin;
+        this.changeType = changeType;
+        this.oldBondName = oldBondName;
+        this.newBondName = newBondName;
+        this.oldMaturityDate = oldMaturityDate;
+        this.newMaturityDate = newMaturityDate;
+        this.sourceVersion = sourceVersion;
+        this.detectedOn = detectedOn;
+    }
+
+    // === Getters and Setters ===
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getIsin() { return isin; }
+    public void setIsin(String isin) { this.isin = isin; }
+
+    public BondChangeType getChangeType() { return changeType; }
+    public void setChangeType(BondChangeType changeType) { this.changeType = changeType; }
+
+    public String getOldBondName() { return oldBondName; }
+    public void setOldBondName(String oldBondName) { this.oldBondName = oldBondName; }
+
+    public String getNewBondName() { return newBondName; }
+    public void setNewBondName(String newBondName) { this.newBondName = newBondName; }
+
+    public LocalDate getOldMaturityDate() { return oldMaturityDate; }
+    public void setOldMaturityDate(LocalDate oldMaturityDate) { this.oldMaturityDate = oldMaturityDate; }
+
+    public LocalDate getNewMaturityDate() { return newMaturityDate; }
+    public void setNewMaturityDate(LocalDate newMaturityDate) { this.newMaturityDate = newMaturityDate; }
+
+    public long getSourceVersion() { return sourceVersion; }
+    public void setSourceVersion(long sourceVersion) { this.sourceVersion = sourceVersion; }
+
+    public LocalDateTime getDetectedOn() { return detectedOn; }
+    public void setDetectedOn(LocalDateTime detectedOn) { this.detectedOn = detectedOn; }
+}
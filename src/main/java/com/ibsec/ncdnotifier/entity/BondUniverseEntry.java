@@ -0,0 +1,68 @@
+package com.ibsec.ncdnotifier.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Last ingested version of one ISIN in the NSE bond universe; the baseline the next file is
+ * diffed against (see BondUniverseDiffer).
+ */
+@Entity
+@Table(name = "ncd_bond_universe")
+public class BondUniverseEntry implements Persistable<String> {
+
+    @Id
+    private String isin;
+
+    private String bondName;
+    private LocalDate maturityDate;
+    private LocalDateTime firstSeenOn;
+    private LocalDateTime lastChangedOn;
+
+    // assigned IDs: lets saveAll insert new ISINs directly instead of selecting each one first
+    @Transient
+    private boolean isNew;
+
+    // === Constructors ===
+    public BondUniverseEntry() {}
+
+    public BondUniverseEntry(String isin, String bondName, LocalDate maturityDate,
+                             LocalDateTime firstSeenOn, LocalDateTime lastChangedOn) {
+        this.isin = isin;
+        this.bondName = bondName;
+        this.maturityDate = maturityDate;
+        this.firstSeenOn = firstSeenOn;
+        this.lastChangedOn = lastChangedOn;
+        this.isNew = true;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public String getId() { return isin; }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    // === Getters and Setters ===
+    public String getIsin() { return isin; }
+    public void setIsin(String isin) { this.isin = isin; }
+
+    public String getBondName() { return bondName; }
+    public void setBondName(String bondName) { this.bondName = bondName; }
+
+    public LocalDate getMaturityDate() { return maturityDate; }
+    public void setMaturityDate(LocalDate maturityDate) { this.maturityDate = maturityDate; }
+
+    public LocalDateTime getFirstSeenOn() { return firstSeenOn; }
+    public void setFirstSeenOn(LocalDateTime firstSeenOn) { this.firstSeenOn = firstSeenOn; }
+
+    public LocalDateTime getLastChangedOn() { return lastChangedOn; }
+    public void setLastChangedOn(LocalDateTime lastChangedOn) { this.lastChangedOn = lastChangedOn; }
+}
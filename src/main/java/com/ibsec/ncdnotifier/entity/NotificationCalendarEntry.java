@@ -0,0 +1,77 @@
+package com.ibsec.ncdnotifier.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One planned send: on sendDate, holders of isin get the "offsetDays before maturity" alert.
+ * Rows are written by NotificationCalendarPlanner at ingest time; the daily job only reads
+ * its own date's slice.
+ */
+@Entity
+@Table(name = "ncd_notification_calendar", indexes = {
+        @Index(name = "idx_ncd_calendar_send_date", columnList = "sendDate"),
+        @Index(name = "idx_ncd_calendar_isin", columnList = "isin")
+})
+public class NotificationCalendarEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private LocalDate sendDate;
+    private String isin;
+    private int offsetDays;
+    private String bondName;
+    private LocalDate maturityDate;
+    private LocalDateTime dispatchedOn;
+    // last time the row was due while a channel was inside its quiet hours; it stays undispatched,
+    // and the next run skips holders the log shows were already sent the alert
+    private LocalDateTime quietHeldOn;
+
+    // days to maturity on the day the alert goes out; differs from offsetDays when sent late
+    // within a catch-up window (set by NotificationPolicy.select)
+    @Transient
+    private Integer daysLeft;
+
+    // === Constructors ===
+    public NotificationCalendarEntry() {}
+
+    public NotificationCalendarEntry(LocalDate sendDate, String isin, int offsetDays,
+                                     String bondName, LocalDate maturityDate) {
+        this.sendDate = sendDate;
+        this.isin = isin;
+        this.offsetDays = offsetDays;
+        this.bondName = bondName;
+        this.maturityDate = maturityDate;
+    }
+
+    // === Getters and Setters ===
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public LocalDate getSendDate() { return sendDate; }
+    public void setSendDate(LocalDate sendDate) { this.sendDate = sendDate; }
+
+    public String getIsin() { return isin; }
+    public void setIsin(String isin) { this.isin = isin; }
+
+    public int getOffsetDays() { return offsetDays; }
+    public void setOffsetDays(int offsetDays) { this.offsetDays = offsetDays; }
+
+    public String getBondName() { return bondName; }
+    public void setBondName(String bondName) { this.bondName = bondName; }
+
+    public LocalDate getMaturityDate() { return maturityDate; }
+    public void setMaturityDate(LocalDate maturityDate) { this.maturityDate = maturityDate; }
+
+    public LocalDateTime getDispatchedOn() { return dispatchedOn; }
+    public void setDispatchedOn(LocalDateTime dispatchedOn) { this.dispatchedOn = dispatchedOn; }
+
+    public LocalDateTime getQuietHeldOn() { return quietHeldOn; }
+    public void setQuietHeldOn(LocalDateTime quietHeldOn) { this.quietHeldOn = quietHeldOn; }
+
+    public int getDaysLeft() { return daysLeft != null ? daysLeft : offsetDays; }
+    public void setDaysLeft(int daysLeft) { this.daysLeft = daysLeft; }
+}
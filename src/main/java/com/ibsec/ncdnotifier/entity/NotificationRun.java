@@ -0,0 +1,86 @@
+package com.ibsec.ncdnotifier.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * One notification run as kept by RunHistory, so the history (and the watchdog's idea of when
+ * the last run started) survives a restart. IDs are assigned by RunHistory.
+ */
+@Entity
+@Table(name = "ncd_notification_run", indexes = {
+        @Index(name = "idx_ncd_run_started", columnList = "startedAt")
+})
+public class NotificationRun {
+
+    @Id
+    private Long id;
+
+    // TriggerSource / RunHistory.Outcome names
+    private String source;
+    private String outcome;
+
+    private Instant queuedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long durationMs;
+    private long notificationsSent;
+    private long isinsFailed;
+    private long isinsDeferred;
+
+    @Column(length = 2000)
+    private String error;
+
+    // === Constructors ===
+    public NotificationRun() {}
+
+    public NotificationRun(Long id, String source, String outcome, Instant queuedAt, Instant startedAt,
+                           Instant finishedAt, long durationMs, long notificationsSent, long isinsFailed,
+                           long isinsDeferred, String error) {
+        this.id = id;
+        this.source = source;
+        this.outcome = outcome;
+        this.queuedAt = queuedAt;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.durationMs = durationMs;
+        this.notificationsSent = notificationsSent;
+        this.isinsFailed = isinsFailed;
+        this.isinsDeferred = isinsDeferred;
+        this.error = error;
+    }
+
+    // === Getters and Setters ===
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getSource() { return source; }
+    public void setSource(String source) { this.source = source; }
+
+    public String getOutcome() { return outcome; }
+    public void setOutcome(String outcome) { this.outcome = outcome; }
+
+    public Instant getQueuedAt() { return queuedAt; }
+    public void setQueuedAt(Instant queuedAt) { this.queuedAt = queuedAt; }
+
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+
+    public long getDurationMs() { return durationMs; }
+    public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+
+    public long getNotificationsSent() { return notificationsSent; }
+    public void setNotificationsSent(long notificationsSent) { this.notificationsSent = notificationsSent; }
+
+    public long getIsinsFailed() { return isinsFailed; }
+    public void setIsinsFailed(long isinsFailed) { this.isinsFailed = isinsFailed; }
+
+    public long getIsinsDeferred() { return isinsDeferred; }
+    public void setIsinsDeferred(long isinsDeferred) { this.isinsDeferred = isinsDeferred; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
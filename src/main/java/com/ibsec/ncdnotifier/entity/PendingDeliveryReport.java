@@ -0,0 +1,56 @@
+package com.ibsec.ncdnotifier.entity;
+
+import com.ibsec.ncdnotifier.notification.request.NotificationStatus;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * A delivery report accepted by the webhook and not yet applied to the notification log. Rows
+ * are written (with JDBC) by DeliveryReportBuffer before the callback is acknowledged and deleted
+ * once the report is applied or given up, so reports buffered in memory survive a restart.
+ */
+@Entity
+@Table(name = "ncd_delivery_report_inbox", indexes = {
+        @Index(name = "idx_ncd_dlr_inbox_key", columnList = "providerKey")
+})
+public class PendingDeliveryReport {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // provider message ID as stored on the log row (email: Message-ID + "/" + recipient)
+    @Column(nullable = false, length = 512)
+    private String providerKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private NotificationStatus status;
+
+    @Column(nullable = false)
+    private LocalDateTime eventTime;
+
+    @Column(nullable = false)
+    private Instant receivedAt;
+
+    // === Constructors ===
+    public PendingDeliveryReport() {}
+
+    // === Getters and Setters ===
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getProviderKey() { return providerKey; }
+    public void setProviderKey(String providerKey) { this.providerKey = providerKey; }
+
+    public NotificationStatus getStatus() { return status; }
+    public void setStatus(NotificationStatus status) { this.status = status; }
+
+    public LocalDateTime getEventTime() { return eventTime; }
+    public void setEventTime(LocalDateTime eventTime) { this.eventTime = eventTime; }
+
+    public Instant getReceivedAt() { return receivedAt; }
+    public void setReceivedAt(Instant receivedAt) { this.receivedAt = receivedAt; }
+}
@@ -0,0 +1,24 @@
+package com.ibsec.ncdnotifier.notification.request;
+
+import java.time.LocalDate;
+
+/**
+ * Message texts by ID. Log rows store the ID plus the variable parameters instead of
+ * the rendered text; the bond name, ISIN and maturity date are already columns of the row.
+ */
+public enum MessageTemplate {
+
+    // params: daysLeft
+    MATURITY_ALERT_V1("Dear Client, your pledged NCD %s (%s) is reaching maturity in %s days. " +
+            "Margin benefit will cease from %s. Positions may be squared off if margin is insufficient.");
+
+    private final String format;
+
+    MessageTemplate(String format) {
+        this.format = format;
+    }
+
+    public String render(String bondName, String isin, LocalDate maturityDate, String params) {
+        return String.format(format, bondName, isin, params, maturityDate);
+    }
+}
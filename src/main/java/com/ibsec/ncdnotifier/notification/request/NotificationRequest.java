@@ -8,6 +8,7 @@ public class NotificationRequest {
     private NotificationType type; // EMAIL or SMS
     private String senderId;       // used for SMS (IBSECL, etc.) or email sender address
     private String contentType;    // "text/html" or "text/plain"
+    private String senderGroup;    // sender profile group to route through; null = any profile of the type
 
     // ======= Constructors =======
     public NotificationRequest() {}
@@ -71,6 +72,14 @@ public class NotificationRequest {
         this.contentType = contentType;
     }
 
+    public String getSenderGroup() {
+        return senderGroup;
+    }
+
+    public void setSenderGroup(String senderGroup) {
+        this.senderGroup = senderGroup;
+    }
+
     // ======= Manual Builder =======
     public static Builder builder() {
         return new Builder();
@@ -83,6 +92,7 @@ public class NotificationRequest {
         private NotificationType type;
         private String senderId;
         private String contentType;
+        private String senderGroup;
 
         public Builder recipient(String recipient) {
             this.recipient = recipient;
@@ -114,8 +124,15 @@ public class NotificationRequest {
             return this;
         }
 
+        public Builder senderGroup(String senderGroup) {
+            this.senderGroup = senderGroup;
+            return this;
+        }
+
         public NotificationRequest build() {
-            return new NotificationRequest(recipient, message, subject, type, senderId, contentType);
+            NotificationRequest request = new NotificationRequest(recipient, message, subject, type, senderId, contentType);
+            request.setSenderGroup(senderGroup);
+            return request;
         }
     }
 }
@@ -9,10 +9,32 @@ import lombok.RequiredArgsConstructor;
 public class NotificationResult {
     private final boolean success;
     private final String message;
+    // not attempted: the gateway's breaker was open or its bulkhead full; retry later
+    private final boolean deferred;
+    // the gateway's ID for the accepted message; delivery reports are matched on it
+    private final String providerMessageId;
 
     public NotificationResult(boolean success, String message) {
+        this(success, message, false, null);
+    }
+
+    public NotificationResult(boolean success, String message, boolean deferred) {
+        this(success, message, deferred, null);
+    }
+
+    public NotificationResult(boolean success, String message, boolean deferred, String providerMessageId) {
         this.message = message;
         this.success = success;
+        this.deferred = deferred;
+        this.providerMessageId = providerMessageId;
+    }
+
+    public static NotificationResult deferred(String reason) {
+        return new NotificationResult(false, reason, true);
+    }
+
+    public static NotificationResult accepted(String message, String providerMessageId) {
+        return new NotificationResult(true, message, false, providerMessageId);
     }
 
     public boolean isSuccess() {
@@ -22,4 +44,12 @@ public class NotificationResult {
     public String getMessage() {
         return message;
     }
+
+    public boolean isDeferred() {
+        return deferred;
+    }
+
+    public String getProviderMessageId() {
+        return providerMessageId;
+    }
 }
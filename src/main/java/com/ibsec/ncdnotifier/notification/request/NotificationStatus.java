@@ -0,0 +1,12 @@
+package com.ibsec.ncdnotifier.notification.request;
+
+
+
+public enum NotificationStatus {
+    SENT,        // accepted by the gateway
+    FAILED,      // rejected by the gateway, timed out or not attempted
+    DELIVERED,   // delivery report: reached the handset / mailbox
+    UNDELIVERED, // delivery report: bounced, expired or rejected downstream
+    DEFERRED,    // not attempted yet (gateway breaker open); retried by NcdNotificationService.retryDeferred
+    RETRYING     // DEFERRED row claimed by one process for a retry (see NotificationRetryQueue)
+}
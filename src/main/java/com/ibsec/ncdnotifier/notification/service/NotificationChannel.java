@@ -5,7 +5,45 @@ package com.ibsec.ncdnotifier.notification.service;
 
 import com.ibsec.ncdnotifier.notification.request.NotificationRequest;
 import com.ibsec.ncdnotifier.notification.request.NotificationResult;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface NotificationChannel {
+    NotificationType type();
+
     NotificationResult send(NotificationRequest request);
-}
\ No newline at end of file
+
+    /**
+     * Non-blocking send. The future always completes normally; failures are reported
+     * as an unsuccessful NotificationResult, same as send().
+     * Channels without a native async path fall back to running send() on the common pool.
+     */
+    default CompletableFuture<NotificationResult> sendAsync(NotificationRequest request) {
+        return CompletableFuture.supplyAsync(() -> send(request));
+    }
+
+    /**
+     * Sends many requests, results in request order. Defaults to a concurrent fan-out of
+     * sendAsync; channels with a cheaper batch path (bulk SMTP) override it.
+     */
+    default List<NotificationResult> sendBulk(List<NotificationRequest> requests) {
+        List<CompletableFuture<NotificationResult>> futures = new ArrayList<>(requests.size());
+        for (NotificationRequest request : requests) {
+            futures.add(sendAsync(request));
+        }
+        List<NotificationResult> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<NotificationResult> f : futures) {
+            results.add(f.join());
+        }
+        return results;
+    }
+
+    /**
+     * Releases connections and workers. Called for channel instances created outside the
+     * container (sender profiles); beans are closed by Spring.
+     */
+    default void shutdown() {}
+}
@@ -5,33 +5,303 @@ import com.ibsec.ncdnotifier.notification.request.NotificationRequest;
 import com.ibsec.ncdnotifier.notification.request.NotificationResult;
 import com.ibsec.ncdnotifier.notification.request.NotificationType;
 
-import com.ibsec.ncdnotifier.notification.service.impl.EmailNotificationChannel;
-import com.ibsec.ncdnotifier.notification.service.impl.SmsNotificationChannel;
+import com.ibsec.ncdnotifier.resilience.Dependency;
+import com.ibsec.ncdnotifier.resilience.DependencyGuards;
+import com.ibsec.ncdnotifier.resilience.DependencyUnavailableException;
+import com.ibsec.ncdnotifier.tracing.RunTracer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Sends through the sender profiles chosen by {@link SenderRouter}: each request is stamped
+ * with its profile's sender ID and, when the profile's channel fails it, retried on another
+ * profile of the same type (up to ncd.senders.failover-attempts times). Every send goes through
+ * the gateway's {@link DependencyGuards guard}; sends it rejects come back as deferred results.
+ *
+ * A failover picks its profile on a failover worker, never on the thread that completed the
+ * failed send (a channel's I/O thread), since taking the profile's rate limit may wait. Once
+ * the caller has settled the send (sendAll's timeout), no further failover is started.
+ */
 @Service
 public class NotificationManager {
 
-    private final Map<NotificationType, NotificationChannel> channels;
+    private final SenderRouter router;
+    private final DependencyGuards guards;
+    private final RunTracer tracer;
 
-    public NotificationManager(
-            EmailNotificationChannel emailChannel,
-            SmsNotificationChannel smsChannel) {
-        Map<NotificationType, NotificationChannel> map = new HashMap<>();
-        map.put(NotificationType.EMAIL, emailChannel);
-        map.put(NotificationType.SMS, smsChannel);
-        this.channels = Collections.unmodifiableMap(map);
+    // runs the per-profile slices of a bulk email send, so the caller can wait with a timeout
+    private final ExecutorService bulkWorkers;
+
+    // picks the failover profile, which may wait on its rate limit
+    private final ExecutorService failoverWorkers;
+
+    public NotificationManager(SenderRouter router, DependencyGuards guards, RunTracer tracer,
+                               @Value("${ncd.senders.bulk-workers:16}") int bulkWorkers,
+                               @Value("${ncd.senders.failover-workers:4}") int failoverWorkers) {
+        this.router = router;
+        this.guards = guards;
+        this.tracer = tracer;
+        this.bulkWorkers = workers(bulkWorkers, "notify-bulk");
+        this.failoverWorkers = workers(failoverWorkers, "notify-failover");
+    }
+
+    // at most {@code threads} threads, idle ones let go; tasks queue while all are busy
+    private static ExecutorService workers(int threads, String name) {
+        int size = Math.max(1, threads);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        bulkWorkers.shutdown();
+        failoverWorkers.shutdown();
     }
 
     public NotificationResult sendNotification(NotificationRequest request) {
-        NotificationChannel channel = channels.get(request.getType());
-        if (channel == null) {
+        return sendAsync(request).join();
+    }
+
+    /**
+     * The returned future is the send's outcome: completing it early (e.g. completeOnTimeout)
+     * stops failover to further profiles.
+     */
+    public CompletableFuture<NotificationResult> sendAsync(NotificationRequest request) {
+        Set<SenderProfile> tried = new HashSet<>();
+        CompletableFuture<NotificationResult> outcome = new CompletableFuture<>();
+        sendVia(request, firstProfile(request, tried), tried, outcome).whenComplete((result, e) -> {
+            if (e != null) {
+                outcome.completeExceptionally(e);
+            } else {
+                outcome.complete(result);
+            }
+        });
+        return outcome;
+    }
+
+    private CompletableFuture<NotificationResult> sendVia(NotificationRequest request, SenderProfile profile,
+                                                          Set<SenderProfile> tried,
+                                                          CompletableFuture<NotificationResult> outcome) {
+        stamp(request, profile);
+        return guards.forChannel(request.getType())
+                .callAsync(() -> profile.getChannel().sendAsync(request), NotificationResult::isSuccess)
+                .exceptionally(NotificationManager::failureResult)
+                .thenCompose(result -> {
+                    // a deferred send never reached the gateway; every profile of the type is behind the same breaker
+                    if (result.isDeferred()) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    router.record(profile, result);
+                    if (result.isSuccess() || outcome.isDone() || tried.size() > router.getFailoverAttempts()) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    return CompletableFuture
+                            .supplyAsync(() -> router.next(request.getType(), request.getSenderGroup(), tried, 1),
+                                    failoverWorkers)
+                            .thenCompose(next -> {
+                                // settled (timed out) while waiting for the next profile's rate limit
+                                if (next == null || outcome.isDone()) {
+                                    return CompletableFuture.completedFuture(result);
+                                }
+                                tried.add(next);
+                                return sendVia(request, next, tried, outcome);
+                            });
+                });
+    }
+
+    private static NotificationResult failureResult(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof DependencyUnavailableException) {
+            return NotificationResult.deferred(cause.getMessage());
+        }
+        if (cause instanceof TimeoutException) {
+            return new NotificationResult(false, "Gateway timed out");
+        }
+        return new NotificationResult(false, cause.getMessage());
+    }
+
+    private SenderProfile firstProfile(NotificationRequest request, Set<SenderProfile> tried) {
+        SenderProfile profile = router.next(request.getType(), request.getSenderGroup(), tried, 1);
+        if (profile == null) {
             throw new IllegalArgumentException("Unsupported notification type: " + request.getType());
         }
-        return channel.send(request);
+        tried.add(profile);
+        return profile;
+    }
+
+    private static void stamp(NotificationRequest request, SenderProfile profile) {
+        if (profile.getSenderId() != null) {
+            request.setSenderId(profile.getSenderId());
+        }
+    }
+
+    /**
+     * Fans the requests out concurrently and completes once every send has finished or timed out.
+     * Results are in request order; a send that exceeds the timeout or fails unexpectedly is
+     * reported as an unsuccessful result rather than failing the whole batch.
+     */
+    public CompletableFuture<List<NotificationResult>> sendAll(List<NotificationRequest> requests, Duration timeout) {
+        List<CompletableFuture<NotificationResult>> futures = new ArrayList<>(requests.size());
+        for (NotificationRequest request : requests) {
+            Span span = tracer.startSpan("notify.send." + request.getType());
+            CompletableFuture<NotificationResult> future;
+            try {
+                future = sendAsync(request);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.completedFuture(new NotificationResult(false, e.getMessage()));
+            }
+            futures.add(future
+                    .completeOnTimeout(new NotificationResult(false, "Timed out after " + timeout.toMillis() + " ms"),
+                            timeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .exceptionally(e -> new NotificationResult(false, e.getMessage()))
+                    .whenComplete((result, e) -> {
+                        if (request.getSenderId() != null) span.setAttribute("sender.id", request.getSenderId());
+                        if (result != null && !result.isSuccess()) span.setStatus(StatusCode.ERROR, result.getMessage());
+                        span.end();
+                    }));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(done -> {
+                    List<NotificationResult> results = new ArrayList<>(futures.size());
+                    for (CompletableFuture<NotificationResult> f : futures) {
+                        results.add(f.join());
+                    }
+                    return results;
+                });
+    }
+
+    /**
+     * Like sendAll, but emails go through the bulk SMTP path (one connection, one MIME body per
+     * distinct text, multi-recipient transactions) while the other channels fan out concurrently.
+     * With several email profiles the emails are split between them and sent in parallel. The
+     * timeout covers the email slices too: one still running when it passes is reported as timed
+     * out (its SMTP transaction may still complete).
+     */
+    public List<NotificationResult> sendBulk(List<NotificationRequest> requests, Duration timeout) {
+        List<Integer> otherIdx = new ArrayList<>();
+        List<NotificationRequest> others = new ArrayList<>();
+        Map<String, List<Integer>> emailIdxByGroup = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            NotificationRequest r = requests.get(i);
+            if (r.getType() == NotificationType.EMAIL) {
+                emailIdxByGroup.computeIfAbsent(Objects.toString(r.getSenderGroup(), ""), g -> new ArrayList<>()).add(i);
+            } else {
+                otherIdx.add(i);
+                others.add(r);
+            }
+        }
+
+        CompletableFuture<List<NotificationResult>> pending = sendAll(others, timeout);
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        NotificationResult[] results = new NotificationResult[requests.size()];
+        List<EmailSlice> slices = new ArrayList<>();
+        emailIdxByGroup.forEach((group, indexes) -> {
+            int profiles = Math.max(1, router.candidates(NotificationType.EMAIL, group).size());
+            int sliceSize = (indexes.size() + profiles - 1) / profiles;
+            for (int from = 0; from < indexes.size(); from += sliceSize) {
+                List<Integer> slice = indexes.subList(from, Math.min(from + sliceSize, indexes.size()));
+                List<NotificationRequest> part = slice.stream().map(requests::get).toList();
+                CompletableFuture<List<NotificationResult>> sent = new CompletableFuture<>();
+                bulkWorkers.execute(tracer.wrap(() -> {
+                    try {
+                        sent.complete(sendBulkVia(part, group, Set.of()));
+                    } catch (Throwable e) {
+                        sent.completeExceptionally(e);
+                    }
+                }));
+                slices.add(new EmailSlice(slice, sent));
+            }
+        });
+        for (EmailSlice slice : slices) {
+            List<NotificationResult> partResults = awaitSlice(slice.sent(), slice.indexes().size(), deadline, timeout);
+            for (int i = 0; i < slice.indexes().size(); i++) results[slice.indexes().get(i)] = partResults.get(i);
+        }
+
+        List<NotificationResult> otherResults = pending.join();
+        for (int i = 0; i < otherIdx.size(); i++) results[otherIdx.get(i)] = otherResults.get(i);
+        return List.of(results);
+    }
+
+    // request indexes of one email slice and its results
+    private record EmailSlice(List<Integer> indexes, CompletableFuture<List<NotificationResult>> sent) {}
+
+    private static List<NotificationResult> awaitSlice(CompletableFuture<List<NotificationResult>> sent, int size,
+                                                       long deadline, Duration timeout) {
+        try {
+            return sent.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return Collections.nCopies(size, new NotificationResult(false, "Timed out after " + timeout.toMillis() + " ms"));
+        } catch (ExecutionException e) {
+            return Collections.nCopies(size, failureResult(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.nCopies(size, new NotificationResult(false, "Interrupted"));
+        }
+    }
+
+    /**
+     * Sends one slice through a single email profile; whatever fails is retried on the next
+     * untried profile while failover attempts remain.
+     */
+    private List<NotificationResult> sendBulkVia(List<NotificationRequest> part, String group,
+                                                 Set<SenderProfile> tried) {
+        SenderProfile profile = router.next(NotificationType.EMAIL, group, tried, part.size());
+        if (profile == null) {
+            NotificationResult unsupported = new NotificationResult(false, "Unsupported notification type: EMAIL");
+            return Collections.nCopies(part.size(), unsupported);
+        }
+        Set<SenderProfile> triedNow = new HashSet<>(tried);
+        triedNow.add(profile);
+
+        part.forEach(r -> stamp(r, profile));
+        List<NotificationResult> results;
+        try {
+            results = new ArrayList<>(guards.get(Dependency.SMTP).call(
+                    () -> tracer.trace("notify.send.EMAIL.bulk", () -> {
+                        Span.current().setAttribute("recipients", part.size());
+                        Span.current().setAttribute("sender.profile", profile.getName());
+                        return profile.getChannel().sendBulk(part);
+                    }),
+                    sent -> sent.stream().anyMatch(NotificationResult::isSuccess)));
+        } catch (DependencyUnavailableException e) {
+            return Collections.nCopies(part.size(), NotificationResult.deferred(e.getMessage()));
+        }
+        results.forEach(r -> router.record(profile, r));
+
+        List<Integer> failed = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (!results.get(i).isSuccess() && !results.get(i).isDeferred()) failed.add(i);
+        }
+        if (failed.isEmpty() || triedNow.size() > router.getFailoverAttempts()
+                || triedNow.containsAll(router.candidates(NotificationType.EMAIL, group))) {
+            return results;
+        }
+
+        List<NotificationResult> retried = sendBulkVia(failed.stream().map(part::get).toList(), group, triedNow);
+        for (int i = 0; i < failed.size(); i++) {
+            if (retried.get(i).isSuccess()) results.set(failed.get(i), retried.get(i));
+        }
+        return results;
     }
 }
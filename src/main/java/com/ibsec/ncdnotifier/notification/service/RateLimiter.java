@@ -0,0 +1,57 @@
+package com.ibsec.ncdnotifier.notification.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket refilled at permitsPerSecond, holding at most one second of permits.
+ * A rate of zero or less means unlimited.
+ *
+ * acquire() reserves the permits up front and then waits out any deficit, so a bulk send
+ * larger than the bucket is paced rather than refused.
+ */
+public class RateLimiter {
+
+    private final double permitsPerSecond;
+    private double available;
+    private long refilledAt = System.nanoTime();
+
+    public RateLimiter(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.available = Math.max(permitsPerSecond, 0);
+    }
+
+    public boolean isUnlimited() {
+        return permitsPerSecond <= 0;
+    }
+
+    public synchronized boolean tryAcquire(int permits) {
+        if (isUnlimited()) return true;
+        refill();
+        if (available < permits) return false;
+        available -= permits;
+        return true;
+    }
+
+    public void acquire(int permits) {
+        if (isUnlimited()) return;
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            available -= permits;
+            waitNanos = available >= 0 ? 0 : (long) (-available / permitsPerSecond * 1_000_000_000L);
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(permitsPerSecond, available + (now - refilledAt) / 1e9 * permitsPerSecond);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,41 @@
+package com.ibsec.ncdnotifier.notification.service;
+
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named sending identity: its own channel instance (provider account and connection pool),
+ * the sender ID stamped on its requests and its own rate limit.
+ */
+public class SenderProfile {
+
+    private final String name;
+    private final NotificationType type;
+    private final String group;
+    private final String senderId;
+    private final NotificationChannel channel;
+    private final RateLimiter rateLimiter;
+
+    final LongAdder sent = new LongAdder();
+    final LongAdder failed = new LongAdder();
+
+    public SenderProfile(String name, NotificationType type, String group, String senderId,
+                         NotificationChannel channel, RateLimiter rateLimiter) {
+        this.name = name;
+        this.type = type;
+        this.group = group;
+        this.senderId = senderId;
+        this.channel = channel;
+        this.rateLimiter = rateLimiter;
+    }
+
+    public String getName() { return name; }
+    public NotificationType getType() { return type; }
+    public String getGroup() { return group; }
+    public String getSenderId() { return senderId; }
+    public NotificationChannel getChannel() { return channel; }
+    public RateLimiter getRateLimiter() { return rateLimiter; }
+    public long getSent() { return sent.sum(); }
+    public long getFailed() { return failed.sum(); }
+}
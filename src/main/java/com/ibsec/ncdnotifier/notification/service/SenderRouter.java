@@ -0,0 +1,133 @@
+package com.ibsec.ncdnotifier.notification.service;
+
+import com.ibsec.ncdnotifier.config.SenderProfilesProperties;
+import com.ibsec.ncdnotifier.notification.request.NotificationResult;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.notification.service.impl.EmailNotificationChannel;
+import com.ibsec.ncdnotifier.notification.service.impl.SmsNotificationChannel;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sender profiles by channel type. Every NotificationChannel bean becomes a "default-<type>"
+ * profile (sender ID from services.sms.sender-id for SMS, the channel's own From for email);
+ * ncd.senders.profiles adds more, each with its own channel instance, connection pool and
+ * rate limit.
+ *
+ * Requests are spread round-robin over the profiles of their type (restricted to the request's
+ * sender group when that group has profiles), skipping profiles whose rate limit is exhausted.
+ */
+@Service
+@EnableConfigurationProperties(SenderProfilesProperties.class)
+public class SenderRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(SenderRouter.class);
+
+    private final Map<NotificationType, List<SenderProfile>> profilesByType = new EnumMap<>(NotificationType.class);
+    private final Map<NotificationType, AtomicInteger> cursors = new EnumMap<>(NotificationType.class);
+    private final List<NotificationChannel> ownedChannels = new ArrayList<>();
+    private final int failoverAttempts;
+
+    public SenderRouter(List<NotificationChannel> channelBeans,
+                        SenderProfilesProperties properties,
+                        @Value("${services.sms.sender-id:IBSECL}") String defaultSmsSenderId) {
+        this.failoverAttempts = properties.getFailoverAttempts();
+
+        for (NotificationChannel channel : channelBeans) {
+            NotificationType type = channel.type();
+            register(new SenderProfile("default-" + type.name().toLowerCase(Locale.ROOT), type, "default",
+                    type == NotificationType.SMS ? defaultSmsSenderId : null, channel,
+                    new RateLimiter(properties.getDefaultRatePerSecond())));
+        }
+
+        for (SenderProfilesProperties.Profile p : properties.getProfiles()) {
+            if (p.getName() == null || p.getType() == null) {
+                throw new IllegalStateException("ncd.senders.profiles entries need a name and a type");
+            }
+            NotificationChannel channel = switch (p.getType()) {
+                case EMAIL -> new EmailNotificationChannel(p.getHost(), p.getPort(), p.getUsername(),
+                        p.getPassword(), p.getFrom(), p.getConnections(), p.getBulkMaxRecipients());
+                case SMS -> new SmsNotificationChannel(p.getBaseUrl(), p.getAuth());
+            };
+            ownedChannels.add(channel);
+            register(new SenderProfile(p.getName(), p.getType(), p.getGroup(),
+                    p.getSenderId() != null ? p.getSenderId() : p.getFrom(), channel,
+                    new RateLimiter(p.getRatePerSecond())));
+        }
+
+        profilesByType.forEach((type, profiles) -> log.info("📮 {} sender profiles: {}", type,
+                profiles.stream().map(sp -> sp.getName() + "[" + sp.getGroup() + "]").toList()));
+    }
+
+    private void register(SenderProfile profile) {
+        profilesByType.computeIfAbsent(profile.getType(), t -> new ArrayList<>()).add(profile);
+        cursors.computeIfAbsent(profile.getType(), t -> new AtomicInteger());
+    }
+
+    public int getFailoverAttempts() {
+        return failoverAttempts;
+    }
+
+    public List<SenderProfile> getProfiles(NotificationType type) {
+        return profilesByType.getOrDefault(type, List.of());
+    }
+
+    /**
+     * Profiles a request of this type and sender group may use: the group's profiles, or all
+     * profiles of the type when the group is blank or has none.
+     */
+    public List<SenderProfile> candidates(NotificationType type, String group) {
+        List<SenderProfile> all = getProfiles(type);
+        if (group == null || group.isBlank()) return all;
+        List<SenderProfile> inGroup = all.stream().filter(p -> group.equals(p.getGroup())).toList();
+        return inGroup.isEmpty() ? all : inGroup;
+    }
+
+    /**
+     * Picks the next profile round-robin and takes {@code permits} from its rate limit,
+     * preferring one that has them free; when all are saturated it waits on the round-robin
+     * choice. Profiles in {@code exclude} (already tried) are skipped.
+     *
+     * @return null when no profile is left
+     */
+    public SenderProfile next(NotificationType type, String group, Set<SenderProfile> exclude, int permits) {
+        List<SenderProfile> candidates = candidates(type, group);
+        int n = candidates.size();
+        if (n == 0) return null;
+
+        int start = Math.floorMod(cursors.get(type).getAndIncrement(), n);
+        SenderProfile fallback = null;
+        for (int i = 0; i < n; i++) {
+            SenderProfile profile = candidates.get((start + i) % n);
+            if (exclude.contains(profile)) continue;
+            if (profile.getRateLimiter().tryAcquire(permits)) return profile;
+            if (fallback == null) fallback = profile;
+        }
+        if (fallback != null) {
+            fallback.getRateLimiter().acquire(permits);
+        }
+        return fallback;
+    }
+
+    void record(SenderProfile profile, NotificationResult result) {
+        if (result != null && result.isSuccess()) {
+            profile.sent.increment();
+        } else {
+            profile.failed.increment();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (NotificationChannel channel : ownedChannels) {
+            channel.shutdown();
+        }
+    }
+}
@@ -2,18 +2,26 @@ package com.ibsec.ncdnotifier.notification.service.impl;
 
 import com.ibsec.ncdnotifier.notification.request.NotificationRequest;
 import com.ibsec.ncdnotifier.notification.request.NotificationResult;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
 import com.ibsec.ncdnotifier.notification.service.NotificationChannel;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 import jakarta.mail.*;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
-import java.util.Properties;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
+@Profile("!simulation")
 public class EmailNotificationChannel implements NotificationChannel {
 
     @Value("${netcore.url}")
@@ -31,37 +39,300 @@ public class EmailNotificationChannel implements NotificationChannel {
     @Value("${netcore.from.mail.id}")
     private String netcoreFromMailId;
 
+    @Value("${netcore.async.connections:4}")
+    private int asyncConnections;
+
+    @Value("${netcore.bulk.max-recipients:50}")
+    private int bulkMaxRecipients;
+
+    // connect / read / write socket timeout, so a hung SMTP server fails the call instead of blocking it
+    @Value("${netcore.timeout-ms:30000}")
+    private int timeoutMs = 30000;
+
     private static final String INDIABULLS_SECURITIES = "Indiabulls Securities";
 
     Logger logger = LoggerFactory.getLogger(EmailNotificationChannel.class);
 
+    private volatile Session session;
+
+    // async pipeline: a few workers, each keeping one authenticated SMTP connection open
+    private volatile ExecutorService asyncWorkers;
+    private final ThreadLocal<Transport> workerTransport = new ThreadLocal<>();
+
+    public EmailNotificationChannel() {}
+
+    /**
+     * Channel for an additional sender profile (own SMTP account, From address and connection pool).
+     */
+    public EmailNotificationChannel(String host, int port, String userId, String password, String fromMailId,
+                                    int asyncConnections, int bulkMaxRecipients) {
+        this.netcoreUrl = host;
+        this.netcorePort = String.valueOf(port);
+        this.netcoreUserId = userId;
+        this.netcorePassword = password;
+        this.netcoreFromMailId = fromMailId;
+        this.asyncConnections = asyncConnections;
+        this.bulkMaxRecipients = bulkMaxRecipients;
+    }
+
+    @Override
+    public NotificationType type() {
+        return NotificationType.EMAIL;
+    }
+
     @Override
     public NotificationResult send(NotificationRequest request) {
+        Transport transport = null;
         try {
-            Session session = setNetcoreProperties();
-
-            MimeMessage message = new MimeMessage(session);
-            logger.info("from mail id :: {} to mail id :: {}", netcoreFromMailId, request.getRecipient());
-            InternetAddress addressFrom = new InternetAddress(netcoreFromMailId, INDIABULLS_SECURITIES);
-            message.setFrom(addressFrom);
-            message.setSender(addressFrom);
-
-            message.addRecipient(Message.RecipientType.TO, new InternetAddress(request.getRecipient()));
-            message.setSubject(request.getSubject());
-            message.setContent(request.getMessage(), request.getContentType());
+            MimeMessage message = buildMessage(request);
 
-            Transport transport = session.getTransport();
+            transport = getSession().getTransport();
             transport.connect();
-            Transport.send(message);
-            transport.close();
+            transport.sendMessage(message, message.getAllRecipients());
             logger.info("HTML email sent successfully...");
-            return new NotificationResult(true, "Email sent successfully");
+            return NotificationResult.accepted("Email sent successfully", providerMessageId(message, request.getRecipient()));
+        } catch (Exception e) {
+            logger.error("Exception occurred while sending HTML email", e);
+            return new NotificationResult(false, e.getMessage() != null ? e.getMessage() : "Unknown error");
+        } finally {
+            closeQuietly(transport);
+        }
+    }
+
+    /**
+     * Queues the message on the SMTP worker pool. Jakarta Mail has no non-blocking transport,
+     * so concurrency is bounded by netcore.async.connections reused connections rather than
+     * one thread and one connection per message.
+     */
+    @Override
+    public CompletableFuture<NotificationResult> sendAsync(NotificationRequest request) {
+        return CompletableFuture.supplyAsync(() -> sendOnWorkerConnection(request), getAsyncWorkers());
+    }
+
+    private NotificationResult sendOnWorkerConnection(NotificationRequest request) {
+        try {
+            MimeMessage message = buildMessage(request);
+            Transport transport = workerTransport.get();
+            if (transport == null || !transport.isConnected()) {
+                transport = getSession().getTransport();
+                transport.connect();
+                workerTransport.set(transport);
+            }
+            try {
+                transport.sendMessage(message, message.getAllRecipients());
+            } catch (MessagingException e) {
+                if (transport.isConnected()) throw e;
+                // the server dropped the idle connection; retry once on a fresh one
+                closeQuietly(transport);
+                transport = getSession().getTransport();
+                transport.connect();
+                workerTransport.set(transport);
+                transport.sendMessage(message, message.getAllRecipients());
+            }
+            logger.info("HTML email sent successfully to {}", request.getRecipient());
+            return NotificationResult.accepted("Email sent successfully", providerMessageId(message, request.getRecipient()));
         } catch (Exception e) {
             logger.error("Exception occurred while sending HTML email", e);
             return new NotificationResult(false, e.getMessage() != null ? e.getMessage() : "Unknown error");
         }
     }
 
+    /**
+     * Bulk mode for many recipients of the same alert. Requests are grouped by identical
+     * subject / body / content type. Each group's MIME body is built once and sent as a few
+     * multi-RCPT SMTP transactions (netcore.bulk.max-recipients each), and every group goes over
+     * one authenticated connection. Requests whose content differs form their own groups, so
+     * personalised copies are only produced when the text actually differs.
+     *
+     * Results are in request order. A recipient rejected by the server fails on its own
+     * (mail.smtp.sendpartial); the rest of its transaction is still delivered.
+     */
+    @Override
+    public List<NotificationResult> sendBulk(List<NotificationRequest> requests) {
+        NotificationResult[] results = new NotificationResult[requests.size()];
+
+        Map<List<String>, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            NotificationRequest r = requests.get(i);
+            groups.computeIfAbsent(Arrays.asList(r.getSubject(), r.getMessage(), r.getContentType()),
+                    k -> new ArrayList<>()).add(i);
+        }
+
+        Transport transport = null;
+        try {
+            transport = getSession().getTransport();
+            transport.connect();
+
+            for (List<Integer> group : groups.values()) {
+                NotificationRequest template = requests.get(group.get(0));
+                MimeMessage message = buildBulkMessage(template);
+
+                // resolve addresses up front so one malformed address cannot sink its batch
+                List<Integer> valid = new ArrayList<>(group.size());
+                List<InternetAddress> addresses = new ArrayList<>(group.size());
+                for (int idx : group) {
+                    try {
+                        addresses.add(new InternetAddress(requests.get(idx).getRecipient(), true));
+                        valid.add(idx);
+                    } catch (Exception e) {
+                        results[idx] = new NotificationResult(false, "Invalid address: " + e.getMessage());
+                    }
+                }
+
+                for (int from = 0; from < valid.size(); from += bulkMaxRecipients) {
+                    int to = Math.min(from + bulkMaxRecipients, valid.size());
+                    transport = sendBatch(transport, message,
+                            valid.subList(from, to), addresses.subList(from, to), results);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Bulk email connection failed", e);
+            String reason = e.getMessage() != null ? e.getMessage() : "Unknown error";
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) results[i] = new NotificationResult(false, reason);
+            }
+        } finally {
+            closeQuietly(transport);
+        }
+
+        long ok = Arrays.stream(results).filter(NotificationResult::isSuccess).count();
+        logger.info("Bulk email: {} requests in {} groups, {} accepted, {} failed",
+                requests.size(), groups.size(), ok, requests.size() - ok);
+        return Arrays.asList(results);
+    }
+
+    private Transport sendBatch(Transport transport, MimeMessage message, List<Integer> indexes,
+                                List<InternetAddress> addresses, NotificationResult[] results) throws MessagingException {
+        if (!transport.isConnected()) {
+            closeQuietly(transport);
+            transport = getSession().getTransport();
+            transport.connect();
+        }
+
+        try {
+            transport.sendMessage(message, addresses.toArray(new Address[0]));
+            for (int i = 0; i < indexes.size(); i++) {
+                results[indexes.get(i)] = NotificationResult.accepted("Email sent successfully",
+                        providerMessageId(message, addresses.get(i).getAddress()));
+            }
+        } catch (SendFailedException e) {
+            // partial failure: the server rejected some RCPT TO, the others were accepted
+            Set<Address> rejected = new HashSet<>();
+            if (e.getInvalidAddresses() != null) rejected.addAll(Arrays.asList(e.getInvalidAddresses()));
+            if (e.getValidUnsentAddresses() != null) rejected.addAll(Arrays.asList(e.getValidUnsentAddresses()));
+            for (int i = 0; i < indexes.size(); i++) {
+                boolean failed = rejected.contains(addresses.get(i));
+                results[indexes.get(i)] = failed
+                        ? new NotificationResult(false, "Recipient rejected: " + e.getMessage())
+                        : NotificationResult.accepted("Email sent successfully",
+                                providerMessageId(message, addresses.get(i).getAddress()));
+            }
+        } catch (MessagingException e) {
+            // transaction-level failure: fail this batch only, carry on with a fresh connection
+            logger.error("Bulk email batch of {} failed", indexes.size(), e);
+            for (int idx : indexes) {
+                results[idx] = new NotificationResult(false, e.getMessage() != null ? e.getMessage() : "Unknown error");
+            }
+            closeQuietly(transport);
+            transport = getSession().getTransport();
+            transport.connect();
+        }
+        return transport;
+    }
+
+    /**
+     * Delivery-report key of one recipient of a message: Message-ID without brackets, "/", the
+     * lower-cased address. A bulk message has one Message-ID for all of its recipients, and the
+     * relay reports per recipient.
+     */
+    static String providerMessageId(MimeMessage message, String recipient) {
+        try {
+            String id = message.getMessageID();
+            if (id == null || recipient == null) return null;
+            id = id.trim();
+            if (id.startsWith("<") && id.endsWith(">")) id = id.substring(1, id.length() - 1);
+            return id + "/" + recipient.trim().toLowerCase(Locale.ROOT);
+        } catch (MessagingException e) {
+            return null;
+        }
+    }
+
+    private MimeMessage buildBulkMessage(NotificationRequest template) throws Exception {
+        MimeMessage message = new MimeMessage(getSession());
+        InternetAddress addressFrom = new InternetAddress(netcoreFromMailId, INDIABULLS_SECURITIES);
+        message.setFrom(addressFrom);
+        message.setSender(addressFrom);
+
+        // envelope recipients only; no client sees the others' addresses
+        message.setHeader("To", "undisclosed-recipients:;");
+        message.setSubject(template.getSubject());
+        message.setContent(template.getMessage(), template.getContentType());
+        message.saveChanges();
+        return message;
+    }
+
+    private MimeMessage buildMessage(NotificationRequest request) throws Exception {
+        MimeMessage message = new MimeMessage(getSession());
+        logger.info("from mail id :: {} to mail id :: {}", netcoreFromMailId, request.getRecipient());
+        InternetAddress addressFrom = new InternetAddress(netcoreFromMailId, INDIABULLS_SECURITIES);
+        message.setFrom(addressFrom);
+        message.setSender(addressFrom);
+
+        message.addRecipient(Message.RecipientType.TO, new InternetAddress(request.getRecipient()));
+        message.setSubject(request.getSubject());
+        message.setContent(request.getMessage(), request.getContentType());
+        // Transport#sendMessage (unlike the static Transport.send) does not finalize headers itself
+        message.saveChanges();
+        return message;
+    }
+
+    private ExecutorService getAsyncWorkers() {
+        if (asyncWorkers == null) {
+            synchronized (this) {
+                if (asyncWorkers == null) {
+                    AtomicInteger n = new AtomicInteger();
+                    asyncWorkers = Executors.newFixedThreadPool(asyncConnections, r -> {
+                        Thread t = new Thread(() -> {
+                            try {
+                                r.run();
+                            } finally {
+                                closeQuietly(workerTransport.get());
+                                workerTransport.remove();
+                            }
+                        }, "smtp-worker-" + n.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+        return asyncWorkers;
+    }
+
+    @Override
+    @PreDestroy
+    public void shutdown() {
+        if (asyncWorkers != null) {
+            asyncWorkers.shutdown();
+        }
+    }
+
+    private void closeQuietly(Transport transport) {
+        if (transport == null) return;
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Ignoring error closing SMTP transport: {}", e.getMessage());
+        }
+    }
+
+    private Session getSession() {
+        if (session == null) {
+            session = setNetcoreProperties();
+        }
+        return session;
+    }
+
     private Session setNetcoreProperties() {
         Properties props = new Properties();
         props.setProperty("mail.transport.protocol", "smtp");
@@ -71,10 +342,15 @@ public class EmailNotificationChannel implements NotificationChannel {
         props.put("mail.smtp.starttls.enable", "true");
         props.put("mail.smtp.host", netcoreUrl);
         props.put("mail.smtp.port", netcorePort);
+        // report rejected recipients individually instead of failing the whole transaction
+        props.put("mail.smtp.sendpartial", "true");
+        props.put("mail.smtp.connectiontimeout", String.valueOf(timeoutMs));
+        props.put("mail.smtp.timeout", String.valueOf(timeoutMs));
+        props.put("mail.smtp.writetimeout", String.valueOf(timeoutMs));
 
         logger.info("Using Netcore SMTP -> host: {}, port: {}, userId: {}", netcoreUrl, netcorePort, netcoreUserId);
 
-        return Session.getDefaultInstance(props, new Authenticator() {
+        return Session.getInstance(props, new Authenticator() {
             @Override
             protected PasswordAuthentication getPasswordAuthentication() {
                 return new PasswordAuthentication(netcoreUserId, netcorePassword);
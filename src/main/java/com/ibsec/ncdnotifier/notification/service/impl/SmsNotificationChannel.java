@@ -1,24 +1,32 @@
 package com.ibsec.ncdnotifier.notification.service.impl;
 
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ibsec.ncdnotifier.notification.request.NotificationRequest;
 import com.ibsec.ncdnotifier.notification.request.NotificationResult;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
 import com.ibsec.ncdnotifier.notification.service.NotificationChannel;
 
-import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
-import org.springframework.web.util.UriComponentsBuilder;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 
 @Service
+@Profile("!simulation")
 public class SmsNotificationChannel implements NotificationChannel {
 
     @Value("${services.sms.base-url}")
@@ -27,46 +35,107 @@ public class SmsNotificationChannel implements NotificationChannel {
     @Value("${services.sms.auth}")
     private String smsAuthHeader;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Value("${services.sms.connect-timeout-ms:5000}")
+    private long connectTimeoutMs = 5000;
+
+    // per-request budget: a hung gateway fails the send instead of holding it open
+    @Value("${services.sms.timeout-ms:10000}")
+    private long timeoutMs = 10000;
+
+    // field of the gateway's JSON response holding its message ID (matched by delivery reports)
+    @Value("${services.sms.message-id-field:messageId}")
+    private String messageIdField = "messageId";
+
+    // non-blocking client: in-flight requests hold no thread while waiting for the gateway
+    private volatile HttpClient httpClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     Logger log = LoggerFactory.getLogger(SmsNotificationChannel.class);
 
+    public SmsNotificationChannel() {}
+
+    /**
+     * Channel for an additional sender profile (own gateway URL and credentials).
+     */
+    public SmsNotificationChannel(String smsServiceUrl, String smsAuthHeader) {
+        this.smsServiceUrl = smsServiceUrl;
+        this.smsAuthHeader = smsAuthHeader;
+    }
+
+
+    @Override
+    public NotificationType type() {
+        return NotificationType.SMS;
+    }
+
+    private String messageId(String body) {
+        if (body == null || body.isBlank()) {
+            return null;
+        }
+        try {
+            JsonNode id = objectMapper.readTree(body).path(messageIdField);
+            return id.isValueNode() && !id.asText().isBlank() ? id.asText() : null;
+        } catch (JsonProcessingException e) {
+            return null;    // plain-text acknowledgement: no delivery reports for this message
+        }
+    }
 
     @Override
     public NotificationResult send(NotificationRequest request) {
+        return sendAsync(request).join();
+    }
+
+    @Override
+    public CompletableFuture<NotificationResult> sendAsync(NotificationRequest request) {
         // Create request body as expected by the .NET API
         Map<String, String> payload = new HashMap<>();
         payload.put("dest", request.getRecipient());
         payload.put("text", request.getMessage());
         payload.put("senderId", request.getSenderId());
 
-        // Prepare headers
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.set("Authorization", smsAuthHeader);
-
-        HttpEntity<Map<String, String>> entity = new HttpEntity<>(payload, headers);
+        HttpRequest httpRequest;
+        try {
+            httpRequest = HttpRequest.newBuilder(URI.create(smsServiceUrl))
+                    .timeout(Duration.ofMillis(timeoutMs))
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", smsAuthHeader)
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(payload)))
+                    .build();
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            log.info(" Error sending SMS: {}", e.getMessage());
+            return CompletableFuture.completedFuture(new NotificationResult(false, e.getMessage()));
+        }
 
         // Make POST request
-        try {
-            ResponseEntity<String> response = restTemplate.exchange(
-                    UriComponentsBuilder.fromHttpUrl(smsServiceUrl).toUriString(),
-                    HttpMethod.POST,
-                    entity,
-                    String.class
-            );
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                log.info(" SMS sent successfully to :{}", request.getRecipient());
-                return new NotificationResult(true, "SMS sent successfully");
-            } else {
-                log.info(" Failed to send SMS: {}", response.getStatusCode());
-                return new NotificationResult(false, "Failed to send SMS");
+        return getHttpClient().sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() / 100 == 2) {
+                        log.info(" SMS sent successfully to :{}", request.getRecipient());
+                        return NotificationResult.accepted("SMS sent successfully", messageId(response.body()));
+                    } else {
+                        log.info(" Failed to send SMS: {}", response.statusCode());
+                        return new NotificationResult(false, "Failed to send SMS");
+                    }
+                })
+                .exceptionally(e -> {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.info(" Error sending SMS: {}", cause.getMessage());
+                    return new NotificationResult(false, cause.getMessage());
+                });
+    }
+
+    private HttpClient getHttpClient() {
+        if (httpClient == null) {
+            synchronized (this) {
+                if (httpClient == null) {
+                    httpClient = HttpClient.newBuilder()
+                            .version(HttpClient.Version.HTTP_1_1)
+                            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                            .build();
+                }
             }
-        } catch (Exception e) {
-            log.info(" Error sending SMS: {}", e.getMessage());
-            return new NotificationResult(false, e.getMessage());
         }
+        return httpClient;
     }
 }
-
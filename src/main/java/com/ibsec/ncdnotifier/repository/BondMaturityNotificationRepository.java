@@ -2,7 +2,90 @@ package com.ibsec.ncdnotifier.repository;
 
 
 import com.ibsec.ncdnotifier.entity.BondMaturityNotificationLog;
+import com.ibsec.ncdnotifier.notification.request.NotificationStatus;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Every query below filters on notified_on or leads with an indexed column, so PostgreSQL
+ * prunes to the matching monthly partitions instead of scanning the whole log.
+ */
 public interface BondMaturityNotificationRepository extends JpaRepository<BondMaturityNotificationLog, Long> {
+
+    /**
+     * Notifications per channel and status sent in [from, to).
+     */
+    @Query("""
+            SELECT l.channel AS channel, l.status AS status, COUNT(l) AS count
+            FROM BondMaturityNotificationLog l
+            WHERE l.notifiedOn >= :from AND l.notifiedOn < :to
+            GROUP BY l.channel, l.status""")
+    List<DeliveryStats> findDeliveryStats(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Delivery breakdown for one bond maturity (served by the isin/client/channel/maturity index).
+     */
+    @Query("""
+            SELECT l.channel AS channel, l.status AS status, COUNT(l) AS count
+            FROM BondMaturityNotificationLog l
+            WHERE l.isin = :isin AND l.maturityDate = :maturityDate
+            GROUP BY l.channel, l.status""")
+    List<DeliveryStats> findDeliveryStatsForBond(@Param("isin") String isin,
+                                                 @Param("maturityDate") LocalDate maturityDate);
+
+    /**
+     * Clients and channels with a notification in one of the statuses for this bond maturity
+     * (served by the isin/client/channel/maturity index).
+     */
+    @Query("""
+            SELECT DISTINCT l.clientId AS clientId, l.channel AS channel
+            FROM BondMaturityNotificationLog l
+            WHERE l.isin = :isin AND l.maturityDate = :maturityDate AND l.status IN :statuses""")
+    List<NotifiedClient> findNotifiedClients(@Param("isin") String isin,
+                                             @Param("maturityDate") LocalDate maturityDate,
+                                             @Param("statuses") Collection<NotificationStatus> statuses);
+
+    /**
+     * A client's notifications in [from, to), newest first.
+     */
+    @Query("""
+            SELECT l FROM BondMaturityNotificationLog l
+            WHERE l.clientId = :clientId AND l.notifiedOn >= :from AND l.notifiedOn < :to
+            ORDER BY l.notifiedOn DESC""")
+    List<BondMaturityNotificationLog> findClientHistory(@Param("clientId") String clientId,
+                                                        @Param("from") LocalDateTime from,
+                                                        @Param("to") LocalDateTime to,
+                                                        Pageable page);
+
+    /**
+     * Rows in a status after the given ID, oldest first (keyset paging; DEFERRED rows are
+     * served by a partial index on PostgreSQL).
+     */
+    List<BondMaturityNotificationLog> findByStatusAndIdGreaterThanOrderByIdAsc(NotificationStatus status, long afterId,
+                                                                              Pageable page);
+
+    List<BondMaturityNotificationLog> findByStatusAndIdIn(NotificationStatus status, Collection<Long> ids);
+
+    long countByStatusIn(Collection<NotificationStatus> statuses);
+
+    long countByStatusInAndIdIn(Collection<NotificationStatus> statuses, Collection<Long> ids);
+
+    interface NotifiedClient {
+        String getClientId();
+        NotificationType getChannel();
+    }
+
+    interface DeliveryStats {
+        NotificationType getChannel();
+        NotificationStatus getStatus();
+        long getCount();
+    }
 }
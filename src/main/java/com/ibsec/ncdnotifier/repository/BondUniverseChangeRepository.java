@@ -0,0 +1,14 @@
+package com.ibsec.ncdnotifier.repository;
+
+import com.ibsec.ncdnotifier.entity.BondUniverseChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BondUniverseChangeRepository extends JpaRepository<BondUniverseChange, Long> {
+
+    List<BondUniverseChange> findByDetectedOnGreaterThanEqualOrderByDetectedOnAscIdAsc(LocalDateTime since);
+
+    List<BondUniverseChange> findByIsinOrderByDetectedOnAscIdAsc(String isin);
+}
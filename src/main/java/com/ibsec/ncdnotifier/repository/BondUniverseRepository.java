@@ -0,0 +1,7 @@
+package com.ibsec.ncdnotifier.repository;
+
+import com.ibsec.ncdnotifier.entity.BondUniverseEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface BondUniverseRepository extends JpaRepository<BondUniverseEntry, String> {
+}
@@ -0,0 +1,293 @@
+package com.ibsec.ncdnotifier.repository;
+
+import com.ibsec.ncdnotifier.resilience.Dependency;
+import com.ibsec.ncdnotifier.resilience.DependencyGuards;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * All reads of sapphire.vw_final_holding_midoffice.
+ *
+ * Every query has one fixed SQL text — bulk lookups bind the ISINs as a single array
+ * (isin = ANY(?)) instead of an IN list sized per chunk — so the driver's statement cache and
+ * server-side prepare (prepareThreshold on the primary JDBC URL) reuse one prepared statement
+ * and plan per connection. Rows map by column index to typed records.
+ *
+ * Each query kind is timed (calls, rows, mean / max, slow count). With
+ * ncd.holdings.explain.enabled, a lookup slower than ncd.holdings.slow-query-ms is re-run under
+ * EXPLAIN (ANALYZE, BUFFERS) — at most once per kind per ncd.holdings.explain.min-interval-ms,
+ * since that executes the query again — and the plan is appended to ncd.holdings.explain.report-file.
+ * The EXPLAIN runs in the background on its own thread and pool connection, limited by
+ * ncd.holdings.explain.timeout-ms, so the slow lookup returns (and is timed by its dependency
+ * guard) without waiting for it; one waits at most, further ones are skipped.
+ */
+@Repository
+public class HoldingsDao {
+
+    private static final Logger log = LoggerFactory.getLogger(HoldingsDao.class);
+
+    private static final String VIEW = "sapphire.vw_final_holding_midoffice";
+
+    static final String HOLDERS_SQL = "SELECT DISTINCT client_id FROM " + VIEW + " WHERE isin = ?";
+    static final String HOLDINGS_SQL = "SELECT DISTINCT isin, client_id FROM " + VIEW + " WHERE isin = ANY(?)";
+    static final String HOLDER_COUNTS_SQL = "SELECT isin, COUNT(DISTINCT client_id) FROM " + VIEW
+            + " WHERE isin = ANY(?) GROUP BY isin";
+
+    private static final RowMapper<String> CLIENT_ID = (rs, rowNum) -> rs.getString(1);
+    private static final RowMapper<Holding> HOLDING = (rs, rowNum) -> new Holding(rs.getString(1), rs.getString(2));
+    private static final RowMapper<HolderCount> HOLDER_COUNT =
+            (rs, rowNum) -> new HolderCount(rs.getString(1), rs.getLong(2));
+    private static final RowMapper<Exposure> EXPOSURE = (rs, rowNum) -> new Exposure(rs.getString(1), rs.getDouble(2));
+
+    private final JdbcTemplate primaryJdbcTemplate;
+    // single-ISIN lookups run per row of a run: the dependency's timeout budget is their query timeout
+    private final JdbcTemplate lookupJdbc;
+    private final JdbcTemplate explainJdbc;
+
+    // one EXPLAIN at a time, one more waiting; anything beyond is dropped
+    private final ExecutorService explainWorker = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), r -> {
+                Thread t = new Thread(r, "holdings-explain");
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    @Value("${ncd.holdings.bulk-chunk:1000}")
+    private int bulkChunk;
+
+    @Value("${ncd.holdings.slow-query-ms:500}")
+    private long slowQueryMs;
+
+    @Value("${ncd.holdings.explain.enabled:false}")
+    private boolean explainEnabled;
+
+    @Value("${ncd.holdings.explain.min-interval-ms:60000}")
+    private long explainMinIntervalMs;
+
+    @Value("${ncd.holdings.explain.report-file:}")
+    private String explainReportFile;
+
+    private final Map<String, QueryTimer> timers = new ConcurrentHashMap<>();
+    private volatile Boolean postgres;
+
+    public HoldingsDao(@Qualifier("primaryJdbcTemplate") JdbcTemplate primaryJdbcTemplate, DependencyGuards guards,
+                       @Value("${ncd.holdings.explain.timeout-ms:30000}") long explainTimeoutMs) {
+        this.primaryJdbcTemplate = primaryJdbcTemplate;
+        this.lookupJdbc = new JdbcTemplate(Objects.requireNonNull(primaryJdbcTemplate.getDataSource()));
+        long timeoutMs = guards.get(Dependency.PRIMARY_DB).getTimeout().toMillis();
+        this.lookupJdbc.setQueryTimeout((int) Math.max(1, (timeoutMs + 999) / 1000));
+        this.explainJdbc = new JdbcTemplate(primaryJdbcTemplate.getDataSource());
+        this.explainJdbc.setQueryTimeout((int) Math.max(1, (explainTimeoutMs + 999) / 1000));
+    }
+
+    @PreDestroy
+    void stopExplaining() {
+        explainWorker.shutdownNow();
+    }
+
+    /**
+     * Client IDs holding the ISIN.
+     */
+    public List<String> holders(String isin) {
+        return timed("holders", HOLDERS_SQL, List.of(isin), () -> lookupJdbc.query(HOLDERS_SQL, CLIENT_ID, isin));
+    }
+
+    /**
+     * Client IDs per ISIN, for the ISINs that have holders.
+     */
+    public Map<String, Set<String>> holdersByIsin(List<String> isins) {
+        Map<String, Set<String>> byIsin = new HashMap<>();
+        for (int from = 0; from < isins.size(); from += bulkChunk) {
+            List<String> chunk = isins.subList(from, Math.min(from + bulkChunk, isins.size()));
+            List<Holding> rows = timed("holdings.bulk", HOLDINGS_SQL, chunk,
+                    () -> primaryJdbcTemplate.query(HOLDINGS_SQL, isinArray(chunk), HOLDING));
+            for (Holding h : rows) {
+                byIsin.computeIfAbsent(h.isin(), k -> new HashSet<>()).add(h.clientId());
+            }
+        }
+        return byIsin;
+    }
+
+    /**
+     * Distinct holder count per ISIN, for the ISINs that have holders.
+     */
+    public Map<String, Long> holderCounts(List<String> isins) {
+        Map<String, Long> counts = new HashMap<>();
+        for (int from = 0; from < isins.size(); from += bulkChunk) {
+            List<String> chunk = isins.subList(from, Math.min(from + bulkChunk, isins.size()));
+            List<HolderCount> rows = timed("holder-counts", HOLDER_COUNTS_SQL, chunk,
+                    () -> primaryJdbcTemplate.query(HOLDER_COUNTS_SQL, isinArray(chunk), HOLDER_COUNT));
+            for (HolderCount c : rows) {
+                counts.put(c.isin(), c.holders());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Total of the numeric position column per ISIN, for the ISINs that have holdings. The column
+     * name must already be validated as a plain identifier; the SQL text is fixed per column.
+     */
+    public Map<String, Double> exposureByIsin(List<String> isins, String column) {
+        String sql = "SELECT isin, SUM(" + column + ") FROM " + VIEW + " WHERE isin = ANY(?) GROUP BY isin";
+        Map<String, Double> exposure = new HashMap<>();
+        for (int from = 0; from < isins.size(); from += bulkChunk) {
+            List<String> chunk = isins.subList(from, Math.min(from + bulkChunk, isins.size()));
+            List<Exposure> rows = timed("exposure", sql, chunk,
+                    () -> primaryJdbcTemplate.query(sql, isinArray(chunk), EXPOSURE));
+            for (Exposure e : rows) {
+                exposure.put(e.isin(), e.total());
+            }
+        }
+        return exposure;
+    }
+
+    /**
+     * Timings per query kind since startup.
+     */
+    public Map<String, QueryTiming> timings() {
+        Map<String, QueryTiming> out = new LinkedHashMap<>();
+        timers.forEach((name, t) -> out.put(name, t.snapshot(name)));
+        return out;
+    }
+
+    private static PreparedStatementSetter isinArray(List<String> isins) {
+        return ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", isins.toArray()));
+    }
+
+    private <T> List<T> timed(String name, String sql, List<String> isins, Supplier<List<T>> query) {
+        QueryTimer timer = timers.computeIfAbsent(name, k -> new QueryTimer());
+        long started = System.nanoTime();
+        List<T> rows = query.get();
+        long elapsedNanos = System.nanoTime() - started;
+        long elapsedMs = elapsedNanos / 1_000_000;
+        timer.record(elapsedNanos, rows.size(), elapsedMs >= slowQueryMs);
+
+        if (elapsedMs >= slowQueryMs) {
+            log.warn("🐢 Slow holdings query {}: {} ms for {} ISINs, {} rows", name, elapsedMs, isins.size(), rows.size());
+            if (explainEnabled && timer.claimExplain(explainMinIntervalMs)) {
+                List<String> params = List.copyOf(isins);
+                explainWorker.execute(() -> explain(name, sql, params, elapsedMs));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Re-runs the query under EXPLAIN ANALYZE and appends the plan to the report file.
+     * Diagnostic only: failures are logged, never thrown.
+     */
+    private void explain(String name, String sql, List<String> isins, long elapsedMs) {
+        try {
+            String prefix = isPostgres() ? "EXPLAIN (ANALYZE, BUFFERS) " : "EXPLAIN ANALYZE ";
+            PreparedStatementSetter params = sql.contains("ANY(?)")
+                    ? isinArray(isins) : ps -> ps.setString(1, isins.get(0));
+            List<String> plan = explainJdbc.query(prefix + sql, params, (rs, rowNum) -> rs.getString(1));
+
+            StringBuilder entry = new StringBuilder()
+                    .append("=== ").append(LocalDateTime.now()).append(' ').append(name)
+                    .append(": ").append(elapsedMs).append(" ms (slow-query-ms ").append(slowQueryMs).append(")\n")
+                    .append(sql).append('\n')
+                    .append("-- ").append(isins.size()).append(" ISINs: ")
+                    .append(isins.subList(0, Math.min(5, isins.size())))
+                    .append(isins.size() > 5 ? " ..." : "").append('\n');
+            plan.forEach(line -> entry.append(line).append('\n'));
+            entry.append('\n');
+
+            if (explainReportFile.isBlank()) {
+                log.info("Plan of slow holdings query {}:\n{}", name, entry);
+                return;
+            }
+            Path out = Path.of(explainReportFile);
+            synchronized (this) {
+                if (out.getParent() != null) Files.createDirectories(out.getParent());
+                Files.writeString(out, entry, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            timers.get(name).explained.increment();
+            log.info("Plan of slow holdings query {} written to {}", name, out.toAbsolutePath());
+        } catch (DataAccessException | IOException e) {
+            log.warn("Could not capture the plan of holdings query {}: {}", name, e.getMessage());
+        }
+    }
+
+    private boolean isPostgres() {
+        Boolean known = postgres;
+        if (known == null) {
+            String product = explainJdbc.execute(
+                    (ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            known = "PostgreSQL".equalsIgnoreCase(product);
+            postgres = known;
+        }
+        return known;
+    }
+
+    public record Holding(String isin, String clientId) {}
+
+    public record HolderCount(String isin, long holders) {}
+
+    public record Exposure(String isin, double total) {}
+
+    public record QueryTiming(String query, long calls, long rows, long totalMs, double meanMs, double maxMs,
+                              long slow, long explained) {}
+
+    private static final class QueryTimer {
+        final LongAdder calls = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final LongAdder slow = new LongAdder();
+        final LongAdder explained = new LongAdder();
+        final AtomicLong lastExplainAt = new AtomicLong();
+
+        void record(long elapsedNanos, int rowCount, boolean isSlow) {
+            calls.increment();
+            rows.add(rowCount);
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            if (isSlow) slow.increment();
+        }
+
+        boolean claimExplain(long minIntervalMs) {
+            long now = System.currentTimeMillis();
+            long last = lastExplainAt.get();
+            return now - last >= minIntervalMs && lastExplainAt.compareAndSet(last, now);
+        }
+
+        QueryTiming snapshot(String name) {
+            long n = calls.sum();
+            long total = totalNanos.sum();
+            return new QueryTiming(name, n, rows.sum(), total / 1_000_000, n == 0 ? 0 : total / 1e6 / n,
+                    maxNanos.get() / 1e6, slow.sum(), explained.sum());
+        }
+    }
+}
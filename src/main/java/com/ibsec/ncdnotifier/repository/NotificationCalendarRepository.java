@@ -0,0 +1,52 @@
+package com.ibsec.ncdnotifier.repository;
+
+
+import com.ibsec.ncdnotifier.entity.NotificationCalendarEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface NotificationCalendarRepository extends JpaRepository<NotificationCalendarEntry, Long> {
+
+    List<NotificationCalendarEntry> findBySendDateAndDispatchedOnIsNull(LocalDate sendDate);
+
+    List<NotificationCalendarEntry> findBySendDateBetweenAndDispatchedOnIsNull(LocalDate from, LocalDate to);
+
+    // rows held for quiet hours before the catch-up window (e.g. held overnight with catch-up 0)
+    List<NotificationCalendarEntry> findBySendDateBeforeAndQuietHeldOnIsNotNullAndDispatchedOnIsNull(LocalDate date);
+
+    Optional<NotificationCalendarEntry> findFirstByIsinAndDispatchedOnIsNotNullOrderBySendDateDesc(String isin);
+
+    List<NotificationCalendarEntry> findByIsinIn(Collection<String> isins);
+
+    /**
+     * One row per planned (isin, maturity, name), with how many of its rows are undispatched.
+     */
+    @Query("""
+            select c.isin as isin, c.maturityDate as maturityDate, c.bondName as bondName,
+                   sum(case when c.dispatchedOn is null then 1 else 0 end) as pending
+            from NotificationCalendarEntry c
+            group by c.isin, c.maturityDate, c.bondName""")
+    List<PlannedBond> findPlannedBonds();
+
+    @Query("select distinct c.isin from NotificationCalendarEntry c where c.maturityDate >= :date")
+    List<String> findDistinctIsinsMaturingOnOrAfter(LocalDate date);
+
+    long deleteByIsinInAndDispatchedOnIsNull(Collection<String> isins);
+
+    @Modifying
+    @Query("delete from NotificationCalendarEntry c where c.maturityDate < :date")
+    int deleteByMaturityDateBefore(LocalDate date);
+
+    interface PlannedBond {
+        String getIsin();
+        LocalDate getMaturityDate();
+        String getBondName();
+        long getPending();
+    }
+}
@@ -0,0 +1,12 @@
+package com.ibsec.ncdnotifier.repository;
+
+import com.ibsec.ncdnotifier.entity.NotificationRun;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface NotificationRunRepository extends JpaRepository<NotificationRun, Long> {
+
+    List<NotificationRun> findByOrderByIdDesc(Pageable page);
+}
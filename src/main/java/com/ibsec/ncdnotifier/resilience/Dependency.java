@@ -0,0 +1,12 @@
+package com.ibsec.ncdnotifier.resilience;
+
+/**
+ * External systems a run depends on, each guarded by its own breaker / bulkhead / timeout.
+ */
+public enum Dependency {
+    PRIMARY_DB,     // sapphire holdings
+    SECONDARY_DB,   // midoffice contacts
+    SMTP,
+    SMS,
+    NSE
+}
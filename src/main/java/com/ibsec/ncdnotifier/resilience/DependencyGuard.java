@@ -0,0 +1,145 @@
+package com.ibsec.ncdnotifier.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker, bulkhead and timeout budget for one dependency.
+ *
+ * The bulkhead caps concurrent calls (callers wait up to max-wait for a slot), so a slow
+ * dependency can only tie up its own share of the workers. A call is a failure for the breaker
+ * when it throws, returns an unhealthy result, or overruns the timeout budget; async calls are
+ * also cut off at the budget. Rejected calls throw {@link DependencyUnavailableException}.
+ */
+public class DependencyGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(DependencyGuard.class);
+
+    private final Dependency dependency;
+    private final CircuitBreaker breaker;
+    private final Semaphore bulkhead;
+    private final int maxConcurrent;
+    private final long maxWaitMs;
+    private final Duration timeout;
+
+    private final LongAdder rejected = new LongAdder();
+
+    public DependencyGuard(Dependency dependency, CircuitBreaker breaker, int maxConcurrent, long maxWaitMs,
+                           Duration timeout) {
+        this.dependency = dependency;
+        this.breaker = breaker;
+        this.bulkhead = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitMs = maxWaitMs;
+        this.timeout = timeout;
+    }
+
+    @FunctionalInterface
+    public interface GuardedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    public <T, E extends Exception> T call(GuardedCall<T, E> call) throws E {
+        return call(call, result -> true);
+    }
+
+    public <T, E extends Exception> T call(GuardedCall<T, E> call, Predicate<T> healthy) throws E {
+        enter();
+        long started = System.nanoTime();
+        boolean ok = false;
+        try {
+            T result = call.call();
+            ok = healthy.test(result);
+            return result;
+        } finally {
+            bulkhead.release();
+            // a call that returned but overran its budget still counts against the breaker
+            record(ok && System.nanoTime() - started <= timeout.toNanos());
+        }
+    }
+
+    public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> call, Predicate<T> healthy) {
+        try {
+            enter();
+        } catch (DependencyUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            record(false);
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((result, e) -> {
+            bulkhead.release();
+            record(e == null && healthy.test(result));
+        });
+    }
+
+    public boolean isCallPermitted() {
+        return breaker.isCallPermitted();
+    }
+
+    public Dependency getDependency() {
+        return dependency;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public GuardStatus status() {
+        return new GuardStatus(breaker.getState(), breaker.getFailureRate(),
+                maxConcurrent - bulkhead.availablePermits(), maxConcurrent, rejected.sum());
+    }
+
+    private void enter() {
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DependencyUnavailableException(dependency, "interrupted waiting for the bulkhead");
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new DependencyUnavailableException(dependency, "bulkhead full (" + maxConcurrent + " calls)");
+        }
+        if (!breaker.tryAcquirePermission()) {
+            bulkhead.release();
+            rejected.increment();
+            throw new DependencyUnavailableException(dependency, "circuit open");
+        }
+    }
+
+    private void record(boolean success) {
+        CircuitBreaker.State before = breaker.getState();
+        if (success) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+        CircuitBreaker.State after = breaker.getState();
+        if (before != after) {
+            if (after == CircuitBreaker.State.OPEN) {
+                log.warn("🔌 {} circuit opened ({}% failures), calls deferred", dependency,
+                        Math.round(breaker.getFailureRate()));
+            } else if (after == CircuitBreaker.State.CLOSED) {
+                log.info("🔌 {} circuit closed", dependency);
+            }
+        }
+    }
+
+    public record GuardStatus(CircuitBreaker.State state, double failureRatePercent, int inFlight,
+                              int maxConcurrent, long rejected) {}
+}
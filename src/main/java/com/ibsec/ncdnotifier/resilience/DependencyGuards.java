@@ -0,0 +1,52 @@
+package com.ibsec.ncdnotifier.resilience;
+
+import com.ibsec.ncdnotifier.config.ResilienceProperties;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One {@link DependencyGuard} per {@link Dependency}, built from ncd.resilience.dependencies.*.
+ */
+@Component
+@EnableConfigurationProperties(ResilienceProperties.class)
+public class DependencyGuards {
+
+    private static final Logger log = LoggerFactory.getLogger(DependencyGuards.class);
+
+    private final Map<Dependency, DependencyGuard> guards = new EnumMap<>(Dependency.class);
+
+    public DependencyGuards(ResilienceProperties properties) {
+        for (Dependency dependency : Dependency.values()) {
+            ResilienceProperties.Guard g = properties.guard(dependency);
+            guards.put(dependency, new DependencyGuard(dependency,
+                    new CircuitBreaker(g.getWindowSize(), g.getMinimumCalls(), g.getFailureRatePercent(), g.getOpenMs()),
+                    g.getMaxConcurrent(), g.getMaxWaitMs(), Duration.ofMillis(g.getTimeoutMs())));
+            log.info("🛡️ {}: {} concurrent, {} ms budget, opens at {}% failures", dependency,
+                    g.getMaxConcurrent(), g.getTimeoutMs(), g.getFailureRatePercent());
+        }
+    }
+
+    public DependencyGuard get(Dependency dependency) {
+        return guards.get(dependency);
+    }
+
+    /**
+     * Gateway guarding sends of this notification type.
+     */
+    public DependencyGuard forChannel(NotificationType type) {
+        return guards.get(type == NotificationType.EMAIL ? Dependency.SMTP : Dependency.SMS);
+    }
+
+    public Map<Dependency, DependencyGuard.GuardStatus> status() {
+        Map<Dependency, DependencyGuard.GuardStatus> status = new EnumMap<>(Dependency.class);
+        guards.forEach((dependency, guard) -> status.put(dependency, guard.status()));
+        return status;
+    }
+}
@@ -0,0 +1,19 @@
+package com.ibsec.ncdnotifier.resilience;
+
+/**
+ * A guarded call was rejected without reaching the dependency: its breaker is open or its
+ * bulkhead stayed full for the whole wait. The work should be deferred, not counted as failed.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    private final Dependency dependency;
+
+    public DependencyUnavailableException(Dependency dependency, String reason) {
+        super(dependency + " unavailable: " + reason);
+        this.dependency = dependency;
+    }
+
+    public Dependency getDependency() {
+        return dependency;
+    }
+}
@@ -0,0 +1,173 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One-shot batch mode for an external orchestrator: runs a single pass and exits, no web server
+ * and no scheduler.
+ *
+ *   java -jar ncdnotifier.jar --spring.profiles.active=batch --as-of=2026-03-31 --isin=INE001A07RS1,INE002A08QX3
+ *
+ * --as-of defaults to today; a past or future date is a replay (see
+ * NcdNotificationService#processMaturingBonds(LocalDate, Set, boolean)), which is a dry run
+ * reporting what it would send unless --send is given; holders already notified of the maturity
+ * are skipped either way. --isin may repeat or hold a comma list.
+ *
+ * After the pass, the sends this run deferred for an open breaker are retried (outside their
+ * channel's quiet hours) until none are left or ncd.batch.drain-timeout-ms passes (not on a dry run); those still
+ * left stay DEFERRED in the notification log for the next run. Calendar entries held for quiet
+ * hours are sent by the first run after the period ends.
+ *
+ * The run summary is printed as one JSON line on stdout, the only thing written there (the batch
+ * profile logs to stderr, see logback-spring.xml), and with --summary-file (or
+ * ncd.batch.summary-file) also written to that file.
+ *
+ * Exit status: 0 succeeded, 1 failed, 2 partial (ISINs failed or deferred, or notifications left
+ * deferred; run again), 64 bad arguments.
+ */
+@Component
+@Profile("batch")
+public class BatchRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchRunner.class);
+
+    static final int EXIT_SUCCEEDED = 0;
+    static final int EXIT_FAILED = 1;
+    static final int EXIT_PARTIAL = 2;
+    static final int EXIT_USAGE = 64;
+
+    private final NcdNotificationService ncdNotificationService;
+    private final NotificationRetryQueue retryQueue;
+    private final ApplicationContext context;
+
+    @Value("${summary-file:${ncd.batch.summary-file:}}")
+    private String summaryFile;
+
+    @Value("${ncd.batch.drain-timeout-ms:120000}")
+    private long drainTimeoutMs;
+
+    @Value("${ncd.batch.drain-interval-ms:5000}")
+    private long drainIntervalMs;
+
+    public BatchRunner(NcdNotificationService ncdNotificationService, NotificationRetryQueue retryQueue,
+                       ApplicationContext context) {
+        this.ncdNotificationService = ncdNotificationService;
+        this.retryQueue = retryQueue;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        LocalDate asOf;
+        Set<String> isins = new LinkedHashSet<>();
+        boolean send = args.containsOption("send");
+        try {
+            asOf = args.containsOption("as-of") ? LocalDate.parse(single(args, "as-of")) : LocalDate.now();
+            if (args.containsOption("isin")) {
+                for (String value : args.getOptionValues("isin")) {
+                    for (String isin : value.split(",")) {
+                        if (!isin.isBlank()) isins.add(isin.trim().toUpperCase());
+                    }
+                }
+            }
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            log.error("❌ Bad batch arguments ({}); expected --as-of=yyyy-MM-dd [--isin=ISIN[,ISIN...]] [--send]",
+                    e.getMessage());
+            exit(EXIT_USAGE);
+            return;
+        }
+
+        log.info("📦 Batch run as of {}{}{}", asOf, isins.isEmpty() ? "" : " for " + isins.size() + " ISINs",
+                send ? ", sending" : "");
+        int status;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("asOf", asOf.toString());
+        report.put("isins", List.copyOf(isins));
+        try {
+            RunStats.RunSummary summary = ncdNotificationService.processMaturingBonds(asOf, isins, send);
+            report.put("run", summary);
+            long deferredLeft = summary.dryRun() ? summary.notificationsDeferred() : drainDeferred(summary.deferredIds());
+            report.put("deferredLeft", deferredLeft);
+            status = summary.error() != null ? EXIT_FAILED
+                    : summary.isinsFailed() > 0 || summary.isinsDeferred() > 0 || deferredLeft > 0
+                    ? EXIT_PARTIAL : EXIT_SUCCEEDED;
+        } catch (Exception e) {
+            log.error("❌ Batch run failed", e);
+            status = EXIT_FAILED;
+            report.put("error", e.toString());
+        }
+        report.put("outcome", switch (status) {
+            case EXIT_SUCCEEDED -> "SUCCEEDED";
+            case EXIT_PARTIAL -> "PARTIAL";
+            default -> "FAILED";
+        });
+        report.put("exitCode", status);
+
+        String json = new ObjectMapper().writeValueAsString(report);
+        if (!summaryFile.isBlank()) {
+            Path out = Path.of(summaryFile);
+            if (out.getParent() != null) Files.createDirectories(out.getParent());
+            Files.writeString(out, json);
+        }
+        System.out.println(json);
+        exit(status);
+    }
+
+    /**
+     * Retries the sends this run deferred until none are left or the drain timeout passes. Rows
+     * deferred by other runs (other ISINs or dates, or another pod) are left to their own run or
+     * the scheduler's retry.
+     *
+     * @param deferredIds log rows the run deferred, ascending
+     * @return deferred sends left, persisted as DEFERRED log rows
+     */
+    long drainDeferred(List<Long> deferredIds) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        long left = deferredIds.isEmpty() ? 0 : retryQueue.size(deferredIds);
+        while (left > 0) {
+            ncdNotificationService.retryDeferred(deferredIds);
+            left = retryQueue.size(deferredIds);
+            if (left == 0 || System.currentTimeMillis() + drainIntervalMs > deadline) {
+                break;
+            }
+            log.info("⏳ {} deferred notifications left, retrying in {} ms", left, drainIntervalMs);
+            Thread.sleep(drainIntervalMs);
+        }
+        if (left > 0) {
+            log.warn("⚠️ {} deferred notifications left after {} ms; kept in the notification log for the next run",
+                    left, drainTimeoutMs);
+        }
+        return left;
+    }
+
+    private static String single(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        if (values.size() != 1) {
+            throw new IllegalArgumentException("--" + name + " takes exactly one value");
+        }
+        return values.get(0);
+    }
+
+    private void exit(int status) {
+        System.exit(SpringApplication.exit(context, () -> status));
+    }
+}
@@ -1,21 +1,36 @@
 package com.ibsec.ncdnotifier.service;
 
 import org.apache.commons.csv.*;
+import com.ibsec.ncdnotifier.resilience.Dependency;
+import com.ibsec.ncdnotifier.resilience.DependencyGuards;
+import com.ibsec.ncdnotifier.resilience.DependencyUnavailableException;
+import com.ibsec.ncdnotifier.tracing.RunTracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.w3c.dom.*;
 
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 import java.util.Locale;
 
 @Service
@@ -23,134 +38,329 @@ public class BondFileService {
 
     private static final Logger log = LoggerFactory.getLogger(BondFileService.class);
 
-    private static final List<String> FILE_URLS = List.of(
-             // "https://nsearchives.nseindia.com/content/debt/Corporate_bond_report_14-Nov-2025.csv",
-            "https://www.nseindia.com/api/reports?archives=%5B%7B%22name%22%3A%22Approved%20list%20of%20GSEC%20and%20TBILL%20(.zip)%22%2C%22type%22%3A%22monthly-reports%22%2C%22category%22%3A%22debt%22%2C%22section%22%3A%22nse-ebp%22%7D%5D&type=nse-ebp&mode=single"
-    );
+    private static final long SPOOL_CHUNK = 1L << 20;
+
+    // shared by every XLSX part; a downloaded file gets no DTD or external entities
+    private static final XMLInputFactory XML_INPUT = XMLInputFactory.newFactory();
+    static {
+        XML_INPUT.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    // NSE reports: .zip / api/reports downloads are unpacked, anything else is read as CSV
+    @Value("${ncd.source.urls}")
+    private List<String> fileUrls;
+
+    // last seen ETag / Last-Modified per source URL, and the records parsed from that version
+    private final Map<String, String> sourceValidators = new ConcurrentHashMap<>();
+    private final Map<String, List<BondRecord>> cachedBonds = new ConcurrentHashMap<>();
+
+    // bumped whenever a source is freshly parsed (i.e. not served from cache)
+    private final AtomicLong sourceVersion = new AtomicLong();
+
+    // false when the last fetch is missing a source (failed with nothing cached, or served nothing)
+    private volatile boolean lastFetchComplete = true;
+
+    // one shared record per ISIN, reused across re-parses and calendar lookups while unchanged
+    private final Map<String, BondRecord> canonicalBonds = new ConcurrentHashMap<>();
+
+    private final RunTracer tracer;
+    private final DependencyGuards guards;
+
+    public BondFileService(RunTracer tracer, DependencyGuards guards) {
+        this.tracer = tracer;
+        this.guards = guards;
+    }
 
     public List<BondRecord> fetchAllBonds() {
-        Set<BondRecord> allBonds = new HashSet<>();
+        return tracer.trace("nse.fetch", this::fetchAllSources);
+    }
 
-        for (String fileUrl : FILE_URLS) {
-            try (InputStream in = openConnectionWithHeaders(fileUrl)) {
+    private List<BondRecord> fetchAllSources() {
+        Set<BondRecord> allBonds = new HashSet<>();
+        boolean complete = true;
 
-                if (in == null) {
-                    log.warn("No input stream for {}", fileUrl);
-                    continue;
+        for (String fileUrl : fileUrls) {
+            try {
+                List<BondRecord> records = guards.get(Dependency.NSE).call(() -> fetchSource(fileUrl));
+                if (records != null) {
+                    allBonds.addAll(records);
+                } else {
+                    complete = false;
+                }
+            } catch (Exception e) {
+                if (e instanceof DependencyUnavailableException) {
+                    log.warn("Skipping download of {}: {}", fileUrl, e.getMessage());
+                } else {
+                    log.error("Error processing file from {}", fileUrl, e);
                 }
+                // a failed download must not look like every bond was delisted
+                List<BondRecord> previous = cachedBonds.get(fileUrl);
+                if (previous != null) {
+                    log.warn("Falling back to {} cached records for {}", previous.size(), fileUrl);
+                    allBonds.addAll(previous);
+                } else {
+                    complete = false;
+                }
+            }
+        }
+
+        lastFetchComplete = complete;
+        log.info("Fetched {} bond records{}", allBonds.size(), complete ? "" : " (some sources missing)");
+        return new ArrayList<>(allBonds);
+    }
 
+    /**
+     * Downloads and parses one source, or returns the cached records when it is unchanged.
+     *
+     * @return null when the source had nothing to serve
+     */
+    private List<BondRecord> fetchSource(String fileUrl) throws Exception {
+        HttpURLConnection connection = openConnectionWithHeaders(fileUrl, "GET");
+        try {
+            int code = tracer.trace("nse.download", connection::getResponseCode);
+            log.info("Response {} -> {}", fileUrl, code);
+
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cachedBonds.containsKey(fileUrl)) {
+                log.info("Source unchanged, reusing {} cached records for {}", cachedBonds.get(fileUrl).size(), fileUrl);
+                return cachedBonds.get(fileUrl);
+            }
+
+            if (code != HttpURLConnection.HTTP_OK) {
+                log.warn("No input stream for {}", fileUrl);
+                return null;
+            }
+
+            List<BondRecord> parsed;
+            try (InputStream in = connection.getInputStream()) {
                 if (fileUrl.contains("api/reports") || fileUrl.endsWith(".zip")) {
-                    allBonds.addAll(parseZipFile(in));
+                    parsed = parseZipDownload(in);
                 } else {
-                    allBonds.addAll(parseCsvStream(in));
+                    parsed = tracer.trace("nse.parse.csv", () -> parseCsvStream(in));
                 }
+            }
 
+            cachedBonds.put(fileUrl, parsed);
+            sourceVersion.incrementAndGet();
+            String validator = validatorOf(connection);
+            if (validator != null) {
+                sourceValidators.put(fileUrl, validator);
+            }
+            return parsed;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    public long getSourceVersion() {
+        return sourceVersion.get();
+    }
+
+    /**
+     * Whether the last fetchAllBonds() covered every source. When it did not, a bond missing from
+     * the result may just sit in the missing source, so it must not be taken as delisted.
+     */
+    public boolean isLastFetchComplete() {
+        return lastFetchComplete;
+    }
+
+    /**
+     * Returns the shared record for this ISIN, replacing it only when the name or maturity changed.
+     */
+    public BondRecord canonical(String isin, String name, LocalDate maturityDate) {
+        BondRecord existing = canonicalBonds.get(isin);
+        if (existing != null && Objects.equals(existing.name(), name)
+                && Objects.equals(existing.maturityDate(), maturityDate)) {
+            return existing;
+        }
+        BondRecord record = new BondRecord(isin, name, maturityDate);
+        canonicalBonds.put(isin, record);
+        return record;
+    }
+
+    /**
+     * Drops the shared records of ISINs no longer listed.
+     */
+    public void evictCanonical(Collection<String> isins) {
+        for (String isin : isins) {
+            canonicalBonds.remove(isin);
+        }
+    }
+
+    /**
+     * Cheap HEAD probe of every source. Returns true when any source reports an
+     * ETag / Last-Modified different from the version last seen (or when nothing
+     * has been seen yet). Sources that expose neither header never report a change, and
+     * nothing is probed while the NSE breaker is open.
+     */
+    public boolean hasSourceChanged() {
+        boolean changed = false;
+        if (!guards.get(Dependency.NSE).isCallPermitted()) {
+            return false;
+        }
+
+        for (String fileUrl : fileUrls) {
+            HttpURLConnection connection = null;
+            try {
+                connection = openConnectionWithHeaders(fileUrl, "HEAD");
+                int code = connection.getResponseCode();
+                if (code == HttpURLConnection.HTTP_NOT_MODIFIED) continue;
+                if (code != HttpURLConnection.HTTP_OK) {
+                    log.warn("Source probe {} -> {}", fileUrl, code);
+                    continue;
+                }
+
+                String validator = validatorOf(connection);
+                if (validator == null) {
+                    log.debug("Source {} exposes no ETag/Last-Modified; change detection unavailable", fileUrl);
+                    continue;
+                }
+
+                if (!validator.equals(sourceValidators.get(fileUrl))) {
+                    log.info("Source changed: {} ({} -> {})", fileUrl, sourceValidators.get(fileUrl), validator);
+                    changed = true;
+                }
             } catch (Exception e) {
-                log.error("Error processing file from {}", fileUrl, e);
+                log.warn("Source probe failed for {}: {}", fileUrl, e.getMessage());
+            } finally {
+                if (connection != null) connection.disconnect();
             }
         }
 
-        log.info("Fetched {} bond records", allBonds.size());
-        return new ArrayList<>(allBonds);
+        return changed;
     }
 
-    private InputStream openConnectionWithHeaders(String fileUrl) throws IOException {
+    private HttpURLConnection openConnectionWithHeaders(String fileUrl, String method) throws IOException {
         URL url = new URL(fileUrl);
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
 
-        connection.setRequestMethod("GET");
+        connection.setRequestMethod(method);
         connection.setRequestProperty("User-Agent", "Mozilla/5.0");
         connection.setRequestProperty("Accept", "*/*");
 
-        connection.setConnectTimeout(10000);
-        connection.setReadTimeout(15000);
+        // conditional request: lets the server answer 304 when our cached copy is current
+        String validator = sourceValidators.get(fileUrl);
+        if (validator != null && cachedBonds.containsKey(fileUrl)) {
+            if (validator.startsWith("etag:")) {
+                connection.setRequestProperty("If-None-Match", validator.substring(5));
+            } else {
+                connection.setRequestProperty("If-Modified-Since", validator.substring(14));
+            }
+        }
+
+        int timeoutMs = (int) guards.get(Dependency.NSE).getTimeout().toMillis();
+        connection.setConnectTimeout(timeoutMs);
+        connection.setReadTimeout(timeoutMs);
+
+        return connection;
+    }
+
+    private String validatorOf(HttpURLConnection connection) {
+        String etag = connection.getHeaderField("ETag");
+        if (etag != null && !etag.isBlank()) return "etag:" + etag;
 
-        int code = connection.getResponseCode();
-        log.info("Response {} -> {}", fileUrl, code);
+        String lastModified = connection.getHeaderField("Last-Modified");
+        if (lastModified != null && !lastModified.isBlank()) return "last-modified:" + lastModified;
 
-        return code == 200 ? connection.getInputStream() : null;
+        return null;
     }
 
     // ============================================================
-    // ZIP PARSER - safe per-entry reads
+    // ZIP PARSER - spooled to disk, entries streamed via ZipFile
     // ============================================================
-    private List<BondRecord> parseZipFile(InputStream zipStream) throws IOException {
+    private List<BondRecord> parseZipDownload(InputStream in) throws IOException {
+        Path spool = Files.createTempFile("nse-download-", ".zip");
+        try {
+            tracer.trace("nse.spool", () -> {
+                spoolToFile(in, spool);
+                return null;
+            });
+            return tracer.trace("nse.parse.zip", () -> parseZipFile(spool));
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    private void spoolToFile(InputStream in, Path target) throws IOException {
+        try (ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            long transferred;
+            // a blocking source channel only returns 0 at end of stream
+            while ((transferred = out.transferFrom(source, position, SPOOL_CHUNK)) > 0) {
+                position += transferred;
+            }
+            log.info("Spooled {} bytes to {}", position, target);
+        }
+    }
+
+    private List<BondRecord> parseZipFile(Path zipPath) throws IOException {
         List<BondRecord> list = new ArrayList<>();
 
-        try (ZipInputStream zis = new ZipInputStream(zipStream)) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
+        try (ZipFile zip = new ZipFile(zipPath.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
                 String name = entry.getName();
                 log.info("Processing ZIP entry: {}", name);
 
                 if (name.toLowerCase().endsWith(".csv")) {
-                    // read CSV entry bytes and parse
-                    byte[] csvBytes = readEntryBytes(zis);
-                    zis.closeEntry();
-                    try (InputStream csvIn = new ByteArrayInputStream(csvBytes)) {
+                    try (InputStream csvIn = zip.getInputStream(entry)) {
                         list.addAll(parseCsvStream(csvIn));
                     }
                 } else if (name.toLowerCase().endsWith(".xlsx")) {
-                    // read XLSX entry bytes into memory and parse from bytes (safe)
-                    byte[] xlsxBytes = readEntryBytes(zis);
-                    zis.closeEntry();
-                    list.addAll(parseXlsxFromBytes(xlsxBytes));
-                } else {
-                    // skip other file types
-                    zis.closeEntry();
+                    // nested archive: copy the entry to disk (not heap) so it can be opened random-access
+                    Path xlsx = Files.createTempFile("nse-entry-", ".xlsx");
+                    try {
+                        try (InputStream xlsxIn = zip.getInputStream(entry)) {
+                            Files.copy(xlsxIn, xlsx, StandardCopyOption.REPLACE_EXISTING);
+                        }
+                        list.addAll(tracer.trace("nse.parse.xlsx", () -> parseXlsxFile(xlsx)));
+                    } finally {
+                        Files.deleteIfExists(xlsx);
+                    }
                 }
+                // skip other file types
             }
         }
 
         return list;
     }
 
-    private byte[] readEntryBytes(ZipInputStream zis) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] buffer = new byte[4096];
-        int bytesRead;
-        while ((bytesRead = zis.read(buffer)) != -1) {
-            baos.write(buffer, 0, bytesRead);
-        }
-        return baos.toByteArray();
-    }
-
     // ============================================================
-    // XLSX PARSER (pure-XML, no POI) - read from byte[]
+    // XLSX PARSER (pure-XML, no POI) - parts streamed from the archive
     // ============================================================
-    private List<BondRecord> parseXlsxFromBytes(byte[] xlsxData) {
+    private List<BondRecord> parseXlsxFile(Path xlsxPath) {
         List<BondRecord> list = new ArrayList<>();
 
-        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(xlsxData))) {
-
-            Map<Integer, String> sharedStrings = new HashMap<>();
-            String sheetXml = null;
+        try (ZipFile xlsx = new ZipFile(xlsxPath.toFile())) {
 
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                String en = entry.getName();
-
-                if ("xl/sharedStrings.xml".equals(en)) {
-                    byte[] ss = readEntryBytes(zis);
-                    zis.closeEntry();
-                    sharedStrings = readSharedStrings(new ByteArrayInputStream(ss));
-                } else if (en.startsWith("xl/worksheets/") && en.endsWith(".xml")) {
-                    byte[] s = readEntryBytes(zis);
-                    zis.closeEntry();
-                    // pick the first worksheet encountered
-                    if (sheetXml == null) sheetXml = new String(s);
-                } else {
-                    zis.closeEntry();
+            List<String> sharedStrings = List.of();
+            ZipEntry ssEntry = xlsx.getEntry("xl/sharedStrings.xml");
+            if (ssEntry != null) {
+                try (InputStream ssIn = xlsx.getInputStream(ssEntry)) {
+                    sharedStrings = tracer.trace("nse.parse.shared-strings", () -> readSharedStrings(ssIn));
                 }
             }
 
-            if (sheetXml == null) {
+            // pick the first worksheet in archive order
+            ZipEntry sheetEntry = null;
+            Enumeration<? extends ZipEntry> entries = xlsx.entries();
+            while (entries.hasMoreElements() && sheetEntry == null) {
+                ZipEntry e = entries.nextElement();
+                if (e.getName().startsWith("xl/worksheets/") && e.getName().endsWith(".xml")) sheetEntry = e;
+            }
+
+            if (sheetEntry == null) {
                 log.error("Sheet XML not found in XLSX");
                 return list;
             }
 
-            // parse sheet xml using sharedStrings map
-            list.addAll(parseSheetXml(sheetXml, sharedStrings));
+            // parse sheet xml using sharedStrings list
+            try (InputStream sheetIn = xlsx.getInputStream(sheetEntry)) {
+                List<String> shared = sharedStrings;
+                list.addAll(tracer.trace("nse.parse.sheet", () -> parseSheetXml(sheetIn, shared)));
+            }
 
         } catch (Exception e) {
             log.error("Error parsing XLSX manually", e);
@@ -159,126 +369,131 @@ public class BondFileService {
         return list;
     }
 
-    private Map<Integer, String> readSharedStrings(InputStream is) throws Exception {
-        Map<Integer, String> map = new HashMap<>();
-
-        Document doc = DocumentBuilderFactory.newInstance()
-                .newDocumentBuilder()
-                .parse(is);
-
-        NodeList siNodes = doc.getElementsByTagName("si");
-        int idx = 0;
-        for (int i = 0; i < siNodes.getLength(); i++) {
-            Node si = siNodes.item(i);
-            // extract concatenated text of all <t> inside <si>
-            String text = si.getTextContent();
-            map.put(idx++, text);
+    // concatenated text of all <t> inside each <si>, streamed
+    private List<String> readSharedStrings(InputStream is) throws XMLStreamException {
+        List<String> strings = new ArrayList<>();
+        XMLStreamReader xml = XML_INPUT.createXMLStreamReader(is);
+        try {
+            StringBuilder text = null;
+            while (xml.hasNext()) {
+                switch (xml.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        if ("si".equals(xml.getLocalName())) text = new StringBuilder();
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                        if (text != null) text.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        if ("si".equals(xml.getLocalName()) && text != null) {
+                            strings.add(text.toString());
+                            text = null;
+                        }
+                    }
+                    default -> { }
+                }
+            }
+        } finally {
+            xml.close();
         }
-
-        return map;
+        return strings;
     }
 
-    private List<BondRecord> parseSheetXml(String xml, Map<Integer, String> shared) throws Exception {
+    // rows are streamed: only the current row's cells are held
+    private List<BondRecord> parseSheetXml(InputStream in, List<String> shared) throws XMLStreamException {
         List<BondRecord> list = new ArrayList<>();
 
-        Document doc = DocumentBuilderFactory.newInstance()
-                .newDocumentBuilder()
-                .parse(new ByteArrayInputStream(xml.getBytes()));
-
-        NodeList rowNodes = doc.getElementsByTagName("row");
-
-        int headerRowIndex = -1;
-        Map<Integer, String> headerIndex = new HashMap<>();
-
-        for (int r = 0; r < rowNodes.getLength(); r++) {
-            Element row = (Element) rowNodes.item(r);
-            NodeList cellNodes = row.getElementsByTagName("c");
-
-            List<String> cellValues = new ArrayList<>();
-
-            for (int c = 0; c < cellNodes.getLength(); c++) {
-                Element cell = (Element) cellNodes.item(c);
-                String type = cell.getAttribute("t"); // may be "s" for shared string or "inlineStr"
+        // set by the first row containing "ISIN"; rows before it are skipped
+        Map<Integer, String> headerIndex = null;
+        List<String> cellValues = new ArrayList<>();
+        boolean inCell = false;
+        String type = null;      // may be "s" for shared string or "inlineStr"
+        String value = null;     // <v>
+        String inline = null;    // inline <is><t> or <t>
 
-                // prefer <v>, fallback to inline <is><t> or <t>
-                Node vNode = getFirstChildByName(cell, "v");
-                Node tNode = getFirstChildByName(cell, "t"); // inline text location
-                String value = "";
-
-                if (vNode != null) {
-                    value = vNode.getTextContent();
-
-                    if ("s".equals(type)) {
-                        try {
-                            int sidx = Integer.parseInt(value);
-                            value = shared.getOrDefault(sidx, "");
-                        } catch (NumberFormatException ex) {
-                            // leave value as-is
+        XMLStreamReader xml = XML_INPUT.createXMLStreamReader(in);
+        try {
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "row" -> cellValues.clear();
+                        case "c" -> {
+                            inCell = true;
+                            type = xml.getAttributeValue(null, "t");
+                            value = null;
+                            inline = null;
                         }
-                    } else {
-                        // numeric or other non-shared value: might be Excel numeric date serial
-                        // detect numeric (integer or decimal)
-                        if (value != null && value.matches("^-?\\d+(\\.\\d+)?$")) {
-                            try {
-                                double serial = Double.parseDouble(value);
-                                // Excel date serials count days from 1899-12-30
-                                long days = (long) Math.floor(serial);
-                                LocalDate excelDate = LocalDate.of(1899, 12, 30).plusDays(days);
-                                value = excelDate.toString(); // yyyy-MM-dd
-                            } catch (Exception ignored) {
-                                // if parsing fails, keep raw numeric as string
+                        // getElementText leaves the reader on the element's end tag
+                        case "v" -> { if (inCell) value = xml.getElementText(); }
+                        case "t" -> { if (inCell) inline = (inline == null ? "" : inline) + xml.getElementText(); }
+                        default -> { }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = xml.getLocalName();
+                    if ("c".equals(name)) {
+                        inCell = false;
+                        cellValues.add(cellValue(type, value, inline, shared));
+                    } else if ("row".equals(name)) {
+                        if (headerIndex == null) {
+                            // detect header row (first non-empty row containing "ISIN")
+                            if (cellValues.stream().anyMatch(s -> s.equalsIgnoreCase("ISIN"))) {
+                                headerIndex = new HashMap<>();
+                                for (int c = 0; c < cellValues.size(); c++) {
+                                    headerIndex.put(c, cellValues.get(c));
+                                }
                             }
+                            continue;
                         }
-                    }
-                } else if (tNode != null) {
-                    value = tNode.getTextContent();
-                } else {
-                    // empty cell
-                    value = "";
-                }
+                        if (headerIndex.isEmpty()) continue;
 
-                cellValues.add(value == null ? "" : value.trim());
-            }
+                        String isin = getByHeader(headerIndex, cellValues, "ISIN");
+                        String bondName = getByHeader(headerIndex, cellValues, "Security Description");
+                        String maturity = getByHeader(headerIndex, cellValues, "Symbol / Maturity Date");
+
+                        if (isin == null || isin.isBlank()) continue;
 
-            // detect header row (first non-empty row containing "ISIN")
-            if (headerRowIndex == -1) {
-                boolean containsIsin = cellValues.stream()
-                        .anyMatch(s -> s != null && s.toString().trim().equalsIgnoreCase("ISIN"));
-                if (containsIsin) {
-                    headerRowIndex = r;
-                    for (int c = 0; c < cellValues.size(); c++) {
-                        headerIndex.put(c, cellValues.get(c).trim());
+                        list.add(canonical(isin, bondName, parseDate(maturity)));
                     }
-                    // header consumed; continue to next rows for data
-                    continue;
-                } else {
-                    // not header, continue scanning next row
-                    continue;
                 }
             }
-
-            // if headerRowIndex found, process subsequent rows as data
-            if (headerRowIndex != -1 && headerIndex.size() > 0) {
-                String isin = getByHeader(headerIndex, cellValues, "ISIN");
-                String name = getByHeader(headerIndex, cellValues, "Security Description");
-                String maturity = getByHeader(headerIndex, cellValues, "Symbol / Maturity Date");
-
-                if (isin == null || isin.isBlank()) continue;
-
-                list.add(new BondRecord(isin, name, parseDate(maturity)));
-            }
+        } finally {
+            xml.close();
         }
 
         log.info("Parsed {} rows from XLSX sheet", list.size());
         return list;
     }
 
-    private Node getFirstChildByName(Node node, String name) {
-        NodeList nl = node.getChildNodes();
-        for (int i = 0; i < nl.getLength(); i++) {
-            if (nl.item(i).getNodeName().equals(name)) return nl.item(i);
+    // prefer <v>, fallback to inline text; shared-string indexes resolved, numbers read as Excel dates
+    private static String cellValue(String type, String v, String inline, List<String> shared) {
+        String value;
+        if (v != null) {
+            value = v;
+            if ("s".equals(type)) {
+                try {
+                    int sidx = Integer.parseInt(value.trim());
+                    value = sidx >= 0 && sidx < shared.size() ? shared.get(sidx) : "";
+                } catch (NumberFormatException ex) {
+                    // leave value as-is
+                }
+            } else if (value.matches("^-?\\d+(\\.\\d+)?$")) {
+                // numeric or other non-shared value: might be Excel numeric date serial
+                try {
+                    double serial = Double.parseDouble(value);
+                    // Excel date serials count days from 1899-12-30
+                    long days = (long) Math.floor(serial);
+                    value = LocalDate.of(1899, 12, 30).plusDays(days).toString(); // yyyy-MM-dd
+                } catch (Exception ignored) {
+                    // if parsing fails, keep raw numeric as string
+                }
+            }
+        } else if (inline != null) {
+            value = inline;
+        } else {
+            // empty cell
+            value = "";
         }
-        return null;
+        return value == null ? "" : value.trim();
     }
 
     private String getByHeader(Map<Integer, String> headers, List<String> row, String headerName) {
@@ -292,39 +507,47 @@ public class BondFileService {
     }
 
     // ============================================================
-    // CSV PARSER (robust header detection + safe join)
+    // CSV PARSER (robust header detection, streamed)
     // ============================================================
     private List<BondRecord> parseCsvStream(InputStream inputStream) throws IOException {
         List<BondRecord> bonds = new ArrayList<>();
 
-        // Read all lines first (safe) and find header line that contains ISIN
+        // Skip preamble lines up to the header that contains ISIN, then stream the rest
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-            List<String> lines = reader.lines().collect(Collectors.toList());
-            if (lines.isEmpty()) {
-                log.warn("CSV stream empty");
-                return bonds;
-            }
-
-            int headerIdx = -1;
-            for (int i = 0; i < lines.size(); i++) {
-                if (lines.get(i).toUpperCase().contains("ISIN")) {
-                    headerIdx = i;
+            String headerLine = null;
+            String line;
+            boolean empty = true;
+            while ((line = reader.readLine()) != null) {
+                empty = false;
+                if (line.toUpperCase().contains("ISIN")) {
+                    headerLine = line;
                     break;
                 }
             }
 
-            if (headerIdx == -1) {
+            if (empty) {
+                log.warn("CSV stream empty");
+                return bonds;
+            }
+
+            if (headerLine == null) {
                 log.warn("No CSV header found containing 'ISIN'.");
                 return bonds;
             }
 
-            String csvContent = lines.subList(headerIdx, lines.size()).stream().collect(Collectors.joining("\n"));
+            String[] headers;
+            try (CSVParser headerParser = CSVFormat.DEFAULT
+                    .withTrim()
+                    .withIgnoreSurroundingSpaces()
+                    .parse(new StringReader(headerLine))) {
+                headers = headerParser.iterator().next().values();
+            }
 
             CSVParser parser = CSVFormat.DEFAULT
-                    .withFirstRecordAsHeader()
+                    .withHeader(headers)
                     .withTrim()
                     .withIgnoreSurroundingSpaces()
-                    .parse(new StringReader(csvContent));
+                    .parse(reader);
 
             Map<String, Integer> headerMap = parser.getHeaderMap();
 
@@ -348,7 +571,7 @@ public class BondFileService {
                     String name = nameHeader.isEmpty() ? "" : safeGet(r, nameHeader);
                     String mStr = maturityHeader.isEmpty() ? "" : safeGet(r, maturityHeader);
 
-                    bonds.add(new BondRecord(isin, name, parseDate(mStr)));
+                    bonds.add(canonical(isin, name, parseDate(mStr)));
                 } catch (Exception e) {
                     log.warn("Skipping CSV row due to error: {}", e.getMessage());
                 }
@@ -0,0 +1,179 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.entity.BondChangeType;
+import com.ibsec.ncdnotifier.entity.BondUniverseChange;
+import com.ibsec.ncdnotifier.entity.BondUniverseEntry;
+import com.ibsec.ncdnotifier.repository.BondUniverseChangeRepository;
+import com.ibsec.ncdnotifier.repository.BondUniverseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Change feed of the NSE bond universe. Each freshly parsed version is compared with the
+ * persisted snapshot (ncd_bond_universe) in one sorted merge on ISIN, producing ADDED /
+ * REMOVED / MATURITY_CHANGED / RENAMED changes. The snapshot is updated for the changed ISINs
+ * only and every change is written to ncd_bond_universe_change for audit.
+ *
+ * The very first version (empty snapshot) is a baseline: everything is ADDED, nothing is audited.
+ *
+ * A version from an incomplete fetch (a source failed with nothing cached, e.g. right after a
+ * restart) yields no REMOVED changes: ISINs it lacks keep their snapshot rows until a complete
+ * version confirms the delisting.
+ */
+@Service
+public class BondUniverseDiffer {
+
+    private static final Logger log = LoggerFactory.getLogger(BondUniverseDiffer.class);
+
+    // one record per ISIN when a source lists it twice: earliest maturity, then name
+    private static final Comparator<BondFileService.BondRecord> BY_ISIN = Comparator
+            .comparing(BondFileService.BondRecord::isin)
+            .thenComparing(BondFileService.BondRecord::maturityDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(BondFileService.BondRecord::name, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final BondUniverseRepository universeRepository;
+    private final BondUniverseChangeRepository changeRepository;
+
+    public BondUniverseDiffer(BondUniverseRepository universeRepository,
+                              BondUniverseChangeRepository changeRepository) {
+        this.universeRepository = universeRepository;
+        this.changeRepository = changeRepository;
+    }
+
+    @Transactional("secondaryTransactionManager")
+    public BondChangeSet apply(List<BondFileService.BondRecord> bonds, long sourceVersion, boolean complete) {
+
+        List<BondFileService.BondRecord> fresh = new ArrayList<>(bonds.size());
+        for (BondFileService.BondRecord bond : bonds) {
+            if (bond.isin() != null && !bond.isin().isBlank()) fresh.add(bond);
+        }
+        fresh.sort(BY_ISIN);
+
+        // sorted here, not by the database, so both sides use the same (Java) collation
+        List<BondUniverseEntry> snapshot = new ArrayList<>(universeRepository.findAll());
+        snapshot.sort(Comparator.comparing(BondUniverseEntry::getIsin));
+        boolean baseline = snapshot.isEmpty();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<BondChange> changes = new ArrayList<>();
+        List<BondUniverseEntry> inserted = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        int unchanged = 0;
+        int unconfirmed = 0;
+
+        int i = 0;
+        int j = 0;
+        String lastIsin = null;
+        while (i < fresh.size() || j < snapshot.size()) {
+            if (i < fresh.size() && fresh.get(i).isin().equals(lastIsin)) {
+                i++;    // duplicate listing, the first one was taken
+                continue;
+            }
+            int cmp = i == fresh.size() ? 1
+                    : j == snapshot.size() ? -1
+                    : fresh.get(i).isin().compareTo(snapshot.get(j).getIsin());
+
+            if (cmp < 0) {
+                BondFileService.BondRecord bond = fresh.get(i++);
+                lastIsin = bond.isin();
+                changes.add(new BondChange(BondChangeType.ADDED, bond.isin(), null, bond));
+                inserted.add(new BondUniverseEntry(bond.isin(), bond.name(), bond.maturityDate(), now, now));
+            } else if (cmp > 0) {
+                BondUniverseEntry entry = snapshot.get(j++);
+                if (!complete) {
+                    unconfirmed++;
+                    continue;
+                }
+                changes.add(new BondChange(BondChangeType.REMOVED, entry.getIsin(), recordOf(entry), null));
+                removed.add(entry.getIsin());
+            } else {
+                BondFileService.BondRecord bond = fresh.get(i++);
+                BondUniverseEntry entry = snapshot.get(j++);
+                lastIsin = bond.isin();
+                BondFileService.BondRecord before = recordOf(entry);
+                boolean redated = !Objects.equals(entry.getMaturityDate(), bond.maturityDate());
+                boolean renamed = !Objects.equals(entry.getBondName(), bond.name());
+                if (redated) changes.add(new BondChange(BondChangeType.MATURITY_CHANGED, bond.isin(), before, bond));
+                if (renamed) changes.add(new BondChange(BondChangeType.RENAMED, bond.isin(), before, bond));
+                if (redated || renamed) {
+                    // managed entity: flushed by dirty checking at commit
+                    entry.setMaturityDate(bond.maturityDate());
+                    entry.setBondName(bond.name());
+                    entry.setLastChangedOn(now);
+                } else {
+                    unchanged++;
+                }
+            }
+        }
+
+        universeRepository.saveAll(inserted);
+        if (!removed.isEmpty()) {
+            universeRepository.deleteAllByIdInBatch(removed);
+        }
+        if (!baseline) {
+            changeRepository.saveAll(changes.stream()
+                    .map(c -> new BondUniverseChange(c.isin(), c.type(),
+                            c.before() != null ? c.before().name() : null, c.after() != null ? c.after().name() : null,
+                            c.before() != null ? c.before().maturityDate() : null,
+                            c.after() != null ? c.after().maturityDate() : null,
+                            sourceVersion, now))
+                    .toList());
+        }
+
+        if (unconfirmed > 0) {
+            log.warn("⚠️ Bond universe v{} is incomplete: {} ISINs missing from it are not treated as removed",
+                    sourceVersion, unconfirmed);
+        }
+        BondChangeSet changeSet = new BondChangeSet(sourceVersion, baseline, changes, unchanged);
+        log.info("🔀 Bond universe v{}{}: {} unchanged, {}", sourceVersion, baseline ? " (baseline)" : "",
+                unchanged, changeSet.counts());
+        return changeSet;
+    }
+
+    private static BondFileService.BondRecord recordOf(BondUniverseEntry entry) {
+        return new BondFileService.BondRecord(entry.getIsin(), entry.getBondName(), entry.getMaturityDate());
+    }
+
+    /**
+     * One change; {@code before} is null for ADDED, {@code after} for REMOVED.
+     */
+    public record BondChange(BondChangeType type, String isin,
+                             BondFileService.BondRecord before, BondFileService.BondRecord after) {}
+
+    public record BondChangeSet(long sourceVersion, boolean baseline, List<BondChange> changes, int unchanged) {
+
+        public boolean isEmpty() {
+            return changes.isEmpty();
+        }
+
+        public Map<BondChangeType, Long> counts() {
+            Map<BondChangeType, Long> counts = new EnumMap<>(BondChangeType.class);
+            for (BondChange change : changes) counts.merge(change.type(), 1L, Long::sum);
+            return counts;
+        }
+
+        /** Every ISIN with at least one change. */
+        public Set<String> isins() {
+            return changes.stream().map(BondChange::isin).collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+
+        /** Current record of every changed ISIN still listed, maturing on or after the date. */
+        public List<BondFileService.BondRecord> listedMaturingOnOrAfter(LocalDate date) {
+            Map<String, BondFileService.BondRecord> current = new LinkedHashMap<>();
+            for (BondChange change : changes) {
+                BondFileService.BondRecord after = change.after();
+                if (after != null && after.maturityDate() != null && !after.maturityDate().isBefore(date)) {
+                    current.putIfAbsent(after.isin(), after);
+                }
+            }
+            return new ArrayList<>(current.values());
+        }
+    }
+}
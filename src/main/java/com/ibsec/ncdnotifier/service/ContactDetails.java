@@ -0,0 +1,6 @@
+package com.ibsec.ncdnotifier.service;
+
+/**
+ * Email / mobile of a focus.cust_mst party.
+ */
+public record ContactDetails(String email, String mobile) {}
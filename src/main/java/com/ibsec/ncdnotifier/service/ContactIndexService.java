@@ -0,0 +1,377 @@
+package com.ibsec.ncdnotifier.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * On-disk copy of focus.cust_mst (party_cd, email_id, mobile_no) read through MappedByteBuffer.
+ *
+ * contacts.keys   : sorted fixed-width records [party_cd, 16 bytes zero padded][int offset into values]
+ * contacts.values : [short len][email utf-8][short len][mobile utf-8] per party
+ * contacts.meta   : build watermark, record count and how many parties have an email / mobile
+ *
+ * Each rebuild writes the three files into a fresh gen-<millis> directory and then switches the
+ * CURRENT pointer file to it with a single atomic move, so readers (and a restart) see either the
+ * old generation or the new one, never a mix. Indexes built before generations existed sit
+ * directly in ncd.contacts.index-dir and are still opened when there is no CURRENT file.
+ *
+ * Lookups are a binary search over the keys file. The index answers null for misses and
+ * whenever its watermark is older than ncd.contacts.max-age-hours; callers then go to the DB.
+ */
+@Service
+public class ContactIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContactIndexService.class);
+
+    private static final int KEY_WIDTH = 16;
+    private static final int RECORD_WIDTH = KEY_WIDTH + Integer.BYTES;
+
+    private static final String KEYS_FILE = "contacts.keys";
+    private static final String VALUES_FILE = "contacts.values";
+    private static final String META_FILE = "contacts.meta";
+    private static final String CURRENT_FILE = "CURRENT";
+    private static final String GENERATION_PREFIX = "gen-";
+
+    private final JdbcTemplate secondaryJdbcTemplate;
+
+    @Value("${ncd.contacts.index-dir}")
+    private String indexDir;
+
+    @Value("${ncd.contacts.max-age-hours}")
+    private long maxAgeHours;
+
+    private volatile MappedIndex index;
+
+    public ContactIndexService(@Qualifier("secondaryJdbcTemplate") JdbcTemplate secondaryJdbcTemplate) {
+        this.secondaryJdbcTemplate = secondaryJdbcTemplate;
+    }
+
+    @PostConstruct
+    void openExisting() {
+        try {
+            index = MappedIndex.open(currentGeneration(Path.of(indexDir)));
+            if (index != null) {
+                log.info("📇 Contact index opened: {} parties, built {}", index.count, index.builtAt);
+            }
+        } catch (IOException e) {
+            log.warn("Contact index at {} unreadable, lookups will use the DB: {}", indexDir, e.getMessage());
+        }
+    }
+
+    /**
+     * Contact for the party, or null when the index is missing, stale or has no such party.
+     */
+    public ContactDetails lookup(String partyCd) {
+        MappedIndex current = index;
+        if (current == null || !isFresh(current)) {
+            return null;
+        }
+        byte[] key = encodeKey(partyCd);
+        return key == null ? null : current.find(key);
+    }
+
+    public boolean isFresh() {
+        MappedIndex current = index;
+        return current != null && isFresh(current);
+    }
+
+    public Instant getWatermark() {
+        MappedIndex current = index;
+        return current == null ? null : current.builtAt;
+    }
+
+    /**
+     * Share of indexed parties with an email / mobile, counted at export time.
+     * Null when there is no index or it predates these counts.
+     */
+    public ContactAvailability getAvailability() {
+        MappedIndex current = index;
+        if (current == null || current.withEmail < 0) return null;
+        return new ContactAvailability(current.count, current.withEmail, current.withMobile, current.builtAt);
+    }
+
+    public record ContactAvailability(long parties, long withEmail, long withMobile, Instant builtAt) {
+        public double emailRatio() {
+            return parties == 0 ? 0 : (double) withEmail / parties;
+        }
+
+        public double mobileRatio() {
+            return parties == 0 ? 0 : (double) withMobile / parties;
+        }
+    }
+
+    private boolean isFresh(MappedIndex current) {
+        return Duration.between(current.builtAt, Instant.now()).toHours() < maxAgeHours;
+    }
+
+    /**
+     * Bulk-exports cust_mst into a new generation and atomically switches the index to it.
+     *
+     * The export is streamed: contact values go to disk as rows arrive, and only the packed key
+     * records (party_cd + value offset) are held in memory to be sorted.
+     *
+     * @return number of parties indexed
+     */
+    public synchronized int rebuild() throws IOException {
+        Instant startedAt = Instant.now();
+        Path root = Files.createDirectories(Path.of(indexDir));
+        Path previous = currentGeneration(root);
+        Path generation = Files.createDirectory(root.resolve(GENERATION_PREFIX + startedAt.toEpochMilli()));
+
+        KeyRecords records = new KeyRecords();
+        try (DataOutputStream values = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(generation.resolve(VALUES_FILE))))) {
+            try {
+                secondaryJdbcTemplate.query("SELECT party_cd, email_id, mobile_no FROM focus.cust_mst", rs -> {
+                    byte[] key = encodeKey(rs.getString(1));
+                    if (key == null) return;
+                    String email = rs.getString(2);
+                    String mobile = rs.getString(3);
+                    try {
+                        records.add(key, values.size(), email != null && !email.isBlank(), mobile != null && !mobile.isBlank());
+                        writeString(values, email);
+                        writeString(values, mobile);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        // key order, ties by value offset = export order, so the first row of a duplicate party_cd
+        // wins, same as the live query
+        records.sort();
+
+        int written = 0;
+        int withEmail = 0;
+        int withMobile = 0;
+        try (DataOutputStream keys = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(generation.resolve(KEYS_FILE))))) {
+            for (int i = 0; i < records.size; i++) {
+                if (i > 0 && records.sameKey(i - 1, i)) {
+                    continue;
+                }
+                keys.write(records.data, i * KeyRecords.WIDTH, RECORD_WIDTH);
+                written++;
+                byte flags = records.data[i * KeyRecords.WIDTH + RECORD_WIDTH];
+                if ((flags & KeyRecords.HAS_EMAIL) != 0) withEmail++;
+                if ((flags & KeyRecords.HAS_MOBILE) != 0) withMobile++;
+            }
+        }
+
+        Properties meta = new Properties();
+        meta.setProperty("builtAt", startedAt.toString());
+        meta.setProperty("count", String.valueOf(written));
+        meta.setProperty("withEmail", String.valueOf(withEmail));
+        meta.setProperty("withMobile", String.valueOf(withMobile));
+        try (OutputStream out = Files.newOutputStream(generation.resolve(META_FILE))) {
+            meta.store(out, "contact index watermark");
+        }
+
+        // the single switch: CURRENT names the generation to open
+        Path pointerTmp = root.resolve(CURRENT_FILE + ".tmp");
+        Files.writeString(pointerTmp, generation.getFileName().toString(), StandardCharsets.UTF_8);
+        Files.move(pointerTmp, root.resolve(CURRENT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        index = MappedIndex.open(generation);
+        deleteGenerationsOtherThan(root, generation, previous);
+        log.info("📇 Contact index rebuilt: {} parties in {} ms", written,
+                Duration.between(startedAt, Instant.now()).toMillis());
+        return written;
+    }
+
+    // generation CURRENT points to, or the index dir itself for an index built before generations
+    private static Path currentGeneration(Path root) throws IOException {
+        Path pointer = root.resolve(CURRENT_FILE);
+        if (!Files.exists(pointer)) return root;
+        return root.resolve(Files.readString(pointer, StandardCharsets.UTF_8).trim());
+    }
+
+    // the replaced generation is kept until the next rebuild, lookups in flight may still read it;
+    // older ones, leftovers of failed rebuilds and a pre-generation index go
+    private static void deleteGenerationsOtherThan(Path root, Path current, Path previous) {
+        try {
+            if (!previous.equals(root)) {
+                for (String file : List.of(KEYS_FILE, VALUES_FILE, META_FILE)) Files.deleteIfExists(root.resolve(file));
+            }
+        } catch (IOException e) {
+            log.warn("Old contact index under {} not cleaned up: {}", root, e.getMessage());
+        }
+        try (DirectoryStream<Path> generations = Files.newDirectoryStream(root, GENERATION_PREFIX + "*")) {
+            for (Path generation : generations) {
+                if (generation.equals(current) || generation.equals(previous)) continue;
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(generation)) {
+                    for (Path file : files) Files.deleteIfExists(file);
+                }
+                Files.deleteIfExists(generation);
+            }
+        } catch (IOException e) {
+            log.warn("Old contact index generations under {} not cleaned up: {}", root, e.getMessage());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] encodeKey(String partyCd) {
+        if (partyCd == null) return null;
+        byte[] raw = partyCd.trim().getBytes(StandardCharsets.UTF_8);
+        if (raw.length == 0 || raw.length > KEY_WIDTH) return null; // not indexable, DB handles it
+        return Arrays.copyOf(raw, KEY_WIDTH);
+    }
+
+    /**
+     * Growable packed array of [key][int value offset][flags] records, sorted in place by a
+     * bottom-up merge sort, so the export holds no object per party.
+     */
+    private static final class KeyRecords {
+        static final int WIDTH = RECORD_WIDTH + 1;
+        static final byte HAS_EMAIL = 1;
+        static final byte HAS_MOBILE = 2;
+
+        byte[] data = new byte[WIDTH * 1024];
+        int size;
+
+        void add(byte[] key, int offset, boolean email, boolean mobile) {
+            if ((size + 1) * WIDTH > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, (size + 1) * WIDTH));
+            }
+            int at = size * WIDTH;
+            System.arraycopy(key, 0, data, at, KEY_WIDTH);
+            data[at + KEY_WIDTH] = (byte) (offset >>> 24);
+            data[at + KEY_WIDTH + 1] = (byte) (offset >>> 16);
+            data[at + KEY_WIDTH + 2] = (byte) (offset >>> 8);
+            data[at + KEY_WIDTH + 3] = (byte) offset;
+            data[at + RECORD_WIDTH] = (byte) ((email ? HAS_EMAIL : 0) | (mobile ? HAS_MOBILE : 0));
+            size++;
+        }
+
+        boolean sameKey(int a, int b) {
+            return Arrays.equals(data, a * WIDTH, a * WIDTH + KEY_WIDTH, data, b * WIDTH, b * WIDTH + KEY_WIDTH);
+        }
+
+        void sort() {
+            byte[] from = data;
+            byte[] to = new byte[data.length];
+            for (int run = 1; run < size; run *= 2) {
+                for (int lo = 0; lo < size; lo += 2 * run) {
+                    int mid = Math.min(lo + run, size);
+                    int hi = Math.min(lo + 2 * run, size);
+                    int i = lo, j = mid, k = lo;
+                    while (i < mid && j < hi) {
+                        // key then big-endian offset: one unsigned compare over RECORD_WIDTH bytes
+                        int src = compare(from, i, j) <= 0 ? i++ : j++;
+                        System.arraycopy(from, src * WIDTH, to, k++ * WIDTH, WIDTH);
+                    }
+                    System.arraycopy(from, i * WIDTH, to, k * WIDTH, (mid - i) * WIDTH);
+                    k += mid - i;
+                    System.arraycopy(from, j * WIDTH, to, k * WIDTH, (hi - j) * WIDTH);
+                }
+                byte[] swap = from;
+                from = to;
+                to = swap;
+            }
+            data = from;
+        }
+
+        private static int compare(byte[] data, int a, int b) {
+            return Arrays.compareUnsigned(data, a * WIDTH, a * WIDTH + RECORD_WIDTH, data, b * WIDTH, b * WIDTH + RECORD_WIDTH);
+        }
+    }
+
+    private static final class MappedIndex {
+        private final MappedByteBuffer keys;
+        private final MappedByteBuffer values;
+        private final int count;
+        private final Instant builtAt;
+        private final int withEmail;
+        private final int withMobile;
+
+        private MappedIndex(MappedByteBuffer keys, MappedByteBuffer values, int count, Instant builtAt,
+                            int withEmail, int withMobile) {
+            this.keys = keys;
+            this.values = values;
+            this.count = count;
+            this.builtAt = builtAt;
+            this.withEmail = withEmail;
+            this.withMobile = withMobile;
+        }
+
+        static MappedIndex open(Path dir) throws IOException {
+            Path metaFile = dir.resolve(META_FILE);
+            if (!Files.exists(metaFile)) return null;
+
+            Properties meta = new Properties();
+            try (InputStream in = Files.newInputStream(metaFile)) {
+                meta.load(in);
+            }
+            return new MappedIndex(map(dir.resolve(KEYS_FILE)), map(dir.resolve(VALUES_FILE)),
+                    Integer.parseInt(meta.getProperty("count")), Instant.parse(meta.getProperty("builtAt")),
+                    Integer.parseInt(meta.getProperty("withEmail", "-1")),
+                    Integer.parseInt(meta.getProperty("withMobile", "-1")));
+        }
+
+        private static MappedByteBuffer map(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                // the mapping stays valid after the channel is closed
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        // absolute reads only, so concurrent lookups never touch buffer position
+        ContactDetails find(byte[] key) {
+            int lo = 0;
+            int hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = compareKeyAt(mid * RECORD_WIDTH, key);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else {
+                    int offset = keys.getInt(mid * RECORD_WIDTH + KEY_WIDTH);
+                    int emailLen = values.getShort(offset) & 0xFFFF;
+                    String email = readString(offset + 2, emailLen);
+                    int mobileAt = offset + 2 + emailLen;
+                    int mobileLen = values.getShort(mobileAt) & 0xFFFF;
+                    return new ContactDetails(email, readString(mobileAt + 2, mobileLen));
+                }
+            }
+            return null;
+        }
+
+        private int compareKeyAt(int position, byte[] key) {
+            for (int i = 0; i < KEY_WIDTH; i++) {
+                int cmp = Byte.compareUnsigned(keys.get(position + i), key[i]);
+                if (cmp != 0) return cmp;
+            }
+            return 0;
+        }
+
+        private String readString(int position, int length) {
+            byte[] bytes = new byte[length];
+            values.get(position, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.ibsec.ncdnotifier.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+import java.net.IDN;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes and validates cust_mst contacts before anything is sent, so gateway calls only go
+ * to recipients that can be delivered to.
+ *
+ * Mobiles are normalized to E.164 (spaces, dashes, brackets, 00 / 0 prefixes removed; bare
+ * national numbers get ncd.contacts.default-country-code) and handed to the SMS gateway in
+ * ncd.contacts.mobile-format. Emails get an RFC-lite syntax check (first address of a ; or ,
+ * list, domain lower-cased, internationalized domains in their ASCII form) and, with ncd.contacts.mx-check, a DNS lookup of the domain's MX
+ * (or A) record, cached per domain. Results are cached per party code until the raw values
+ * change or ncd.contacts.max-age-hours passes, keeping the ncd.contacts.validation-cache-size
+ * most recently used parties.
+ */
+@Service
+public class ContactValidator {
+
+    private static final Logger log = LoggerFactory.getLogger(ContactValidator.class);
+
+    private static final Pattern LOCAL_PART = Pattern.compile("[A-Za-z0-9!#$%&'*+/=?^_`{|}~-]+(\\.[A-Za-z0-9!#$%&'*+/=?^_`{|}~-]+)*");
+    private static final Pattern DOMAIN = Pattern.compile("([A-Za-z0-9]([A-Za-z0-9-]{0,61}[A-Za-z0-9])?\\.)+[A-Za-z]{2,63}");
+    private static final Pattern E164 = Pattern.compile("\\+[1-9]\\d{7,14}");
+    private static final Pattern INDIAN_MOBILE = Pattern.compile("[6-9]\\d{9}");
+
+    @Value("${ncd.contacts.default-country-code:91}")
+    private String defaultCountryCode;
+
+    // e164: +919812345678 | digits: 919812345678 | national: 9812345678 (default country only)
+    @Value("${ncd.contacts.mobile-format:national}")
+    private String mobileFormat;
+
+    @Value("${ncd.contacts.mx-check:false}")
+    private boolean mxCheck;
+
+    @Value("${ncd.contacts.mx-cache-ttl-hours:24}")
+    private long mxCacheTtlHours;
+
+    @Value("${ncd.contacts.mx-timeout-ms:2000}")
+    private long mxTimeoutMs;
+
+    @Value("${ncd.contacts.max-age-hours}")
+    private long maxAgeHours;
+
+    @Value("${ncd.contacts.validation-cache-size:500000}")
+    private int cacheSize;
+
+    // access-ordered, so the least recently used party is evicted first
+    private final Map<String, CachedCheck> byParty = Collections.synchronizedMap(
+            new LinkedHashMap<>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedCheck> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+    private final Map<String, CachedMx> mxByDomain = new ConcurrentHashMap<>();
+
+    /**
+     * Validated contact of a party; invalid fields come back null with the reason in
+     * emailProblem / mobileProblem.
+     */
+    public ContactCheck check(String partyCd, ContactDetails raw) {
+        if (raw == null) {
+            return null;
+        }
+        CachedCheck cached = byParty.get(partyCd);
+        Instant now = Instant.now();
+        if (cached != null && cached.raw.equals(raw)
+                && Duration.between(cached.checkedAt, now).toHours() < maxAgeHours) {
+            return cached.check;
+        }
+
+        ContactCheck check = check(raw);
+        byParty.put(partyCd, new CachedCheck(raw, check, now));
+        if (check.emailProblem() != null || check.mobileProblem() != null) {
+            log.debug("Contact of {} partly undeliverable: email {}, mobile {}",
+                    partyCd, check.emailProblem(), check.mobileProblem());
+        }
+        return check;
+    }
+
+    ContactCheck check(ContactDetails raw) {
+        String email = null;
+        String emailProblem = null;
+        if (raw.email() != null && !raw.email().isBlank()) {
+            email = normalizeEmail(raw.email());
+            if (email == null) {
+                emailProblem = "malformed";
+            } else if (mxCheck && !hasMailServer(email.substring(email.indexOf('@') + 1))) {
+                emailProblem = "no mail server";
+                email = null;
+            }
+        }
+
+        String mobile = null;
+        String mobileProblem = null;
+        if (raw.mobile() != null && !raw.mobile().isBlank()) {
+            String e164 = normalizeMobile(raw.mobile());
+            if (e164 == null) {
+                mobileProblem = "invalid number";
+            } else {
+                mobile = format(e164);
+            }
+        }
+        return new ContactCheck(email, mobile, emailProblem, mobileProblem);
+    }
+
+    /**
+     * First syntactically valid-looking address, domain lower-cased (IDNs as punycode); null if
+     * there is none.
+     */
+    String normalizeEmail(String value) {
+        String candidate = value.trim().split("[;,\\s]+")[0];
+        int at = candidate.lastIndexOf('@');
+        if (at <= 0 || at == candidate.length() - 1) {
+            return null;
+        }
+        String local = candidate.substring(0, at);
+        String domain;
+        try {
+            domain = IDN.toASCII(candidate.substring(at + 1).toLowerCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (local.length() + 1 + domain.length() > 254 || local.length() > 64 || !LOCAL_PART.matcher(local).matches() || !DOMAIN.matcher(domain).matches()) {
+            return null;
+        }
+        return local + "@" + domain;
+    }
+
+    /**
+     * E.164 form of a mobile number, or null when it can't be one.
+     */
+    String normalizeMobile(String value) {
+        String trimmed = value.trim();
+        StringBuilder digits = new StringBuilder(trimmed.length());
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (c != ' ' && c != '-' && c != '.' && c != '(' && c != ')' && !(c == '+' && digits.isEmpty())) {
+                return null;    // letters, extensions, several numbers in one field
+            }
+        }
+        String number = digits.toString();
+
+        String e164;
+        if (trimmed.startsWith("+")) {
+            e164 = "+" + number;
+        } else if (number.startsWith("00")) {
+            e164 = "+" + number.substring(2);
+        } else if (number.length() == 11 && number.startsWith("0")) {
+            e164 = "+" + defaultCountryCode + number.substring(1);
+        } else if (number.length() == 10) {
+            e164 = "+" + defaultCountryCode + number;
+        } else if (number.length() == defaultCountryCode.length() + 10 && number.startsWith(defaultCountryCode)) {
+            e164 = "+" + number;
+        } else {
+            return null;
+        }
+
+        if (!E164.matcher(e164).matches()) {
+            return null;
+        }
+        // Indian mobiles: ten digits starting 6-9 (landlines can't take SMS)
+        if (e164.startsWith("+91") && !INDIAN_MOBILE.matcher(e164.substring(3)).matches()) {
+            return null;
+        }
+        String national = e164.startsWith("+" + defaultCountryCode)
+                ? e164.substring(1 + defaultCountryCode.length()) : e164.substring(1);
+        // 9999999999 and the like: placeholders, not numbers
+        if (national.chars().distinct().count() == 1) {
+            return null;
+        }
+        return e164;
+    }
+
+    private String format(String e164) {
+        return switch (mobileFormat.toLowerCase(Locale.ROOT)) {
+            case "e164" -> e164;
+            case "digits" -> e164.substring(1);
+            default -> e164.startsWith("+" + defaultCountryCode)
+                    ? e164.substring(1 + defaultCountryCode.length()) : e164.substring(1);
+        };
+    }
+
+    /**
+     * Whether the domain publishes an MX record (or, failing that, an A record, which mail
+     * servers fall back to). DNS errors other than a missing name count as deliverable.
+     */
+    private boolean hasMailServer(String domain) {
+        CachedMx cached = mxByDomain.get(domain);
+        Instant now = Instant.now();
+        if (cached != null && Duration.between(cached.checkedAt, now).toHours() < mxCacheTtlHours) {
+            return cached.deliverable;
+        }
+
+        boolean deliverable;
+        try {
+            Hashtable<String, String> env = new Hashtable<>();
+            env.put(DirContext.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.dns.DnsContextFactory");
+            env.put("com.sun.jndi.dns.timeout.initial", String.valueOf(mxTimeoutMs));
+            env.put("com.sun.jndi.dns.timeout.retries", "1");
+            DirContext dns = new InitialDirContext(env);
+            try {
+                Attributes records = dns.getAttributes(domain, new String[]{"MX", "A"});
+                Attribute mx = records.get("MX");
+                Attribute a = records.get("A");
+                deliverable = (mx != null && mx.size() > 0) || (a != null && a.size() > 0);
+            } finally {
+                dns.close();
+            }
+        } catch (NameNotFoundException e) {
+            deliverable = false;
+        } catch (NamingException e) {
+            log.warn("MX lookup for {} failed, treating it as deliverable: {}", domain, e.getMessage());
+            return true;    // not cached: try again next time
+        }
+        mxByDomain.put(domain, new CachedMx(deliverable, now));
+        return deliverable;
+    }
+
+    public record ContactCheck(String email, String mobile, String emailProblem, String mobileProblem) {}
+
+    private record CachedCheck(ContactDetails raw, ContactCheck check, Instant checkedAt) {}
+
+    private record CachedMx(boolean deliverable, Instant checkedAt) {}
+}
@@ -0,0 +1,421 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.ibsec.ncdnotifier.notification.request.NotificationStatus;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.resilience.Dependency;
+import com.ibsec.ncdnotifier.resilience.DependencyGuards;
+import com.ibsec.ncdnotifier.resilience.DependencyUnavailableException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buffers gateway delivery reports (DLRs) and reconciles them into bond_maturity_notification_log
+ * in batches, so a burst of callbacks costs one batched UPDATE per flush instead of a write each.
+ *
+ * Reports are keyed by the provider message ID stored on the log row at send time (SMS: the
+ * gateway's ID; email: Message-ID + "/" + recipient, see EmailNotificationChannel). Several reports
+ * for one message coalesce to the latest by event time. Every ncd.dlr.flush-interval-ms the buffer
+ * is drained and applied in chunks of ncd.dlr.batch-size, limited to rows sent within
+ * ncd.dlr.lookback-days so PostgreSQL prunes to recent partitions. A report whose row isn't there
+ * yet (the callback beat the log write) stays buffered for ncd.dlr.unmatched-retention-ms, retried
+ * with a backoff doubling from the flush interval up to ncd.dlr.unmatched-backoff-max-ms; an open
+ * database breaker keeps the whole batch for the next flush.
+ *
+ * Accepted reports are first appended to ncd_delivery_report_inbox, so the webhook only
+ * acknowledges what a restart will not lose. The inbox is written as a group commit: the first
+ * callback to find no batch open waits ncd.dlr.inbox-commit-ms for others to join it, then writes
+ * the batch in one batched INSERT, and every callback in it is answered once that completes. The
+ * inbox is read back on the first flush and its rows are deleted once their report is applied or
+ * given up.
+ */
+@Component
+public class DeliveryReportBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryReportBuffer.class);
+
+    // a newer report never loses to an older one already applied
+    private static final String UPDATE_SQL = """
+            UPDATE bond_maturity_notification_log
+            SET status = ?, delivered_on = ?
+            WHERE provider_message_id = ? AND notified_on >= ?
+              AND (delivered_on IS NULL OR delivered_on <= ?)""";
+
+    private static final String INBOX_INSERT_SQL =
+            "INSERT INTO ncd_delivery_report_inbox (provider_key, status, event_time, received_at) VALUES (?, ?, ?, ?)";
+    // what was applied (or given up) supersedes every report for the message up to its event time
+    private static final String INBOX_DELETE_SQL =
+            "DELETE FROM ncd_delivery_report_inbox WHERE provider_key = ? AND event_time <= ?";
+    private static final String INBOX_SELECT_SQL =
+            "SELECT provider_key, status, event_time, received_at FROM ncd_delivery_report_inbox";
+
+    private final JdbcTemplate secondaryJdbcTemplate;
+    private final DependencyGuards guards;
+
+    @Value("${ncd.dlr.buffer-capacity:200000}")
+    private int capacity;
+
+    @Value("${ncd.dlr.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${ncd.dlr.lookback-days:7}")
+    private int lookbackDays;
+
+    @Value("${ncd.dlr.unmatched-retention-ms:600000}")
+    private long unmatchedRetentionMs;
+
+    @Value("${ncd.dlr.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${ncd.dlr.unmatched-backoff-max-ms:60000}")
+    private long unmatchedBackoffMaxMs;
+
+    @Value("${ncd.dlr.inbox-commit-ms:5}")
+    private long inboxCommitMs;
+
+    // the inbox batch callbacks are joining, null when none is open; guarded by inboxLock
+    private final Object inboxLock = new Object();
+    private InboxBatch openBatch;
+
+    // inbox read back into pending; until then every flush tries to
+    private volatile boolean recovered;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder ignored = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    public DeliveryReportBuffer(@Qualifier("secondaryJdbcTemplate") JdbcTemplate secondaryJdbcTemplate,
+                                DependencyGuards guards) {
+        this.secondaryJdbcTemplate = secondaryJdbcTemplate;
+        this.guards = guards;
+    }
+
+    /**
+     * Buffers reports from one channel's callback, returning once they are in the inbox.
+     *
+     * @return reports accepted, each persisted in the inbox; fewer than given when the buffer is
+     * full or the inbox can't be written (the caller should ask the gateway to retry) — reports
+     * without an ID or with an interim status are accepted and dropped
+     */
+    public int submit(NotificationType channel, List<DeliveryReport> reports) {
+        Instant now = Instant.now();
+        int accepted = 0;
+        // reports that went into the batch, counted before they coalesce
+        int batched = 0;
+        Map<String, Pending> batch = new LinkedHashMap<>();
+        for (DeliveryReport report : reports) {
+            NotificationStatus status = report.outcome();
+            String key = report.key(channel);
+            if (status == null || key == null) {
+                ignored.increment();
+                accepted++;
+                continue;
+            }
+            if (pending.size() + batch.size() >= capacity && !pending.containsKey(key) && !batch.containsKey(key)) {
+                rejected.increment();
+                continue;
+            }
+            batch.merge(key, new Pending(status, report.eventTime(), now), (current, incoming) -> {
+                coalesced.increment();
+                return Pending.latest(current, incoming);
+            });
+            batched++;
+            accepted++;
+        }
+        if (batch.isEmpty()) {
+            return accepted;
+        }
+
+        if (!writeToInbox(batch)) {
+            rejected.add(batched);
+            return accepted - batched;
+        }
+        received.add(batch.size());
+        return accepted;
+    }
+
+    // joins the open inbox batch, or opens one and writes it after the commit interval
+    private boolean writeToInbox(Map<String, Pending> reports) {
+        InboxBatch joined;
+        boolean leader;
+        synchronized (inboxLock) {
+            leader = openBatch == null;
+            if (leader) {
+                openBatch = new InboxBatch();
+            }
+            joined = openBatch;
+            reports.forEach((key, p) -> joined.reports.merge(key, p, (current, incoming) -> {
+                coalesced.increment();
+                return Pending.latest(current, incoming);
+            }));
+        }
+        if (leader) {
+            commit(joined);
+        }
+        return joined.written.join();
+    }
+
+    private void commit(InboxBatch batch) {
+        boolean written = false;
+        try {
+            if (inboxCommitMs > 0) {
+                Thread.sleep(inboxCommitMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (inboxLock) {
+            openBatch = null;
+        }
+        try {
+            List<Object[]> rows = new ArrayList<>(batch.reports.size());
+            Timestamp receivedAt = Timestamp.from(Instant.now());
+            batch.reports.forEach((key, p) ->
+                    rows.add(new Object[]{key, p.status().name(), Timestamp.valueOf(p.eventTime()), receivedAt}));
+            guards.get(Dependency.SECONDARY_DB).call(() -> secondaryJdbcTemplate.batchUpdate(INBOX_INSERT_SQL, rows));
+            batch.reports.forEach((key, p) -> pending.merge(key, p, (current, incoming) -> {
+                coalesced.increment();
+                return Pending.latest(current, incoming);
+            }));
+            written = true;
+        } catch (DependencyUnavailableException | DataAccessException e) {
+            log.warn("⚠️ Delivery report inbox unavailable, {} reports refused: {}", batch.reports.size(), e.getMessage());
+        } finally {
+            batch.written.complete(written);
+        }
+    }
+
+    /**
+     * Applies everything buffered so far.
+     *
+     * @return log rows updated
+     */
+    @Scheduled(initialDelayString = "${ncd.dlr.flush-interval-ms:1000}", fixedDelayString = "${ncd.dlr.flush-interval-ms:1000}")
+    public synchronized int flush() {
+        if (!recovered) {
+            recover();
+        }
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        List<Map.Entry<String, Pending>> drained = new ArrayList<>(pending.size());
+        for (Map.Entry<String, Pending> e : pending.entrySet()) {
+            if (!e.getValue().retryAt().isAfter(now) && pending.remove(e.getKey(), e.getValue())) {
+                drained.add(Map.entry(e.getKey(), e.getValue()));
+            }
+        }
+        if (drained.isEmpty()) {
+            return 0;
+        }
+        flushes.increment();
+
+        Timestamp sentAfter = Timestamp.valueOf(LocalDateTime.now().minusDays(lookbackDays));
+        Instant keepUnmatchedAfter = now.minusMillis(unmatchedRetentionMs);
+        int updated = 0;
+        int unmatched = 0;
+        List<String> dropped = new ArrayList<>();
+        for (int from = 0; from < drained.size(); from += batchSize) {
+            List<Map.Entry<String, Pending>> chunk = drained.subList(from, Math.min(from + batchSize, drained.size()));
+            List<Object[]> args = new ArrayList<>(chunk.size());
+            for (Map.Entry<String, Pending> e : chunk) {
+                Timestamp at = Timestamp.valueOf(e.getValue().eventTime());
+                args.add(new Object[]{e.getValue().status().name(), at, e.getKey(), sentAfter, at});
+            }
+
+            int[] counts;
+            try {
+                counts = guards.get(Dependency.SECONDARY_DB).call(() -> secondaryJdbcTemplate.batchUpdate(UPDATE_SQL, args));
+            } catch (DependencyUnavailableException | DataAccessException e) {
+                log.warn("⚠️ Delivery report flush interrupted, {} reports kept for the next flush: {}",
+                        drained.size() - from, e.getMessage());
+                for (Map.Entry<String, Pending> r : drained.subList(from, drained.size())) {
+                    pending.merge(r.getKey(), r.getValue(), Pending::latest);
+                }
+                break;
+            }
+
+            List<Object[]> done = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                Map.Entry<String, Pending> r = chunk.get(i);
+                if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                    updated += Math.max(1, counts[i]);
+                } else if (r.getValue().receivedAt().isAfter(keepUnmatchedAfter)) {
+                    pending.merge(r.getKey(), r.getValue().retryLater(now, flushIntervalMs, unmatchedBackoffMaxMs),
+                            Pending::latest);
+                    unmatched++;
+                    continue;
+                } else {
+                    expired.increment();
+                    dropped.add(r.getKey());
+                }
+                done.add(new Object[]{r.getKey(), Timestamp.valueOf(r.getValue().eventTime())});
+            }
+            deleteFromInbox(done);
+        }
+        applied.add(updated);
+        if (!dropped.isEmpty()) {
+            log.warn("⚠️ {} delivery reports dropped, no log row matched them within {} ms (e.g. {})",
+                    dropped.size(), unmatchedRetentionMs, dropped.subList(0, Math.min(5, dropped.size())));
+        }
+        log.debug("Delivery reports: {} flushed, {} rows updated, {} waiting for their log row",
+                drained.size(), updated, unmatched);
+        return updated;
+    }
+
+    // a failed delete only means the reports are applied once more after a restart
+    private void deleteFromInbox(List<Object[]> done) {
+        if (done.isEmpty()) return;
+        try {
+            guards.get(Dependency.SECONDARY_DB).call(() -> secondaryJdbcTemplate.batchUpdate(INBOX_DELETE_SQL, done));
+        } catch (DependencyUnavailableException | DataAccessException e) {
+            log.warn("⚠️ {} applied delivery reports left in the inbox: {}", done.size(), e.getMessage());
+        }
+    }
+
+    // reports a previous process accepted but had not applied
+    private void recover() {
+        List<Map.Entry<String, Pending>> rows;
+        try {
+            rows = guards.get(Dependency.SECONDARY_DB).call(() -> secondaryJdbcTemplate.query(INBOX_SELECT_SQL,
+                    (rs, rowNum) -> Map.entry(rs.getString(1), new Pending(NotificationStatus.valueOf(rs.getString(2)),
+                            rs.getTimestamp(3).toLocalDateTime(), rs.getTimestamp(4).toInstant()))));
+        } catch (DependencyUnavailableException | DataAccessException e) {
+            log.warn("⚠️ Delivery report inbox not read yet: {}", e.getMessage());
+            return;
+        }
+        for (Map.Entry<String, Pending> row : rows) {
+            pending.merge(row.getKey(), row.getValue(), Pending::latest);
+        }
+        recovered = true;
+        if (!rows.isEmpty()) {
+            log.info("📬 {} delivery reports recovered from the inbox", rows.size());
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public DeliveryReportStats stats() {
+        return new DeliveryReportStats(received.sum(), coalesced.sum(), ignored.sum(), rejected.sum(),
+                applied.sum(), expired.sum(), flushes.sum(), pending.size());
+    }
+
+    /**
+     * One status callback. Field names follow the common gateway spellings.
+     */
+    public record DeliveryReport(@JsonAlias({"msgid", "msgId", "message_id", "id", "requestId"}) String messageId,
+                                 @JsonAlias({"email", "to", "dest", "mobile"}) String recipient,
+                                 @JsonAlias({"event", "state", "dlrStatus"}) String status,
+                                 @JsonAlias({"ts", "time", "deliveredAt", "eventTime"}) String timestamp) {
+
+        /**
+         * Final outcome, or null for interim events (queued, sent, opened, clicked, ...).
+         */
+        NotificationStatus outcome() {
+            if (status == null) return null;
+            return switch (status.trim().toLowerCase(Locale.ROOT)) {
+                case "delivered", "delivrd", "delivery", "success", "read" -> NotificationStatus.DELIVERED;
+                case "undelivered", "undeliv", "failed", "bounce", "bounced", "hard_bounce", "soft_bounce",
+                     "dropped", "rejected", "rejectd", "expired", "dnd", "invalid" -> NotificationStatus.UNDELIVERED;
+                default -> null;
+            };
+        }
+
+        String key(NotificationType channel) {
+            if (messageId == null || messageId.isBlank()) return null;
+            String id = messageId.trim();
+            if (channel != NotificationType.EMAIL) return id;
+            if (recipient == null || recipient.isBlank()) return null;
+            if (id.startsWith("<") && id.endsWith(">")) id = id.substring(1, id.length() - 1);
+            return id + "/" + recipient.trim().toLowerCase(Locale.ROOT);
+        }
+
+        // ISO-8601 (with or without offset) or epoch seconds / millis; the receive time otherwise
+        LocalDateTime eventTime() {
+            if (timestamp != null && !timestamp.isBlank()) {
+                String ts = timestamp.trim();
+                try {
+                    if (ts.chars().allMatch(Character::isDigit)) {
+                        long epoch = Long.parseLong(ts);
+                        Instant at = ts.length() > 10 ? Instant.ofEpochMilli(epoch) : Instant.ofEpochSecond(epoch);
+                        return LocalDateTime.ofInstant(at, ZoneId.systemDefault());
+                    }
+                    if (ts.endsWith("Z") || ts.matches(".*[+-]\\d{2}:\\d{2}$")) {
+                        return OffsetDateTime.parse(ts).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+                    }
+                    return LocalDateTime.parse(ts);
+                } catch (DateTimeParseException | NumberFormatException e) {
+                    // fall through
+                }
+            }
+            return LocalDateTime.now();
+        }
+    }
+
+    public record DeliveryReportStats(long received, long coalesced, long ignored, long rejected,
+                                      long rowsUpdated, long expiredUnmatched, long flushes, int buffered) {}
+
+    // reports of the callbacks waiting on one inbox write
+    private static final class InboxBatch {
+        final Map<String, Pending> reports = new LinkedHashMap<>();
+        final CompletableFuture<Boolean> written = new CompletableFuture<>();
+    }
+
+    // attempts / retryAt: unmatched flushes so far and when the next one may be tried
+    private record Pending(NotificationStatus status, LocalDateTime eventTime, Instant receivedAt,
+                           int attempts, Instant retryAt) {
+
+        Pending(NotificationStatus status, LocalDateTime eventTime, Instant receivedAt) {
+            this(status, eventTime, receivedAt, 0, Instant.EPOCH);
+        }
+
+        // the newer event, keeping the backoff of an unmatched report
+        static Pending latest(Pending a, Pending b) {
+            Pending newer = b.eventTime.isBefore(a.eventTime) ? a : b;
+            int attempts = Math.max(a.attempts, b.attempts);
+            Instant retryAt = a.retryAt.isAfter(b.retryAt) ? a.retryAt : b.retryAt;
+            return new Pending(newer.status, newer.eventTime, newer.receivedAt, attempts, retryAt);
+        }
+
+        Pending retryLater(Instant now, long baseMs, long maxMs) {
+            long delay = Math.min(maxMs, baseMs << Math.min(attempts, 20));
+            return new Pending(status, eventTime, receivedAt, attempts + 1, now.plusMillis(delay));
+        }
+    }
+}
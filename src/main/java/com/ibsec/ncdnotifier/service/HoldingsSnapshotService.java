@@ -0,0 +1,137 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.repository.HoldingsDao;
+import com.ibsec.ncdnotifier.repository.NotificationCalendarRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Local copy of vw_final_holding_midoffice restricted to the ISINs on the notification
+ * calendar. The view is read with one bulk query per refresh instead of once per ISIN,
+ * and each refresh reports holders that appeared since the previous snapshot.
+ */
+@Service
+public class HoldingsSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(HoldingsSnapshotService.class);
+
+    private static final String[] NO_HOLDERS = new String[0];
+
+    private final HoldingsDao holdingsDao;
+    private final NotificationCalendarRepository calendarRepository;
+
+    @Value("${ncd.holdings.refresh-interval-ms}")
+    private long refreshIntervalMs;
+
+    // ISIN -> sorted, de-duplicated client IDs
+    private volatile Map<String, String[]> holdersByIsin = Map.of();
+    private volatile Instant refreshedAt;
+
+    public HoldingsSnapshotService(HoldingsDao holdingsDao,
+                                   NotificationCalendarRepository calendarRepository) {
+        this.holdingsDao = holdingsDao;
+        this.calendarRepository = calendarRepository;
+    }
+
+    /**
+     * Holders of the ISIN per the current snapshot, or null if the ISIN is not in it.
+     */
+    public String[] getHolders(String isin) {
+        return holdersByIsin.get(isin);
+    }
+
+    public boolean isStale() {
+        return refreshedAt == null
+                || Duration.between(refreshedAt, Instant.now()).toMillis() >= refreshIntervalMs;
+    }
+
+    public Map<String, String[]> refreshIfStale() {
+        return isStale() ? refresh() : Map.of();
+    }
+
+    /**
+     * Reloads the snapshot and returns, per ISIN already present in the previous snapshot,
+     * the client IDs that were not holders before.
+     */
+    public synchronized Map<String, String[]> refresh() {
+        List<String> isins = calendarRepository.findDistinctIsinsMaturingOnOrAfter(LocalDate.now());
+
+        Map<String, Set<String>> loaded = holdingsDao.holdersByIsin(isins);
+
+        Map<String, String[]> next = new HashMap<>(isins.size() * 2);
+        for (String isin : isins) {
+            next.put(isin, NO_HOLDERS);
+        }
+        int holdings = 0;
+        for (Map.Entry<String, Set<String>> e : loaded.entrySet()) {
+            String[] clients = e.getValue().toArray(new String[0]);
+            Arrays.sort(clients);
+            next.put(e.getKey(), clients);
+            holdings += clients.length;
+        }
+
+        Map<String, String[]> previous = holdersByIsin;
+        boolean firstLoad = refreshedAt == null;
+
+        holdersByIsin = next;
+        refreshedAt = Instant.now();
+
+        Map<String, String[]> newHolders = firstLoad ? Map.of() : diff(previous, next);
+        log.info("📦 Holdings snapshot refreshed: {} ISINs, {} held, {} holdings, {} ISINs with new holders",
+                isins.size(), loaded.size(), holdings, newHolders.size());
+        return newHolders;
+    }
+
+    /**
+     * Applies a bond universe change feed without a full reload: delisted ISINs leave the
+     * snapshot, and changed ones that are now on the calendar but not in the snapshot are
+     * loaded with one query. A no-op before the first refresh.
+     */
+    public synchronized void applyUniverseChanges(Collection<String> removed, Collection<String> changed) {
+        if (refreshedAt == null || (removed.isEmpty() && changed.isEmpty())) {
+            return;
+        }
+        Map<String, String[]> next = new HashMap<>(holdersByIsin);
+        next.keySet().removeAll(removed);
+
+        Set<String> calendared = changed.isEmpty() ? Set.of()
+                : new HashSet<>(calendarRepository.findDistinctIsinsMaturingOnOrAfter(LocalDate.now()));
+        List<String> missing = changed.stream()
+                .filter(isin -> calendared.contains(isin) && !next.containsKey(isin))
+                .toList();
+        Map<String, Set<String>> loaded = missing.isEmpty() ? Map.of() : holdingsDao.holdersByIsin(missing);
+        for (String isin : missing) {
+            Set<String> holders = loaded.get(isin);
+            String[] clients = holders == null ? NO_HOLDERS : holders.toArray(new String[0]);
+            Arrays.sort(clients);
+            next.put(isin, clients);
+        }
+        holdersByIsin = next;
+        log.info("📦 Holdings snapshot updated from universe changes: -{} ISINs, +{} loaded",
+                removed.size(), missing.size());
+    }
+
+    private Map<String, String[]> diff(Map<String, String[]> previous, Map<String, String[]> next) {
+        Map<String, String[]> delta = new HashMap<>();
+        for (Map.Entry<String, String[]> e : next.entrySet()) {
+            String[] before = previous.get(e.getKey());
+            if (before == null) {
+                // ISIN just entered the window; nothing was sent for it yet
+                continue;
+            }
+            List<String> added = new ArrayList<>();
+            for (String clientId : e.getValue()) {
+                if (Arrays.binarySearch(before, clientId) < 0) added.add(clientId);
+            }
+            if (!added.isEmpty()) delta.put(e.getKey(), added.toArray(new String[0]));
+        }
+        return delta;
+    }
+}
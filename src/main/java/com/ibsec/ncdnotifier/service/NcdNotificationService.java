@@ -1,34 +1,65 @@
 package com.ibsec.ncdnotifier.service;
 
 import com.ibsec.ncdnotifier.entity.BondMaturityNotificationLog;
+import com.ibsec.ncdnotifier.entity.NotificationCalendarEntry;
+import com.ibsec.ncdnotifier.notification.request.MessageTemplate;
 import com.ibsec.ncdnotifier.notification.request.NotificationRequest;
+import com.ibsec.ncdnotifier.notification.request.NotificationResult;
+import com.ibsec.ncdnotifier.notification.request.NotificationStatus;
 import com.ibsec.ncdnotifier.notification.request.NotificationType;
 import com.ibsec.ncdnotifier.notification.service.NotificationManager;
 import com.ibsec.ncdnotifier.repository.BondMaturityNotificationRepository;
+import com.ibsec.ncdnotifier.repository.HoldingsDao;
+import com.ibsec.ncdnotifier.repository.NotificationCalendarRepository;
+import com.ibsec.ncdnotifier.resilience.Dependency;
+import com.ibsec.ncdnotifier.resilience.DependencyGuard;
+import com.ibsec.ncdnotifier.resilience.DependencyGuards;
+import com.ibsec.ncdnotifier.resilience.DependencyUnavailableException;
+import com.ibsec.ncdnotifier.tracing.RunTraceReport;
+import com.ibsec.ncdnotifier.tracing.RunTracer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Scope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 @Service
 public class NcdNotificationService {
 
     private final BondFileService bondFileService;
     private final BondMaturityNotificationRepository logRepo;
+    private final NotificationCalendarRepository calendarRepository;
+    private final NotificationCalendarPlanner calendarPlanner;
+    private final NotificationPolicy policy;
+    private final HoldingsSnapshotService holdingsSnapshot;
+    private final ContactIndexService contactIndex;
+    private final ContactValidator contactValidator;
+    private final PreflightPlanner preflight;
+    private final BondUniverseDiffer universeDiffer;
     private final JdbcTemplate secondaryJdbcTemplate;
     private final JdbcTemplate primaryJdbcTemplate;
+    private final HoldingsDao holdingsDao;
+    // per-row lookups: same pool, but with the dependency's timeout budget as query timeout
+    private final JdbcTemplate contactLookupJdbc;
+    private final DependencyGuards guards;
+    private final NotificationRetryQueue retryQueue;
     private final NotificationManager notificationManager;
-
-    @Value("${ncd.maturity-lookahead-days}")
-    private int lookaheadDays;
-
-    @Value("${ncd.notify-before-days}")
-    private String notifyBeforeDays;
+    private final ExecutorService processingExecutor;
+    private final RunTracer tracer;
 
     // -----------------------------
     // 🔥 TEST MODE PROPERTIES
@@ -42,152 +73,752 @@ public class NcdNotificationService {
     @Value("${ncd.test.mobile:}")
     private String testMobile;
 
+    @Value("${ncd.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    @Value("${ncd.processing.client-ordering:false}")
+    private boolean clientOrdering;
+
+    @Value("${ncd.priority.urgent-days:3}")
+    private int urgentDays;
+
+    @Value("${ncd.priority.urgent-reserved-workers:2}")
+    private int urgentReservedWorkers;
+
+    @Value("${ncd.priority.urgent-sla-ms:600000}")
+    private long urgentSlaMs;
+
+    // numeric position column of vw_final_holding_midoffice; blank = no exposure ordering
+    @Value("${ncd.priority.exposure-column:}")
+    private String exposureColumn;
+
+    @Value("${ncd.resilience.retry-max-age-ms:21600000}")
+    private long retryMaxAgeMs;
+
+    // sender profile group maturity alerts go out through; blank = any profile (see SenderRouter)
+    @Value("${ncd.senders.alert-group:}")
+    private String alertSenderGroup;
+
     private static final Logger log = LoggerFactory.getLogger(NcdNotificationService.class);
 
+    private static final MessageTemplate MATURITY_TEMPLATE = MessageTemplate.MATURITY_ALERT_V1;
+
+    // source version / date the calendar was last planned for; either moving triggers a re-plan
+    private long plannedSourceVersion = -1;
+    private LocalDate plannedOn;
+
+    // end of the quiet hours the last run held calendar rows for, until quietHoldEnded reports it
+    private final AtomicReference<LocalDateTime> quietHoldUntil = new AtomicReference<>();
+
     public NcdNotificationService(
             BondFileService bondFileService,
             BondMaturityNotificationRepository logRepo,
+            NotificationCalendarRepository calendarRepository,
+            NotificationCalendarPlanner calendarPlanner,
+            NotificationPolicy policy,
+            HoldingsSnapshotService holdingsSnapshot,
+            HoldingsDao holdingsDao,
+            ContactIndexService contactIndex,
+            ContactValidator contactValidator,
+            PreflightPlanner preflight,
+            BondUniverseDiffer universeDiffer,
             @Qualifier("primaryJdbcTemplate") JdbcTemplate primaryJdbcTemplate,
             @Qualifier("secondaryJdbcTemplate") JdbcTemplate secondaryJdbcTemplate,
-            NotificationManager notificationManager) {
+            NotificationManager notificationManager,
+            @Qualifier("notificationProcessingExecutor") ExecutorService processingExecutor,
+            RunTracer tracer,
+            DependencyGuards guards,
+            NotificationRetryQueue retryQueue) {
 
         this.bondFileService = bondFileService;
         this.logRepo = logRepo;
+        this.calendarRepository = calendarRepository;
+        this.calendarPlanner = calendarPlanner;
+        this.policy = policy;
+        this.holdingsSnapshot = holdingsSnapshot;
+        this.holdingsDao = holdingsDao;
+        this.contactIndex = contactIndex;
+        this.contactValidator = contactValidator;
+        this.preflight = preflight;
+        this.universeDiffer = universeDiffer;
         this.primaryJdbcTemplate = primaryJdbcTemplate;
         this.secondaryJdbcTemplate = secondaryJdbcTemplate;
+        this.contactLookupJdbc = lookupTemplate(secondaryJdbcTemplate, guards.get(Dependency.SECONDARY_DB));
+        this.guards = guards;
+        this.retryQueue = retryQueue;
         this.notificationManager = notificationManager;
+        this.processingExecutor = processingExecutor;
+        this.tracer = tracer;
+    }
+
+    private static JdbcTemplate lookupTemplate(JdbcTemplate shared, DependencyGuard guard) {
+        JdbcTemplate template = new JdbcTemplate(Objects.requireNonNull(shared.getDataSource()));
+        template.setQueryTimeout((int) Math.max(1, (guard.getTimeout().toMillis() + 999) / 1000));
+        return template;
     }
 
     /**
-     * MAIN ENTRY POINT (runs via scheduler)
+     * MAIN ENTRY POINT (runs via NotificationScheduler triggers)
      */
-    public void processMaturingBonds() {
+    public RunStats.RunSummary processMaturingBonds() {
+        return processMaturingBonds(LocalDate.now(), Set.of());
+    }
 
-        int totalValidIsins = 0;
-        int totalNotificationsSent = 0;
-        int skippedNullDate = 0;
-        int skippedOutOfWindow = 0;
-        int isinsWithClients = 0;
-        int isinsWithoutClients = 0;
+    /**
+     * Same as {@link #processMaturingBonds(LocalDate, Set, boolean)} with a replay as a dry run.
+     */
+    public RunStats.RunSummary processMaturingBonds(LocalDate asOf, Set<String> isinFilter) {
+        return processMaturingBonds(asOf, isinFilter, false);
+    }
 
-        try {
-            List<BondFileService.BondRecord> bonds = bondFileService.fetchAllBonds();
-            LocalDate today = LocalDate.now();
-            List<String> notifyDaysList = Arrays.asList(notifyBeforeDays.split(","));
+    /**
+     * One pass for the given date, optionally limited to some ISINs (batch profile, see BatchRunner).
+     *
+     * For today the persisted calendar is refreshed and its undispatched entries the notification
+     * policy selects (due today, or missed within a catch-up window) are sent and marked
+     * dispatched. Any other date is a replay / backfill: the entries that date's calendar would hold
+     * are rebuilt from the current universe in memory, leaving the calendar untouched, so several
+     * dates can run side by side. A replay only sends with {@code sendReplay}; otherwise it is a dry
+     * run that counts the messages it would send (notificationsPlanned). Either way it skips holders
+     * whose alert for that maturity already went out (SENT or DELIVERED) or waits in the retry queue
+     * on the channel. New-holder alerts only go out on an unfiltered run for today.
+     *
+     * A channel inside its quiet hours gets nothing; the due entries are left undispatched (held) and
+     * the first run after the period ends sends that channel, skipping what already went out.
+     */
+    public RunStats.RunSummary processMaturingBonds(LocalDate asOf, Set<String> isinFilter, boolean sendReplay) {
 
-            log.info("📄 Total bonds fetched from files: {}", bonds.size());
+        long startedAt = System.currentTimeMillis();
+        RunStats stats = new RunStats();
+        Span run = tracer.startRun("ncd.run");
+        run.setAttribute("ncd.as_of", asOf.toString());
+
+        try (Scope ignored = run.makeCurrent()) {
+            boolean replay = !asOf.equals(LocalDate.now());
+            stats.dryRun = replay && !sendReplay;
+            List<NotificationCalendarEntry> candidates;
+            if (replay) {
+                List<BondFileService.BondRecord> bonds = bondFileService.fetchAllBonds();
+                candidates = new ArrayList<>(tracer.trace("calendar.replay", () -> calendarPlanner.entriesDue(bonds, asOf)));
+            } else {
+                refreshCalendar(asOf);
+                LocalDate from = asOf.minusDays(policy.maxCatchUpDays());
+                candidates = new ArrayList<>(calendarRepository.findBySendDateBetweenAndDispatchedOnIsNull(from, asOf));
+                candidates.addAll(calendarRepository.findBySendDateBeforeAndQuietHeldOnIsNotNullAndDispatchedOnIsNull(from));
+            }
+            if (!isinFilter.isEmpty()) {
+                candidates.removeIf(entry -> !isinFilter.contains(entry.getIsin()));
+            }
+            NotificationPolicy.WorkSet work = tracer.trace("policy.select", () -> policy.select(candidates, asOf));
+            stats.policy = work.counts();
+            work.counts().forEach((rule, counts) -> log.info("📐 Policy rule {}: {}", rule, counts));
+            if (!work.settled().isEmpty()) {
+                LocalDateTime now = LocalDateTime.now();
+                work.settled().forEach(entry -> entry.setDispatchedOn(now));
+                calendarRepository.saveAll(work.settled());
+                log.info("📐 Closed {} calendar entries held for quiet hours and since superseded or matured",
+                        work.settled().size());
+            }
+
+            Map<NotificationType, LocalDateTime> quiet = work.quiet();
+            List<NotificationCalendarEntry> due = new ArrayList<>(work.due());
+            prioritize(due);
+            stats.calendarEntriesDue.add(due.size());
+
+            log.info("📅 Calendar entries due {}{}: {}", asOf,
+                    stats.dryRun ? " (replay, dry run)" : replay ? " (replay)" : "", due.size());
 
             if (testMode) {
                 log.warn("🧪 TEST-MODE ENABLED — Fake client & test email/mobile will be used.");
             }
 
-            for (BondFileService.BondRecord bond : bonds) {
+            // during quiet hours new holders wait in the holdings diff for a later run
+            boolean newHolderPass = !testMode && !replay && isinFilter.isEmpty() && quiet.isEmpty();
+            Map<String, String[]> newHolders = !newHolderPass ? Map.of()
+                    : tracer.trace("holdings.refresh", holdingsSnapshot::refreshIfStale);
+
+            PreflightPlanner.PreflightEstimate plan = estimateOrDefault(asOf, due);
+            stats.expectedNotifications.add(plan.expectedEmails() + plan.expectedSms());
 
-                if (bond.maturityDate() == null) {
-                    skippedNullDate++;
-                    continue;
+            tracer.trace("dispatch", () -> {
+                if (stats.dryRun) {
+                    planOnly(due, plan, quiet, stats);
+                } else if (clientOrdering) {
+                    dispatchInClientOrder(due, plan, quiet, stats);
+                } else {
+                    dispatchPerIsin(due, plan, quiet, stats);
                 }
+                return null;
+            });
+            if (!replay && stats.isinsHeldQuiet.sum() > 0) {
+                quietHoldUntil.set(Collections.max(quiet.values()));
+            }
 
-                long daysLeft = Duration.between(
-                        today.atStartOfDay(),
-                        bond.maturityDate().atStartOfDay()
-                ).toDays();
+            // holders picked up since the last snapshot; ISINs due today were covered above
+            Map<String, String[]> midWindow = new HashMap<>(newHolders);
+            for (NotificationCalendarEntry entry : due) {
+                midWindow.remove(entry.getIsin());
+            }
+            int newHolderNotifications = tracer.trace("new-holders", () -> notifyNewHolders(midWindow, stats));
+            stats.newHolderNotifications.add(newHolderNotifications);
+            stats.notificationsSent.add(newHolderNotifications);
 
-                if (daysLeft < 0 || daysLeft > lookaheadDays) {
-                    skippedOutOfWindow++;
-                    continue;
-                }
+        } catch (Exception e) {
+            run.recordException(e);
+            run.setStatus(StatusCode.ERROR);
+            stats.error = e.toString();
+            log.error("❌ Error processing maturing bonds", e);
+        }
 
-                totalValidIsins++;
+        stats.notificationsDeferred.add(retryQueue.size());
+        RunTraceReport trace = tracer.finishRun(run);
+        RunStats.RunSummary summary = stats.toSummary(System.currentTimeMillis() - startedAt, trace);
 
-                if (!notifyDaysList.contains(String.valueOf(daysLeft))) {
-                    continue;
-                }
+        // -------------------------
+        // FINAL SUMMARY
+        // -------------------------
+        log.info("=========================================");
+        log.info("✅ NCD NOTIFICATION SUMMARY");
+        log.info("• Calendar entries due {}: {}", asOf, summary.calendarEntriesDue());
+        log.info("• ISINs with clients: {}", summary.isinsWithClients());
+        log.info("• ISINs without clients: {}", summary.isinsWithoutClients());
+        log.info("• ISINs failed: {}", summary.isinsFailed());
+        if (summary.isinsDeferred() > 0 || summary.notificationsDeferred() > 0) {
+            log.warn("• Deferred by open breakers: {} ISINs (next trigger), {} notifications (retry queue)",
+                    summary.isinsDeferred(), summary.notificationsDeferred());
+        }
+        if (summary.isinsHeldQuiet() > 0) {
+            log.info("• Held for quiet hours: {} ISINs (sent by the first run after the period ends)",
+                    summary.isinsHeldQuiet());
+        }
+        log.info("• Notifications to new holders: {}", summary.newHolderNotifications());
+        log.info("• Total notifications sent: {} (pre-flight estimate {})",
+                summary.notificationsSent(), summary.expectedNotifications());
+        if (summary.dryRun()) {
+            log.info("• Dry run, notifications that would be sent: {} (replay again with --send to send them)",
+                    summary.notificationsPlanned());
+        }
+        if (summary.alreadyNotified() > 0) {
+            log.info("• Skipped as already notified for the maturity: {}", summary.alreadyNotified());
+        }
+        log.info("• Contacts skipped as undeliverable: {}, messages saved on shared recipients: {}",
+                summary.contactsRejected(), summary.sharedRecipients());
+        log.info("• Duration: {} ms", summary.durationMs());
+        summary.timeToDelivery().forEach((priority, timing) ->
+                log.info("• {} time-to-delivery: {} sent, avg {} ms, max {} ms",
+                        priority, timing.delivered(), timing.avgMs(), timing.maxMs()));
+        RunStats.DeliveryTiming urgent = summary.timeToDelivery().get(PriorityClass.URGENT);
+        if (urgent.maxMs() > urgentSlaMs) {
+            log.warn("⚠️ Urgent alerts exceeded the {} ms delivery SLA (max {} ms)", urgentSlaMs, urgent.maxMs());
+        }
+        log.info("• Allocated (process-wide, approx.): {} KB", summary.approxAllocatedBytes() / 1024);
+        log.info("• Trace {}:", summary.traceId());
+        for (RunTraceReport.StageLatency stage : summary.stages()) {
+            log.info("    {}: {} spans, {} ms total, avg {} ms, max {} ms",
+                    stage.name(), stage.count(), stage.totalMs(), stage.avgMs(), stage.maxMs());
+        }
+        log.info("=========================================");
+
+        return summary;
+    }
 
-                // Fetch clients (test-mode returns mock)
-                List<Map<String, Object>> clients = getClientsHoldingIsin(bond.isin());
+    // the estimate only sizes the run; when it fails (holdings or contact counts unavailable) the
+    // run goes ahead with default workers and batch size
+    private PreflightPlanner.PreflightEstimate estimateOrDefault(LocalDate asOf, List<NotificationCalendarEntry> due) {
+        try {
+            return tracer.trace("preflight", () -> preflight.estimate(asOf, due));
+        } catch (Exception e) {
+            log.warn("⚠️ Pre-flight estimate failed, dispatching with default sizing: {}", e.toString());
+            return preflight.fallback(asOf, due.size());
+        }
+    }
 
-                if (clients.isEmpty()) {
-                    isinsWithoutClients++;
-                    continue;
-                }
+    /**
+     * Most urgent first (fewest days left), then the largest total exposure when a position
+     * column is configured, then ISIN so the order is stable between runs.
+     */
+    private void prioritize(List<NotificationCalendarEntry> due) {
+        Map<String, Double> exposure = exposureByIsin(due);
+        due.sort(Comparator.comparingInt(NotificationCalendarEntry::getDaysLeft)
+                .thenComparing(e -> exposure.getOrDefault(e.getIsin(), 0d), Comparator.reverseOrder())
+                .thenComparing(NotificationCalendarEntry::getIsin));
+    }
+
+    private Map<String, Double> exposureByIsin(List<NotificationCalendarEntry> due) {
+        if (testMode || exposureColumn.isBlank() || due.isEmpty()) {
+            return Map.of();
+        }
+        if (!exposureColumn.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+            log.warn("Ignoring invalid ncd.priority.exposure-column '{}'", exposureColumn);
+            return Map.of();
+        }
+        List<String> isins = due.stream().map(NotificationCalendarEntry::getIsin).distinct().toList();
+        try {
+            return holdingsDao.exposureByIsin(isins, exposureColumn);
+        } catch (DataAccessException e) {
+            // ordering only: the run goes ahead by days left and ISIN
+            log.warn("⚠️ Exposure by ISIN unavailable, ordering without it: {}", e.getMessage());
+            return Map.of();
+        }
+    }
 
-                isinsWithClients++;
+    /**
+     * One independent task per due ISIN: resolve holders and contacts, send, log, mark dispatched.
+     */
+    private void dispatchPerIsin(List<NotificationCalendarEntry> due, PreflightPlanner.PreflightEstimate plan,
+                                 Map<NotificationType, LocalDateTime> quiet, RunStats stats) {
+        SendPermits permits = new SendPermits(plan.workers(), urgentReservedWorkers);
+        forEachParallel(due, plan.workers(), stats, (idx, entry) -> {
+            PreparedBatch batch = prepare(entry, quiet, stats);
+            int sent = sendAndLog(batch, plan.sendBatchSize(), permits, stats);
+            stats.notificationsSent.add(sent);
+            stats.recordDelivery(batch.priority(), sent);
+            markDispatched(entry, quiet, stats);
+        });
+    }
 
-                log.info("🔔 ISIN {} ({}) matures in {} days → {} clients",
-                        bond.isin(), bond.name(), daysLeft, clients.size());
+    /**
+     * Dry-run replay: resolves holders and contacts and builds every message like dispatchPerIsin,
+     * but only counts them.
+     */
+    private void planOnly(List<NotificationCalendarEntry> due, PreflightPlanner.PreflightEstimate plan,
+                          Map<NotificationType, LocalDateTime> quiet, RunStats stats) {
+        forEachParallel(due, plan.workers(), stats,
+                (idx, entry) -> stats.notificationsPlanned.add(prepare(entry, quiet, stats).requests().size()));
+    }
 
-                for (Map<String, Object> client : clients) {
+    /**
+     * Per-client ordering: ISINs are still resolved in parallel, but sending is split into lanes
+     * by client ID. Each lane sends its ISINs sequentially in due order, so one client's messages
+     * always go out in that order. Urgent slices lead every lane, and routine slices only get the
+     * lanes' send permits not reserved for urgent ones (see SendPermits).
+     *
+     * A slice that fails fails its ISIN only: the lane goes on with its next slice, and every other
+     * ISIN is marked dispatched as soon as all of its slices have been sent. A failed ISIN is
+     * counted once and left undispatched for the next trigger, like in dispatchPerIsin.
+     */
+    private void dispatchInClientOrder(List<NotificationCalendarEntry> due, PreflightPlanner.PreflightEstimate plan,
+                                       Map<NotificationType, LocalDateTime> quiet, RunStats stats) {
 
-                    String clientId = (String) client.get("client_id");
+        int lanesCount = plan.workers();
+        PreparedBatch[] prepared = new PreparedBatch[due.size()];
+        forEachParallel(due, lanesCount, stats, (idx, entry) -> prepared[idx] = prepare(entry, quiet, stats));
 
-                    String partyCd = "C" + clientId;
-                    Map<String, Object> customer = getCustomerDetails(partyCd);
+        List<List<LaneSlice>> lanes = new ArrayList<>(lanesCount);
+        for (int l = 0; l < lanesCount; l++) {
+            lanes.add(new ArrayList<>());
+        }
 
-                    if (customer == null) {
+        // per ISIN: lane slices still to send, or -1 once one of them failed
+        AtomicIntegerArray pending = new AtomicIntegerArray(due.size());
+        for (int idx = 0; idx < prepared.length; idx++) {
+            PreparedBatch batch = prepared[idx];
+            if (batch == null) continue;
+            PreparedBatch[] split = new PreparedBatch[lanesCount];
+            for (int i = 0; i < batch.requests().size(); i++) {
+                int lane = Math.floorMod(batch.logs().get(i).getClientId().hashCode(), lanesCount);
+                if (split[lane] == null) {
+                    split[lane] = new PreparedBatch(new ArrayList<>(), new ArrayList<>(), batch.priority());
+                }
+                split[lane].requests().add(batch.requests().get(i));
+                split[lane].logs().add(batch.logs().get(i));
+            }
+            int slices = 0;
+            for (int l = 0; l < lanesCount; l++) {
+                if (split[l] != null) {
+                    lanes.get(l).add(new LaneSlice(idx, split[l]));
+                    slices++;
+                }
+            }
+            if (slices == 0) {
+                markDispatchedQuietly(due.get(idx), quiet, stats);   // no holders or no deliverable contact
+            } else {
+                pending.set(idx, slices);
+            }
+        }
+
+        SendPermits permits = new SendPermits(lanesCount, urgentReservedWorkers);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(lanesCount);
+        for (List<LaneSlice> lane : lanes) {
+            futures.add(CompletableFuture.runAsync(tracer.wrap(() -> {
+                for (LaneSlice slice : lane) {
+                    NotificationCalendarEntry entry = due.get(slice.isin());
+                    try {
+                        PreparedBatch batch = slice.batch();
+                        int sent = sendAndLog(batch, plan.sendBatchSize(), permits, stats);
+                        stats.notificationsSent.add(sent);
+                        stats.recordDelivery(batch.priority(), sent);
+                    } catch (Exception e) {
+                        if (pending.getAndSet(slice.isin(), -1) < 0) continue;   // already counted
+                        if (e instanceof DependencyUnavailableException) {
+                            stats.isinsDeferred.increment();
+                            log.warn("⏸️ ISIN {} deferred: {}", entry.getIsin(), e.getMessage());
+                        } else {
+                            stats.isinsFailed.increment();
+                            log.error("❌ Error sending ISIN {}", entry.getIsin(), e);
+                        }
                         continue;
                     }
+                    if (pending.updateAndGet(slice.isin(), n -> n < 0 ? n : n - 1) == 0) {
+                        markDispatchedQuietly(entry, quiet, stats);
+                    }
+                }
+            }), processingExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+
+    // a lane keeps going when marking one of its ISINs fails; the ISIN is re-sent next trigger
+    private void markDispatchedQuietly(NotificationCalendarEntry entry, Map<NotificationType, LocalDateTime> quiet,
+                                       RunStats stats) {
+        try {
+            markDispatched(entry, quiet, stats);
+        } catch (Exception e) {
+            stats.isinsFailed.increment();
+            log.error("❌ Error marking ISIN {} dispatched", entry.getIsin(), e);
+        }
+    }
 
-                    String email = (String) customer.get("email_id");
-                    String mobile = (String) customer.get("mobile_no");
+    // one ISIN's messages for one lane; isin indexes the due list
+    private record LaneSlice(int isin, PreparedBatch batch) {}
 
-                    String message = String.format(
-                            "Dear Client, your pledged NCD %s (%s) is reaching maturity in %d days. " +
-                                    "Margin benefit will cease from %s. Positions may be squared off if margin is insufficient.",
-                            bond.name(), bond.isin(), daysLeft, bond.maturityDate()
-                    );
+    /**
+     * Runs the task for every entry on {@code workers} concurrent workers, each pulling the next
+     * entry in priority order until none are left. Up to ncd.priority.urgent-reserved-workers of
+     * them only take URGENT entries (a prefix of the prioritized list), so a late urgent entry
+     * (e.g. one whose holders took long to resolve) never waits behind routine ISINs holding every
+     * worker.
+     */
+    private void forEachParallel(List<NotificationCalendarEntry> due, int workers, RunStats stats,
+                                 BiConsumer<Integer, NotificationCalendarEntry> task) {
+        int urgentCount = (int) due.stream().filter(e -> priorityOf(e) == PriorityClass.URGENT).count();
+        int count = Math.min(workers, due.size());
+        int reserved = urgentCount == 0 ? 0 : Math.min(urgentReservedWorkers, Math.max(0, count - 1));
 
-                    totalNotificationsSent += sendAndLog(clientId, bond, message, email, mobile);
+        AtomicInteger next = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(count);
+        for (int w = 0; w < count; w++) {
+            int limit = w < reserved ? urgentCount : due.size();
+            futures.add(CompletableFuture.runAsync(tracer.wrap(() -> {
+                for (int idx = claim(next, limit); idx >= 0; idx = claim(next, limit)) {
+                    NotificationCalendarEntry entry = due.get(idx);
+                    int current = idx;
+                    try {
+                        tracer.trace("isin", () -> {
+                            Span.current().setAttribute("isin", entry.getIsin());
+                            task.accept(current, entry);
+                            return null;
+                        });
+                    } catch (DependencyUnavailableException e) {
+                        // left undispatched, the next trigger retries it
+                        stats.isinsDeferred.increment();
+                        log.warn("⏸️ ISIN {} deferred: {}", entry.getIsin(), e.getMessage());
+                    } catch (Exception e) {
+                        // left undispatched, the next trigger retries it
+                        stats.isinsFailed.increment();
+                        log.error("❌ Error processing ISIN {}", entry.getIsin(), e);
+                    }
                 }
+            }), processingExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+
+    // next unclaimed index below limit, or -1
+    static int claim(AtomicInteger next, int limit) {
+        while (true) {
+            int idx = next.get();
+            if (idx >= limit) return -1;
+            if (next.compareAndSet(idx, idx + 1)) return idx;
+        }
+    }
+
+    private PriorityClass priorityOf(NotificationCalendarEntry entry) {
+        return PriorityClass.of(entry.getDaysLeft(), urgentDays);
+    }
+
+    private PreparedBatch prepare(NotificationCalendarEntry entry, Map<NotificationType, LocalDateTime> quiet,
+                                  RunStats stats) {
+
+        BondFileService.BondRecord bond = bondFileService.canonical(
+                entry.getIsin(), entry.getBondName(), entry.getMaturityDate());
+        int daysLeft = entry.getDaysLeft();
+
+        // Fetch clients (test-mode returns mock)
+        List<String> clients = getClientsHoldingIsin(bond.isin());
+
+        if (clients.isEmpty()) {
+            stats.isinsWithoutClients.increment();
+            return new PreparedBatch(List.of(), List.of(), PriorityClass.of(daysLeft, urgentDays));
+        }
+
+        stats.isinsWithClients.increment();
+
+        log.info("🔔 ISIN {} ({}) matures in {} days → {} clients",
+                bond.isin(), bond.name(), daysLeft, clients.size());
+
+        // a replayed entry is not in the calendar, and one held for quiet hours went out on the
+        // other channels, so the log is what tells who was already sent the alert
+        Set<String> notified = entry.getId() != null && entry.getQuietHeldOn() == null ? Set.of()
+                : notifiedClients(bond);
+        return prepareBatch(bond, daysLeft, clients, notified, quiet.keySet(), stats);
+    }
+
+    /**
+     * "clientId:channel" of holders already sent (or delivered) this bond's maturity alert, or
+     * whose alert waits in the retry queue.
+     */
+    private Set<String> notifiedClients(BondFileService.BondRecord bond) {
+        List<BondMaturityNotificationRepository.NotifiedClient> rows = guards.get(Dependency.SECONDARY_DB).call(
+                () -> tracer.trace("db.log.notified", () -> logRepo.findNotifiedClients(bond.isin(),
+                        bond.maturityDate(), List.of(NotificationStatus.SENT, NotificationStatus.DELIVERED, NotificationStatus.DEFERRED))));
+        Set<String> notified = new HashSet<>();
+        for (BondMaturityNotificationRepository.NotifiedClient row : rows) {
+            notified.add(row.getClientId() + ":" + row.getChannel());
+        }
+        return notified;
+    }
+
+    /**
+     * Ingest step: fetches the bond files (conditional GET, usually served from cache) and
+     * re-plans the calendar only when a source was re-parsed or the window moved to a new day.
+     * A re-parsed source is diffed against the persisted universe first; within the same day
+     * only the changed ISINs are re-planned, and caches are updated for those alone.
+     */
+    private void refreshCalendar(LocalDate today) {
+        List<BondFileService.BondRecord> bonds = bondFileService.fetchAllBonds();
+        long version = bondFileService.getSourceVersion();
+
+        if (version == plannedSourceVersion && today.equals(plannedOn)) {
+            log.info("📄 Bond files unchanged since last plan, calendar reused");
+            return;
+        }
+
+        log.info("📄 Total bonds fetched from files: {}", bonds.size());
+        if (bonds.isEmpty()) {
+            log.warn("⚠️ No bonds fetched, keeping the existing calendar");
+            return;
+        }
+
+        // with a source missing, absent ISINs are kept rather than treated as delisted
+        boolean complete = bondFileService.isLastFetchComplete();
+        BondUniverseDiffer.BondChangeSet changes = version == plannedSourceVersion ? null
+                : tracer.trace("universe.diff", () -> universeDiffer.apply(bonds, version, complete));
+
+        if (changes != null && today.equals(plannedOn)) {
+            tracer.trace("calendar.plan", () -> calendarPlanner.applyChanges(changes, today));
+        } else {
+            tracer.trace("calendar.plan", () -> calendarPlanner.plan(bonds, today, complete));
+        }
+        if (changes != null && !changes.isEmpty() && !changes.baseline()) {
+            applyUniverseChanges(changes);
+        }
+        plannedSourceVersion = version;
+        plannedOn = today;
+    }
+
+    private void applyUniverseChanges(BondUniverseDiffer.BondChangeSet changes) {
+        List<String> removed = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        for (BondUniverseDiffer.BondChange change : changes.changes()) {
+            (change.after() == null ? removed : changed).add(change.isin());
+        }
+        bondFileService.evictCanonical(removed);
+        preflight.evictHolderCounts(changes.isins());
+        if (!testMode) {
+            holdingsSnapshot.applyUniverseChanges(removed, changed);
+        }
+    }
+
+    // inside quiet hours the entry is only marked held: it stays undispatched for the next run
+    private void markDispatched(NotificationCalendarEntry entry, Map<NotificationType, LocalDateTime> quiet,
+                                RunStats stats) {
+        if (!quiet.isEmpty()) {
+            stats.isinsHeldQuiet.increment();
+        }
+        if (entry.getId() == null) {
+            return;     // replayed entry, not in the calendar
+        }
+        if (quiet.isEmpty()) {
+            entry.setDispatchedOn(LocalDateTime.now());
+        } else {
+            entry.setQuietHeldOn(LocalDateTime.now());
+        }
+        tracer.trace("calendar.mark-dispatched", () -> calendarRepository.save(entry));
+    }
+
+    /**
+     * True while any channel is inside its quiet hours (see NotificationPolicy#quietChannels).
+     */
+    public boolean inQuietHours() {
+        return !policy.quietChannels().isEmpty();
+    }
+
+    /**
+     * True once, when the quiet hours the last run held calendar entries for have ended, so the
+     * scheduler can start the run that sends them. Entries held before a restart wait for the
+     * next trigger instead.
+     */
+    public boolean quietHoldEnded() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = quietHoldUntil.getAndUpdate(u -> u != null && !now.isBefore(u) ? null : u);
+        return until != null && !now.isBefore(until);
+    }
+
+    /**
+     * Alerts clients who picked up an NCD after its earlier reminders had already gone out, the
+     * nearest maturity first. Keys are ISINs, values the client IDs that are new since the previous
+     * holdings snapshot.
+     */
+    public int notifyNewHolders(Map<String, String[]> newHolders) {
+        return notifyNewHolders(newHolders, null);
+    }
+
+    private int notifyNewHolders(Map<String, String[]> newHolders, RunStats stats) {
+        LocalDate today = LocalDate.now();
+        List<NewHolders> pending = new ArrayList<>();
+
+        for (Map.Entry<String, String[]> e : newHolders.entrySet()) {
+            Optional<NotificationCalendarEntry> notified =
+                    calendarRepository.findFirstByIsinAndDispatchedOnIsNotNullOrderBySendDateDesc(e.getKey());
+            if (notified.isEmpty()) {
+                // no reminder sent yet; the regular calendar will reach these holders
+                continue;
             }
 
-            // -------------------------
-            // FINAL SUMMARY
-            // -------------------------
-            log.info("=========================================");
-            log.info("✅ NCD NOTIFICATION SUMMARY");
-            log.info("• Total bonds fetched: {}", bonds.size());
-            log.info("• Bonds skipped (null maturity): {}", skippedNullDate);
-            log.info("• Bonds outside lookahead window: {}", skippedOutOfWindow);
-            log.info("• Valid ISINs in window: {}", totalValidIsins);
-            log.info("• ISINs with clients: {}", isinsWithClients);
-            log.info("• ISINs without clients: {}", isinsWithoutClients);
-            log.info("• Total notifications sent: {}", totalNotificationsSent);
-            log.info("=========================================");
+            NotificationCalendarEntry entry = notified.get();
+            BondFileService.BondRecord bond = bondFileService.canonical(
+                    entry.getIsin(), entry.getBondName(), entry.getMaturityDate());
+            int daysLeft = (int) Duration.between(today.atStartOfDay(), bond.maturityDate().atStartOfDay()).toDays();
+            if (daysLeft < 0) continue;
+            pending.add(new NewHolders(bond, daysLeft, e.getValue()));
+        }
+        pending.sort(Comparator.comparingInt(NewHolders::daysLeft).thenComparing(n -> n.bond().isin()));
 
-        } catch (Exception e) {
-            log.error("❌ Error processing maturing bonds", e);
+        int sent = 0;
+        for (NewHolders n : pending) {
+            log.info("🆕 ISIN {} ({}) has {} new holders, matures in {} days",
+                    n.bond().isin(), n.bond().name(), n.clientIds().length, n.daysLeft());
+
+            PreparedBatch batch = prepareBatch(n.bond(), n.daysLeft(), Arrays.asList(n.clientIds()), Set.of(), Set.of(), stats);
+            int delivered = sendAndLog(batch.requests(), batch.logs(), preflight.defaultSendBatchSize(), stats);
+            if (stats != null) stats.recordDelivery(batch.priority(), delivered);
+            sent += delivered;
+        }
+        return sent;
+    }
+
+    private record NewHolders(BondFileService.BondRecord bond, int daysLeft, String[] clientIds) {}
+
+    /**
+     * Resolves and validates contacts for the holders and builds every email / SMS for this ISIN,
+     * with the matching log row at the same index. Undeliverable contacts (see ContactValidator)
+     * get nothing, nor does a holder on a channel listed in {@code notified} ("clientId:channel")
+     * or on a {@code quiet} one; a recipient shared by several holders gets one message.
+     */
+    private PreparedBatch prepareBatch(BondFileService.BondRecord bond, int daysLeft, Collection<String> clientIds,
+                                       Set<String> notified, Set<NotificationType> quiet, RunStats stats) {
+
+        List<NotificationRequest> requests = new ArrayList<>();
+        List<BondMaturityNotificationLog> logs = new ArrayList<>();
+        Map<String, BondMaturityNotificationLog> addressed = new HashMap<>();
+        int rejected = 0;
+        int shared = 0;
+        int skipped = 0;
+        int held = 0;
+
+        // rendered once per ISIN and shared by every request; log rows keep only the params
+        String params = String.valueOf(daysLeft);
+        String message = MATURITY_TEMPLATE.render(bond.name(), bond.isin(), bond.maturityDate(), params);
+
+        for (String clientId : clientIds) {
+
+            String partyCd = "C" + clientId;
+            ContactValidator.ContactCheck customer = contactValidator.check(partyCd, getCustomerDetails(partyCd));
+
+            if (customer == null) {
+                continue;
+            }
+            if (customer.emailProblem() != null) rejected++;
+            if (customer.mobileProblem() != null) rejected++;
+
+            String email = customer.email();
+            String mobile = customer.mobile();
+            if (email != null && notified.contains(clientId + ":" + NotificationType.EMAIL)) {
+                email = null;
+                skipped++;
+            }
+            if (mobile != null && notified.contains(clientId + ":" + NotificationType.SMS)) {
+                mobile = null;
+                skipped++;
+            }
+            if (email != null && quiet.contains(NotificationType.EMAIL)) {
+                email = null;
+                held++;
+            }
+            if (mobile != null && quiet.contains(NotificationType.SMS)) {
+                mobile = null;
+                held++;
+            }
+            shared += addNotifications(clientId, bond, message, params, email, mobile, addressed, requests, logs);
+        }
+        if (skipped > 0) {
+            log.info("📇 ISIN {}: {} messages skipped, already sent for the maturity", bond.isin(), skipped);
         }
+        if (held > 0) {
+            log.info("🌙 ISIN {}: {} messages held for quiet hours", bond.isin(), held);
+        }
+        if (rejected > 0 || shared > 0) {
+            log.info("📇 ISIN {}: {} undeliverable contacts skipped, {} messages saved on shared recipients",
+                    bond.isin(), rejected, shared);
+        }
+        if (stats != null) {
+            stats.contactsRejected.add(rejected);
+            stats.sharedRecipients.add(shared);
+            stats.alreadyNotified.add(skipped);
+        }
+
+        return new PreparedBatch(requests, logs, PriorityClass.of(daysLeft, urgentDays));
     }
 
+    private record PreparedBatch(List<NotificationRequest> requests, List<BondMaturityNotificationLog> logs,
+                                 PriorityClass priority) {}
+
     // ============================================================
     // DB + TEST-MODE METHODS
     // ============================================================
 
-    private List<Map<String, Object>> getClientsHoldingIsin(String isin) {
+    private List<String> getClientsHoldingIsin(String isin) {
 
         if (testMode) {
-            Map<String, Object> mock = new HashMap<>();
-            mock.put("client_id", "TEST999");
             log.info("🧪 TEST-MODE: Returning 1 fake client for ISIN {}", isin);
-            return List.of(mock);
+            return List.of("TEST999");
+        }
+
+        String[] snapshot = holdingsSnapshot.getHolders(isin);
+        if (snapshot != null) {
+            return Arrays.asList(snapshot);
         }
 
-        String sql = "SELECT DISTINCT client_id FROM sapphire.vw_final_holding_midoffice WHERE isin = ?";
-        return primaryJdbcTemplate.queryForList(sql, isin);
+        return guards.get(Dependency.PRIMARY_DB).call(() -> tracer.trace("db.holdings.lookup",
+                () -> holdingsDao.holders(isin)));
     }
 
-    private Map<String, Object> getCustomerDetails(String partyCd) {
+    private ContactDetails getCustomerDetails(String partyCd) {
 
         if (testMode) {
-            Map<String, Object> mock = new HashMap<>();
-            mock.put("email_id", testEmail);
-            mock.put("mobile_no", testMobile);
-            return mock;
+            return new ContactDetails(testEmail, testMobile);
+        }
+
+        ContactDetails indexed = contactIndex.lookup(partyCd);
+        if (indexed != null) {
+            return indexed;
         }
 
         String sql = "SELECT email_id, mobile_no FROM focus.cust_mst WHERE party_cd = ?";
-        List<Map<String, Object>> list = secondaryJdbcTemplate.queryForList(sql, partyCd);
+        List<ContactDetails> list = guards.get(Dependency.SECONDARY_DB).call(() -> tracer.trace("db.contact.lookup",
+                () -> contactLookupJdbc.query(sql,
+                        (rs, rowNum) -> new ContactDetails(rs.getString("email_id"), rs.getString("mobile_no")), partyCd)));
         return list.isEmpty() ? null : list.get(0);
     }
 
@@ -195,62 +826,232 @@ public class NcdNotificationService {
     // SEND NOTIFICATION + LOG
     // ============================================================
 
-    private int sendAndLog(String clientId, BondFileService.BondRecord bond,
-                           String message, String email, String mobile) {
-
-        int sentCount = 0;
-        LocalDate maturityDate = bond.maturityDate();
+    /**
+     * Adds the email / SMS for one client. A recipient already addressed for this ISIN (a contact
+     * shared by several accounts) gets no second message: the client's log row rides on the first
+     * one instead.
+     *
+     * @return messages saved by sharing a recipient
+     */
+    private int addNotifications(String clientId, BondFileService.BondRecord bond, String message,
+                                 String params, String email, String mobile,
+                                 Map<String, BondMaturityNotificationLog> addressed,
+                                 List<NotificationRequest> requests, List<BondMaturityNotificationLog> logs) {
+        int shared = 0;
 
         // EMAIL
-        if (email != null && !email.isBlank()) {
-
-            notificationManager.sendNotification(NotificationRequest.builder()
-                    .recipient(email)
-                    .subject("NCD Maturity Alert")
-                    .message(message)
-                    .senderId("noreply@indiabulls.com")
-                    .type(NotificationType.EMAIL)
-                    .contentType("text/plain")
-                    .build());
-
-            logRepo.save(BondMaturityNotificationLog.builder()
-                    .clientId(clientId)
-                    .bondName(bond.name())
-                    .isin(bond.isin())
-                    .maturityDate(maturityDate)
-                    .message(message)
-                    .channel("EMAIL")
-                    .status("SENT")
-                    .notifiedOn(LocalDateTime.now())
-                    .build());
-
-            sentCount++;
+        if (email != null) {
+            BondMaturityNotificationLog row = logRow(clientId, bond, params, NotificationType.EMAIL, email);
+            BondMaturityNotificationLog first = addressed.putIfAbsent("E:" + email.toLowerCase(Locale.ROOT), row);
+            if (first != null) {
+                first.shareWith(row);
+                shared++;
+            } else {
+                requests.add(request(NotificationType.EMAIL, email, message));
+                logs.add(row);
+            }
         }
 
         // SMS
-        if (mobile != null && !mobile.isBlank()) {
-
-            notificationManager.sendNotification(NotificationRequest.builder()
-                    .recipient(mobile)
-                    .message(message)
-                    .senderId("IBSECL")
-                    .type(NotificationType.SMS)
-                    .build());
-
-            logRepo.save(BondMaturityNotificationLog.builder()
-                    .clientId(clientId)
-                    .bondName(bond.name())
-                    .isin(bond.isin())
-                    .maturityDate(maturityDate)
-                    .message(message)
-                    .channel("SMS")
-                    .status("SENT")
-                    .notifiedOn(LocalDateTime.now())
-                    .build());
-
-            sentCount++;
-        }
-
-        return sentCount;
+        if (mobile != null) {
+            BondMaturityNotificationLog row = logRow(clientId, bond, params, NotificationType.SMS, mobile);
+            BondMaturityNotificationLog first = addressed.putIfAbsent("M:" + mobile, row);
+            if (first != null) {
+                first.shareWith(row);
+                shared++;
+            } else {
+                requests.add(request(NotificationType.SMS, mobile, message));
+                logs.add(row);
+            }
+        }
+        return shared;
+    }
+
+    private NotificationRequest request(NotificationType channel, String recipient, String message) {
+        NotificationRequest.Builder request = NotificationRequest.builder()
+                .recipient(recipient)
+                .message(message)
+                .senderGroup(alertSenderGroup)
+                .type(channel);
+        if (channel == NotificationType.EMAIL) {
+            request.subject("NCD Maturity Alert").contentType("text/plain");
+        }
+        return request.build();
+    }
+
+    private static BondMaturityNotificationLog logRow(String clientId, BondFileService.BondRecord bond,
+                                                      String params, NotificationType channel, String recipient) {
+        return BondMaturityNotificationLog.builder()
+                .clientId(clientId)
+                .bondName(bond.name())
+                .isin(bond.isin())
+                .maturityDate(bond.maturityDate())
+                .templateId(MATURITY_TEMPLATE)
+                .templateParams(params)
+                .channel(channel)
+                .recipient(recipient)
+                .build();
+    }
+
+    /**
+     * Sends the batch like {@link #sendAndLog(List, List, int, RunStats)}, each slice holding a send
+     * permit of the batch's priority class.
+     */
+    private int sendAndLog(PreparedBatch batch, int batchSize, SendPermits permits, RunStats stats) {
+        List<NotificationRequest> requests = batch.requests();
+        int accepted = 0;
+        for (int from = 0; from < requests.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, requests.size());
+            permits.acquire(batch.priority());
+            try {
+                accepted += sendAndLogSlice(requests.subList(from, to), batch.logs().subList(from, to), stats);
+            } finally {
+                permits.release(batch.priority());
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Sends in slices of {@code batchSize}, so one large ISIN never has more than that many
+     * messages in flight, and logs each slice as it completes. Rows deferred go into the run's
+     * deferredIds ({@code stats} null outside a run).
+     */
+    private int sendAndLog(List<NotificationRequest> requests, List<BondMaturityNotificationLog> logs, int batchSize,
+                           RunStats stats) {
+        int accepted = 0;
+        for (int from = 0; from < requests.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, requests.size());
+            accepted += sendAndLogSlice(requests.subList(from, to), logs.subList(from, to), stats);
+        }
+        return accepted;
+    }
+
+    // the entry and the rows of other clients its message also reached
+    private static void finish(BondMaturityNotificationLog entry, NotificationStatus status, LocalDateTime notifiedOn,
+                               String providerMessageId, List<BondMaturityNotificationLog> into) {
+        entry.setStatus(status);
+        entry.setNotifiedOn(notifiedOn);
+        entry.setProviderMessageId(providerMessageId);
+        entry.setClaimedAt(null);
+        into.add(entry);
+        for (BondMaturityNotificationLog shared : entry.getSharedWith()) {
+            shared.setStatus(status);
+            shared.setNotifiedOn(notifiedOn);
+            shared.setProviderMessageId(providerMessageId);
+            shared.setClaimedAt(null);
+            into.add(shared);
+        }
+    }
+
+    private int sendAndLogSlice(List<NotificationRequest> requests, List<BondMaturityNotificationLog> logs,
+                                RunStats stats) {
+
+        List<NotificationResult> results = notificationManager.sendBulk(requests, Duration.ofMillis(sendTimeoutMs));
+
+        int accepted = 0;
+        LocalDateTime notifiedOn = LocalDateTime.now();
+        List<BondMaturityNotificationLog> finished = new ArrayList<>(logs.size());
+        for (int i = 0; i < logs.size(); i++) {
+            BondMaturityNotificationLog entry = logs.get(i);
+            NotificationResult result = results.get(i);
+            if (result.isDeferred()) {
+                // first deferral time, kept until the send goes out (see retryDeferred)
+                finish(entry, NotificationStatus.DEFERRED, entry.getNotifiedOn() != null ? entry.getNotifiedOn() : notifiedOn,
+                        null, finished);
+                continue;
+            }
+            boolean ok = result.isSuccess();
+            finish(entry, ok ? NotificationStatus.SENT : NotificationStatus.FAILED, notifiedOn,
+                    result.getProviderMessageId(), finished);
+            if (ok) accepted++;
+        }
+        if (!finished.isEmpty()) {
+            tracer.trace("log.save", () -> logRepo.saveAll(finished));
+            if (stats != null) {
+                // IDs are assigned by the save
+                for (BondMaturityNotificationLog entry : finished) {
+                    if (entry.getStatus() == NotificationStatus.DEFERRED) stats.deferredIds.add(entry.getId());
+                }
+            }
+        }
+
+        return accepted;
+    }
+
+    /**
+     * Re-sends notifications deferred while their gateway's breaker was open, once it lets calls
+     * through again and the channel is outside its quiet hours. Anything deferred for longer than
+     * ncd.resilience.retry-max-age-ms is logged as failed instead. Deferred sends are DEFERRED log
+     * rows (see NotificationRetryQueue), so those left by an earlier process are retried too. Each
+     * page is claimed before it is sent, so other processes retrying at the same time skip it; rows
+     * still waiting go back to DEFERRED.
+     *
+     * @return notifications accepted by the gateways
+     */
+    public int retryDeferred() {
+        return retryDeferred(null);
+    }
+
+    /**
+     * Like {@link #retryDeferred()}, for the rows with these IDs only (ascending), or every deferred
+     * row when null; a batch run retries what it deferred itself.
+     */
+    public int retryDeferred(List<Long> onlyIds) {
+        int released = retryQueue.releaseLapsedClaims();
+        if (released > 0) {
+            log.warn("⚠️ Released {} deferred notifications whose retry claim lapsed", released);
+        }
+        LocalDateTime giveUpBefore = LocalDateTime.now().minus(Duration.ofMillis(retryMaxAgeMs));
+        Map<NotificationType, LocalDateTime> quiet = policy.quietChannels();
+        int retried = 0;
+        int sent = 0;
+        int waiting = 0;
+        int givenUp = 0;
+
+        long afterId = 0;
+        for (NotificationRetryQueue.Page page = claim(afterId, onlyIds); page.lastId() > afterId;
+             page = claim(afterId, onlyIds)) {
+            afterId = page.lastId();
+            List<NotificationRequest> requests = new ArrayList<>();
+            List<BondMaturityNotificationLog> logs = new ArrayList<>();
+            List<BondMaturityNotificationLog> expired = new ArrayList<>();
+            List<BondMaturityNotificationLog> unclaimed = new ArrayList<>();
+            // nearest maturity (urgent alerts) first within the page
+            List<BondMaturityNotificationLog> sends = new ArrayList<>(page.sends());
+            sends.sort(Comparator.comparing(BondMaturityNotificationLog::getMaturityDate,
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+            for (BondMaturityNotificationLog entry : sends) {
+                if (entry.getNotifiedOn().isBefore(giveUpBefore) || entry.getRecipient() == null) {
+                    finish(entry, NotificationStatus.FAILED, entry.getNotifiedOn(), null, expired);
+                } else if (!quiet.containsKey(entry.getChannel())
+                        && guards.forChannel(entry.getChannel()).isCallPermitted()) {
+                    requests.add(request(entry.getChannel(), entry.getRecipient(), entry.getRenderedMessage()));
+                    logs.add(entry);
+                } else {
+                    finish(entry, NotificationStatus.DEFERRED, entry.getNotifiedOn(), null, unclaimed);
+                }
+            }
+            if (!expired.isEmpty()) {
+                logRepo.saveAll(expired);
+                givenUp += expired.size();
+            }
+            if (!unclaimed.isEmpty()) {
+                logRepo.saveAll(unclaimed);
+                waiting += unclaimed.size();
+            }
+            retried += requests.size();
+            sent += sendAndLog(requests, logs, preflight.defaultSendBatchSize(), null);
+        }
+
+        if (retried > 0 || waiting > 0 || givenUp > 0) {
+            log.info("🔁 Deferred notifications: {} retried ({} sent), {} still waiting, {} given up",
+                    retried, sent, waiting, givenUp);
+        }
+        return sent;
+    }
+
+    private NotificationRetryQueue.Page claim(long afterId, List<Long> onlyIds) {
+        return onlyIds == null ? retryQueue.claim(afterId) : retryQueue.claim(afterId, onlyIds);
     }
 }
@@ -0,0 +1,245 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.entity.BondChangeType;
+import com.ibsec.ncdnotifier.entity.NotificationCalendarEntry;
+import com.ibsec.ncdnotifier.repository.NotificationCalendarRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Turns a parsed bond universe into (sendDate, isin, offset) calendar rows, with the offsets
+ * of the bond's notification policy rule (see NotificationPolicy).
+ * The existing calendar is diffed against the fresh file so only added, removed
+ * or re-dated ISINs are rewritten. Within a day, applyChanges() rewrites just the ISINs
+ * in the universe change feed (see BondUniverseDiffer).
+ *
+ * Rewriting never touches dispatched rows: they record what went out (and tell the new-holder
+ * pass that a reminder was sent), and a rewritten ISIN gets no new row for an offset already
+ * dispatched for the same maturity, so a rename never re-sends today's alert. Undispatched rows
+ * from past days stay for the catch-up window unless the maturity they were planned for changed.
+ * Rows of matured bonds are purged.
+ */
+@Service
+public class NotificationCalendarPlanner {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationCalendarPlanner.class);
+
+    private final NotificationCalendarRepository calendarRepository;
+    private final NotificationPolicy policy;
+
+    @Value("${ncd.maturity-lookahead-days}")
+    private int lookaheadDays;
+
+    public NotificationCalendarPlanner(NotificationCalendarRepository calendarRepository, NotificationPolicy policy) {
+        this.calendarRepository = calendarRepository;
+        this.policy = policy;
+    }
+
+    /**
+     * Full re-plan against the fresh universe. With {@code complete} false (a source is missing from
+     * the fetch) ISINs absent from it keep their rows instead of being treated as delisted.
+     */
+    @Transactional("secondaryTransactionManager")
+    public CalendarPlan plan(List<BondFileService.BondRecord> bonds, LocalDate today, boolean complete) {
+
+        int skippedNullDate = 0;
+        int skippedOutOfWindow = 0;
+
+        // fresh universe restricted to the lookahead window, keyed by ISIN
+        Map<String, BondFileService.BondRecord> fresh = new HashMap<>();
+        for (BondFileService.BondRecord bond : bonds) {
+            if (bond.maturityDate() == null) {
+                skippedNullDate++;
+                continue;
+            }
+            if (!inWindow(bond, today)) {
+                skippedOutOfWindow++;
+                continue;
+            }
+            fresh.putIfAbsent(bond.isin(), bond);
+        }
+
+        long purged = calendarRepository.deleteByMaturityDateBefore(today);
+
+        // what the calendar currently holds: (isin, maturity, name) with its undispatched row count
+        Map<String, List<NotificationCalendarRepository.PlannedBond>> planned = new HashMap<>();
+        for (NotificationCalendarRepository.PlannedBond p : calendarRepository.findPlannedBonds()) {
+            planned.computeIfAbsent(p.getIsin(), k -> new ArrayList<>()).add(p);
+        }
+
+        // delisted: still has rows waiting to go out
+        Set<String> removed = new HashSet<>();
+        planned.forEach((isin, versions) -> {
+            if (complete && !fresh.containsKey(isin) && versions.stream().anyMatch(p -> p.getPending() > 0)) {
+                removed.add(isin);
+            }
+        });
+
+        List<BondFileService.BondRecord> added = new ArrayList<>();
+        List<BondFileService.BondRecord> redated = new ArrayList<>();
+        for (BondFileService.BondRecord bond : fresh.values()) {
+            List<NotificationCalendarRepository.PlannedBond> versions = planned.get(bond.isin());
+            if (versions == null) {
+                added.add(bond);
+            } else if (versions.stream().noneMatch(p -> bond.maturityDate().equals(p.getMaturityDate())
+                    && Objects.equals(bond.name(), p.getBondName()))) {
+                redated.add(bond);
+            }
+        }
+
+        if (!removed.isEmpty()) {
+            calendarRepository.deleteByIsinInAndDispatchedOnIsNull(removed);
+        }
+        int rowsWritten = replan(added, redated, today);
+
+        CalendarPlan plan = new CalendarPlan(bonds.size(), skippedNullDate, skippedOutOfWindow, fresh.size(),
+                added.size(), removed.size(), redated.size(), rowsWritten);
+        if (purged > 0) {
+            log.info("📅 Purged {} calendar rows of matured bonds", purged);
+        }
+        log.info("📅 Calendar planned: {}", plan);
+        return plan;
+    }
+
+    /**
+     * Incremental re-plan for one day's universe changes: a removed ISIN, or one that left the
+     * window, loses its undispatched rows; one still listed and in the window is re-planned around
+     * its dispatched rows like in plan(), so an intraday rename does not re-send today's alert.
+     */
+    @Transactional("secondaryTransactionManager")
+    public CalendarPlan applyChanges(BondUniverseDiffer.BondChangeSet changeSet, LocalDate today) {
+        if (changeSet.isEmpty()) {
+            return new CalendarPlan(0, 0, 0, 0, 0, 0, 0, 0);
+        }
+
+        int skippedNullDate = 0;
+        int skippedOutOfWindow = 0;
+        int added = 0;
+        int redated = 0;
+        int removed = 0;
+        Map<String, BondFileService.BondRecord> toWrite = new LinkedHashMap<>();
+        for (BondUniverseDiffer.BondChange change : changeSet.changes()) {
+            BondFileService.BondRecord bond = change.after();
+            if (bond == null) {
+                removed++;
+                continue;
+            }
+            if (toWrite.containsKey(bond.isin())) continue;     // renamed and re-dated in one version
+            if (bond.maturityDate() == null) {
+                skippedNullDate++;
+            } else if (!inWindow(bond, today)) {
+                skippedOutOfWindow++;
+            } else {
+                if (change.type() == BondChangeType.ADDED) added++;
+                else redated++;
+                toWrite.put(bond.isin(), bond);
+            }
+        }
+
+        Set<String> dropped = new HashSet<>(changeSet.isins());
+        dropped.removeAll(toWrite.keySet());
+        if (!dropped.isEmpty()) {
+            calendarRepository.deleteByIsinInAndDispatchedOnIsNull(dropped);
+        }
+        // a re-listed ISIN may still have dispatched rows, so ADDED goes through the same rewrite
+        int rowsWritten = replan(List.of(), toWrite.values(), today);
+
+        CalendarPlan plan = new CalendarPlan(changeSet.changes().size(), skippedNullDate, skippedOutOfWindow,
+                toWrite.size(), added, removed, redated, rowsWritten);
+        log.info("📅 Calendar updated for {} changed ISINs: {}", changeSet.isins().size(), plan);
+        return plan;
+    }
+
+    /**
+     * Calendar rows the universe schedules for one send date, built in memory and not saved:
+     * the due list of a replay / backfill run for a date other than today.
+     */
+    public List<NotificationCalendarEntry> entriesDue(List<BondFileService.BondRecord> bonds, LocalDate sendDate) {
+        Map<String, BondFileService.BondRecord> listed = new LinkedHashMap<>();
+        for (BondFileService.BondRecord bond : bonds) {
+            if (bond.maturityDate() != null && inWindow(bond, sendDate)) {
+                listed.putIfAbsent(bond.isin(), bond);
+            }
+        }
+        List<NotificationCalendarEntry> due = new ArrayList<>();
+        for (NotificationCalendarEntry row : rowsFor(listed.values(), sendDate)) {
+            if (row.getSendDate().equals(sendDate)) due.add(row);
+        }
+        return due;
+    }
+
+    /**
+     * Writes rows for new ISINs, and rewrites changed ones around their dispatched rows: undispatched
+     * rows still ahead, or planned for a maturity that no longer holds, are replaced; a rename is
+     * applied to the rows kept for the same maturity.
+     *
+     * @return rows written
+     */
+    private int replan(Collection<BondFileService.BondRecord> added, Collection<BondFileService.BondRecord> changed,
+                       LocalDate today) {
+        List<NotificationCalendarEntry> rows = rowsFor(added, today);
+
+        if (!changed.isEmpty()) {
+            Map<String, BondFileService.BondRecord> byIsin = new HashMap<>();
+            changed.forEach(bond -> byIsin.put(bond.isin(), bond));
+
+            List<NotificationCalendarEntry> stale = new ArrayList<>();
+            List<NotificationCalendarEntry> renamed = new ArrayList<>();
+            // offsets already covered per ISIN for its current maturity
+            Map<String, Set<Integer>> kept = new HashMap<>();
+            for (NotificationCalendarEntry entry : calendarRepository.findByIsinIn(byIsin.keySet())) {
+                BondFileService.BondRecord bond = byIsin.get(entry.getIsin());
+                boolean sameMaturity = bond.maturityDate().equals(entry.getMaturityDate());
+                if (entry.getDispatchedOn() == null && (!sameMaturity || !entry.getSendDate().isBefore(today))) {
+                    stale.add(entry);
+                    continue;
+                }
+                if (sameMaturity) {
+                    kept.computeIfAbsent(entry.getIsin(), k -> new HashSet<>()).add(entry.getOffsetDays());
+                    if (!Objects.equals(bond.name(), entry.getBondName())) {
+                        entry.setBondName(bond.name());
+                        renamed.add(entry);
+                    }
+                }
+            }
+            calendarRepository.deleteAllInBatch(stale);
+            calendarRepository.saveAll(renamed);
+
+            for (NotificationCalendarEntry row : rowsFor(changed, today)) {
+                if (!kept.getOrDefault(row.getIsin(), Set.of()).contains(row.getOffsetDays())) {
+                    rows.add(row);
+                }
+            }
+        }
+
+        calendarRepository.saveAll(rows);
+        return rows.size();
+    }
+
+    private boolean inWindow(BondFileService.BondRecord bond, LocalDate today) {
+        long daysLeft = ChronoUnit.DAYS.between(today, bond.maturityDate());
+        return daysLeft >= 0 && daysLeft <= lookaheadDays;
+    }
+
+    private List<NotificationCalendarEntry> rowsFor(Collection<BondFileService.BondRecord> bonds, LocalDate today) {
+        List<NotificationCalendarEntry> rows = new ArrayList<>();
+        for (BondFileService.BondRecord bond : bonds) {
+            for (int offset : policy.offsetsFor(bond.isin())) {
+                LocalDate sendDate = bond.maturityDate().minusDays(offset);
+                if (sendDate.isBefore(today)) continue;
+                rows.add(new NotificationCalendarEntry(sendDate, bond.isin(), offset, bond.name(), bond.maturityDate()));
+            }
+        }
+        return rows;
+    }
+
+    public record CalendarPlan(int totalBonds, int skippedNullDate, int skippedOutOfWindow, int validIsins,
+                               int added, int removed, int redated, int rowsWritten) {}
+}
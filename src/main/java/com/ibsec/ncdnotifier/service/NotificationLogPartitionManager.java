@@ -0,0 +1,309 @@
+package com.ibsec.ncdnotifier.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Owns the physical layout of bond_maturity_notification_log on PostgreSQL.
+ *
+ * The table is range-partitioned by month on notified_on (one bond_maturity_notification_log_pYYYYMM
+ * per month plus a default partition), with the lookup indexes declared on the parent so every
+ * partition gets them. Runs before the secondary EntityManagerFactory, so ddl-auto sees the
+ * partitioned table and leaves it alone. A plain table left by an earlier ddl-auto is copied
+ * into the partitioned one and kept as bond_maturity_notification_log_legacy.
+ *
+ * maintain() keeps partitions-ahead months pre-created and detaches (or drops) partitions older
+ * than retention-months. Detached partitions stay as plain tables for archival. Rows that landed
+ * in the default partition before their month existed are moved into it when it is created, as
+ * PostgreSQL refuses a new partition while the default one holds rows of its range.
+ *
+ * ddl-auto needs spring.jpa.properties.hibernate.hbm2ddl.extra_physical_table_types=PARTITIONED TABLE
+ * to read the parent's indexes; without it every start re-issues the @Index DDL and logs the failure.
+ *
+ * On other databases (H2 in the simulation profile) this is a no-op and ddl-auto owns the table.
+ *
+ * With ncd.schema.manage-on-startup=false (the fast-start profile) nothing runs at boot: the
+ * layout is prepared by the migrate-schema profile as a deploy step, and maintain() finds out
+ * the database on its first scheduled call.
+ */
+@Service
+public class NotificationLogPartitionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationLogPartitionManager.class);
+
+    static final String TABLE = "bond_maturity_notification_log";
+    private static final String LEGACY_TABLE = TABLE + "_legacy";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final String ID_SEQUENCE = TABLE + "_part_id_seq";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate secondaryJdbcTemplate;
+    private final TransactionTemplate tx;
+
+    @Value("${ncd.log.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    @Value("${ncd.log.retention-months:24}")
+    private int retentionMonths;
+
+    // detach: keep expired partitions as standalone tables for archival; drop: delete them
+    @Value("${ncd.log.retention-action:detach}")
+    private String retentionAction;
+
+    @Value("${ncd.schema.manage-on-startup:true}")
+    private boolean manageOnStartup;
+
+    private volatile Boolean postgres;
+
+    public NotificationLogPartitionManager(@Qualifier("secondaryJdbcTemplate") JdbcTemplate secondaryJdbcTemplate) {
+        this.secondaryJdbcTemplate = secondaryJdbcTemplate;
+        this.tx = new TransactionTemplate(new DataSourceTransactionManager(
+                Objects.requireNonNull(secondaryJdbcTemplate.getDataSource())));
+    }
+
+    @PostConstruct
+    void prepareSchema() {
+        if (!manageOnStartup) {
+            log.info("Notification log schema left to the migrate-schema step");
+            return;
+        }
+        try {
+            if (!isPostgres()) {
+                return;
+            }
+
+            tx.executeWithoutResult(status -> {
+                String kind = relationKind(TABLE);
+                if ("p".equals(kind)) {
+                    addDeliveryReportColumns();
+                    addDeferredColumns();
+                    return;
+                }
+                if ("r".equals(kind)) {
+                    renameToLegacy();
+                }
+                createPartitionedTable();
+                if ("r".equals(kind)) {
+                    migrateLegacyRows();
+                }
+            });
+            maintain();
+        } catch (DataAccessException e) {
+            log.error("❌ Notification log schema preparation failed, leaving the table to ddl-auto", e);
+        }
+    }
+
+    /**
+     * Pre-creates upcoming monthly partitions and applies retention.
+     *
+     * @return partitions detached or dropped
+     */
+    public int maintain() {
+        if (!isPostgres()) {
+            return 0;
+        }
+
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= partitionsAhead; i++) {
+            ensurePartition(current.plusMonths(i));
+        }
+
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        int expired = 0;
+        for (String partition : monthlyPartitions()) {
+            YearMonth month = YearMonth.parse(partition.substring(partition.length() - 6), SUFFIX);
+            if (!month.isBefore(oldestKept)) {
+                continue;
+            }
+            secondaryJdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+            if ("drop".equalsIgnoreCase(retentionAction)) {
+                secondaryJdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("🗑️ Dropped notification log partition {}", partition);
+            } else {
+                log.info("📦 Detached notification log partition {} for archival", partition);
+            }
+            expired++;
+        }
+        return expired;
+    }
+
+    private boolean isPostgres() {
+        Boolean known = postgres;
+        if (known == null) {
+            String product = secondaryJdbcTemplate.execute(
+                    (ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            known = "PostgreSQL".equalsIgnoreCase(product);
+            if (!known) {
+                log.info("Notification log partitioning skipped on {}", product);
+            }
+            postgres = known;
+        }
+        return known;
+    }
+
+    private void createPartitionedTable() {
+        secondaryJdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + ID_SEQUENCE);
+        // notified_on is part of the key: PostgreSQL requires the partition column in every unique constraint
+        secondaryJdbcTemplate.execute("""
+                CREATE TABLE %s (
+                    id              bigint       NOT NULL DEFAULT nextval('%s'),
+                    client_id       varchar(255),
+                    bond_name       varchar(255),
+                    isin            varchar(255),
+                    maturity_date   date,
+                    message         text,
+                    template_id     varchar(255),
+                    template_params varchar(255),
+                    channel         varchar(255),
+                    recipient       varchar(255),
+                    status          varchar(255),
+                    notified_on     timestamp(6) NOT NULL,
+                    provider_message_id varchar(255),
+                    delivered_on    timestamp(6),
+                    claimed_at      timestamp(6),
+                    CONSTRAINT %s_pk PRIMARY KEY (id, notified_on)
+                ) PARTITION BY RANGE (notified_on)""".formatted(TABLE, ID_SEQUENCE, TABLE));
+        secondaryJdbcTemplate.execute("ALTER SEQUENCE " + ID_SEQUENCE + " OWNED BY " + TABLE + ".id");
+        secondaryJdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+        // same names as the @Index declarations on the entity
+        secondaryJdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_ncd_log_isin_client_channel_maturity ON "
+                + TABLE + " (isin, client_id, channel, maturity_date)");
+        secondaryJdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_ncd_log_client_notified ON "
+                + TABLE + " (client_id, notified_on)");
+        createDeliveryReportIndex();
+        createDeferredIndex();
+        log.info("🗂️ Created partitioned table {}", TABLE);
+    }
+
+    // partitioned tables created before delivery reports existed; ALTER on the parent reaches every partition
+    private void addDeliveryReportColumns() {
+        secondaryJdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD COLUMN IF NOT EXISTS provider_message_id varchar(255)");
+        secondaryJdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD COLUMN IF NOT EXISTS delivered_on timestamp(6)");
+        createDeliveryReportIndex();
+    }
+
+    private void createDeliveryReportIndex() {
+        secondaryJdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_ncd_log_provider_message ON "
+                + TABLE + " (provider_message_id)");
+    }
+
+    // partitioned tables created before deferred sends were persisted
+    private void addDeferredColumns() {
+        secondaryJdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD COLUMN IF NOT EXISTS recipient varchar(255)");
+        secondaryJdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD COLUMN IF NOT EXISTS claimed_at timestamp(6)");
+        createDeferredIndex();
+    }
+
+    // partial: only the handful of rows waiting for retryDeferred, not the whole log
+    private void createDeferredIndex() {
+        secondaryJdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_ncd_log_deferred ON "
+                + TABLE + " (id) WHERE status = 'DEFERRED'");
+        // claims to release when their lease lapses
+        secondaryJdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_ncd_log_retrying ON "
+                + TABLE + " (claimed_at) WHERE status = 'RETRYING'");
+    }
+
+    // the legacy table's indexes keep their names on a table rename; they go too, so the
+    // CREATE INDEX IF NOT EXISTS on the new parent does not find them and skip its own
+    private void renameToLegacy() {
+        secondaryJdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + LEGACY_TABLE);
+        List<String> indexes = secondaryJdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+                WHERE i.indrelid = ?::regclass AND NOT i.indisprimary""", String.class, LEGACY_TABLE);
+        for (String index : indexes) {
+            secondaryJdbcTemplate.execute("ALTER INDEX " + index + " RENAME TO " + index + "_legacy");
+        }
+    }
+
+    private void migrateLegacyRows() {
+        List<LocalDate> range = secondaryJdbcTemplate.queryForObject(
+                "SELECT min(notified_on)::date, max(notified_on)::date FROM " + LEGACY_TABLE,
+                (rs, rowNum) -> {
+                    List<LocalDate> bounds = new ArrayList<>(2);
+                    bounds.add(rs.getObject(1, LocalDate.class));
+                    bounds.add(rs.getObject(2, LocalDate.class));
+                    return bounds;
+                });
+        if (range != null && range.get(0) != null) {
+            for (YearMonth m = YearMonth.from(range.get(0)); !m.isAfter(YearMonth.from(range.get(1))); m = m.plusMonths(1)) {
+                ensurePartition(m);
+            }
+        }
+
+        // every column both tables have: the legacy table may predate templates or delivery reports
+        List<String> columns = columns(TABLE);
+        columns.retainAll(columns(LEGACY_TABLE));
+        String insert = String.join(", ", columns);
+        // rows without a timestamp never went out; they land in the default partition at the epoch
+        String select = insert.replace("notified_on", "COALESCE(notified_on, TIMESTAMP '1970-01-01')");
+        int copied = secondaryJdbcTemplate.update(
+                "INSERT INTO " + TABLE + " (" + insert + ") SELECT " + select + " FROM " + LEGACY_TABLE);
+        secondaryJdbcTemplate.execute("SELECT setval('" + ID_SEQUENCE + "', COALESCE((SELECT max(id) FROM "
+                + TABLE + "), 0) + 1, false)");
+        log.info("🗂️ Copied {} rows from {} into partitioned {}", copied, LEGACY_TABLE, TABLE);
+    }
+
+    private void ensurePartition(YearMonth month) {
+        String name = TABLE + "_p" + month.format(SUFFIX);
+        if (relationKind(name) != null) {
+            return;
+        }
+        String bounds = "FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+        String inRange = "notified_on >= '" + month.atDay(1) + "' AND notified_on < '" + month.plusMonths(1).atDay(1) + "'";
+        tx.executeWithoutResult(status -> {
+            Boolean stranded = secondaryJdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE " + inRange + ")", Boolean.class);
+            if (!Boolean.TRUE.equals(stranded)) {
+                secondaryJdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + TABLE + " FOR VALUES " + bounds);
+                log.info("🗂️ Created notification log partition {}", name);
+                return;
+            }
+            // built detached, filled from the default partition, then attached (which adds the indexes)
+            String columns = String.join(", ", columns(TABLE));
+            secondaryJdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int moved = secondaryJdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE "
+                    + inRange + " RETURNING " + columns + ") INSERT INTO " + name + " (" + columns + ") SELECT "
+                    + columns + " FROM moved");
+            secondaryJdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + name + " FOR VALUES " + bounds);
+            log.info("🗂️ Created notification log partition {} with {} rows moved from {}", name, moved, DEFAULT_PARTITION);
+        });
+    }
+
+    private List<String> columns(String table) {
+        return new ArrayList<>(secondaryJdbcTemplate.queryForList("""
+                SELECT column_name FROM information_schema.columns
+                WHERE table_name = ? AND table_schema = current_schema()
+                ORDER BY ordinal_position""", String.class, table));
+    }
+
+    private List<String> monthlyPartitions() {
+        return secondaryJdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                WHERE p.relname = ? AND c.relname ~ '_p[0-9]{6}$'
+                ORDER BY c.relname""", String.class, TABLE);
+    }
+
+    private String relationKind(String name) {
+        List<String> kinds = secondaryJdbcTemplate.queryForList(
+                "SELECT relkind::text FROM pg_class WHERE relname = ? AND pg_table_is_visible(oid)", String.class, name);
+        return kinds.isEmpty() ? null : kinds.get(0);
+    }
+}
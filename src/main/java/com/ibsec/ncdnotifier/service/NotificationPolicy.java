@@ -0,0 +1,270 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.config.NotificationPolicyProperties;
+import com.ibsec.ncdnotifier.entity.NotificationCalendarEntry;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * The notification policy, compiled once from ncd.policy.* (see NotificationPolicyProperties).
+ *
+ * Each rule becomes a lookup table indexed by days left to maturity, holding the offset whose
+ * alert is due that day: the offset itself on its send date, or — within the rule's catch-up
+ * window — the latest offset whose send date was missed. select() makes one pass over the
+ * undispatched calendar rows of the catch-up window, one table lookup per row, and returns the
+ * day's work set with counts per rule. Only one alert per ISIN is ever due, so an older missed
+ * offset superseded by a newer one is not sent; such rows age out of the window undispatched.
+ *
+ * Quiet hours are applied at selection too: the work set carries the channels inside theirs, and
+ * the due rows are then left undispatched until the period ends (see NcdNotificationService).
+ */
+@Component
+@EnableConfigurationProperties(NotificationPolicyProperties.class)
+public class NotificationPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationPolicy.class);
+
+    private static final String DEFAULT_RULE = "default";
+
+    private final List<CompiledRule> rules = new ArrayList<>();
+    private final CompiledRule[] ruleByType = new CompiledRule[BondType.values().length];
+    private final int maxCatchUpDays;
+    private final Map<NotificationType, QuietHours> quietHours = new EnumMap<>(NotificationType.class);
+    private final ZoneId zone;
+
+    public NotificationPolicy(NotificationPolicyProperties properties,
+                              @Value("${ncd.notify-before-days}") String notifyBeforeDays,
+                              @Value("${ncd.schedule.zone}") String zone) {
+        this.zone = ZoneId.of(zone);
+
+        CompiledRule fallback = new CompiledRule(DEFAULT_RULE, rules.size(),
+                parseOffsets(notifyBeforeDays), properties.getCatchUpDays());
+        rules.add(fallback);
+        Arrays.fill(ruleByType, fallback);
+
+        for (NotificationPolicyProperties.Rule rule : properties.getRules()) {
+            BondType type = BondType.valueOf(rule.getBondType().trim().toUpperCase());
+            String name = rule.getName() != null ? rule.getName() : type.name().toLowerCase();
+            List<Integer> offsets = rule.getOffsets().isEmpty() ? fallback.offsets : rule.getOffsets();
+            int catchUp = rule.getCatchUpDays() != null ? rule.getCatchUpDays() : properties.getCatchUpDays();
+            CompiledRule compiled = new CompiledRule(name, rules.size(), offsets, catchUp);
+            rules.add(compiled);
+            ruleByType[type.ordinal()] = compiled;
+        }
+        this.maxCatchUpDays = rules.stream().mapToInt(r -> r.catchUpDays).max().orElse(0);
+
+        properties.getQuietHours().forEach((channel, window) -> {
+            if (window != null && !window.isBlank()) {
+                quietHours.put(NotificationType.valueOf(channel.toUpperCase()), QuietHours.parse(window));
+            }
+        });
+
+        for (BondType type : BondType.values()) {
+            CompiledRule rule = ruleByType[type.ordinal()];
+            log.info("📐 Policy {}: rule {}, offsets {}, catch-up {} days",
+                    type, rule.name, rule.offsets, rule.catchUpDays);
+        }
+        quietHours.forEach((channel, quiet) -> log.info("📐 Quiet hours {}: {}-{} {}", channel, quiet.start, quiet.end, zone));
+    }
+
+    /**
+     * Offsets (days before maturity) the calendar plans for the ISIN, largest first.
+     */
+    public List<Integer> offsetsFor(String isin) {
+        return ruleByType[BondType.of(isin).ordinal()].offsets;
+    }
+
+    /**
+     * How many days before today select() needs undispatched calendar rows for.
+     */
+    public int maxCatchUpDays() {
+        return maxCatchUpDays;
+    }
+
+    /**
+     * The day's work set out of the undispatched calendar rows with a send date in
+     * [today - maxCatchUpDays(), today], plus the older rows held for quiet hours, with the
+     * channels currently inside their quiet hours. Rows sent late get their real days left (see
+     * NotificationCalendarEntry#getDaysLeft).
+     *
+     * A held row was due when it was held, so it stays due until maturity whatever the catch-up
+     * window, unless a row of the same ISIN with a smaller offset is due too; a held row superseded
+     * that way or matured is settled (closed without sending) instead.
+     */
+    public WorkSet select(List<NotificationCalendarEntry> candidates, LocalDate today) {
+        long[][] counts = new long[rules.size()][Outcome.values().length];
+        List<NotificationCalendarEntry> due = new ArrayList<>();
+        List<NotificationCalendarEntry> heldLate = new ArrayList<>();
+        List<NotificationCalendarEntry> settled = new ArrayList<>();
+        long epochDay = today.toEpochDay();
+
+        for (NotificationCalendarEntry entry : candidates) {
+            CompiledRule rule = ruleByType[BondType.of(entry.getIsin()).ordinal()];
+            long daysLeft = entry.getMaturityDate().toEpochDay() - epochDay;
+            int fires = daysLeft < 0 || daysLeft >= rule.fires.length ? -1 : rule.fires[(int) daysLeft];
+            boolean held = entry.getQuietHeldOn() != null;
+
+            Outcome outcome;
+            if (fires == entry.getOffsetDays()) {
+                outcome = entry.getSendDate().equals(today) ? Outcome.EXACT : Outcome.CAUGHT_UP;
+                entry.setDaysLeft((int) daysLeft);
+                due.add(entry);
+            } else if (held && daysLeft >= 0) {
+                outcome = Outcome.CAUGHT_UP;
+                entry.setDaysLeft((int) daysLeft);
+                due.add(entry);
+                heldLate.add(entry);
+            } else if (fires >= 0 && fires < entry.getOffsetDays()) {
+                outcome = Outcome.SUPERSEDED;
+            } else {
+                outcome = Outcome.MISSED;
+            }
+            if (held && (outcome == Outcome.SUPERSEDED || outcome == Outcome.MISSED)) {
+                settled.add(entry);
+            }
+            counts[rule.index][outcome.ordinal()]++;
+        }
+
+        for (NotificationCalendarEntry entry : heldLate) {
+            boolean superseded = due.stream().anyMatch(other -> other != entry
+                    && other.getIsin().equals(entry.getIsin()) && other.getOffsetDays() < entry.getOffsetDays());
+            if (superseded) {
+                int rule = ruleByType[BondType.of(entry.getIsin()).ordinal()].index;
+                counts[rule][Outcome.CAUGHT_UP.ordinal()]--;
+                counts[rule][Outcome.SUPERSEDED.ordinal()]++;
+                due.remove(entry);
+                settled.add(entry);
+            }
+        }
+
+        Map<String, RuleCounts> byRule = new LinkedHashMap<>();
+        for (CompiledRule rule : rules) {
+            long[] c = counts[rule.index];
+            if (rule.index > 0 || Arrays.asList(ruleByType).contains(rule)) {
+                byRule.put(rule.name, new RuleCounts(c[0] + c[1] + c[2] + c[3], c[0], c[1], c[2], c[3]));
+            }
+        }
+        return new WorkSet(due, byRule, quietChannels(), settled);
+    }
+
+    /**
+     * Channels currently inside their quiet hours, with the local time (system zone, like the
+     * log's notifiedOn) at which each period ends. Empty outside all quiet hours.
+     */
+    public Map<NotificationType, LocalDateTime> quietChannels() {
+        if (quietHours.isEmpty()) {
+            return Map.of();
+        }
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        Map<NotificationType, LocalDateTime> quiet = new EnumMap<>(NotificationType.class);
+        quietHours.forEach((channel, window) -> {
+            ZonedDateTime until = window.until(now);
+            if (until != null) {
+                quiet.put(channel, until.withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime());
+            }
+        });
+        return quiet;
+    }
+
+    private static List<Integer> parseOffsets(String offsets) {
+        List<Integer> parsed = new ArrayList<>();
+        for (String d : offsets.split(",")) {
+            if (!d.isBlank()) parsed.add(Integer.parseInt(d.trim()));
+        }
+        return parsed;
+    }
+
+    /**
+     * Bond type by ISIN: IN0 to IN3 are central and state government securities (G-Secs,
+     * T-Bills, SDLs), INE issuers are companies.
+     */
+    public enum BondType {
+        GSEC, CORPORATE, OTHER;
+
+        static BondType of(String isin) {
+            if (isin == null || isin.length() < 3 || !isin.startsWith("IN")) return OTHER;
+            char c = isin.charAt(2);
+            if (c >= '0' && c <= '3') return GSEC;
+            return c == 'E' ? CORPORATE : OTHER;
+        }
+    }
+
+    private enum Outcome { EXACT, CAUGHT_UP, SUPERSEDED, MISSED }
+
+    /**
+     * candidates = exact + caughtUp + superseded + missed; exact and caughtUp are sent.
+     */
+    public record RuleCounts(long candidates, long exact, long caughtUp, long superseded, long missed) {}
+
+    /**
+     * @param quiet   channels inside their quiet hours when the set was selected (see quietChannels)
+     * @param settled rows held for quiet hours that are no longer sent, to be marked dispatched
+     */
+    public record WorkSet(List<NotificationCalendarEntry> due, Map<String, RuleCounts> counts,
+                          Map<NotificationType, LocalDateTime> quiet, List<NotificationCalendarEntry> settled) {}
+
+    private static final class CompiledRule {
+        final String name;
+        final int index;
+        final List<Integer> offsets;
+        final int catchUpDays;
+        // days left -> offset due that day, -1 for none
+        final int[] fires;
+
+        CompiledRule(String name, int index, List<Integer> offsets, int catchUpDays) {
+            if (catchUpDays < 0) {
+                throw new IllegalArgumentException("Policy rule " + name + ": negative catch-up-days");
+            }
+            this.name = name;
+            this.index = index;
+            this.offsets = offsets.stream().distinct().sorted(Comparator.reverseOrder()).toList();
+            this.catchUpDays = catchUpDays;
+
+            int max = this.offsets.isEmpty() ? -1 : this.offsets.get(0);
+            this.fires = new int[max + 1];
+            Arrays.fill(fires, -1);
+            // largest first, so the smallest offset covering a day wins
+            for (int offset : this.offsets) {
+                if (offset < 0) {
+                    throw new IllegalArgumentException("Policy rule " + name + ": negative offset " + offset);
+                }
+                for (int daysLeft = offset; daysLeft >= Math.max(0, offset - catchUpDays); daysLeft--) {
+                    fires[daysLeft] = offset;
+                }
+            }
+        }
+    }
+
+    record QuietHours(LocalTime start, LocalTime end) {
+
+        static QuietHours parse(String window) {
+            String[] parts = window.trim().split("-");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Quiet hours must be HH:mm-HH:mm: " + window);
+            }
+            return new QuietHours(LocalTime.parse(parts[0].trim()), LocalTime.parse(parts[1].trim()));
+        }
+
+        // end of the quiet period now is in, or null outside it
+        ZonedDateTime until(ZonedDateTime now) {
+            LocalTime t = now.toLocalTime();
+            boolean quiet = start.isBefore(end)
+                    ? !t.isBefore(start) && t.isBefore(end)
+                    : !t.isBefore(start) || t.isBefore(end);
+            if (!quiet) return null;
+            ZonedDateTime endsAt = now.with(end);
+            return endsAt.isAfter(now) ? endsAt : endsAt.plusDays(1);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.config.ResilienceProperties;
+import com.ibsec.ncdnotifier.entity.BondMaturityNotificationLog;
+import com.ibsec.ncdnotifier.notification.request.NotificationStatus;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.repository.BondMaturityNotificationRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Notifications deferred because their gateway's breaker was open (or its bulkhead full). They
+ * are log rows in status DEFERRED, carrying the recipient they will be sent to, so they survive
+ * a restart; retryDeferred pages through them in ID order.
+ *
+ * A page only hands out rows it could claim: each goes from DEFERRED to RETRYING with a
+ * conditional UPDATE, so two processes (pods, the scheduler and a batch run) never send the same
+ * row. A claim left behind by a process that died mid-retry lapses after
+ * ncd.resilience.retry-claim-lease-ms and the row is DEFERRED again.
+ *
+ * A DEFERRED row's notifiedOn holds the time of the first deferral until the send goes out.
+ */
+@Component
+public class NotificationRetryQueue {
+
+    // notified_on too, so PostgreSQL touches the one partition holding the row
+    private static final String CLAIM_SQL = "UPDATE bond_maturity_notification_log SET status = 'RETRYING', "
+            + "claimed_at = ? WHERE id = ? AND notified_on = ? AND status = 'DEFERRED'";
+    private static final String RELEASE_LAPSED_SQL = "UPDATE bond_maturity_notification_log SET status = 'DEFERRED', "
+            + "claimed_at = NULL WHERE status = 'RETRYING' AND claimed_at < ?";
+    private static final List<NotificationStatus> WAITING = List.of(NotificationStatus.DEFERRED, NotificationStatus.RETRYING);
+
+    private final BondMaturityNotificationRepository logRepo;
+    private final JdbcTemplate secondaryJdbcTemplate;
+    private final int pageSize;
+    private final Duration claimLease;
+
+    public NotificationRetryQueue(BondMaturityNotificationRepository logRepo,
+                                  @Qualifier("secondaryJdbcTemplate") JdbcTemplate secondaryJdbcTemplate,
+                                  ResilienceProperties properties) {
+        this.logRepo = logRepo;
+        this.secondaryJdbcTemplate = secondaryJdbcTemplate;
+        this.pageSize = Math.max(1, properties.getRetryPageSize());
+        this.claimLease = Duration.ofMillis(properties.getRetryClaimLeaseMs());
+    }
+
+    /**
+     * Claims the next ncd.resilience.retry-page-size deferred rows with an ID above
+     * {@code afterId} and returns those this process got, as sends: rows of several clients
+     * sharing a recipient (same ISIN, channel and message) ride on the first one, as they did
+     * when first deferred.
+     */
+    public Page claim(long afterId) {
+        List<BondMaturityNotificationLog> rows = logRepo.findByStatusAndIdGreaterThanOrderByIdAsc(
+                NotificationStatus.DEFERRED, afterId, PageRequest.of(0, pageSize));
+        return claimed(rows, rows.isEmpty() ? afterId : rows.get(rows.size() - 1).getId());
+    }
+
+    /**
+     * Like {@link #claim(long)}, among {@code ids} only (ascending): a batch run retries the
+     * rows it deferred itself, not the whole queue.
+     */
+    public Page claim(long afterId, List<Long> ids) {
+        List<Long> chunk = next(afterId, ids);
+        if (chunk.isEmpty()) {
+            return new Page(List.of(), afterId);
+        }
+        List<BondMaturityNotificationLog> rows = new ArrayList<>(
+                logRepo.findByStatusAndIdIn(NotificationStatus.DEFERRED, chunk));
+        rows.sort(Comparator.comparing(BondMaturityNotificationLog::getId));
+        return claimed(rows, chunk.get(chunk.size() - 1));
+    }
+
+    /**
+     * Puts rows whose claim outlived ncd.resilience.retry-claim-lease-ms back to DEFERRED.
+     *
+     * @return rows released
+     */
+    public int releaseLapsedClaims() {
+        return secondaryJdbcTemplate.update(RELEASE_LAPSED_SQL,
+                Timestamp.valueOf(LocalDateTime.now().minus(claimLease)));
+    }
+
+    // deferred rows and those being retried right now
+    public long size() {
+        return logRepo.countByStatusIn(WAITING);
+    }
+
+    public long size(List<Long> ids) {
+        long left = 0;
+        for (int from = 0; from < ids.size(); from += pageSize) {
+            left += logRepo.countByStatusInAndIdIn(WAITING, ids.subList(from, Math.min(from + pageSize, ids.size())));
+        }
+        return left;
+    }
+
+    private List<Long> next(long afterId, List<Long> ids) {
+        int from = 0;
+        while (from < ids.size() && ids.get(from) <= afterId) from++;
+        return ids.subList(from, Math.min(from + pageSize, ids.size()));
+    }
+
+    private Page claimed(List<BondMaturityNotificationLog> rows, long lastId) {
+        if (rows.isEmpty()) {
+            return new Page(List.of(), lastId);
+        }
+        LocalDateTime claimedAt = LocalDateTime.now();
+        Timestamp at = Timestamp.valueOf(claimedAt);
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (BondMaturityNotificationLog row : rows) {
+            args.add(new Object[]{at, row.getId(), Timestamp.valueOf(row.getNotifiedOn())});
+        }
+        int[] updated = secondaryJdbcTemplate.batchUpdate(CLAIM_SQL, args);
+        Map<String, BondMaturityNotificationLog> sends = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (updated[i] != 1) continue;   // another process claimed it first
+            BondMaturityNotificationLog row = rows.get(i);
+            row.setStatus(NotificationStatus.RETRYING);
+            row.setClaimedAt(claimedAt);
+            BondMaturityNotificationLog first = sends.putIfAbsent(key(row), row);
+            if (first != null) {
+                first.shareWith(row);
+            }
+        }
+        return new Page(new ArrayList<>(sends.values()), lastId);
+    }
+
+    private static String key(BondMaturityNotificationLog row) {
+        String recipient = row.getRecipient() == null ? "#" + row.getId()
+                : row.getChannel() == NotificationType.EMAIL ? row.getRecipient().toLowerCase(Locale.ROOT)
+                : row.getRecipient();
+        return row.getChannel() + ":" + recipient + ":" + row.getIsin() + ":" + row.getMaturityDate()
+                + ":" + row.getTemplateId() + ":" + row.getTemplateParams();
+    }
+
+    /**
+     * @param sends  claimed rows, empty when every row read was claimed elsewhere
+     * @param lastId highest row ID read, where the next page starts
+     */
+    public record Page(List<BondMaturityNotificationLog> sends, long lastId) {}
+}
@@ -1,29 +1,300 @@
 package com.ibsec.ncdnotifier.service;
 
 
-import com.ibsec.ncdnotifier.notification.service.impl.EmailNotificationChannel;
-import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Component;
 
-@Component
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
+/**
+ * Triggers and housekeeping for the notification job.
+ *
+ * Runs execute on the dedicated notificationJobExecutor, so a long run never holds a scheduler
+ * thread. At most one run (or holdings refresh / deferred retry) is in flight; a trigger arriving
+ * meanwhile is skipped, or with ncd.scheduler.overlap-policy=queue kept as the single pending
+ * follow-up run. A watchdog raises LONG_RUN and MISSED_RUN alarms in the run history.
+ */
+@Component
+@Profile("!simulation & !batch")
 public class NotificationScheduler {
 
+    public enum TriggerDecision { STARTED, QUEUED, SKIPPED }
+
     Logger log = LoggerFactory.getLogger(NotificationScheduler.class);
 
     private final NcdNotificationService ncdNotificationService;
+    private final BondFileService bondFileService;
+    private final HoldingsSnapshotService holdingsSnapshot;
+    private final ContactIndexService contactIndex;
+    private final NotificationLogPartitionManager logPartitions;
+    private final ExecutorService jobExecutor;
+    private final RunHistory history;
+
+    // single-flight state, guarded by this: something in flight, and the queued follow-up run
+    private boolean running;
+    private TriggerSource pendingSource;
+    private Instant pendingSince;
+
+    // alarms already raised, so each fires once
+    private long longRunAlarmedFor = -1;
+    private ZonedDateTime missedRunAlarmedFor;
+
+    @Value("${ncd.test-mode:false}")
+    private boolean testMode;
+
+    // skip: drop triggers that arrive during a run | queue: run once more after it
+    @Value("${ncd.scheduler.overlap-policy:skip}")
+    private String overlapPolicy;
+
+    @Value("${ncd.scheduler.max-run-duration-ms:1800000}")
+    private long maxRunDurationMs;
+
+    @Value("${ncd.scheduler.missed-run-grace-ms:900000}")
+    private long missedRunGraceMs;
+
+    // start a run when the daily one was missed (e.g. the app was down at the cron time)
+    @Value("${ncd.scheduler.catch-up-missed-run:true}")
+    private boolean catchUpMissedRun;
+
+    @Value("${ncd.schedule.day-rollover-cron}")
+    private String dayRolloverCron;
+
+    @Value("${ncd.schedule.zone}")
+    private String zone;
 
-    public NotificationScheduler(NcdNotificationService ncdNotificationService) {
+    public NotificationScheduler(NcdNotificationService ncdNotificationService,
+                                 BondFileService bondFileService,
+                                 HoldingsSnapshotService holdingsSnapshot,
+                                 ContactIndexService contactIndex,
+                                 NotificationLogPartitionManager logPartitions,
+                                 @Qualifier("notificationJobExecutor") ExecutorService jobExecutor,
+                                 RunHistory history) {
         this.ncdNotificationService = ncdNotificationService;
+        this.bondFileService = bondFileService;
+        this.holdingsSnapshot = holdingsSnapshot;
+        this.contactIndex = contactIndex;
+        this.logPartitions = logPartitions;
+        this.jobExecutor = jobExecutor;
+        this.history = history;
     }
 
-    @Scheduled(cron = "0 0/1 * * * *")
+    @Scheduled(cron = "${ncd.schedule.day-rollover-cron}", zone = "${ncd.schedule.zone}")
     public void runDaily() {
-        log.info("Starting NCD maturity notification job...");
-        ncdNotificationService.processMaturingBonds();
-        log.info("NCD maturity notification job completed.");
+        trigger(TriggerSource.DAY_ROLLOVER);
+    }
+
+    @Scheduled(initialDelayString = "${ncd.source.poll-initial-delay-ms}",
+            fixedDelayString = "${ncd.source.poll-interval-ms}")
+    public void pollSourceChange() {
+        if (isRunning()) {
+            return;
+        }
+        if (bondFileService.hasSourceChanged()) {
+            trigger(TriggerSource.SOURCE_CHANGE);
+        }
+    }
+
+    /**
+     * Refreshes the holdings snapshot between runs and alerts clients who picked up an
+     * already-notified NCD. Skipped while a run is in flight (the run refreshes it itself) and
+     * during quiet hours, so the new holders stay in the next refresh's diff.
+     */
+    @Scheduled(initialDelayString = "${ncd.holdings.refresh-interval-ms}",
+            fixedDelayString = "${ncd.holdings.refresh-interval-ms}")
+    public void refreshHoldings() {
+        if (testMode || ncdNotificationService.inQuietHours() || !tryAcquire()) {
+            return;
+        }
+
+        try {
+            Map<String, String[]> newHolders = holdingsSnapshot.refresh();
+            if (!newHolders.isEmpty()) {
+                int sent = ncdNotificationService.notifyNewHolders(newHolders);
+                log.info("Holdings refresh sent {} notifications to new holders", sent);
+            }
+        } catch (Exception e) {
+            log.error("Holdings snapshot refresh failed", e);
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Retries notifications deferred by an open gateway breaker, and starts a run once the quiet
+     * hours the last run held calendar entries for are over. Skipped while a run is in flight.
+     */
+    @Scheduled(initialDelayString = "${ncd.resilience.retry-interval-ms}",
+            fixedDelayString = "${ncd.resilience.retry-interval-ms}")
+    public void retryDeferred() {
+        if (!tryAcquire()) {
+            return;
+        }
+
+        try {
+            ncdNotificationService.retryDeferred();
+        } catch (Exception e) {
+            log.error("Retry of deferred notifications failed", e);
+        } finally {
+            release();
+        }
+        if (ncdNotificationService.quietHoldEnded()) {
+            trigger(TriggerSource.QUIET_HOURS_END);
+        }
+    }
+
+    /**
+     * Nightly bulk export of focus.cust_mst into the memory-mapped contact index.
+     */
+    @Scheduled(cron = "${ncd.contacts.export-cron}", zone = "${ncd.schedule.zone}")
+    public void exportContacts() {
+        if (testMode) {
+            return;
+        }
+        try {
+            contactIndex.rebuild();
+        } catch (Exception e) {
+            log.error("Contact index export failed, lookups keep using the previous index / DB", e);
+        }
+    }
+
+    /**
+     * Keeps the notification log's monthly partitions created ahead and applies retention.
+     */
+    @Scheduled(cron = "${ncd.log.partition-maintenance-cron}", zone = "${ncd.schedule.zone}")
+    public void maintainLogPartitions() {
+        try {
+            logPartitions.maintain();
+        } catch (Exception e) {
+            log.error("Notification log partition maintenance failed", e);
+        }
+    }
+
+    /**
+     * Raises LONG_RUN when the current run exceeds ncd.scheduler.max-run-duration-ms, and
+     * MISSED_RUN when no run started within the grace period after the last day-rollover time.
+     */
+    @Scheduled(initialDelayString = "${ncd.scheduler.watchdog-interval-ms}",
+            fixedDelayString = "${ncd.scheduler.watchdog-interval-ms}")
+    public void watch() {
+        history.current().ifPresent(run -> {
+            long elapsedMs = Duration.between(run.startedAt(), Instant.now()).toMillis();
+            if (elapsedMs > maxRunDurationMs) alarmLongRun(run.id(), run.source(), elapsedMs);
+        });
+
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.of(zone));
+        ZonedDateTime expected = previousDayRollover(now);
+        if (expected == null || expected.equals(missedRunAlarmedFor)
+                || now.isBefore(expected.plus(Duration.ofMillis(missedRunGraceMs)))) {
+            return;
+        }
+        Instant lastStarted = history.lastStartedAt();
+        if (lastStarted == null || lastStarted.isBefore(expected.toInstant())) {
+            missedRunAlarmedFor = expected;
+            history.raise(RunHistory.RunAlarm.Type.MISSED_RUN, "No run started since the " + expected
+                    + " day rollover" + (catchUpMissedRun ? ", starting a catch-up run" : ""));
+            if (catchUpMissedRun) {
+                trigger(TriggerSource.CATCH_UP);
+            }
+        }
+    }
+
+    /**
+     * Starts the notification job on the job executor, or applies the overlap policy when
+     * something is already in flight.
+     */
+    public synchronized TriggerDecision trigger(TriggerSource source) {
+        if (!running) {
+            running = true;
+            submit(source, Instant.now());
+            return TriggerDecision.STARTED;
+        }
+        if ("queue".equalsIgnoreCase(overlapPolicy) && pendingSource == null) {
+            pendingSource = source;
+            pendingSince = Instant.now();
+            log.info("NCD maturity notification job busy, {} trigger queued", source);
+            return TriggerDecision.QUEUED;
+        }
+        history.coalesced();
+        log.info("NCD maturity notification job busy, {} trigger skipped ({} skipped so far)",
+                source, history.getCoalescedTriggers());
+        return TriggerDecision.SKIPPED;
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    public synchronized TriggerSource getPendingSource() {
+        return pendingSource;
+    }
+
+    private void submit(TriggerSource source, Instant queuedAt) {
+        jobExecutor.execute(() -> runJob(source, queuedAt));
+    }
+
+    private void runJob(TriggerSource source, Instant queuedAt) {
+        long id = history.start(source, queuedAt);
+        RunStats.RunSummary summary = null;
+        Throwable error = null;
+        try {
+            log.info("Starting NCD maturity notification job ({})...", source);
+            summary = ncdNotificationService.processMaturingBonds();
+            log.info("NCD maturity notification job completed.");
+        } catch (Throwable t) {
+            error = t;
+            log.error("NCD maturity notification job failed", t);
+        } finally {
+            RunHistory.RunRecord run = history.finish(id, summary, error);
+            if (run != null && run.durationMs() > maxRunDurationMs) {
+                alarmLongRun(id, source, run.durationMs());
+            }
+            release();
+        }
+    }
+
+    private synchronized void alarmLongRun(long id, TriggerSource source, long elapsedMs) {
+        if (longRunAlarmedFor == id) return;
+        longRunAlarmedFor = id;
+        history.raise(RunHistory.RunAlarm.Type.LONG_RUN, "Run #" + id + " (" + source + ") took " + elapsedMs
+                + " ms so far, over the " + maxRunDurationMs + " ms limit");
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (running) return false;
+        running = true;
+        return true;
+    }
+
+    // hands over to the queued run, if any, instead of going idle
+    private synchronized void release() {
+        if (pendingSource != null) {
+            TriggerSource next = pendingSource;
+            Instant since = pendingSince;
+            pendingSource = null;
+            pendingSince = null;
+            submit(next, since);
+        } else {
+            running = false;
+        }
+    }
+
+    private ZonedDateTime previousDayRollover(ZonedDateTime now) {
+        CronExpression cron = CronExpression.parse(dayRolloverCron);
+        ZonedDateTime previous = null;
+        for (ZonedDateTime t = cron.next(now.minusDays(1)); t != null && !t.isAfter(now); t = cron.next(t)) {
+            previous = t;
+        }
+        return previous;
     }
 }
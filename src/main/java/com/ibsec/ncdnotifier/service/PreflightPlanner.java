@@ -0,0 +1,221 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.entity.NotificationCalendarEntry;
+import com.ibsec.ncdnotifier.repository.HoldingsDao;
+import com.ibsec.ncdnotifier.repository.NotificationCalendarRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates the size of a run before anything is sent and sizes the dispatch for it.
+ *
+ * Holder counts per ISIN are read through a cache: the holdings snapshot first, then one
+ * aggregated COUNT(DISTINCT client_id) ... GROUP BY isin for the rest, kept for the holdings
+ * refresh interval. Expected emails / SMS apply the contact index's availability ratios
+ * (or, without an index, ratios from one aggregate over focus.cust_mst, kept as long as an
+ * index would be). Expired counts are pruned on each estimate.
+ *
+ * The estimate sizes workers and the send batch only; sender-profile rate limits
+ * (SenderRouter / RateLimiter) pace the sends on their own and are not derived from it.
+ */
+@Service
+public class PreflightPlanner {
+
+    private static final Logger log = LoggerFactory.getLogger(PreflightPlanner.class);
+
+    private final NotificationCalendarRepository calendarRepository;
+    private final NotificationPolicy policy;
+    private final HoldingsSnapshotService holdingsSnapshot;
+    private final ContactIndexService contactIndex;
+    private final HoldingsDao holdingsDao;
+    private final JdbcTemplate secondaryJdbcTemplate;
+
+    @Value("${ncd.test-mode:false}")
+    private boolean testMode;
+
+    @Value("${ncd.processing.parallelism:8}")
+    private int maxWorkers;
+
+    @Value("${ncd.preflight.messages-per-worker:500}")
+    private int messagesPerWorker;
+
+    @Value("${ncd.preflight.max-in-flight:8000}")
+    private int maxInFlight;
+
+    @Value("${ncd.holdings.refresh-interval-ms}")
+    private long countTtlMs;
+
+    @Value("${ncd.contacts.max-age-hours}")
+    private long contactRatioTtlHours;
+
+    private final Map<String, CachedCount> holderCounts = new ConcurrentHashMap<>();
+    private volatile ContactIndexService.ContactAvailability dbAvailability;
+
+    public PreflightPlanner(NotificationCalendarRepository calendarRepository,
+                            NotificationPolicy policy,
+                            HoldingsSnapshotService holdingsSnapshot,
+                            ContactIndexService contactIndex,
+                            HoldingsDao holdingsDao,
+                            @Qualifier("secondaryJdbcTemplate") JdbcTemplate secondaryJdbcTemplate) {
+        this.calendarRepository = calendarRepository;
+        this.policy = policy;
+        this.holdingsSnapshot = holdingsSnapshot;
+        this.contactIndex = contactIndex;
+        this.holdingsDao = holdingsDao;
+        this.secondaryJdbcTemplate = secondaryJdbcTemplate;
+    }
+
+    public PreflightEstimate estimate(LocalDate date) {
+        List<NotificationCalendarEntry> candidates = calendarRepository.findBySendDateBetweenAndDispatchedOnIsNull(
+                date.minusDays(policy.maxCatchUpDays()), date);
+        return estimate(date, policy.select(candidates, date).due());
+    }
+
+    public PreflightEstimate estimate(LocalDate date, List<NotificationCalendarEntry> due) {
+        List<String> isins = due.stream().map(NotificationCalendarEntry::getIsin).distinct().toList();
+
+        Map<String, Long> holders = testMode ? testModeCounts(isins) : holderCounts(isins);
+        long expectedHolders = holders.values().stream().mapToLong(Long::longValue).sum();
+        long isinsWithHolders = holders.values().stream().filter(c -> c > 0).count();
+
+        double emailRatio;
+        double mobileRatio;
+        String contactSource;
+        if (testMode) {
+            emailRatio = 1;
+            mobileRatio = 1;
+            contactSource = "test-mode";
+        } else {
+            ContactIndexService.ContactAvailability availability = contactIndex.getAvailability();
+            contactSource = "index";
+            if (availability == null) {
+                availability = dbAvailability();
+                contactSource = "db";
+            }
+            emailRatio = availability.emailRatio();
+            mobileRatio = availability.mobileRatio();
+        }
+
+        long expectedEmails = Math.round(expectedHolders * emailRatio);
+        long expectedSms = Math.round(expectedHolders * mobileRatio);
+        long expectedMessages = expectedEmails + expectedSms;
+
+        // enough workers for the day's volume, never more than there are ISINs to work on
+        int workers = (int) Math.max(1, Math.min(Math.min(maxWorkers, isinsWithHolders),
+                (expectedMessages + messagesPerWorker - 1) / messagesPerWorker));
+        // per-worker send batch, so the whole run never has more than max-in-flight messages pending
+        int sendBatchSize = Math.max(1, maxInFlight / workers);
+
+        PreflightEstimate estimate = new PreflightEstimate(date, isins.size(), isinsWithHolders, expectedHolders,
+                expectedEmails, expectedSms, emailRatio, mobileRatio, contactSource, workers, sendBatchSize, holders);
+        log.info("🧮 Pre-flight {}: {} ISINs ({} held), ~{} holders → ~{} emails, ~{} SMS; {} workers, batch {}",
+                date, estimate.dueIsins(), isinsWithHolders, expectedHolders, expectedEmails, expectedSms,
+                workers, sendBatchSize);
+        return estimate;
+    }
+
+    /**
+     * Default sizing for a run whose estimate failed: ncd.processing.parallelism workers (at most one per
+     * due ISIN) and the default send batch, with no expected counts.
+     */
+    public PreflightEstimate fallback(LocalDate date, int dueIsins) {
+        int workers = Math.max(1, Math.min(maxWorkers, dueIsins));
+        return new PreflightEstimate(date, dueIsins, 0, 0, 0, 0, 0, 0, "unavailable",
+                workers, defaultSendBatchSize(), Map.of());
+    }
+
+    /**
+     * Default dispatch sizing when no estimate was made (e.g. notifications between runs).
+     */
+    public int defaultSendBatchSize() {
+        return Math.max(1, maxInFlight / Math.max(1, maxWorkers));
+    }
+
+    /**
+     * Forgets cached holder counts, e.g. for ISINs changed or delisted in the bond universe.
+     */
+    public void evictHolderCounts(Collection<String> isins) {
+        for (String isin : isins) {
+            holderCounts.remove(isin);
+        }
+    }
+
+    private Map<String, Long> testModeCounts(List<String> isins) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String isin : isins) counts.put(isin, 1L);
+        return counts;
+    }
+
+    private Map<String, Long> holderCounts(List<String> isins) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        Instant now = Instant.now();
+        // drop expired counts, so ISINs no longer due (matured, delisted) don't stay cached for good
+        holderCounts.values().removeIf(cached -> !fresh(cached, now));
+
+        for (String isin : isins) {
+            String[] snapshot = holdingsSnapshot.getHolders(isin);
+            CachedCount cached = holderCounts.get(isin);
+            if (snapshot != null) {
+                counts.put(isin, (long) snapshot.length);
+            } else if (cached != null && fresh(cached, now)) {
+                counts.put(isin, cached.count);
+            } else {
+                missing.add(isin);
+            }
+        }
+
+        Map<String, Long> loaded = missing.isEmpty() ? Map.of() : holdingsDao.holderCounts(missing);
+        for (String isin : missing) {
+            long count = loaded.getOrDefault(isin, 0L);
+            holderCounts.put(isin, new CachedCount(count, now));
+            counts.put(isin, count);
+        }
+        return counts;
+    }
+
+    private boolean fresh(CachedCount cached, Instant now) {
+        return Duration.between(cached.at, now).toMillis() < countTtlMs;
+    }
+
+    private ContactIndexService.ContactAvailability dbAvailability() {
+        ContactIndexService.ContactAvailability cached = dbAvailability;
+        if (cached != null && Duration.between(cached.builtAt(), Instant.now()).toHours() < contactRatioTtlHours) {
+            return cached;
+        }
+        cached = secondaryJdbcTemplate.queryForObject("""
+                SELECT COUNT(DISTINCT party_cd),
+                       COUNT(DISTINCT CASE WHEN TRIM(email_id) <> '' THEN party_cd END),
+                       COUNT(DISTINCT CASE WHEN TRIM(mobile_no) <> '' THEN party_cd END)
+                FROM focus.cust_mst""",
+                (rs, rowNum) -> new ContactIndexService.ContactAvailability(
+                        rs.getLong(1), rs.getLong(2), rs.getLong(3), Instant.now()));
+        dbAvailability = cached;
+        return cached;
+    }
+
+    private record CachedCount(long count, Instant at) {}
+
+    public record PreflightEstimate(LocalDate date,
+                                    int dueIsins,
+                                    long isinsWithHolders,
+                                    long expectedHolders,
+                                    long expectedEmails,
+                                    long expectedSms,
+                                    double emailRatio,
+                                    double mobileRatio,
+                                    String contactSource,
+                                    int workers,
+                                    int sendBatchSize,
+                                    Map<String, Long> holdersByIsin) {}
+}
@@ -0,0 +1,14 @@
+package com.ibsec.ncdnotifier.service;
+
+/**
+ * Dispatch priority of a calendar entry. URGENT alerts (maturity within ncd.priority.urgent-days)
+ * are claimed first by the dispatch workers and have workers and send permits reserved for them.
+ */
+public enum PriorityClass {
+    URGENT,
+    ROUTINE;
+
+    static PriorityClass of(int daysLeft, int urgentDays) {
+        return daysLeft <= urgentDays ? URGENT : ROUTINE;
+    }
+}
@@ -0,0 +1,179 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.entity.NotificationRun;
+import com.ibsec.ncdnotifier.repository.NotificationRunRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The last ncd.scheduler.history-size notification runs (trigger, start, end, duration, outcome)
+ * and the alarms raised about them; newest first.
+ *
+ * Runs are also saved to ncd_notification_run and read back on first use, so after a restart
+ * the watchdog still knows when the last run started. A run left RUNNING by a stopped process
+ * is read back as FAILED. Failing to save is logged and never fails the run; alarms stay in memory.
+ */
+@Component
+public class RunHistory {
+
+    private static final Logger log = LoggerFactory.getLogger(RunHistory.class);
+
+    public enum Outcome { RUNNING, SUCCEEDED, PARTIAL, FAILED }
+
+    private final NotificationRunRepository repository;
+    private final int capacity;
+    private boolean loaded;
+    private final Deque<RunRecord> runs = new ArrayDeque<>();
+    private final Deque<RunAlarm> alarms = new ArrayDeque<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final LongAdder coalescedTriggers = new LongAdder();
+
+    public RunHistory(NotificationRunRepository repository,
+                      @Value("${ncd.scheduler.history-size:200}") int capacity) {
+        this.repository = repository;
+        this.capacity = Math.max(1, capacity);
+    }
+
+    synchronized long start(TriggerSource source, Instant queuedAt) {
+        load();
+        long id = ids.incrementAndGet();
+        RunRecord run = new RunRecord(id, source, queuedAt, Instant.now(), null, 0, Outcome.RUNNING, 0, 0, 0, null);
+        add(runs, run);
+        save(run);
+        return id;
+    }
+
+    synchronized RunRecord finish(long id, RunStats.RunSummary summary, Throwable error) {
+        load();
+        for (RunRecord run : runs) {
+            if (run.id() != id) continue;
+            Instant finishedAt = Instant.now();
+            Outcome outcome = error != null || summary.error() != null ? Outcome.FAILED
+                    : summary.isinsFailed() > 0 || summary.isinsDeferred() > 0 ? Outcome.PARTIAL
+                    : Outcome.SUCCEEDED;
+            RunRecord done = new RunRecord(id, run.source(), run.queuedAt(), run.startedAt(), finishedAt,
+                    Duration.between(run.startedAt(), finishedAt).toMillis(), outcome,
+                    summary != null ? summary.notificationsSent() : 0,
+                    summary != null ? summary.isinsFailed() : 0,
+                    summary != null ? summary.isinsDeferred() : 0,
+                    error != null ? error.toString() : summary != null ? summary.error() : null);
+            replace(run, done);
+            save(done);
+            return done;
+        }
+        return null;
+    }
+
+    void coalesced() {
+        coalescedTriggers.increment();
+    }
+
+    void raise(RunAlarm.Type type, String message) {
+        log.error("🚨 {}: {}", type, message);
+        synchronized (this) {
+            add(alarms, new RunAlarm(type, Instant.now(), message));
+        }
+    }
+
+    public synchronized Optional<RunRecord> current() {
+        load();
+        return runs.stream().filter(r -> r.outcome() == Outcome.RUNNING).findFirst();
+    }
+
+    public synchronized Instant lastStartedAt() {
+        load();
+        return runs.isEmpty() ? null : runs.peekFirst().startedAt();
+    }
+
+    public synchronized List<RunRecord> recent(int limit) {
+        load();
+        return runs.stream().limit(limit).toList();
+    }
+
+    public synchronized List<RunAlarm> alarms() {
+        return new ArrayList<>(alarms);
+    }
+
+    public long getCoalescedTriggers() {
+        return coalescedTriggers.sum();
+    }
+
+    // on first use rather than at startup, so boot does not wait on the database
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+        List<NotificationRun> saved;
+        try {
+            saved = repository.findByOrderByIdDesc(PageRequest.of(0, capacity));
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Run history not loaded, starting empty: {}", e.toString());
+            return;
+        }
+        for (NotificationRun row : saved) {
+            RunRecord run = toRecord(row);
+            if (run.outcome() == Outcome.RUNNING) {
+                run = new RunRecord(run.id(), run.source(), run.queuedAt(), run.startedAt(), null, 0, Outcome.FAILED,
+                        run.notificationsSent(), run.isinsFailed(), run.isinsDeferred(), "Interrupted: process stopped");
+                save(run);
+            }
+            runs.addLast(run);
+        }
+        if (!saved.isEmpty()) {
+            ids.set(Math.max(ids.get(), saved.get(0).getId()));
+            log.info("Run history: {} runs loaded, last started {}", saved.size(), runs.peekFirst().startedAt());
+        }
+    }
+
+    private void save(RunRecord run) {
+        try {
+            repository.save(new NotificationRun(run.id(), run.source().name(), run.outcome().name(), run.queuedAt(),
+                    run.startedAt(), run.finishedAt(), run.durationMs(), run.notificationsSent(), run.isinsFailed(),
+                    run.isinsDeferred(), run.error() == null || run.error().length() <= 2000
+                            ? run.error() : run.error().substring(0, 2000)));
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Run #{} not saved to the run history table: {}", run.id(), e.toString());
+        }
+    }
+
+    private static RunRecord toRecord(NotificationRun row) {
+        return new RunRecord(row.getId(), TriggerSource.valueOf(row.getSource()), row.getQueuedAt(), row.getStartedAt(),
+                row.getFinishedAt(), row.getDurationMs(), Outcome.valueOf(row.getOutcome()), row.getNotificationsSent(),
+                row.getIsinsFailed(), row.getIsinsDeferred(), row.getError());
+    }
+
+    private <T> void add(Deque<T> deque, T item) {
+        deque.addFirst(item);
+        while (deque.size() > capacity) deque.removeLast();
+    }
+
+    private void replace(RunRecord old, RunRecord updated) {
+        List<RunRecord> copy = new ArrayList<>(runs);
+        copy.set(copy.indexOf(old), updated);
+        runs.clear();
+        runs.addAll(copy);
+    }
+
+    /**
+     * @param finishedAt null while running
+     */
+    public record RunRecord(long id, TriggerSource source, Instant queuedAt, Instant startedAt, Instant finishedAt,
+                            long durationMs, Outcome outcome, long notificationsSent, long isinsFailed,
+                            long isinsDeferred, String error) {}
+
+    public record RunAlarm(Type type, Instant raisedAt, String message) {
+        public enum Type { MISSED_RUN, LONG_RUN }
+    }
+}
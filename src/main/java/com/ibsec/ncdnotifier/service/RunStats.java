@@ -0,0 +1,160 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.ibsec.ncdnotifier.tracing.RunTraceReport;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for one notification run. Updated concurrently by the per-ISIN tasks.
+ */
+public class RunStats {
+
+    final LongAdder calendarEntriesDue = new LongAdder();
+    final LongAdder isinsWithClients = new LongAdder();
+    final LongAdder isinsWithoutClients = new LongAdder();
+    final LongAdder isinsFailed = new LongAdder();
+    // ISINs skipped because a database breaker was open; left undispatched for the next trigger
+    final LongAdder isinsDeferred = new LongAdder();
+    // ISINs due while a channel was inside its quiet hours; left undispatched until the period ends
+    final LongAdder isinsHeldQuiet = new LongAdder();
+    final LongAdder notificationsDeferred = new LongAdder();
+    // log rows this run deferred (breaker open), so a batch run can retry its own rows only
+    final Queue<Long> deferredIds = new ConcurrentLinkedQueue<>();
+    final LongAdder newHolderNotifications = new LongAdder();
+    final LongAdder notificationsSent = new LongAdder();
+    final LongAdder expectedNotifications = new LongAdder();
+    // emails / mobiles that failed validation, and messages not sent because another holder of
+    // the ISIN shares the recipient
+    final LongAdder contactsRejected = new LongAdder();
+    final LongAdder sharedRecipients = new LongAdder();
+    // replays: messages skipped because the holder was already notified of the maturity on that
+    // channel, and messages a dry run would have sent
+    final LongAdder alreadyNotified = new LongAdder();
+    final LongAdder notificationsPlanned = new LongAdder();
+    volatile boolean dryRun;
+    // due / caught-up / skipped calendar rows per notification policy rule
+    volatile Map<String, NotificationPolicy.RuleCounts> policy = Map.of();
+    // set when the run aborted before dispatch finished
+    volatile String error;
+
+    private final long allocatedAtStart = totalAllocatedBytes();
+    private final long startedAtNanos = System.nanoTime();
+
+    // time-to-delivery per priority class, measured from run start to the gateway accepting the message
+    private final Map<PriorityClass, DeliveryTimer> delivery = new EnumMap<>(PriorityClass.class);
+
+    public RunStats() {
+        for (PriorityClass priority : PriorityClass.values()) {
+            delivery.put(priority, new DeliveryTimer());
+        }
+    }
+
+    void recordDelivery(PriorityClass priority, int delivered) {
+        if (delivered == 0) return;
+        long elapsedMs = (System.nanoTime() - startedAtNanos) / 1_000_000;
+        DeliveryTimer timer = delivery.get(priority);
+        timer.delivered.add(delivered);
+        timer.totalMs.add(elapsedMs * delivered);
+        timer.maxMs.accumulate(elapsedMs);
+    }
+
+    public RunSummary toSummary(long durationMs, RunTraceReport trace) {
+        long allocatedAtEnd = totalAllocatedBytes();
+        return new RunSummary(
+                calendarEntriesDue.sum(),
+                policy,
+                isinsWithClients.sum(),
+                isinsWithoutClients.sum(),
+                isinsFailed.sum(),
+                isinsDeferred.sum(),
+                isinsHeldQuiet.sum(),
+                newHolderNotifications.sum(),
+                notificationsSent.sum(),
+                notificationsDeferred.sum(),
+                expectedNotifications.sum(),
+                contactsRejected.sum(),
+                sharedRecipients.sum(),
+                alreadyNotified.sum(),
+                dryRun,
+                notificationsPlanned.sum(),
+                durationMs,
+                timeToDelivery(),
+                trace.traceId(),
+                trace.stages(),
+                allocatedAtStart < 0 || allocatedAtEnd < 0 ? -1 : allocatedAtEnd - allocatedAtStart,
+                error,
+                deferredIds.stream().sorted().toList());
+    }
+
+    private Map<PriorityClass, DeliveryTiming> timeToDelivery() {
+        Map<PriorityClass, DeliveryTiming> timings = new EnumMap<>(PriorityClass.class);
+        delivery.forEach((priority, timer) -> {
+            long delivered = timer.delivered.sum();
+            timings.put(priority, new DeliveryTiming(delivered,
+                    delivered == 0 ? 0 : timer.totalMs.sum() / delivered, timer.maxMs.get()));
+        });
+        return timings;
+    }
+
+    /**
+     * Heap bytes allocated so far by all live threads, or -1 when the JVM can't tell. Process-wide:
+     * the run delta (approxAllocatedBytes) also counts whatever else the JVM did meanwhile (HTTP
+     * threads, a holdings refresh, GC and JIT helpers), and threads that exit mid-run drop out of
+     * the sum, so it is a rough upper bound, not the run's own allocation.
+     */
+    static long totalAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean hotspot)
+                || !hotspot.isThreadAllocatedMemorySupported()
+                || !hotspot.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : hotspot.getThreadAllocatedBytes(hotspot.getAllThreadIds())) {
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+
+    public record RunSummary(long calendarEntriesDue,
+                             Map<String, NotificationPolicy.RuleCounts> policy,
+                             long isinsWithClients,
+                             long isinsWithoutClients,
+                             long isinsFailed,
+                             long isinsDeferred,
+                             long isinsHeldQuiet,
+                             long newHolderNotifications,
+                             long notificationsSent,
+                             long notificationsDeferred,
+                             long expectedNotifications,
+                             long contactsRejected,
+                             long sharedRecipients,
+                             long alreadyNotified,
+                             boolean dryRun,
+                             long notificationsPlanned,
+                             long durationMs,
+                             Map<PriorityClass, DeliveryTiming> timeToDelivery,
+                             String traceId,
+                             List<RunTraceReport.StageLatency> stages,
+                             // process-wide allocation during the run, see totalAllocatedBytes
+                             long approxAllocatedBytes,
+                             String error,
+                             @JsonIgnore List<Long> deferredIds) {}
+
+    public record DeliveryTiming(long delivered, long avgMs, long maxMs) {}
+
+    private static final class DeliveryTimer {
+        final LongAdder delivered = new LongAdder();
+        final LongAdder totalMs = new LongAdder();
+        final LongAccumulator maxMs = new LongAccumulator(Math::max, 0);
+    }
+}
@@ -0,0 +1,39 @@
+package com.ibsec.ncdnotifier.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deploy step for the fast-start profile: boots with schema management on (partition layout,
+ * then ddl-auto=update on the secondary EntityManagerFactory), applies partition maintenance and
+ * exits, so the notifier itself can start with both switched off.
+ *
+ *   java -jar ncdnotifier.jar --spring.profiles.active=migrate-schema
+ */
+@Component
+@Profile("migrate-schema")
+public class SchemaMigrationRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrationRunner.class);
+
+    private final NotificationLogPartitionManager logPartitions;
+    private final ApplicationContext context;
+
+    public SchemaMigrationRunner(NotificationLogPartitionManager logPartitions, ApplicationContext context) {
+        this.logPartitions = logPartitions;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int expired = logPartitions.maintain();
+        log.info("🛠️ Schema migrated ({} expired log partitions), exiting", expired);
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
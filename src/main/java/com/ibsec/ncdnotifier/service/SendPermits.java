@@ -0,0 +1,40 @@
+package com.ibsec.ncdnotifier.service;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Concurrent send slices of one run, with a share only URGENT alerts may use: ROUTINE slices hold
+ * at most {@code total - reserved} of the permits, so however many large routine ISINs are being
+ * sent, {@code reserved} slots stay free for urgent ones.
+ */
+final class SendPermits {
+
+    private final Semaphore all;
+    private final Semaphore routine;
+    private final int reserved;
+
+    SendPermits(int total, int reserved) {
+        int permits = Math.max(1, total);
+        this.reserved = Math.max(0, Math.min(reserved, permits - 1));
+        this.all = new Semaphore(permits, true);
+        this.routine = new Semaphore(permits - this.reserved, true);
+    }
+
+    void acquire(PriorityClass priority) {
+        if (priority != PriorityClass.URGENT) {
+            routine.acquireUninterruptibly();
+        }
+        all.acquireUninterruptibly();
+    }
+
+    void release(PriorityClass priority) {
+        all.release();
+        if (priority != PriorityClass.URGENT) {
+            routine.release();
+        }
+    }
+
+    int reserved() {
+        return reserved;
+    }
+}
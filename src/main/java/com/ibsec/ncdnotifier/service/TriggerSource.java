@@ -0,0 +1,12 @@
+package com.ibsec.ncdnotifier.service;
+
+/**
+ * What caused a notification run.
+ */
+public enum TriggerSource {
+    DAY_ROLLOVER,   // configured local time once per day
+    SOURCE_CHANGE,  // NSE file ETag / Last-Modified changed
+    ON_DEMAND,      // REST call
+    CATCH_UP,       // watchdog, after a missed day rollover
+    QUIET_HOURS_END // quiet hours over, for the calendar entries a run held back
+}
@@ -0,0 +1,143 @@
+package com.ibsec.ncdnotifier.simulation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.service.DeliveryReportBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local delivery-report generator: plays the gateways' callbacks for every message the simulated
+ * channels accepted — a final DELIVERED / UNDELIVERED report each, plus interim "sent" events and
+ * duplicates — from several threads, then flushes and counts the reconciled log rows.
+ *
+ * Reports go straight into the DeliveryReportBuffer, or with ncd.simulation.dlr.callback-url
+ * (e.g. http://localhost:8080/api/notifier/dlr) as JSON POSTs to a running notifier's webhook.
+ */
+@Component
+@Profile("simulation")
+public class DeliveryReportGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryReportGenerator.class);
+
+    private final DeliveryReportBuffer buffer;
+    private final JdbcTemplate secondaryJdbcTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${ncd.simulation.dlr.threads:4}")
+    private int threads;
+
+    @Value("${ncd.simulation.dlr.batch-size:100}")
+    private int batchSize;
+
+    @Value("${ncd.simulation.dlr.undelivered-ratio:0.03}")
+    private double undeliveredRatio;
+
+    // share of messages that also get an interim event and a duplicate final report
+    @Value("${ncd.simulation.dlr.noise-ratio:0.2}")
+    private double noiseRatio;
+
+    @Value("${ncd.simulation.dlr.callback-url:}")
+    private String callbackUrl;
+
+    // the target notifier's ncd.dlr.secret
+    @Value("${ncd.simulation.dlr.callback-secret:}")
+    private String callbackSecret;
+
+    public DeliveryReportGenerator(DeliveryReportBuffer buffer,
+                                   @Qualifier("secondaryJdbcTemplate") JdbcTemplate secondaryJdbcTemplate) {
+        this.buffer = buffer;
+        this.secondaryJdbcTemplate = secondaryJdbcTemplate;
+    }
+
+    public Map<String, Object> replay(NotificationType channel, List<SimulatedNotificationChannel.Accepted> accepted) {
+        List<DeliveryReportBuffer.DeliveryReport> reports = new ArrayList<>(accepted.size() * 2);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (SimulatedNotificationChannel.Accepted a : accepted) {
+            String ts = Instant.now().toString();
+            if (random.nextDouble() < noiseRatio) {
+                reports.add(new DeliveryReportBuffer.DeliveryReport(a.messageId(), a.recipient(), "sent", ts));
+            }
+            String status = random.nextDouble() < undeliveredRatio ? "undelivered" : "delivered";
+            reports.add(new DeliveryReportBuffer.DeliveryReport(a.messageId(), a.recipient(), status, ts));
+            if (random.nextDouble() < noiseRatio) {
+                reports.add(new DeliveryReportBuffer.DeliveryReport(a.messageId(), a.recipient(), status, ts));
+            }
+        }
+
+        HttpClient http = callbackUrl.isBlank() ? null : HttpClient.newHttpClient();
+        AtomicInteger next = new AtomicInteger();
+        LongAdder rejected = new LongAdder();
+        long startedAt = System.nanoTime();
+        List<CompletableFuture<Void>> senders = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            senders.add(CompletableFuture.runAsync(() -> {
+                for (int from = next.getAndAdd(batchSize); from < reports.size(); from = next.getAndAdd(batchSize)) {
+                    List<DeliveryReportBuffer.DeliveryReport> batch = reports.subList(from, Math.min(from + batchSize, reports.size()));
+                    int taken = http == null ? buffer.submit(channel, batch) : post(http, channel, batch);
+                    rejected.add(batch.size() - taken);
+                }
+            }));
+        }
+        CompletableFuture.allOf(senders.toArray(new CompletableFuture[0])).join();
+        long submitNanos = System.nanoTime() - startedAt;
+
+        long flushStarted = System.nanoTime();
+        int updated = http == null ? buffer.flush() : 0;
+        long flushNanos = System.nanoTime() - flushStarted;
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("callbacks", reports.size());
+        m.put("callbacksPerSecond", submitNanos == 0 ? 0 : Math.round(reports.size() * 1e9 / submitNanos));
+        m.put("rejected", rejected.sum());
+        m.put("flushMs", flushNanos / 1_000_000);
+        m.put("rowsUpdated", updated);
+        log.info("📬 {} delivery reports: {} callbacks at {}/s, flush {} ms, {} log rows updated",
+                channel, reports.size(), m.get("callbacksPerSecond"), m.get("flushMs"), updated);
+        return m;
+    }
+
+    public Map<String, Long> logStatusCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        secondaryJdbcTemplate.query("SELECT channel, status, COUNT(*) FROM bond_maturity_notification_log "
+                        + "GROUP BY channel, status ORDER BY channel, status",
+                rs -> {
+                    counts.put(rs.getString(1) + "." + rs.getString(2), rs.getLong(3));
+                });
+        return counts;
+    }
+
+    private int post(HttpClient http, NotificationType channel, List<DeliveryReportBuffer.DeliveryReport> batch) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(callbackUrl + "/" + channel.name().toLowerCase()))
+                    .header("Content-Type", "application/json")
+                    .header("X-Dlr-Secret", callbackSecret)
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(batch)))
+                    .build();
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() / 100 == 2 ? batch.size() : 0;
+        } catch (Exception e) {
+            log.warn("Delivery report callback failed: {}", e.getMessage());
+            return 0;
+        }
+    }
+}
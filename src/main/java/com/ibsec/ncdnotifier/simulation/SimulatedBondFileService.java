@@ -0,0 +1,45 @@
+package com.ibsec.ncdnotifier.simulation;
+
+import com.ibsec.ncdnotifier.resilience.DependencyGuards;
+import com.ibsec.ncdnotifier.service.BondFileService;
+import com.ibsec.ncdnotifier.tracing.RunTracer;
+
+import java.util.List;
+
+/**
+ * Serves the generated bond universe instead of downloading the NSE files.
+ */
+public class SimulatedBondFileService extends BondFileService {
+
+    private volatile List<BondRecord> bonds = List.of();
+    private volatile long version;
+
+    public SimulatedBondFileService(RunTracer tracer, DependencyGuards guards) {
+        super(tracer, guards);
+    }
+
+    public void setBonds(List<BondRecord> bonds) {
+        this.bonds = List.copyOf(bonds);
+        this.version++;
+    }
+
+    @Override
+    public List<BondRecord> fetchAllBonds() {
+        return bonds;
+    }
+
+    @Override
+    public long getSourceVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean hasSourceChanged() {
+        return false;
+    }
+
+    @Override
+    public boolean isLastFetchComplete() {
+        return true;
+    }
+}
@@ -0,0 +1,113 @@
+package com.ibsec.ncdnotifier.simulation;
+
+import com.ibsec.ncdnotifier.notification.request.NotificationRequest;
+import com.ibsec.ncdnotifier.notification.request.NotificationResult;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.notification.service.NotificationChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process gateway stand-in: completes each send after latencyMs ± jitterMs and fails a
+ * configurable fraction of them. Sends are timers, not blocked threads, so the stub itself
+ * never limits concurrency.
+ */
+public class SimulatedNotificationChannel implements NotificationChannel {
+
+    private final NotificationType type;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+    private final ScheduledExecutorService timer;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final ConcurrentLinkedQueue<Long> latenciesMicros = new ConcurrentLinkedQueue<>();
+    private final AtomicLong firstSentAtMillis = new AtomicLong();
+    private final AtomicLong messageIds = new AtomicLong();
+    // provider message ID and recipient of every accepted message, for the delivery-report generator
+    private final ConcurrentLinkedQueue<Accepted> accepted = new ConcurrentLinkedQueue<>();
+
+    public SimulatedNotificationChannel(NotificationType type, long latencyMs, long jitterMs, double errorRate,
+                                        ScheduledExecutorService timer) {
+        this.type = type;
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.timer = timer;
+    }
+
+    @Override
+    public NotificationType type() {
+        return type;
+    }
+
+    @Override
+    public NotificationResult send(NotificationRequest request) {
+        return sendAsync(request).join();
+    }
+
+    @Override
+    public CompletableFuture<NotificationResult> sendAsync(NotificationRequest request) {
+        long startedAt = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = Math.max(0, latencyMs + (jitterMs > 0 ? random.nextLong(-jitterMs, jitterMs + 1) : 0));
+        boolean fail = random.nextDouble() < errorRate;
+
+        CompletableFuture<NotificationResult> future = new CompletableFuture<>();
+        timer.schedule(() -> {
+            latenciesMicros.add((System.nanoTime() - startedAt) / 1_000);
+            if (fail) {
+                failed.increment();
+                future.complete(new NotificationResult(false, "Simulated " + type + " gateway error"));
+            } else {
+                sent.increment();
+                firstSentAtMillis.compareAndSet(0, System.currentTimeMillis());
+                String messageId = "sim-" + type.name().toLowerCase() + "-" + messageIds.incrementAndGet();
+                accepted.add(new Accepted(messageId, request.getRecipient()));
+                // same key convention as the real channels (email: Message-ID/recipient)
+                String providerId = type == NotificationType.EMAIL
+                        ? messageId + "/" + request.getRecipient().toLowerCase() : messageId;
+                future.complete(NotificationResult.accepted("Simulated " + type + " sent", providerId));
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Wall-clock time of the first successful send (epoch millis), 0 if none yet.
+     */
+    public long getFirstSentAtMillis() {
+        return firstSentAtMillis.get();
+    }
+
+    public List<Accepted> drainAccepted() {
+        List<Accepted> drained = new ArrayList<>(accepted.size());
+        for (Accepted a = accepted.poll(); a != null; a = accepted.poll()) drained.add(a);
+        return drained;
+    }
+
+    public long[] drainLatenciesMicros() {
+        long[] values = latenciesMicros.stream().mapToLong(Long::longValue).toArray();
+        latenciesMicros.clear();
+        return values;
+    }
+
+    public record Accepted(String messageId, String recipient) {}
+}
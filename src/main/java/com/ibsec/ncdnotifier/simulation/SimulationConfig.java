@@ -0,0 +1,51 @@
+package com.ibsec.ncdnotifier.simulation;
+
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.resilience.DependencyGuards;
+import com.ibsec.ncdnotifier.tracing.RunTracer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * "simulation" profile: stub gateways and a generated bond source in place of the real ones.
+ * The two DataSources point at in-memory H2 (see application-simulation.properties).
+ */
+@Configuration
+@Profile("simulation")
+public class SimulationConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService simulationTimer() {
+        return Executors.newScheduledThreadPool(2);
+    }
+
+    @Bean
+    public SimulatedNotificationChannel simulatedEmailChannel(
+            ScheduledExecutorService simulationTimer,
+            @Value("${ncd.simulation.email.latency-ms}") long latencyMs,
+            @Value("${ncd.simulation.email.jitter-ms}") long jitterMs,
+            @Value("${ncd.simulation.email.error-rate}") double errorRate) {
+        return new SimulatedNotificationChannel(NotificationType.EMAIL, latencyMs, jitterMs, errorRate, simulationTimer);
+    }
+
+    @Bean
+    public SimulatedNotificationChannel simulatedSmsChannel(
+            ScheduledExecutorService simulationTimer,
+            @Value("${ncd.simulation.sms.latency-ms}") long latencyMs,
+            @Value("${ncd.simulation.sms.jitter-ms}") long jitterMs,
+            @Value("${ncd.simulation.sms.error-rate}") double errorRate) {
+        return new SimulatedNotificationChannel(NotificationType.SMS, latencyMs, jitterMs, errorRate, simulationTimer);
+    }
+
+    @Bean
+    @Primary
+    public SimulatedBondFileService simulatedBondFileService(RunTracer tracer, DependencyGuards guards) {
+        return new SimulatedBondFileService(tracer, guards);
+    }
+}
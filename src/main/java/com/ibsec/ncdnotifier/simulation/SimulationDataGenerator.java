@@ -0,0 +1,140 @@
+package com.ibsec.ncdnotifier.simulation;
+
+import com.ibsec.ncdnotifier.service.BondFileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Builds a synthetic maturity day: N bonds (a share of them hitting a notify offset today),
+ * M clients with contacts, and holdings skewed towards a few hot ISINs. Holdings and contacts
+ * are written to the embedded stand-ins for sapphire.vw_final_holding_midoffice and focus.cust_mst.
+ */
+@Component
+@Profile("simulation")
+public class SimulationDataGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(SimulationDataGenerator.class);
+
+    private static final int BATCH = 5000;
+
+    private final JdbcTemplate primaryJdbcTemplate;
+    private final JdbcTemplate secondaryJdbcTemplate;
+
+    @Value("${ncd.simulation.bonds}")
+    private int bondCount;
+
+    @Value("${ncd.simulation.clients}")
+    private int clientCount;
+
+    @Value("${ncd.simulation.holdings-per-client}")
+    private int holdingsPerClient;
+
+    // > 1 concentrates holdings on the first ISINs; 1 is uniform
+    @Value("${ncd.simulation.hot-isin-skew}")
+    private double hotIsinSkew;
+
+    @Value("${ncd.simulation.due-today-ratio}")
+    private double dueTodayRatio;
+
+    @Value("${ncd.simulation.missing-contact-ratio}")
+    private double missingContactRatio;
+
+    @Value("${ncd.simulation.malformed-contact-ratio:0}")
+    private double malformedContactRatio;
+
+    @Value("${ncd.simulation.shared-contact-ratio:0}")
+    private double sharedContactRatio;
+
+    @Value("${ncd.simulation.seed}")
+    private long seed;
+
+    @Value("${ncd.notify-before-days}")
+    private String notifyBeforeDays;
+
+    @Value("${ncd.maturity-lookahead-days}")
+    private int lookaheadDays;
+
+    public SimulationDataGenerator(@Qualifier("primaryJdbcTemplate") JdbcTemplate primaryJdbcTemplate,
+                                   @Qualifier("secondaryJdbcTemplate") JdbcTemplate secondaryJdbcTemplate) {
+        this.primaryJdbcTemplate = primaryJdbcTemplate;
+        this.secondaryJdbcTemplate = secondaryJdbcTemplate;
+    }
+
+    public List<BondFileService.BondRecord> generate(LocalDate today) {
+        Random random = new Random(seed);
+        int[] offsets = Arrays.stream(notifyBeforeDays.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+
+        // bonds: index 0 is the hottest ISIN; due-today bonds are spread across the ranking
+        List<BondFileService.BondRecord> bonds = new ArrayList<>(bondCount);
+        for (int i = 0; i < bondCount; i++) {
+            String isin = String.format("INE%09d", i);
+            LocalDate maturity = random.nextDouble() < dueTodayRatio
+                    ? today.plusDays(offsets[random.nextInt(offsets.length)])
+                    : today.plusDays(random.nextInt(lookaheadDays * 2));
+            bonds.add(new BondFileService.BondRecord(isin, "SIM NCD " + i, maturity));
+        }
+
+        createSchema();
+
+        List<Object[]> holdings = new ArrayList<>(BATCH);
+        List<Object[]> contacts = new ArrayList<>(BATCH);
+        long holdingRows = 0;
+        for (int c = 0; c < clientCount; c++) {
+            String clientId = "S" + c;
+
+            boolean noEmail = random.nextDouble() < missingContactRatio;
+            boolean noMobile = random.nextDouble() < missingContactRatio;
+            // family accounts reuse the previous client's contact; malformed ones fail validation
+            int owner = c > 0 && random.nextDouble() < sharedContactRatio ? c - 1 : c;
+            boolean malformed = random.nextDouble() < malformedContactRatio;
+            contacts.add(new Object[]{"C" + clientId,
+                    noEmail ? null : malformed ? "client" + owner + ".sim.local" : "client" + owner + "@sim.local",
+                    noMobile ? null : malformed ? "90000-" + owner : String.valueOf(9_000_000_000L + owner)});
+
+            Set<Integer> held = new HashSet<>();
+            int n = 1 + random.nextInt(Math.max(1, holdingsPerClient * 2 - 1));
+            for (int h = 0; h < n; h++) {
+                held.add((int) (bondCount * Math.pow(random.nextDouble(), hotIsinSkew)));
+            }
+            for (int b : held) {
+                holdings.add(new Object[]{bonds.get(b).isin(), clientId});
+            }
+            holdingRows += held.size();
+
+            if (holdings.size() >= BATCH) flush(primaryJdbcTemplate,
+                    "INSERT INTO sapphire.vw_final_holding_midoffice (isin, client_id) VALUES (?, ?)", holdings);
+            if (contacts.size() >= BATCH) flush(secondaryJdbcTemplate,
+                    "INSERT INTO focus.cust_mst (party_cd, email_id, mobile_no) VALUES (?, ?, ?)", contacts);
+        }
+        flush(primaryJdbcTemplate, "INSERT INTO sapphire.vw_final_holding_midoffice (isin, client_id) VALUES (?, ?)", holdings);
+        flush(secondaryJdbcTemplate, "INSERT INTO focus.cust_mst (party_cd, email_id, mobile_no) VALUES (?, ?, ?)", contacts);
+
+        log.info("🧪 Simulation data: {} bonds, {} clients, {} holdings", bondCount, clientCount, holdingRows);
+        return bonds;
+    }
+
+    private void createSchema() {
+        primaryJdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS sapphire");
+        primaryJdbcTemplate.execute("DROP TABLE IF EXISTS sapphire.vw_final_holding_midoffice");
+        primaryJdbcTemplate.execute("CREATE TABLE sapphire.vw_final_holding_midoffice (isin VARCHAR(12), client_id VARCHAR(20))");
+        primaryJdbcTemplate.execute("CREATE INDEX idx_sim_holding_isin ON sapphire.vw_final_holding_midoffice (isin)");
+
+        secondaryJdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS focus");
+        secondaryJdbcTemplate.execute("DROP TABLE IF EXISTS focus.cust_mst");
+        secondaryJdbcTemplate.execute("CREATE TABLE focus.cust_mst (party_cd VARCHAR(20) PRIMARY KEY, email_id VARCHAR(100), mobile_no VARCHAR(20))");
+    }
+
+    private void flush(JdbcTemplate jdbc, String sql, List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        jdbc.batchUpdate(sql, rows);
+        rows.clear();
+    }
+}
@@ -0,0 +1,167 @@
+package com.ibsec.ncdnotifier.simulation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.repository.HoldingsDao;
+import com.ibsec.ncdnotifier.service.ContactIndexService;
+import com.ibsec.ncdnotifier.service.DeliveryReportBuffer;
+import com.ibsec.ncdnotifier.service.NcdNotificationService;
+import com.ibsec.ncdnotifier.service.RunStats;
+import com.ibsec.ncdnotifier.tracing.StartupTimingReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the synthetic day, runs processMaturingBonds once against the stand-ins and writes a
+ * throughput / latency report (log + JSON file).
+ */
+@Component
+@Profile("simulation")
+public class SimulationRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SimulationRunner.class);
+
+    private final SimulationDataGenerator generator;
+    private final SimulatedBondFileService bondSource;
+    private final ContactIndexService contactIndex;
+    private final NcdNotificationService ncdNotificationService;
+    private final SimulatedNotificationChannel emailChannel;
+    private final SimulatedNotificationChannel smsChannel;
+    private final StartupTimingReport startupTiming;
+    private final DeliveryReportGenerator deliveryReports;
+    private final DeliveryReportBuffer deliveryReportBuffer;
+    private final HoldingsDao holdingsDao;
+    private final ApplicationContext context;
+
+    @Value("${ncd.simulation.use-contact-index}")
+    private boolean useContactIndex;
+
+    @Value("${ncd.simulation.report-file}")
+    private String reportFile;
+
+    @Value("${ncd.simulation.exit-on-complete}")
+    private boolean exitOnComplete;
+
+    @Value("${ncd.simulation.dlr.enabled:true}")
+    private boolean replayDeliveryReports;
+
+    public SimulationRunner(SimulationDataGenerator generator,
+                            SimulatedBondFileService bondSource,
+                            ContactIndexService contactIndex,
+                            NcdNotificationService ncdNotificationService,
+                            @Qualifier("simulatedEmailChannel") SimulatedNotificationChannel emailChannel,
+                            @Qualifier("simulatedSmsChannel") SimulatedNotificationChannel smsChannel,
+                            StartupTimingReport startupTiming,
+                            DeliveryReportGenerator deliveryReports,
+                            DeliveryReportBuffer deliveryReportBuffer,
+                            HoldingsDao holdingsDao,
+                            ApplicationContext context) {
+        this.generator = generator;
+        this.bondSource = bondSource;
+        this.contactIndex = contactIndex;
+        this.ncdNotificationService = ncdNotificationService;
+        this.emailChannel = emailChannel;
+        this.smsChannel = smsChannel;
+        this.startupTiming = startupTiming;
+        this.deliveryReports = deliveryReports;
+        this.deliveryReportBuffer = deliveryReportBuffer;
+        this.holdingsDao = holdingsDao;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        bondSource.setBonds(generator.generate(LocalDate.now()));
+        if (useContactIndex) {
+            contactIndex.rebuild();
+        }
+
+        RunStats.RunSummary summary = ncdNotificationService.processMaturingBonds();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("run", summary);
+        report.put("messagesPerSecond", summary.durationMs() == 0 ? 0
+                : Math.round(summary.notificationsSent() * 1000.0 / summary.durationMs()));
+        report.put("email", channelReport(emailChannel));
+        report.put("sms", channelReport(smsChannel));
+        report.put("holdingsQueries", holdingsDao.timings());
+        report.put("startup", startupReport());
+        if (replayDeliveryReports) {
+            report.put("dlr", deliveryReportReport());
+        }
+
+        String json = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(report);
+        Path out = Path.of(reportFile);
+        if (out.getParent() != null) Files.createDirectories(out.getParent());
+        Files.writeString(out, json);
+        log.info("🧪 Simulation report ({}):\n{}", out.toAbsolutePath(), json);
+
+        if (exitOnComplete) {
+            System.exit(SpringApplication.exit(context, () -> summary.isinsFailed() == 0 ? 0 : 1));
+        }
+    }
+
+    private Map<String, Object> startupReport() {
+        long firstSent = firstNonZeroMin(emailChannel.getFirstSentAtMillis(), smsChannel.getFirstSentAtMillis());
+        StartupTimingReport.StartupReport startup = startupTiming.getReport();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("jvmToStartedMs", startup == null ? -1 : startup.jvmToStartedMs());
+        m.put("contextMs", startup == null ? -1 : startup.contextMs());
+        // JVM start to the first message accepted by a gateway stand-in
+        m.put("timeToFirstNotificationMs", firstSent == 0 ? -1
+                : firstSent - StartupTimingReport.jvmStartedAt().toEpochMilli());
+        m.put("slowestSteps", startup == null ? List.of() : startup.slowestSteps());
+        return m;
+    }
+
+    private Map<String, Object> deliveryReportReport() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("email", deliveryReports.replay(NotificationType.EMAIL, emailChannel.drainAccepted()));
+        m.put("sms", deliveryReports.replay(NotificationType.SMS, smsChannel.drainAccepted()));
+        m.put("buffer", deliveryReportBuffer.stats());
+        m.put("logStatus", deliveryReports.logStatusCounts());
+        return m;
+    }
+
+    private static long firstNonZeroMin(long a, long b) {
+        if (a == 0) return b;
+        if (b == 0) return a;
+        return Math.min(a, b);
+    }
+
+    private Map<String, Object> channelReport(SimulatedNotificationChannel channel) {
+        long[] latencies = channel.drainLatenciesMicros();
+        Arrays.sort(latencies);
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("sent", channel.getSent());
+        m.put("failed", channel.getFailed());
+        m.put("latencyP50Ms", percentileMs(latencies, 0.50));
+        m.put("latencyP95Ms", percentileMs(latencies, 0.95));
+        m.put("latencyP99Ms", percentileMs(latencies, 0.99));
+        m.put("latencyMaxMs", latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1000.0);
+        return m;
+    }
+
+    private double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int idx = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, idx)] / 1000.0;
+    }
+}
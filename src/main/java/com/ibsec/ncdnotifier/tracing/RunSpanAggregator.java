@@ -0,0 +1,106 @@
+package com.ibsec.ncdnotifier.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory span exporter. Spans of runs that were begun are folded into per-name latency
+ * totals plus the N slowest spans; everything else is dropped. Nothing leaves the process.
+ */
+public class RunSpanAggregator implements SpanExporter {
+
+    private final int slowestKept;
+    private final Map<String, RunTrace> active = new ConcurrentHashMap<>();
+
+    public RunSpanAggregator(int slowestKept) {
+        this.slowestKept = slowestKept;
+    }
+
+    void begin(String traceId) {
+        active.put(traceId, new RunTrace(slowestKept));
+    }
+
+    RunTraceReport finish(String traceId) {
+        RunTrace trace = active.remove(traceId);
+        return trace == null ? new RunTraceReport(traceId, List.of(), List.of()) : trace.toReport(traceId);
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        for (SpanData span : spans) {
+            RunTrace trace = active.get(span.getTraceId());
+            if (trace != null) {
+                trace.add(span);
+            }
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        active.clear();
+        return CompletableResultCode.ofSuccess();
+    }
+
+    private static final class RunTrace {
+        private final int slowestKept;
+        private final Map<String, long[]> stages = new LinkedHashMap<>(); // name -> [count, totalNanos, maxNanos]
+        private final PriorityQueue<SpanData> slowest = new PriorityQueue<>(Comparator.comparingLong(RunTrace::nanos));
+
+        RunTrace(int slowestKept) {
+            this.slowestKept = slowestKept;
+        }
+
+        synchronized void add(SpanData span) {
+            long nanos = nanos(span);
+            long[] stage = stages.computeIfAbsent(span.getName(), k -> new long[3]);
+            stage[0]++;
+            stage[1] += nanos;
+            stage[2] = Math.max(stage[2], nanos);
+
+            if (slowest.size() < slowestKept) {
+                slowest.add(span);
+            } else if (slowestKept > 0 && nanos > nanos(slowest.peek())) {
+                slowest.poll();
+                slowest.add(span);
+            }
+        }
+
+        synchronized RunTraceReport toReport(String traceId) {
+            List<RunTraceReport.StageLatency> stageList = new ArrayList<>(stages.size());
+            stages.forEach((name, s) -> stageList.add(new RunTraceReport.StageLatency(
+                    name, s[0], TimeUnit.NANOSECONDS.toMillis(s[1]),
+                    s[0] == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(s[1] / s[0]) / 1000.0,
+                    TimeUnit.NANOSECONDS.toMillis(s[2]))));
+            stageList.sort(Comparator.comparingLong(RunTraceReport.StageLatency::totalMs).reversed());
+
+            List<SpanData> spans = new ArrayList<>(slowest);
+            spans.sort(Comparator.comparingLong(RunTrace::nanos).reversed());
+            List<RunTraceReport.SlowSpan> slowSpans = new ArrayList<>(spans.size());
+            for (SpanData span : spans) {
+                Map<String, String> attributes = new LinkedHashMap<>();
+                span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+                slowSpans.add(new RunTraceReport.SlowSpan(span.getName(), span.getSpanId(), span.getParentSpanId(),
+                        Instant.ofEpochSecond(0, span.getStartEpochNanos()).toString(),
+                        TimeUnit.NANOSECONDS.toMicros(nanos(span)) / 1000.0,
+                        span.getStatus().getStatusCode().name(), attributes));
+            }
+            return new RunTraceReport(traceId, stageList, slowSpans);
+        }
+
+        private static long nanos(SpanData span) {
+            return span.getEndEpochNanos() - span.getStartEpochNanos();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.ibsec.ncdnotifier.tracing;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latency breakdown of one run: totals per span name (slowest stage first) and the slowest spans.
+ */
+public record RunTraceReport(String traceId, List<StageLatency> stages, List<SlowSpan> slowest) {
+
+    public record StageLatency(String name, long count, long totalMs, double avgMs, long maxMs) {}
+
+    public record SlowSpan(String name, String spanId, String parentSpanId, String startedAt,
+                           double durationMs, String status, Map<String, String> attributes) {}
+}
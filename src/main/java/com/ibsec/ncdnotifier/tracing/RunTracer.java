@@ -0,0 +1,133 @@
+package com.ibsec.ncdnotifier.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Span helpers for the notification pipeline. A run gets a root span (and so its own trace ID);
+ * stages inside it open child spans with {@link #trace}. When the run finishes its latency
+ * breakdown is returned and the slowest spans are written to ncd.tracing.dump-dir, which keeps
+ * the newest ncd.tracing.dump-keep files.
+ */
+@Component
+public class RunTracer {
+
+    private static final Logger log = LoggerFactory.getLogger(RunTracer.class);
+
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Tracer tracer;
+    private final RunSpanAggregator aggregator;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Value("${ncd.tracing.dump-dir:logs/traces}")
+    private String dumpDir;
+
+    // trace files kept in dump-dir, oldest deleted first; 0 = keep all
+    @Value("${ncd.tracing.dump-keep:30}")
+    private int dumpKeep;
+
+    public RunTracer(Tracer tracer, RunSpanAggregator aggregator) {
+        this.tracer = tracer;
+        this.aggregator = aggregator;
+    }
+
+    @FunctionalInterface
+    public interface TracedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * Starts a run's root span. Its spans are aggregated until {@link #finishRun}.
+     */
+    public Span startRun(String name) {
+        Span root = tracer.spanBuilder(name).setNoParent().startSpan();
+        aggregator.begin(root.getSpanContext().getTraceId());
+        return root;
+    }
+
+    public RunTraceReport finishRun(Span root) {
+        root.end();
+        RunTraceReport report = aggregator.finish(root.getSpanContext().getTraceId());
+        dump(report);
+        return report;
+    }
+
+    /**
+     * Runs the call in a child span of the current one; failures are recorded on the span and rethrown.
+     */
+    public <T, E extends Exception> T trace(String name, TracedCall<T, E> call) throws E {
+        Span span = tracer.spanBuilder(name).startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            return call.call();
+        } catch (Exception e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Child span for work that completes elsewhere (async sends); the caller ends it.
+     */
+    public Span startSpan(String name) {
+        return tracer.spanBuilder(name).startSpan();
+    }
+
+    /**
+     * Carries the current span into a task run on another thread.
+     */
+    public Runnable wrap(Runnable task) {
+        return Context.current().wrap(task);
+    }
+
+    private void dump(RunTraceReport report) {
+        if (dumpDir == null || dumpDir.isBlank()) {
+            return;
+        }
+        try {
+            Path dir = Files.createDirectories(Path.of(dumpDir));
+            Path file = dir.resolve("trace-" + LocalDateTime.now().format(FILE_STAMP) + "-" + report.traceId() + ".json");
+            mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+            log.info("🔎 Trace {} written to {}", report.traceId(), file);
+            prune(dir);
+        } catch (Exception e) {
+            log.warn("Could not write trace {}: {}", report.traceId(), e.getMessage());
+        }
+    }
+
+    // names start with the timestamp, so name order is age order
+    private void prune(Path dir) throws IOException {
+        if (dumpKeep <= 0) {
+            return;
+        }
+        List<Path> traces;
+        try (Stream<Path> files = Files.list(dir)) {
+            traces = files.filter(p -> p.getFileName().toString().matches("trace-.*\\.json"))
+                    .sorted(Comparator.comparing(Path::getFileName))
+                    .toList();
+        }
+        for (int i = 0; i < traces.size() - dumpKeep; i++) {
+            Files.deleteIfExists(traces.get(i));
+        }
+    }
+}
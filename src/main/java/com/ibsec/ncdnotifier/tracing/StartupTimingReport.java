@@ -0,0 +1,83 @@
+package com.ibsec.ncdnotifier.tracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+/**
+ * Startup timing: JVM start → context started, and the slowest ApplicationStartup steps
+ * (bean instantiations, configuration-class parsing, ...) recorded by the
+ * BufferingApplicationStartup main() installs for the fast-start profile (none otherwise).
+ * Logged once the context has started, before the runners, and kept for the simulation report.
+ */
+@Component
+public class StartupTimingReport implements ApplicationListener<ApplicationStartedEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTimingReport.class);
+
+    @Value("${ncd.startup.report-steps:10}")
+    private int reportSteps;
+
+    private volatile StartupReport report;
+
+    @Override
+    public void onApplicationEvent(ApplicationStartedEvent event) {
+        long jvmToStartedMs = Duration.between(jvmStartedAt(), Instant.now()).toMillis();
+        long contextMs = event.getTimeTaken() == null ? -1 : event.getTimeTaken().toMillis();
+
+        List<StartupStepTiming> slowest = List.of();
+        if (event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup buffering) {
+            StartupTimeline timeline = buffering.getBufferedTimeline();
+            slowest = timeline.getEvents().stream()
+                    .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                    .limit(Math.max(0, reportSteps))
+                    .map(e -> new StartupStepTiming(e.getStartupStep().getName(), describe(e.getStartupStep()),
+                            e.getDuration().toMillis()))
+                    .toList();
+        }
+        report = new StartupReport(jvmToStartedMs, contextMs, slowest);
+
+        StringBuilder steps = new StringBuilder();
+        for (StartupStepTiming step : slowest) {
+            steps.append(String.format("%n  %6d ms  %s %s", step.durationMs(), step.name(), step.detail()));
+        }
+        log.info("🚀 Started in {} ms since JVM start ({} ms in SpringApplication.run); slowest steps:{}",
+                jvmToStartedMs, contextMs, steps);
+    }
+
+    /**
+     * Timings of this startup, or null before the context has started.
+     */
+    public StartupReport getReport() {
+        return report;
+    }
+
+    public static Instant jvmStartedAt() {
+        return Instant.ofEpochMilli(ManagementFactory.getRuntimeMXBean().getStartTime());
+    }
+
+    private static String describe(StartupStep step) {
+        // beanName for instantiations, beanFactory / postProcessor / ... for the rest
+        return StreamSupport.stream(step.getTags().spliterator(), false)
+                .map(tag -> tag.getKey() + "=" + tag.getValue())
+                .reduce((a, b) -> a + ", " + b)
+                .orElse("");
+    }
+
+    public record StartupReport(long jvmToStartedMs, long contextMs, List<StartupStepTiming> slowestSteps) {}
+
+    public record StartupStepTiming(String name, String detail, long durationMs) {}
+}
@@ -0,0 +1,60 @@
+package com.ibsec.ncdnotifier.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.service.DeliveryReportBuffer;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DeliveryReportControllerTest {
+
+    private final DeliveryReportBuffer buffer = mock(DeliveryReportBuffer.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void callbacksWithoutTheSecretAreRefused() throws Exception {
+        DeliveryReportController controller = new DeliveryReportController(buffer, objectMapper, "s3cret");
+
+        assertEquals(HttpStatus.UNAUTHORIZED, post(controller, new MockHttpServletRequest()));
+        MockHttpServletRequest wrong = new MockHttpServletRequest();
+        wrong.addHeader(DeliveryReportController.SECRET_HEADER, "s3cre");
+        assertEquals(HttpStatus.UNAUTHORIZED, post(controller, wrong));
+        verify(buffer, never()).submit(any(), anyList());
+    }
+
+    @Test
+    void secretIsTakenFromTheHeaderOrTheQuery() throws Exception {
+        when(buffer.submit(eq(NotificationType.SMS), anyList())).thenReturn(1);
+        DeliveryReportController controller = new DeliveryReportController(buffer, objectMapper, "s3cret");
+
+        MockHttpServletRequest header = new MockHttpServletRequest();
+        header.addHeader(DeliveryReportController.SECRET_HEADER, "s3cret");
+        assertEquals(HttpStatus.ACCEPTED, post(controller, header));
+
+        MockHttpServletRequest query = new MockHttpServletRequest();
+        query.setParameter("secret", "s3cret");
+        assertEquals(HttpStatus.ACCEPTED,
+                controller.receive("sms", "sms-1", "DELIVRD", null, null, query).getStatusCode());
+    }
+
+    @Test
+    void withoutAConfiguredSecretEverythingIsRefused() throws Exception {
+        DeliveryReportController controller = new DeliveryReportController(buffer, objectMapper, "");
+
+        MockHttpServletRequest empty = new MockHttpServletRequest();
+        empty.addHeader(DeliveryReportController.SECRET_HEADER, "");
+        assertEquals(HttpStatus.UNAUTHORIZED, post(controller, empty));
+    }
+
+    private HttpStatus post(DeliveryReportController controller, MockHttpServletRequest request) throws Exception {
+        return (HttpStatus) controller.receive("sms",
+                objectMapper.readTree("{\"msgid\":\"sms-1\",\"status\":\"DELIVRD\"}"), request).getStatusCode();
+    }
+}
@@ -0,0 +1,150 @@
+package com.ibsec.ncdnotifier.notification.service;
+
+import com.ibsec.ncdnotifier.config.ResilienceProperties;
+import com.ibsec.ncdnotifier.config.SenderProfilesProperties;
+import com.ibsec.ncdnotifier.notification.request.NotificationRequest;
+import com.ibsec.ncdnotifier.notification.request.NotificationResult;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.resilience.DependencyGuards;
+import com.ibsec.ncdnotifier.tracing.RunSpanAggregator;
+import com.ibsec.ncdnotifier.tracing.RunTracer;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationManagerTest {
+
+    // completes the failing channel's sends, standing in for an HTTP client's I/O thread
+    private final ScheduledExecutorService gatewayIo = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "gateway-io");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @AfterEach
+    void stop() {
+        gatewayIo.shutdownNow();
+    }
+
+    @Test
+    void failsOverToTheNextProfileOffTheGatewayThread() {
+        GatewayChannel failing = new GatewayChannel(false, 20);
+        GatewayChannel healthy = new GatewayChannel(true, 0);
+
+        NotificationResult result = manager(1, failing, healthy).sendNotification(sms());
+
+        assertTrue(result.isSuccess());
+        assertEquals(1, failing.calls.size());
+        assertEquals(List.of("notify-failover"), healthy.calls);
+    }
+
+    @Test
+    void timedOutSendIsNotFailedOver() throws InterruptedException {
+        GatewayChannel failing = new GatewayChannel(false, 20);
+        GatewayChannel slow = new GatewayChannel(false, 300);
+        GatewayChannel healthy = new GatewayChannel(true, 0);
+
+        List<NotificationResult> results = manager(2, failing, slow, healthy)
+                .sendAll(List.of(sms()), Duration.ofMillis(100)).join();
+
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(0).getMessage().startsWith("Timed out"));
+        Thread.sleep(500);   // the failover send fails after the timeout
+        assertEquals(1, failing.calls.size());
+        assertEquals(1, slow.calls.size());
+        assertTrue(healthy.calls.isEmpty(), "a settled send must not be sent again");
+    }
+
+    @Test
+    void bulkEmailSliceIsBoundByTheTimeout() {
+        NotificationChannel stuckSmtp = new NotificationChannel() {
+            @Override
+            public NotificationType type() {
+                return NotificationType.EMAIL;
+            }
+
+            @Override
+            public NotificationResult send(NotificationRequest request) {
+                return new NotificationResult(true, "sent");
+            }
+
+            @Override
+            public List<NotificationResult> sendBulk(List<NotificationRequest> requests) {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return requests.stream().map(r -> new NotificationResult(true, "sent")).toList();
+            }
+        };
+        NotificationRequest email = new NotificationRequest("one@example.com", "Your NCD matures in 3 days",
+                "NCD maturity", NotificationType.EMAIL, null, null);
+
+        long started = System.nanoTime();
+        List<NotificationResult> results = manager(1, stuckSmtp, new GatewayChannel(true, 0))
+                .sendBulk(List.of(email, sms()), Duration.ofMillis(200));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1500);
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(0).getMessage().startsWith("Timed out"));
+        assertTrue(results.get(1).isSuccess());
+    }
+
+    private static NotificationManager manager(int failoverAttempts, NotificationChannel... channels) {
+        SenderProfilesProperties properties = new SenderProfilesProperties();
+        properties.setFailoverAttempts(failoverAttempts);
+        SenderRouter router = new SenderRouter(List.of(channels), properties, "IBSECL");
+        RunTracer tracer = new RunTracer(OpenTelemetry.noop().getTracer("test"), new RunSpanAggregator(10));
+        return new NotificationManager(router, new DependencyGuards(new ResilienceProperties()), tracer, 2, 2);
+    }
+
+    private static NotificationRequest sms() {
+        return new NotificationRequest("+919800000001", "Your NCD matures in 3 days", null,
+                NotificationType.SMS, null, null);
+    }
+
+    private class GatewayChannel implements NotificationChannel {
+
+        final List<String> calls = new CopyOnWriteArrayList<>();
+        private final boolean succeeds;
+        private final long latencyMs;
+
+        GatewayChannel(boolean succeeds, long latencyMs) {
+            this.succeeds = succeeds;
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        public NotificationType type() {
+            return NotificationType.SMS;
+        }
+
+        @Override
+        public NotificationResult send(NotificationRequest request) {
+            return sendAsync(request).join();
+        }
+
+        @Override
+        public CompletableFuture<NotificationResult> sendAsync(NotificationRequest request) {
+            calls.add(Thread.currentThread().getName());
+            NotificationResult result = new NotificationResult(succeeds, succeeds ? "sent" : "gateway error");
+            if (latencyMs == 0) {
+                return CompletableFuture.completedFuture(result);
+            }
+            CompletableFuture<NotificationResult> future = new CompletableFuture<>();
+            gatewayIo.schedule(() -> future.complete(result), latencyMs, TimeUnit.MILLISECONDS);
+            return future;
+        }
+    }
+}
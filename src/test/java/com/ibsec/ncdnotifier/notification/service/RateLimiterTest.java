@@ -0,0 +1,61 @@
+package com.ibsec.ncdnotifier.notification.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    @Test
+    void zeroRateIsUnlimited() {
+        RateLimiter limiter = new RateLimiter(0);
+
+        assertTrue(limiter.isUnlimited());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.tryAcquire(1000));
+        }
+        long started = System.nanoTime();
+        limiter.acquire(1_000_000);
+        assertTrue(millisSince(started) < 50);
+    }
+
+    @Test
+    void bucketHoldsOneSecondOfPermits() {
+        RateLimiter limiter = new RateLimiter(10);
+
+        assertFalse(limiter.tryAcquire(11));
+        assertTrue(limiter.tryAcquire(10));
+        assertFalse(limiter.tryAcquire(1));
+    }
+
+    @Test
+    void bucketRefillsAtTheRate() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(20);
+        assertTrue(limiter.tryAcquire(20));
+
+        Thread.sleep(200);
+
+        assertTrue(limiter.tryAcquire(3));   // ~4 refilled
+        assertFalse(limiter.tryAcquire(5));
+    }
+
+    @Test
+    void acquireBeyondTheBucketWaitsOutTheDeficit() {
+        RateLimiter limiter = new RateLimiter(100);
+
+        long started = System.nanoTime();
+        limiter.acquire(100);
+        assertTrue(millisSince(started) < 50, "a full bucket is taken at once");
+
+        limiter.acquire(50);
+        long waited = millisSince(started);
+        assertTrue(waited >= 400 && waited < 1500, "50 permits at 100/s take ~500 ms, waited " + waited);
+
+        // the deficit was paid by waiting, not carried over as free permits
+        assertFalse(limiter.tryAcquire(10));
+    }
+
+    private static long millisSince(long nanos) {
+        return (System.nanoTime() - nanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,139 @@
+package com.ibsec.ncdnotifier.notification.service;
+
+import com.ibsec.ncdnotifier.config.SenderProfilesProperties;
+import com.ibsec.ncdnotifier.notification.request.NotificationRequest;
+import com.ibsec.ncdnotifier.notification.request.NotificationResult;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SenderRouterTest {
+
+    @Test
+    void defaultProfilesPerChannelBean() {
+        SenderRouter router = router(0, List.of(), channel(NotificationType.EMAIL), channel(NotificationType.SMS));
+
+        assertEquals(List.of("default-email"), names(router.getProfiles(NotificationType.EMAIL)));
+        SenderProfile sms = router.getProfiles(NotificationType.SMS).get(0);
+        assertEquals("default-sms", sms.getName());
+        assertEquals("IBSECL", sms.getSenderId());
+        assertNull(router.getProfiles(NotificationType.EMAIL).get(0).getSenderId());
+    }
+
+    @Test
+    void roundRobinOverTheProfilesOfTheType() {
+        SenderRouter router = router(0, List.of(), channel(NotificationType.SMS), channel(NotificationType.SMS),
+                channel(NotificationType.EMAIL));
+        List<SenderProfile> sms = router.getProfiles(NotificationType.SMS);
+
+        List<SenderProfile> picked = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            picked.add(router.next(NotificationType.SMS, null, Set.of(), 1));
+        }
+        assertEquals(List.of(sms.get(0), sms.get(1), sms.get(0), sms.get(1)), picked);
+    }
+
+    @Test
+    void excludedProfilesAreSkippedUntilNoneAreLeft() {
+        SenderRouter router = router(0, List.of(), channel(NotificationType.SMS), channel(NotificationType.SMS));
+        Set<SenderProfile> tried = new HashSet<>();
+
+        SenderProfile first = router.next(NotificationType.SMS, null, tried, 1);
+        tried.add(first);
+        SenderProfile second = router.next(NotificationType.SMS, null, tried, 1);
+        tried.add(second);
+
+        assertNotSame(first, second);
+        assertNull(router.next(NotificationType.SMS, null, tried, 1));
+        assertNull(router.next(NotificationType.EMAIL, null, Set.of(), 1), "no profile of the type");
+    }
+
+    @Test
+    void senderGroupRestrictsCandidatesWhenItHasProfiles() {
+        SenderRouter router = router(0, List.of(smsProfile("alerts-sms", "alerts")), channel(NotificationType.SMS));
+
+        assertEquals(List.of("alerts-sms"), names(router.candidates(NotificationType.SMS, "alerts")));
+        assertEquals(List.of("default-sms", "alerts-sms"), names(router.candidates(NotificationType.SMS, "unknown")));
+        assertEquals(List.of("default-sms", "alerts-sms"), names(router.candidates(NotificationType.SMS, " ")));
+        for (int i = 0; i < 3; i++) {
+            assertEquals("alerts-sms", router.next(NotificationType.SMS, "alerts", Set.of(), 1).getName());
+        }
+        router.shutdown();
+    }
+
+    @Test
+    void prefersAProfileWithFreePermits() {
+        SenderRouter router = router(2, List.of(), channel(NotificationType.SMS), channel(NotificationType.SMS));
+        List<SenderProfile> sms = router.getProfiles(NotificationType.SMS);
+        assertTrue(sms.get(0).getRateLimiter().tryAcquire(2));   // first profile saturated
+
+        for (int i = 0; i < 2; i++) {
+            assertSame(sms.get(1), router.next(NotificationType.SMS, null, Set.of(), 1));
+        }
+    }
+
+    @Test
+    void waitsOnTheRoundRobinChoiceWhenAllAreSaturated() {
+        SenderRouter router = router(10, List.of(), channel(NotificationType.SMS));
+        assertTrue(router.getProfiles(NotificationType.SMS).get(0).getRateLimiter().tryAcquire(10));
+
+        long started = System.nanoTime();
+        assertNotNull(router.next(NotificationType.SMS, null, Set.of(), 3));
+        long waited = (System.nanoTime() - started) / 1_000_000;
+        assertTrue(waited >= 200 && waited < 1500, "3 permits at 10/s take ~300 ms, waited " + waited);
+    }
+
+    @Test
+    void recordsSentAndFailedPerProfile() {
+        SenderRouter router = router(0, List.of(), channel(NotificationType.EMAIL));
+        SenderProfile profile = router.getProfiles(NotificationType.EMAIL).get(0);
+
+        router.record(profile, new NotificationResult(true, "ok"));
+        router.record(profile, new NotificationResult(false, "rejected"));
+        router.record(profile, null);
+
+        assertEquals(1, profile.getSent());
+        assertEquals(2, profile.getFailed());
+    }
+
+    private static SenderRouter router(double defaultRate, List<SenderProfilesProperties.Profile> profiles,
+                                       NotificationChannel... channels) {
+        SenderProfilesProperties properties = new SenderProfilesProperties();
+        properties.setDefaultRatePerSecond(defaultRate);
+        properties.setProfiles(profiles);
+        return new SenderRouter(List.of(channels), properties, "IBSECL");
+    }
+
+    private static SenderProfilesProperties.Profile smsProfile(String name, String group) {
+        SenderProfilesProperties.Profile profile = new SenderProfilesProperties.Profile();
+        profile.setName(name);
+        profile.setType(NotificationType.SMS);
+        profile.setGroup(group);
+        profile.setBaseUrl("http://localhost:1/sms");
+        return profile;
+    }
+
+    private static List<String> names(List<SenderProfile> profiles) {
+        return profiles.stream().map(SenderProfile::getName).toList();
+    }
+
+    static NotificationChannel channel(NotificationType type) {
+        return new NotificationChannel() {
+            @Override
+            public NotificationType type() {
+                return type;
+            }
+
+            @Override
+            public NotificationResult send(NotificationRequest request) {
+                return new NotificationResult(true, "sent");
+            }
+        };
+    }
+}
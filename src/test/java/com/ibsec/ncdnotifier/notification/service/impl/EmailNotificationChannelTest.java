@@ -0,0 +1,91 @@
+package com.ibsec.ncdnotifier.notification.service.impl;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.ibsec.ncdnotifier.notification.request.NotificationRequest;
+import com.ibsec.ncdnotifier.notification.request.NotificationResult;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailNotificationChannelTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withUser("notifier", "secret"));
+
+    private EmailNotificationChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        channel = new EmailNotificationChannel();
+        ReflectionTestUtils.setField(channel, "netcoreUrl", "localhost");
+        ReflectionTestUtils.setField(channel, "netcorePort", String.valueOf(ServerSetupTest.SMTP.getPort()));
+        ReflectionTestUtils.setField(channel, "netcoreUserId", "notifier");
+        ReflectionTestUtils.setField(channel, "netcorePassword", "secret");
+        ReflectionTestUtils.setField(channel, "netcoreFromMailId", "alerts@example.com");
+        ReflectionTestUtils.setField(channel, "asyncConnections", 2);
+        ReflectionTestUtils.setField(channel, "bulkMaxRecipients", 3);
+    }
+
+    @Test
+    void bulkSendsOneBodyPerDistinctTextAndIsolatesBadRecipients() throws Exception {
+        List<NotificationRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            requests.add(email("client" + i + "@example.com", "NCD X matures in 7 days"));
+        }
+        requests.add(email("not an address", "NCD X matures in 7 days"));
+        requests.add(email("other@example.com", "NCD Y matures in 3 days"));
+
+        List<NotificationResult> results = channel.sendBulk(requests);
+
+        assertEquals(requests.size(), results.size());
+        for (int i = 0; i < 7; i++) {
+            assertTrue(results.get(i).isSuccess(), "recipient " + i);
+        }
+        assertFalse(results.get(7).isSuccess());
+        assertTrue(results.get(8).isSuccess());
+
+        // one delivery per valid recipient, none of them exposing the other addresses
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(8, received.length);
+        for (MimeMessage m : received) {
+            assertEquals("undisclosed-recipients:;", m.getHeader("To", null));
+        }
+        int personalised = 0;
+        for (MimeMessage m : received) {
+            if (((String) m.getContent()).contains("NCD Y")) personalised++;
+        }
+        assertEquals(1, personalised);
+    }
+
+    @Test
+    void sendAsyncDeliversOverPooledConnections() throws Exception {
+        List<NotificationResult> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(channel.sendAsync(email("async" + i + "@example.com", "hello " + i)).get());
+        }
+
+        assertTrue(results.stream().allMatch(NotificationResult::isSuccess));
+        assertEquals(5, greenMail.getReceivedMessages().length);
+    }
+
+    private NotificationRequest email(String to, String body) {
+        return NotificationRequest.builder()
+                .recipient(to)
+                .subject("NCD Maturity Alert")
+                .message(body)
+                .type(NotificationType.EMAIL)
+                .contentType("text/plain")
+                .build();
+    }
+}
@@ -0,0 +1,178 @@
+package com.ibsec.ncdnotifier.perf;
+
+import com.ibsec.ncdnotifier.service.BondFileService;
+import com.ibsec.ncdnotifier.service.ContactIndexService;
+import com.ibsec.ncdnotifier.service.NcdNotificationService;
+import com.ibsec.ncdnotifier.service.RunStats;
+import com.ibsec.ncdnotifier.simulation.SimulationDataGenerator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Boots the application against in-memory databases and local NSE / SMTP / SMS stand-ins, seeds a
+ * full-size maturity day and times one processMaturingBonds run end to end (download, calendar,
+ * holdings, contacts, dispatch, log). The build fails when wall time, messages per second or peak
+ * heap is worse than perf-baselines.properties by more than its tolerance.
+ *
+ * Tagged "perf" and only run with the perf Maven profile: mvn -Pperf test. The measured values are
+ * written to perf.result-file in the baselines format, so accepting a new baseline is a copy.
+ */
+@Tag("perf")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("perf")
+class EndToEndPerformanceTest {
+
+    private static final LocalStandIns standIns = startStandIns();
+
+    @Autowired
+    private NcdNotificationService ncdNotificationService;
+
+    @Autowired
+    private ContactIndexService contactIndex;
+
+    @Autowired
+    @Qualifier("primaryJdbcTemplate")
+    private JdbcTemplate primaryJdbcTemplate;
+
+    @Autowired
+    @Qualifier("secondaryJdbcTemplate")
+    private JdbcTemplate secondaryJdbcTemplate;
+
+    @Autowired
+    private Environment env;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @DynamicPropertySource
+    static void standInEndpoints(DynamicPropertyRegistry registry) {
+        registry.add("ncd.source.urls", standIns::nseUrl);
+        registry.add("netcore.url", () -> "localhost");
+        registry.add("netcore.port", standIns::smtpPort);
+        registry.add("services.sms.base-url", standIns::smsUrl);
+    }
+
+    @AfterAll
+    static void stopStandIns() throws IOException {
+        standIns.close();
+    }
+
+    @Test
+    void maturityRunStaysWithinBaselines() throws Exception {
+        List<BondFileService.BondRecord> bonds = seeder().generate(LocalDate.now());
+        standIns.publishBonds(bonds);
+        contactIndex.rebuild();
+
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long startedAt = System.nanoTime();
+        RunStats.RunSummary summary = ncdNotificationService.processMaturingBonds();
+        long wallTimeMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        long peakHeapMb = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum() >> 20;
+        long messagesPerSecond = Math.round(summary.notificationsSent() * 1000.0 / Math.max(1, wallTimeMs));
+
+        assertNull(summary.error(), "run error");
+        assertEquals(0, summary.isinsFailed(), "failed ISINs");
+        assertTrue(summary.notificationsSent() > 0, "nothing was sent");
+        assertEquals(summary.notificationsSent(), standIns.smsRequests.sum() + standIns.smtpRecipients.sum(),
+                "messages received by the stand-ins");
+
+        Properties measured = new Properties();
+        measured.setProperty("wall-time-ms", String.valueOf(wallTimeMs));
+        measured.setProperty("messages-per-second", String.valueOf(messagesPerSecond));
+        measured.setProperty("peak-heap-mb", String.valueOf(peakHeapMb));
+        measured.setProperty("notifications-sent", String.valueOf(summary.notificationsSent()));
+        writeResult(measured);
+
+        Properties baseline = loadBaselines();
+        double tolerance = Double.parseDouble(baseline.getProperty("tolerance-percent", "25")) / 100;
+        List<String> regressions = new ArrayList<>();
+        long maxWallTime = Math.round(Long.parseLong(baseline.getProperty("wall-time-ms")) * (1 + tolerance));
+        if (wallTimeMs > maxWallTime) {
+            regressions.add("wall time " + wallTimeMs + " ms > " + maxWallTime + " ms");
+        }
+        long minRate = Math.round(Long.parseLong(baseline.getProperty("messages-per-second")) * (1 - tolerance));
+        if (messagesPerSecond < minRate) {
+            regressions.add("throughput " + messagesPerSecond + " msg/s < " + minRate + " msg/s");
+        }
+        long maxHeap = Math.round(Long.parseLong(baseline.getProperty("peak-heap-mb")) * (1 + tolerance));
+        if (peakHeapMb > maxHeap) {
+            regressions.add("peak heap " + peakHeapMb + " MB > " + maxHeap + " MB");
+        }
+        assertTrue(regressions.isEmpty(), "Performance regression: " + String.join("; ", regressions));
+    }
+
+    private SimulationDataGenerator seeder() {
+        SimulationDataGenerator generator = new SimulationDataGenerator(primaryJdbcTemplate, secondaryJdbcTemplate);
+        ReflectionTestUtils.setField(generator, "bondCount", env.getRequiredProperty("perf.bonds", Integer.class));
+        ReflectionTestUtils.setField(generator, "clientCount", env.getRequiredProperty("perf.clients", Integer.class));
+        ReflectionTestUtils.setField(generator, "holdingsPerClient", env.getRequiredProperty("perf.holdings-per-client", Integer.class));
+        ReflectionTestUtils.setField(generator, "hotIsinSkew", env.getRequiredProperty("perf.hot-isin-skew", Double.class));
+        ReflectionTestUtils.setField(generator, "dueTodayRatio", env.getRequiredProperty("perf.due-today-ratio", Double.class));
+        ReflectionTestUtils.setField(generator, "missingContactRatio", env.getRequiredProperty("perf.missing-contact-ratio", Double.class));
+        ReflectionTestUtils.setField(generator, "malformedContactRatio", env.getRequiredProperty("perf.malformed-contact-ratio", Double.class));
+        ReflectionTestUtils.setField(generator, "sharedContactRatio", env.getRequiredProperty("perf.shared-contact-ratio", Double.class));
+        ReflectionTestUtils.setField(generator, "seed", env.getRequiredProperty("perf.seed", Long.class));
+        ReflectionTestUtils.setField(generator, "notifyBeforeDays", env.getRequiredProperty("ncd.notify-before-days"));
+        ReflectionTestUtils.setField(generator, "lookaheadDays", env.getRequiredProperty("ncd.maturity-lookahead-days", Integer.class));
+        return generator;
+    }
+
+    private Properties loadBaselines() throws IOException {
+        Resource resource = resourceLoader.getResource(env.getRequiredProperty("perf.baselines"));
+        Properties baseline = new Properties();
+        try (InputStream in = resource.getInputStream()) {
+            baseline.load(in);
+        }
+        return baseline;
+    }
+
+    private void writeResult(Properties measured) throws IOException {
+        Path out = Path.of(env.getRequiredProperty("perf.result-file"));
+        if (out.getParent() != null) Files.createDirectories(out.getParent());
+        try (Writer writer = Files.newBufferedWriter(out)) {
+            measured.store(writer, "EndToEndPerformanceTest run, " + LocalDate.now());
+        }
+    }
+
+    private static LocalStandIns startStandIns() {
+        try {
+            return new LocalStandIns();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.ibsec.ncdnotifier.perf;
+
+import com.ibsec.ncdnotifier.service.BondFileService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Local stand-ins for the notifier's external services, on ephemeral loopback ports:
+ * an HTTP server with the NSE report (a ZIP holding a CSV in the NSE column layout) and the SMS
+ * gateway API, and an SMTP sink that accepts and counts mail without keeping it, so the heap
+ * measured by the test is the notifier's own.
+ */
+class LocalStandIns implements AutoCloseable {
+
+    private static final DateTimeFormatter NSE_DATE = DateTimeFormatter.ofPattern("dd-MMM-yyyy");
+
+    private final HttpServer http;
+    private final ExecutorService httpWorkers = Executors.newFixedThreadPool(32);
+    private final ServerSocket smtp;
+    private final ExecutorService smtpSessions = Executors.newCachedThreadPool();
+    private volatile byte[] nseZip = new byte[0];
+
+    final LongAdder smsRequests = new LongAdder();
+    final LongAdder smtpMessages = new LongAdder();
+    final LongAdder smtpRecipients = new LongAdder();
+    private final AtomicLong smsIds = new AtomicLong();
+
+    LocalStandIns() throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        http = HttpServer.create(new InetSocketAddress(loopback, 0), 512);
+        http.setExecutor(httpWorkers);
+        http.createContext("/nse/bonds.zip", this::serveNse);
+        http.createContext("/sms", this::acceptSms);
+        http.start();
+
+        smtp = new ServerSocket(0, 128, loopback);
+        smtpSessions.submit(this::acceptSmtp);
+    }
+
+    String nseUrl() {
+        return "http://localhost:" + http.getAddress().getPort() + "/nse/bonds.zip";
+    }
+
+    String smsUrl() {
+        return "http://localhost:" + http.getAddress().getPort() + "/sms";
+    }
+
+    int smtpPort() {
+        return smtp.getLocalPort();
+    }
+
+    /**
+     * Publishes the bond universe as the NSE ZIP download.
+     */
+    void publishBonds(List<BondFileService.BondRecord> bonds) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("Approved_list_of_GSEC_and_TBILL.csv"));
+            PrintWriter csv = new PrintWriter(zip, false, StandardCharsets.UTF_8);
+            csv.println("Approved list of securities");
+            csv.println("Sr No,ISIN,Issue Desc,Maturity Date");
+            int n = 1;
+            for (BondFileService.BondRecord bond : bonds) {
+                csv.println(n++ + "," + bond.isin() + "," + bond.name() + "," + bond.maturityDate().format(NSE_DATE));
+            }
+            csv.flush();
+            zip.closeEntry();
+        }
+        nseZip = bytes.toByteArray();
+    }
+
+    private void serveNse(HttpExchange exchange) throws IOException {
+        byte[] body = nseZip;
+        exchange.getResponseHeaders().set("Content-Type", "application/zip");
+        exchange.getResponseHeaders().set("ETag", "\"" + body.length + "-" + Arrays.hashCode(body) + "\"");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+        } else {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+    private void acceptSms(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        smsRequests.increment();
+        byte[] body = ("{\"status\":\"OK\",\"messageId\":\"perf-" + smsIds.incrementAndGet() + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        exchange.close();
+    }
+
+    private void acceptSmtp() {
+        while (!smtp.isClosed()) {
+            try {
+                Socket socket = smtp.accept();
+                smtpSessions.submit(() -> smtpSession(socket));
+            } catch (IOException e) {
+                return;    // closed
+            }
+        }
+    }
+
+    /**
+     * Minimal SMTP: no STARTTLS or AUTH advertised, every recipient accepted, message bodies discarded.
+     */
+    private void smtpSession(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), false, StandardCharsets.US_ASCII)) {
+            reply(out, "220 localhost perf SMTP sink");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-localhost\r\n250-8BITMIME\r\n250 SIZE 52428800");
+                    case "HELO", "MAIL", "RSET", "NOOP" -> reply(out, "250 OK");
+                    case "RCPT" -> {
+                        smtpRecipients.increment();
+                        reply(out, "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // discard
+                        }
+                        smtpMessages.increment();
+                        reply(out, "250 OK queued");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    private static void reply(PrintWriter out, String text) {
+        out.print(text + "\r\n");
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        http.stop(0);
+        httpWorkers.shutdownNow();
+        smtp.close();
+        smtpSessions.shutdownNow();
+    }
+}
@@ -0,0 +1,94 @@
+package com.ibsec.ncdnotifier.repository;
+
+import com.ibsec.ncdnotifier.config.ResilienceProperties;
+import com.ibsec.ncdnotifier.resilience.DependencyGuards;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HoldingsDao on an in-memory H2 stand-in for the holdings view.
+ */
+class HoldingsDaoTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<String> connectingThreads = new CopyOnWriteArrayList<>();
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource h2 = new DriverManagerDataSource(
+                "jdbc:h2:mem:holdings-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(new DelegatingDataSource(h2) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                connectingThreads.add(Thread.currentThread().getName());
+                return super.getConnection();
+            }
+        });
+        jdbc.execute("CREATE SCHEMA sapphire");
+        jdbc.execute("CREATE TABLE sapphire.vw_final_holding_midoffice (isin VARCHAR(12), client_id VARCHAR(20))");
+        jdbc.update("INSERT INTO sapphire.vw_final_holding_midoffice VALUES "
+                + "('INE001', '1'), ('INE001', '2'), ('INE002', '1'), ('INE001', '1')");
+    }
+
+    @Test
+    void bulkLookupsAreChunkedIntoOneArrayQueryEach() {
+        HoldingsDao dao = dao(false);
+        ReflectionTestUtils.setField(dao, "bulkChunk", 2);
+
+        assertEquals(Map.of("INE001", Set.of("1", "2"), "INE002", Set.of("1")),
+                dao.holdersByIsin(List.of("INE001", "INE002", "INE003")));
+        assertEquals(Map.of("INE001", 2L, "INE002", 1L), dao.holderCounts(List.of("INE001", "INE002")));
+        assertEquals(List.of("1", "2"), dao.holders("INE001").stream().sorted().toList());
+        assertEquals(2, dao.timings().get("holdings.bulk").calls());
+    }
+
+    @Test
+    void slowQueryPlanIsCapturedInTheBackground() throws Exception {
+        HoldingsDao dao = dao(true);
+        connectingThreads.clear();
+
+        assertEquals(Map.of("INE002", Set.of("1")), dao.holdersByIsin(List.of("INE002")));
+
+        Path report = dir.resolve("explain.log");
+        for (int i = 0; i < 100 && dao.timings().get("holdings.bulk").explained() == 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, dao.timings().get("holdings.bulk").explained());
+        String plan = Files.readString(report);
+        assertTrue(plan.contains("holdings.bulk") && plan.contains("INE002"), plan);
+        // the lookup's connection, then the EXPLAIN's own ones (product name, plan) off the caller's thread
+        String caller = Thread.currentThread().getName();
+        assertEquals(caller, connectingThreads.get(0));
+        assertEquals(List.of("holdings-explain", "holdings-explain"), connectingThreads.subList(1, connectingThreads.size()));
+    }
+
+    private HoldingsDao dao(boolean explain) {
+        HoldingsDao dao = new HoldingsDao(jdbc, new DependencyGuards(new ResilienceProperties()), 5000);
+        ReflectionTestUtils.setField(dao, "bulkChunk", 1000);
+        ReflectionTestUtils.setField(dao, "slowQueryMs", explain ? 0L : 60_000L);
+        ReflectionTestUtils.setField(dao, "explainEnabled", explain);
+        ReflectionTestUtils.setField(dao, "explainMinIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(dao, "explainReportFile", dir.resolve("explain.log").toString());
+        return dao;
+    }
+}
@@ -0,0 +1,51 @@
+package com.ibsec.ncdnotifier.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BatchRunnerTest {
+
+    private final NcdNotificationService service = mock(NcdNotificationService.class);
+    private final NotificationRetryQueue retryQueue = mock(NotificationRetryQueue.class);
+    private final List<Long> ownRows = List.of(4L, 9L, 12L);
+
+    @Test
+    void drainRetriesTheRunsOwnRowsUntilNoneAreLeft() throws InterruptedException {
+        when(retryQueue.size(ownRows)).thenReturn(3L, 1L, 0L);
+
+        assertEquals(0, runner(1000, 1).drainDeferred(ownRows));
+        verify(service, times(2)).retryDeferred(ownRows);
+        verify(service, never()).retryDeferred();
+        verify(retryQueue, never()).size();
+    }
+
+    @Test
+    void drainGivesUpAfterTheTimeoutLeavingRowsDeferred() throws InterruptedException {
+        when(retryQueue.size(ownRows)).thenReturn(5L);
+
+        assertEquals(5, runner(50, 10).drainDeferred(ownRows));
+        verify(service, atLeastOnce()).retryDeferred(ownRows);
+        verify(service, atMost(6)).retryDeferred(ownRows);
+    }
+
+    @Test
+    void nothingDeferredMeansNoRetry() throws InterruptedException {
+        assertEquals(0, runner(1000, 1).drainDeferred(List.of()));
+        verify(service, never()).retryDeferred(any());
+        verifyNoInteractions(retryQueue);
+    }
+
+    private BatchRunner runner(long timeoutMs, long intervalMs) {
+        BatchRunner runner = new BatchRunner(service, retryQueue, mock(ApplicationContext.class));
+        ReflectionTestUtils.setField(runner, "drainTimeoutMs", timeoutMs);
+        ReflectionTestUtils.setField(runner, "drainIntervalMs", intervalMs);
+        return runner;
+    }
+}
@@ -0,0 +1,97 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.config.ResilienceProperties;
+import com.ibsec.ncdnotifier.resilience.DependencyGuards;
+import com.ibsec.ncdnotifier.tracing.RunSpanAggregator;
+import com.ibsec.ncdnotifier.tracing.RunTracer;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The XLSX reader (StAX over the archive's shared strings and first sheet).
+ */
+class BondFileServiceTest {
+
+    private static final String SHARED_STRINGS = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <sst xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main" count="5" uniqueCount="5">
+              <si><t>ISIN</t></si>
+              <si><t>Security Description</t></si>
+              <si><t>Symbol / Maturity Date</t></si>
+              <si><r><t>7.26% GS </t></r><r><rPr><b/></rPr><t>2033</t></r></si>
+              <si><t>IN0020230085</t></si>
+            </sst>""";
+
+    // a title row before the header, shared strings, an Excel date serial and an inline string
+    private static final String SHEET = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <worksheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main">
+              <sheetData>
+                <row r="1"><c r="A1" t="inlineStr"><is><t>Approved list</t></is></c></row>
+                <row r="2"><c r="A2" t="s"><v>0</v></c><c r="B2" t="s"><v>1</v></c><c r="C2" t="s"><v>2</v></c></row>
+                <row r="3"><c r="A3" t="s"><v>4</v></c><c r="B3" t="s"><v>3</v></c><c r="C3"><v>45000</v></c></row>
+                <row r="4"><c r="A4" t="inlineStr"><is><t> IN0020240019 </t></is></c><c r="B4" t="inlineStr"><is><t>T-BILL</t></is></c><c r="C4" t="inlineStr"><is><t>14-02-2027</t></is></c></row>
+                <row r="5"><c r="A5"/><c r="B5" t="inlineStr"><is><t>no isin</t></is></c></row>
+              </sheetData>
+            </worksheet>""";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsRowsAfterTheHeaderResolvingSharedStringsAndDates() throws IOException {
+        Path xlsx = dir.resolve("list.xlsx");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(xlsx))) {
+            put(zip, "xl/sharedStrings.xml", SHARED_STRINGS);
+            put(zip, "xl/worksheets/sheet1.xml", SHEET);
+        }
+
+        List<BondFileService.BondRecord> bonds = ReflectionTestUtils.invokeMethod(service(), "parseXlsxFile", xlsx);
+
+        assertEquals(List.of(
+                new BondFileService.BondRecord("IN0020230085", "7.26% GS 2033", LocalDate.of(2023, 3, 15)),
+                new BondFileService.BondRecord("IN0020240019", "T-BILL", LocalDate.of(2027, 2, 14))), bonds);
+    }
+
+    @Test
+    void doctypeIsRefused() throws IOException {
+        Path xlsx = dir.resolve("entity.xlsx");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(xlsx))) {
+            put(zip, "xl/worksheets/sheet1.xml", """
+                    <?xml version="1.0"?>
+                    <!DOCTYPE worksheet [<!ENTITY isin SYSTEM "file:///etc/hostname">]>
+                    <worksheet><sheetData>
+                      <row><c t="inlineStr"><is><t>ISIN</t></is></c></row>
+                      <row><c t="inlineStr"><is><t>&isin;</t></is></c></row>
+                    </sheetData></worksheet>""");
+        }
+
+        List<BondFileService.BondRecord> bonds = ReflectionTestUtils.invokeMethod(service(), "parseXlsxFile", xlsx);
+
+        assertEquals(List.of(), bonds);
+    }
+
+    private static BondFileService service() {
+        return new BondFileService(new RunTracer(OpenTelemetry.noop().getTracer("test"), new RunSpanAggregator(10)),
+                new DependencyGuards(new ResilienceProperties()));
+    }
+
+    private static void put(ZipOutputStream zip, String name, String xml) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(xml.strip().getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,155 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.entity.BondChangeType;
+import com.ibsec.ncdnotifier.entity.BondUniverseChange;
+import com.ibsec.ncdnotifier.entity.BondUniverseEntry;
+import com.ibsec.ncdnotifier.repository.BondUniverseChangeRepository;
+import com.ibsec.ncdnotifier.repository.BondUniverseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class BondUniverseDifferTest {
+
+    private static final LocalDate MATURITY = LocalDate.of(2026, 12, 31);
+
+    private BondUniverseRepository universeRepository;
+    private BondUniverseChangeRepository changeRepository;
+    private BondUniverseDiffer differ;
+    private final List<BondUniverseEntry> snapshot = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        universeRepository = mock(BondUniverseRepository.class);
+        changeRepository = mock(BondUniverseChangeRepository.class);
+        when(universeRepository.findAll()).thenReturn(snapshot);
+        differ = new BondUniverseDiffer(universeRepository, changeRepository);
+    }
+
+    @Test
+    void emptySnapshotIsAnUnauditedBaseline() {
+        BondUniverseDiffer.BondChangeSet changes = differ.apply(
+                List.of(bond("INE002", "B", MATURITY), bond("INE001", "A", MATURITY)), 1, true);
+
+        assertTrue(changes.baseline());
+        assertEquals(Map.of(BondChangeType.ADDED, 2L), changes.counts());
+        assertEquals(List.of("INE001", "INE002"), changes.changes().stream().map(BondUniverseDiffer.BondChange::isin).toList());
+        verify(changeRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void mergeFindsAddedRemovedRenamedAndRedated() {
+        snapshot.add(entry("INE001", "KEPT", MATURITY));
+        snapshot.add(entry("INE002", "OLD NAME", MATURITY));
+        snapshot.add(entry("INE003", "REDATED", MATURITY));
+        snapshot.add(entry("INE004", "DELISTED", MATURITY));
+        snapshot.add(entry("INE006", "BOTH", MATURITY));
+
+        BondUniverseDiffer.BondChangeSet changes = differ.apply(List.of(
+                bond("INE006", "BOTH NEW", MATURITY.plusDays(1)),
+                bond("INE005", "LISTED", MATURITY),
+                bond("INE003", "REDATED", MATURITY.plusMonths(1)),
+                bond("INE002", "NEW NAME", MATURITY),
+                bond("INE001", "KEPT", MATURITY)), 2, true);
+
+        assertFalse(changes.baseline());
+        assertEquals(1, changes.unchanged());
+        assertEquals(List.of(
+                "INE002 RENAMED", "INE003 MATURITY_CHANGED", "INE004 REMOVED", "INE005 ADDED",
+                "INE006 MATURITY_CHANGED", "INE006 RENAMED"), describe(changes));
+
+        BondUniverseDiffer.BondChange redated = changes.changes().get(1);
+        assertEquals(MATURITY, redated.before().maturityDate());
+        assertEquals(MATURITY.plusMonths(1), redated.after().maturityDate());
+        assertNull(changes.changes().get(2).after());
+        assertNull(changes.changes().get(3).before());
+
+        // snapshot: changed entries updated in place, new one inserted, delisted one deleted
+        assertEquals("NEW NAME", snapshot.get(1).getBondName());
+        assertEquals(MATURITY.plusMonths(1), snapshot.get(2).getMaturityDate());
+        verify(universeRepository).deleteAllByIdInBatch(List.of("INE004"));
+        assertEquals(List.of("INE005"), savedEntries().stream().map(BondUniverseEntry::getIsin).toList());
+        assertEquals(6, audited().size());
+        assertTrue(audited().stream().allMatch(c -> c.getSourceVersion() == 2));
+    }
+
+    @Test
+    void duplicateListingsKeepTheEarliestMaturityThenName() {
+        snapshot.add(entry("INE001", "A", MATURITY));
+
+        BondUniverseDiffer.BondChangeSet changes = differ.apply(List.of(
+                bond("INE001", "B", MATURITY.plusDays(5)),
+                bond("INE001", "A", MATURITY),
+                bond("INE002", "Z", MATURITY),
+                bond("INE002", "Y", MATURITY),
+                bond(" ", "BLANK", MATURITY)), 3, true);
+
+        assertEquals(1, changes.unchanged());
+        assertEquals(List.of("INE002 ADDED"), describe(changes));
+        assertEquals("Y", changes.changes().get(0).after().name());
+    }
+
+    @Test
+    void unchangedUniverseWritesNothing() {
+        snapshot.add(entry("INE001", "A", MATURITY));
+
+        BondUniverseDiffer.BondChangeSet changes = differ.apply(List.of(bond("INE001", "A", MATURITY)), 4, true);
+
+        assertTrue(changes.isEmpty());
+        assertEquals(1, changes.unchanged());
+        verify(universeRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    @Test
+    void incompleteFetchNeverReportsRemovals() {
+        snapshot.add(entry("INE001", "A", MATURITY));
+        snapshot.add(entry("INE002", "FROM FAILED SOURCE", MATURITY));
+        snapshot.add(entry("INE003", "B", MATURITY));
+
+        BondUniverseDiffer.BondChangeSet changes = differ.apply(List.of(
+                bond("INE001", "A RENAMED", MATURITY),
+                bond("INE004", "NEW", MATURITY)), 5, false);
+
+        assertEquals(List.of("INE001 RENAMED", "INE004 ADDED"), describe(changes));
+        verify(universeRepository, never()).deleteAllByIdInBatch(any());
+        assertEquals(2, audited().size());
+    }
+
+    private static List<String> describe(BondUniverseDiffer.BondChangeSet changes) {
+        return changes.changes().stream().map(c -> c.isin() + " " + c.type()).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<BondUniverseEntry> savedEntries() {
+        ArgumentCaptor<List<BondUniverseEntry>> saved = ArgumentCaptor.forClass(List.class);
+        verify(universeRepository).saveAll(saved.capture());
+        return saved.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<BondUniverseChange> audited() {
+        ArgumentCaptor<List<BondUniverseChange>> saved = ArgumentCaptor.forClass(List.class);
+        verify(changeRepository).saveAll(saved.capture());
+        return saved.getValue();
+    }
+
+    private static BondFileService.BondRecord bond(String isin, String name, LocalDate maturity) {
+        return new BondFileService.BondRecord(isin, name, maturity);
+    }
+
+    private static BondUniverseEntry entry(String isin, String name, LocalDate maturity) {
+        LocalDateTime seen = LocalDateTime.of(2026, 1, 1, 9, 0);
+        return new BondUniverseEntry(isin, name, maturity, seen, seen);
+    }
+}
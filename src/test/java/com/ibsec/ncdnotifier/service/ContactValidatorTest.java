@@ -0,0 +1,103 @@
+package com.ibsec.ncdnotifier.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContactValidatorTest {
+
+    private ContactValidator validator;
+
+    @BeforeEach
+    void setUp() {
+        validator = new ContactValidator();
+        ReflectionTestUtils.setField(validator, "defaultCountryCode", "91");
+        ReflectionTestUtils.setField(validator, "mobileFormat", "national");
+        ReflectionTestUtils.setField(validator, "maxAgeHours", 24L);
+        ReflectionTestUtils.setField(validator, "cacheSize", 2);
+    }
+
+    @Test
+    void mobilesAreNormalizedToE164() {
+        assertEquals("+919812345678", validator.normalizeMobile("9812345678"));
+        assertEquals("+919812345678", validator.normalizeMobile(" +91 98123-45678 "));
+        assertEquals("+919812345678", validator.normalizeMobile("098123 45678"));
+        assertEquals("+919812345678", validator.normalizeMobile("098123.45678"));
+        assertEquals("+919812345678", validator.normalizeMobile("919812345678"));
+        assertEquals("+919812345678", validator.normalizeMobile("0091 98123 45678"));
+        assertEquals("+447911123456", validator.normalizeMobile("+44 (7911) 123456"));
+        assertEquals("+447911123456", validator.normalizeMobile("0044 7911 123456"));
+    }
+
+    @Test
+    void numbersThatCannotTakeAnSmsAreRejected() {
+        assertNull(validator.normalizeMobile("022 2345 6789"), "Mumbai landline");
+        assertNull(validator.normalizeMobile("02223456789"), "landline with trunk 0");
+        assertNull(validator.normalizeMobile("9999999999"), "placeholder");
+        assertNull(validator.normalizeMobile("+91 0000000000"));
+        assertNull(validator.normalizeMobile("98123 45678 ext 12"));
+        assertNull(validator.normalizeMobile("9812345678/9812345679"));
+        assertNull(validator.normalizeMobile("98+12345678"));
+        assertNull(validator.normalizeMobile("12345"));
+        assertNull(validator.normalizeMobile("+1234567"), "too short for E.164");
+    }
+
+    @Test
+    void emailDomainIsLowerCasedButNotTheLocalPart() {
+        assertEquals("Ravi.Kumar@example.com", validator.normalizeEmail(" Ravi.Kumar@Example.COM "));
+        assertEquals("first@example.com", validator.normalizeEmail("first@example.com; second@example.com"));
+        assertEquals("first@example.com", validator.normalizeEmail("first@example.com, second@example.com"));
+        assertEquals("a+tag@mail.example.co.in", validator.normalizeEmail("a+tag@MAIL.example.co.in"));
+    }
+
+    @Test
+    void internationalizedDomainsBecomePunycode() {
+        assertEquals("info@xn--bcher-kva.de", validator.normalizeEmail("info@bücher.de"));
+        assertEquals("info@xn--bcher-kva.de", validator.normalizeEmail("info@BÜCHER.DE"));
+        assertEquals("info@xn--bcher-kva.de", validator.normalizeEmail("info@xn--bcher-kva.de"));
+    }
+
+    @Test
+    void malformedEmailsAreRejected() {
+        assertNull(validator.normalizeEmail("no-at-sign"));
+        assertNull(validator.normalizeEmail("@example.com"));
+        assertNull(validator.normalizeEmail("user@"));
+        assertNull(validator.normalizeEmail("user@localhost"));
+        assertNull(validator.normalizeEmail("user..name@example.com"));
+        assertNull(validator.normalizeEmail("user@-example.com"));
+        assertNull(validator.normalizeEmail("x".repeat(65) + "@example.com"));
+        assertNull(validator.normalizeEmail("user@" + "a".repeat(64) + ".com"), "label too long");
+    }
+
+    @Test
+    void checkReportsEachUndeliverableField() {
+        ContactValidator.ContactCheck check = validator.check("C1", new ContactDetails("not an email", "+91 98123 45678"));
+
+        assertNull(check.email());
+        assertEquals("malformed", check.emailProblem());
+        assertEquals("9812345678", check.mobile());
+        assertNull(check.mobileProblem());
+        assertNull(validator.check("C2", null));
+    }
+
+    @Test
+    void cacheEvictsTheLeastRecentlyUsedParty() {
+        ContactDetails contact = new ContactDetails("a@example.com", "9812345678");
+        validator.check("C1", contact);
+        validator.check("C2", contact);
+        validator.check("C1", contact);     // C2 is now the least recently used
+        validator.check("C3", contact);
+
+        assertEquals(Set.of("C1", "C3"), cached().keySet());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ?> cached() {
+        return (Map<String, ?>) ReflectionTestUtils.getField(validator, "byParty");
+    }
+}
@@ -0,0 +1,175 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.config.ResilienceProperties;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.resilience.DependencyGuards;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DeliveryReportBuffer on an in-memory H2 holding the two tables it touches.
+ */
+class DeliveryReportBufferTest {
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource h2 = new DriverManagerDataSource(
+                "jdbc:h2:mem:dlr-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(new DelegatingDataSource(h2) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                connections.incrementAndGet();
+                return super.getConnection();
+            }
+        });
+        jdbc.execute("""
+                CREATE TABLE bond_maturity_notification_log (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    status VARCHAR(20), provider_message_id VARCHAR(255), notified_on TIMESTAMP, delivered_on TIMESTAMP)""");
+        jdbc.execute("""
+                CREATE TABLE ncd_delivery_report_inbox (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    provider_key VARCHAR(512) NOT NULL, status VARCHAR(20) NOT NULL,
+                    event_time TIMESTAMP NOT NULL, received_at TIMESTAMP WITH TIME ZONE NOT NULL)""");
+    }
+
+    @Test
+    void acceptedReportsSurviveARestartAndLeaveTheInboxOnceApplied() {
+        sentRow("sms-1");
+        assertEquals(2, buffer().submit(NotificationType.SMS, List.of(
+                report("sms-1", "DELIVRD", "2026-10-19T10:00:00"),
+                report("sms-1", "sent", "2026-10-19T09:59:00"))));
+        assertEquals(1, inbox(), "persisted before the callback is answered");
+
+        // the process stops before the flush; the next one picks the report up
+        DeliveryReportBuffer restarted = buffer();
+        assertEquals(1, restarted.flush());
+
+        assertEquals("DELIVERED", jdbc.queryForObject(
+                "SELECT status FROM bond_maturity_notification_log WHERE provider_message_id = 'sms-1'", String.class));
+        assertEquals(0, inbox());
+        assertEquals(0, restarted.size());
+    }
+
+    @Test
+    void reportsAreRefusedWhenTheInboxCannotBeWritten() {
+        jdbc.execute("DROP TABLE ncd_delivery_report_inbox");
+        DeliveryReportBuffer buffer = buffer();
+
+        assertEquals(1, buffer.submit(NotificationType.SMS, List.of(
+                report("sms-1", "DELIVRD", null), report("sms-2", "queued", null))));
+        assertEquals(0, buffer.size());
+        assertEquals(1, buffer.stats().rejected());
+
+        // three reports coalescing to one key are three refused
+        assertEquals(0, buffer.submit(NotificationType.SMS, List.of(report("sms-3", "DELIVRD", "2026-10-19T10:00:00"),
+                report("sms-3", "DELIVRD", "2026-10-19T10:01:00"), report("sms-3", "failed", "2026-10-19T10:02:00"))));
+        assertEquals(4, buffer.stats().rejected());
+    }
+
+    @Test
+    void concurrentCallbacksShareOneInboxWrite() throws Exception {
+        DeliveryReportBuffer buffer = buffer();
+        ReflectionTestUtils.setField(buffer, "inboxCommitMs", 300L);
+        int callbacks = 20;
+        ExecutorService callers = Executors.newFixedThreadPool(callbacks);
+        CountDownLatch start = new CountDownLatch(1);
+        connections.set(0);
+        try {
+            List<Future<Integer>> acks = new ArrayList<>();
+            for (int i = 0; i < callbacks; i++) {
+                String id = "sms-" + i;
+                acks.add(callers.submit(() -> {
+                    start.await();
+                    return buffer.submit(NotificationType.SMS, List.of(report(id, "DELIVRD", null)));
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> ack : acks) {
+                assertEquals(1, ack.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals(callbacks, inbox());
+        assertEquals(callbacks, buffer.size());
+        assertTrue(connections.get() <= 3, connections.get() + " inbox writes");
+    }
+
+    @Test
+    void unmatchedReportsBackOff() {
+        DeliveryReportBuffer buffer = buffer();
+        ReflectionTestUtils.setField(buffer, "flushIntervalMs", 60_000L);
+        buffer.submit(NotificationType.SMS, List.of(report("sms-late", "DELIVRD", null)));
+
+        assertEquals(0, buffer.flush());
+        assertEquals(1, buffer.stats().flushes());
+        assertEquals(0, buffer.flush(), "backing off");
+        assertEquals(1, buffer.stats().flushes());
+        assertEquals(1, buffer.size());
+
+        // the row shows up, but the report waits for its backoff
+        sentRow("sms-late");
+        ReflectionTestUtils.setField(buffer, "flushIntervalMs", 1L);
+        assertEquals(0, buffer.flush());
+        assertEquals(1, inbox());
+    }
+
+    @Test
+    void unmatchedReportsAreDroppedAfterTheRetention() throws InterruptedException {
+        DeliveryReportBuffer buffer = buffer();
+        ReflectionTestUtils.setField(buffer, "unmatchedRetentionMs", 1L);
+        buffer.submit(NotificationType.SMS, List.of(report("sms-unknown", "DELIVRD", null)));
+        Thread.sleep(5);
+
+        assertEquals(0, buffer.flush());
+        assertEquals(0, buffer.size());
+        assertEquals(1, buffer.stats().expiredUnmatched());
+        assertEquals(0, inbox());
+    }
+
+    private DeliveryReportBuffer buffer() {
+        DeliveryReportBuffer buffer = new DeliveryReportBuffer(jdbc, new DependencyGuards(new ResilienceProperties()));
+        ReflectionTestUtils.setField(buffer, "capacity", 100);
+        ReflectionTestUtils.setField(buffer, "batchSize", 10);
+        ReflectionTestUtils.setField(buffer, "lookbackDays", 7);
+        ReflectionTestUtils.setField(buffer, "unmatchedRetentionMs", 600_000L);
+        ReflectionTestUtils.setField(buffer, "flushIntervalMs", 1000L);
+        ReflectionTestUtils.setField(buffer, "unmatchedBackoffMaxMs", 60_000L);
+        return buffer;
+    }
+
+    private void sentRow(String providerMessageId) {
+        jdbc.update("INSERT INTO bond_maturity_notification_log (status, provider_message_id, notified_on) VALUES ('SENT', ?, ?)",
+                providerMessageId, LocalDateTime.now().minusHours(1));
+    }
+
+    private long inbox() {
+        return jdbc.queryForObject("SELECT count(*) FROM ncd_delivery_report_inbox", Long.class);
+    }
+
+    private static DeliveryReportBuffer.DeliveryReport report(String id, String status, String timestamp) {
+        return new DeliveryReportBuffer.DeliveryReport(id, null, status, timestamp);
+    }
+}
@@ -0,0 +1,118 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.config.NotificationPolicyProperties;
+import com.ibsec.ncdnotifier.config.ResilienceProperties;
+import com.ibsec.ncdnotifier.notification.request.NotificationRequest;
+import com.ibsec.ncdnotifier.notification.request.NotificationResult;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.notification.service.NotificationManager;
+import com.ibsec.ncdnotifier.repository.BondMaturityNotificationRepository;
+import com.ibsec.ncdnotifier.repository.HoldingsDao;
+import com.ibsec.ncdnotifier.repository.NotificationCalendarRepository;
+import com.ibsec.ncdnotifier.resilience.DependencyGuards;
+import com.ibsec.ncdnotifier.tracing.RunSpanAggregator;
+import com.ibsec.ncdnotifier.tracing.RunTracer;
+import io.opentelemetry.api.OpenTelemetry;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * NcdNotificationService over mocks: one ISIN held by clients 1 and 2 (contacts C1 and C2, both
+ * valid), a one-worker plan, and a gateway that accepts everything. Tests stub the calendar and
+ * the log for their case and build the service with the policy they need.
+ */
+final class NcdNotificationServiceFixture implements AutoCloseable {
+
+    static final String ISIN = "INE001A07RS1";
+    static final String BOND_NAME = "NCD ONE";
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    final BondFileService bondFileService = mock(BondFileService.class);
+    final NotificationCalendarRepository calendarRepo = mock(NotificationCalendarRepository.class);
+    final NotificationCalendarPlanner calendarPlanner = mock(NotificationCalendarPlanner.class);
+    final HoldingsSnapshotService holdings = mock(HoldingsSnapshotService.class);
+    final ContactIndexService contactIndex = mock(ContactIndexService.class);
+    final ContactValidator validator = mock(ContactValidator.class);
+    final PreflightPlanner preflight = mock(PreflightPlanner.class);
+    final BondMaturityNotificationRepository logRepo = mock(BondMaturityNotificationRepository.class);
+    final NotificationManager notificationManager = mock(NotificationManager.class);
+
+    NcdNotificationServiceFixture(LocalDate maturity, LocalDate asOf) {
+        BondFileService.BondRecord bond = bond(maturity);
+        when(bondFileService.fetchAllBonds()).thenReturn(List.of(bond));
+
+        when(holdings.getHolders(ISIN)).thenReturn(new String[]{"1", "2"});
+        when(holdings.refreshIfStale()).thenReturn(Map.of());
+        when(contactIndex.lookup("C1")).thenReturn(new ContactDetails("one@example.com", "+919800000001"));
+        when(contactIndex.lookup("C2")).thenReturn(new ContactDetails("two@example.com", "+919800000002"));
+        when(validator.check(anyString(), any())).thenAnswer(call -> {
+            ContactDetails raw = call.getArgument(1);
+            return new ContactValidator.ContactCheck(raw.email(), raw.mobile(), null, null);
+        });
+
+        when(preflight.estimate(any(), anyList())).thenReturn(new PreflightPlanner.PreflightEstimate(
+                asOf, 1, 1, 2, 2, 2, 1, 1, "test", 1, 10, Map.of()));
+
+        when(notificationManager.sendBulk(anyList(), any())).thenAnswer(call -> ((List<?>) call.getArgument(0))
+                .stream().map(r -> NotificationResult.accepted("ok", "id")).toList());
+    }
+
+    // the bond file's record for the ISIN maturing on that date
+    BondFileService.BondRecord bond(LocalDate maturity) {
+        BondFileService.BondRecord bond = new BondFileService.BondRecord(ISIN, BOND_NAME, maturity);
+        when(bondFileService.canonical(ISIN, BOND_NAME, maturity)).thenReturn(bond);
+        return bond;
+    }
+
+    NcdNotificationService service() {
+        return service(new NotificationPolicyProperties());
+    }
+
+    NcdNotificationService service(NotificationPolicyProperties policyProperties) {
+        NotificationPolicy policy = new NotificationPolicy(policyProperties, "7,3", "UTC");
+        JdbcTemplate jdbc = new JdbcTemplate(mock(DataSource.class));
+        RunTracer tracer = new RunTracer(OpenTelemetry.noop().getTracer("test"), new RunSpanAggregator(10));
+        NcdNotificationService service = new NcdNotificationService(bondFileService, logRepo, calendarRepo,
+                calendarPlanner, policy, holdings, mock(HoldingsDao.class), contactIndex, validator, preflight,
+                mock(BondUniverseDiffer.class), jdbc, jdbc, notificationManager, executor, tracer,
+                new DependencyGuards(new ResilienceProperties()), mock(NotificationRetryQueue.class));
+        ReflectionTestUtils.setField(service, "exposureColumn", "");
+        return service;
+    }
+
+    // recipients of the one sendBulk call, sorted
+    @SuppressWarnings("unchecked")
+    List<String> sentRecipients() {
+        ArgumentCaptor<List<NotificationRequest>> requests = ArgumentCaptor.forClass(List.class);
+        verify(notificationManager).sendBulk(requests.capture(), any());
+        return requests.getValue().stream().map(NotificationRequest::getRecipient).sorted().toList();
+    }
+
+    static BondMaturityNotificationRepository.NotifiedClient notified(String clientId, NotificationType channel) {
+        return new BondMaturityNotificationRepository.NotifiedClient() {
+            @Override
+            public String getClientId() { return clientId; }
+
+            @Override
+            public NotificationType getChannel() { return channel; }
+        };
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,107 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.config.NotificationPolicyProperties;
+import com.ibsec.ncdnotifier.entity.NotificationCalendarEntry;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static com.ibsec.ncdnotifier.service.NcdNotificationServiceFixture.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Quiet hours at selection time: a quiet channel gets nothing and the calendar row stays
+ * undispatched; the run after the period sends that channel only.
+ */
+class NcdNotificationServiceQuietHoursTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final LocalDate MATURITY = TODAY.plusDays(3);
+
+    private final NcdNotificationServiceFixture fixture = new NcdNotificationServiceFixture(MATURITY, TODAY);
+    private final NotificationCalendarEntry entry = new NotificationCalendarEntry(TODAY, ISIN, 3, BOND_NAME, MATURITY);
+
+    @BeforeEach
+    void setUp() {
+        entry.setId(1L);
+        when(fixture.calendarRepo.findBySendDateBetweenAndDispatchedOnIsNull(any(), eq(TODAY))).thenReturn(List.of(entry));
+    }
+
+    @AfterEach
+    void stop() {
+        fixture.close();
+    }
+
+    @Test
+    void quietChannelIsLeftOutAndTheRowHeld() {
+        // start == end: SMS quiet all day
+        NcdNotificationService service = service(Map.of("sms", "00:00-00:00"));
+
+        RunStats.RunSummary summary = service.processMaturingBonds();
+
+        assertNull(summary.error());
+        assertEquals(1, summary.isinsHeldQuiet());
+        assertEquals(List.of("one@example.com", "two@example.com"), fixture.sentRecipients());
+        assertNull(entry.getDispatchedOn());
+        assertNotNull(entry.getQuietHeldOn());
+        verify(fixture.calendarRepo).save(entry);
+        verify(fixture.holdings, never()).refreshIfStale();
+        assertTrue(service.inQuietHours());
+        assertFalse(service.quietHoldEnded());
+    }
+
+    @Test
+    void heldRowSendsWhatDidNotGoOutAndIsDispatched() {
+        entry.setQuietHeldOn(LocalDateTime.now().minusHours(8));
+        when(fixture.logRepo.findNotifiedClients(eq(ISIN), eq(MATURITY), any())).thenReturn(List.of(
+                notified("1", NotificationType.EMAIL), notified("2", NotificationType.EMAIL)));
+        NcdNotificationService service = service(Map.of());
+
+        RunStats.RunSummary summary = service.processMaturingBonds();
+
+        assertEquals(0, summary.isinsHeldQuiet());
+        assertEquals(2, summary.alreadyNotified());
+        assertEquals(List.of("+919800000001", "+919800000002"), fixture.sentRecipients());
+        assertNotNull(entry.getDispatchedOn());
+        assertFalse(service.inQuietHours());
+    }
+
+    @Test
+    void rowHeldBeforeMidnightIsSentTheNextDayWithoutCatchUp() {
+        // held for SMS at 22:00 yesterday, the day of the 3-day alert; catch-up is 0
+        LocalDate maturity = MATURITY.minusDays(1);
+        NotificationCalendarEntry yesterday = new NotificationCalendarEntry(TODAY.minusDays(1), ISIN, 3, BOND_NAME, maturity);
+        yesterday.setId(2L);
+        yesterday.setQuietHeldOn(TODAY.minusDays(1).atTime(22, 0));
+        BondFileService.BondRecord bond = fixture.bond(maturity);
+        when(fixture.bondFileService.fetchAllBonds()).thenReturn(List.of(bond));
+        when(fixture.calendarRepo.findBySendDateBetweenAndDispatchedOnIsNull(TODAY, TODAY)).thenReturn(List.of());
+        when(fixture.calendarRepo.findBySendDateBeforeAndQuietHeldOnIsNotNullAndDispatchedOnIsNull(TODAY))
+                .thenReturn(List.of(yesterday));
+        when(fixture.logRepo.findNotifiedClients(eq(ISIN), eq(maturity), any())).thenReturn(List.of(
+                notified("1", NotificationType.EMAIL), notified("2", NotificationType.EMAIL)));
+        NcdNotificationService service = service(Map.of());
+
+        RunStats.RunSummary summary = service.processMaturingBonds();
+
+        assertNull(summary.error());
+        assertEquals(new NotificationPolicy.RuleCounts(1, 0, 1, 0, 0), summary.policy().get("default"));
+        assertEquals(List.of("+919800000001", "+919800000002"), fixture.sentRecipients());
+        assertNotNull(yesterday.getDispatchedOn());
+    }
+
+    private NcdNotificationService service(Map<String, String> quietHours) {
+        NotificationPolicyProperties properties = new NotificationPolicyProperties();
+        properties.setQuietHours(quietHours);
+        return fixture.service(properties);
+    }
+}
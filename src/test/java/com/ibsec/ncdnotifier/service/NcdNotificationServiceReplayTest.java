@@ -0,0 +1,68 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.entity.NotificationCalendarEntry;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static com.ibsec.ncdnotifier.service.NcdNotificationServiceFixture.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Replays (processMaturingBonds for a date other than today): dry run unless asked to send, and
+ * no second alert to a holder the log shows was already notified of the maturity.
+ */
+class NcdNotificationServiceReplayTest {
+
+    private static final LocalDate AS_OF = LocalDate.now().minusDays(1);
+    private static final LocalDate MATURITY = AS_OF.plusDays(3);
+
+    private final NcdNotificationServiceFixture fixture = new NcdNotificationServiceFixture(MATURITY, AS_OF);
+    private NcdNotificationService service;
+
+    @BeforeEach
+    void setUp() {
+        when(fixture.calendarPlanner.entriesDue(anyList(), eq(AS_OF)))
+                .thenReturn(List.of(new NotificationCalendarEntry(AS_OF, ISIN, 3, BOND_NAME, MATURITY)));
+        service = fixture.service();
+    }
+
+    @AfterEach
+    void stop() {
+        fixture.close();
+    }
+
+    @Test
+    void replayIsADryRunByDefault() {
+        RunStats.RunSummary summary = service.processMaturingBonds(AS_OF, Set.of());
+
+        assertNull(summary.error());
+        assertTrue(summary.dryRun());
+        assertEquals(4, summary.notificationsPlanned());
+        assertEquals(0, summary.notificationsSent());
+        verify(fixture.notificationManager, never()).sendBulk(anyList(), any());
+        verify(fixture.logRepo, never()).saveAll(anyList());
+    }
+
+    @Test
+    void replaySkipsHoldersAlreadyNotifiedOnTheChannel() {
+        when(fixture.logRepo.findNotifiedClients(eq(ISIN), eq(MATURITY), any()))
+                .thenReturn(List.of(notified("1", NotificationType.EMAIL), notified("2", NotificationType.SMS)));
+
+        RunStats.RunSummary summary = service.processMaturingBonds(AS_OF, Set.of(), true);
+
+        assertFalse(summary.dryRun());
+        assertEquals(2, summary.alreadyNotified());
+        assertEquals(2, summary.notificationsSent());
+        assertEquals(List.of("+919800000001", "two@example.com"), fixture.sentRecipients());
+    }
+}
@@ -0,0 +1,300 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.config.ResilienceProperties;
+import com.ibsec.ncdnotifier.entity.BondMaturityNotificationLog;
+import com.ibsec.ncdnotifier.notification.request.MessageTemplate;
+import com.ibsec.ncdnotifier.notification.request.NotificationStatus;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.repository.BondMaturityNotificationRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * NotificationLogPartitionManager against a real PostgreSQL (mvn -Ppostgres-it test, see pom.xml),
+ * together with the ddl-auto=update pass the secondary EntityManagerFactory runs after it.
+ */
+@Tag("postgres")
+class NotificationLogPartitionManagerPostgresTest {
+
+    private static final String TABLE = NotificationLogPartitionManager.TABLE;
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static PostgreSQLContainer<?> container;
+    private static DriverManagerDataSource dataSource;
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void connect() {
+        String url = System.getProperty("ncd.it.postgres.url");
+        String username = System.getProperty("ncd.it.postgres.username", "postgres");
+        String password = System.getProperty("ncd.it.postgres.password", "");
+        if (url == null || url.isBlank()) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+            url = container.getJdbcUrl();
+            username = container.getUsername();
+            password = container.getPassword();
+        }
+        dataSource = new DriverManagerDataSource(url, username, password);
+        jdbc = new JdbcTemplate(dataSource);
+    }
+
+    @AfterAll
+    static void stop() {
+        if (container != null) container.stop();
+    }
+
+    @BeforeEach
+    void emptySchema() {
+        jdbc.execute("DROP SCHEMA public CASCADE");
+        jdbc.execute("CREATE SCHEMA public");
+    }
+
+    @Test
+    void freshDatabaseGetsPartitionedTableThatDdlAutoLeavesAlone() {
+        manager(3).prepareSchema();
+
+        assertEquals("p", relkind(TABLE));
+        YearMonth now = YearMonth.now();
+        for (int i = 0; i <= 3; i++) {
+            assertEquals("r", relkind(partition(now.plusMonths(i))));
+        }
+
+        EntityManagerFactory emf = ddlAutoUpdate();
+        try {
+            assertEquals("p", relkind(TABLE), "ddl-auto must not recreate the parent");
+            BondMaturityNotificationLog first = persist(emf, LocalDateTime.now());
+            BondMaturityNotificationLog second = persist(emf, LocalDateTime.now());
+            assertNotNull(first.getId());
+            assertTrue(second.getId() > first.getId());
+        } finally {
+            emf.close();
+        }
+        assertEquals(2, count(partition(now)));
+    }
+
+    @Test
+    void idComesFromTheSequenceOwnedByTheParent() {
+        manager(1).prepareSchema();
+
+        assertEquals("public." + TABLE + "_part_id_seq",
+                jdbc.queryForObject("SELECT pg_get_serial_sequence(?, 'id')", String.class, TABLE));
+        assertEquals("NO", jdbc.queryForObject("""
+                SELECT is_identity FROM information_schema.columns
+                WHERE table_name = ? AND column_name = 'id'""", String.class, TABLE));
+
+        jdbc.execute("DROP TABLE " + TABLE);
+        assertNull(relkind(TABLE + "_part_id_seq"), "the sequence goes with the table it is owned by");
+    }
+
+    @Test
+    void partitionedTableFromAnEarlierReleaseGetsTheDeferredColumns() {
+        manager(1).prepareSchema();
+        jdbc.execute("DROP INDEX idx_ncd_log_deferred");
+        jdbc.execute("DROP INDEX idx_ncd_log_retrying");
+        jdbc.execute("ALTER TABLE " + TABLE + " DROP COLUMN recipient");
+        jdbc.execute("ALTER TABLE " + TABLE + " DROP COLUMN claimed_at");
+
+        manager(1).prepareSchema();
+
+        jdbc.update("INSERT INTO " + TABLE + " (client_id, isin, channel, recipient, status, notified_on) "
+                + "VALUES ('1', 'INE001', 'SMS', '+919800000001', 'DEFERRED', ?)", LocalDateTime.now());
+        assertEquals("+919800000001", jdbc.queryForObject(
+                "SELECT recipient FROM " + TABLE + " WHERE status = 'DEFERRED'", String.class));
+        assertEquals(2, jdbc.queryForObject("SELECT count(*) FROM pg_indexes "
+                + "WHERE indexname IN ('idx_ncd_log_deferred', 'idx_ncd_log_retrying')", Integer.class));
+        assertEquals(1, jdbc.queryForObject("SELECT count(*) FROM information_schema.columns "
+                + "WHERE table_name = ? AND column_name = 'claimed_at'", Integer.class, TABLE));
+    }
+
+    @Test
+    void aDeferredRowIsClaimedByOneQueueOnly() {
+        manager(1).prepareSchema();
+        jdbc.update("INSERT INTO " + TABLE + " (client_id, isin, channel, recipient, status, notified_on) "
+                + "VALUES ('1', 'INE001', 'SMS', '+919800000001', 'DEFERRED', ?)", LocalDateTime.now().minusMonths(1));
+        Map<String, Object> stored = jdbc.queryForMap("SELECT id, notified_on FROM " + TABLE);
+        BondMaturityNotificationLog row = BondMaturityNotificationLog.builder()
+                .id((Long) stored.get("id"))
+                .clientId("1")
+                .isin("INE001")
+                .channel(NotificationType.SMS)
+                .recipient("+919800000001")
+                .status(NotificationStatus.DEFERRED)
+                .notifiedOn(((java.sql.Timestamp) stored.get("notified_on")).toLocalDateTime())
+                .build();
+        BondMaturityNotificationRepository logRepo = mock(BondMaturityNotificationRepository.class);
+        when(logRepo.findByStatusAndIdGreaterThanOrderByIdAsc(eq(NotificationStatus.DEFERRED), eq(0L), any()))
+                .thenReturn(List.of(row));
+
+        // two pods reading the same page
+        NotificationRetryQueue.Page first = new NotificationRetryQueue(logRepo, jdbc, new ResilienceProperties()).claim(0);
+        NotificationRetryQueue.Page second = new NotificationRetryQueue(logRepo, jdbc, new ResilienceProperties()).claim(0);
+
+        assertEquals(List.of(row), first.sends());
+        assertTrue(second.sends().isEmpty());
+        assertEquals("RETRYING", jdbc.queryForObject("SELECT status FROM " + TABLE, String.class));
+    }
+
+    @Test
+    void rowsInTheDefaultPartitionMoveWhenTheirMonthIsCreated() {
+        manager(1).prepareSchema();
+        YearMonth later = YearMonth.now().plusMonths(4);
+        // e.g. a send held until after the pre-created months, or partitions-ahead raised later
+        jdbc.update("INSERT INTO " + TABLE + " (client_id, isin, status, notified_on) VALUES ('1', 'INE001', 'SENT', ?)",
+                later.atDay(10).atTime(9, 0));
+        assertEquals(1, count(TABLE + "_default"));
+
+        manager(5).maintain();
+
+        assertEquals("r", relkind(partition(later)));
+        assertEquals(0, count(TABLE + "_default"));
+        assertEquals(1, count(partition(later)));
+        assertEquals(1, count(TABLE));
+    }
+
+    @Test
+    void legacyTableFromDdlAutoIsMovedWithEveryColumn() {
+        // the plain table an earlier release's ddl-auto created
+        ddlAutoUpdate().close();
+        assertEquals("r", relkind(TABLE));
+        YearMonth old = YearMonth.now().minusMonths(5);
+        LocalDateTime delivered = old.atDay(3).atTime(10, 0);
+        jdbc.update("""
+                INSERT INTO %s (client_id, bond_name, isin, maturity_date, message, template_id, template_params,
+                                channel, status, notified_on, provider_message_id, delivered_on)
+                VALUES ('7', 'NCD 7', 'INE007', ?, NULL, 'MATURITY_ALERT_V1', '3', 'EMAIL', 'DELIVERED', ?, 'msg-7', ?)"""
+                .formatted(TABLE), LocalDate.now(), old.atDay(3).atTime(9, 0), delivered);
+        jdbc.update("INSERT INTO " + TABLE + " (client_id, isin, message, channel, status, notified_on) "
+                + "VALUES ('8', 'INE008', 'legacy text', 'SMS', 'SENT', ?)", LocalDateTime.now());
+        long maxLegacyId = jdbc.queryForObject("SELECT max(id) FROM " + TABLE, Long.class);
+
+        manager(1).prepareSchema();
+
+        assertEquals("p", relkind(TABLE));
+        assertEquals("r", relkind(TABLE + "_legacy"));
+        assertEquals(2, count(TABLE));
+        assertEquals(1, count(partition(old)));
+        Map<String, Object> moved = jdbc.queryForMap("SELECT * FROM " + TABLE + " WHERE client_id = '7'");
+        assertEquals("MATURITY_ALERT_V1", moved.get("template_id"));
+        assertEquals("3", moved.get("template_params"));
+        assertEquals("msg-7", moved.get("provider_message_id"));
+        assertEquals(delivered, ((java.sql.Timestamp) moved.get("delivered_on")).toLocalDateTime());
+        assertEquals("legacy text", jdbc.queryForObject(
+                "SELECT message FROM " + TABLE + " WHERE client_id = '8'", String.class));
+        assertEquals(List.of("idx_ncd_log_client_notified", "idx_ncd_log_deferred",
+                "idx_ncd_log_isin_client_channel_maturity", "idx_ncd_log_provider_message",
+                "idx_ncd_log_retrying"), jdbc.queryForList("""
+                SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+                WHERE i.indrelid = ?::regclass AND NOT i.indisprimary ORDER BY 1""", String.class, TABLE));
+
+        EntityManagerFactory emf = ddlAutoUpdate();
+        try {
+            assertTrue(persist(emf, LocalDateTime.now()).getId() > maxLegacyId);
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    void retentionDetachesExpiredMonths() {
+        NotificationLogPartitionManager manager = manager(1);
+        manager.prepareSchema();
+        YearMonth expired = YearMonth.now().minusMonths(30);
+        jdbc.execute("CREATE TABLE " + partition(expired) + " PARTITION OF " + TABLE
+                + " FOR VALUES FROM ('" + expired.atDay(1) + "') TO ('" + expired.plusMonths(1).atDay(1) + "')");
+
+        assertEquals(1, manager.maintain());
+
+        assertEquals("r", relkind(partition(expired)));
+        assertEquals(0, jdbc.queryForObject("SELECT count(*) FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                + "WHERE c.relname = ?", Integer.class, partition(expired)));
+    }
+
+    private static NotificationLogPartitionManager manager(int partitionsAhead) {
+        NotificationLogPartitionManager manager = new NotificationLogPartitionManager(jdbc);
+        ReflectionTestUtils.setField(manager, "partitionsAhead", partitionsAhead);
+        ReflectionTestUtils.setField(manager, "retentionMonths", 24);
+        ReflectionTestUtils.setField(manager, "retentionAction", "detach");
+        ReflectionTestUtils.setField(manager, "manageOnStartup", true);
+        return manager;
+    }
+
+    // the secondary persistence unit as Spring Boot builds it from application.properties; any DDL
+    // ddl-auto=update issues and the database rejects fails the test instead of logging a warning
+    private static EntityManagerFactory ddlAutoUpdate() {
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan("com.ibsec.ncdnotifier.entity");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "update",
+                "hibernate.hbm2ddl.halt_on_error", "true",
+                "hibernate.hbm2ddl.extra_physical_table_types", "PARTITIONED TABLE",
+                "hibernate.physical_naming_strategy",
+                "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy",
+                "hibernate.implicit_naming_strategy",
+                "org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy"));
+        factory.afterPropertiesSet();
+        return factory.getObject();
+    }
+
+    private static BondMaturityNotificationLog persist(EntityManagerFactory emf, LocalDateTime notifiedOn) {
+        BondMaturityNotificationLog row = BondMaturityNotificationLog.builder()
+                .clientId("42")
+                .bondName("NCD 42")
+                .isin("INE042")
+                .maturityDate(LocalDate.now().plusDays(3))
+                .templateId(MessageTemplate.MATURITY_ALERT_V1)
+                .templateParams("3")
+                .channel(NotificationType.EMAIL)
+                .status(NotificationStatus.SENT)
+                .notifiedOn(notifiedOn)
+                .build();
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.persist(row);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        return row;
+    }
+
+    private static String partition(YearMonth month) {
+        return TABLE + "_p" + month.format(SUFFIX);
+    }
+
+    private static String relkind(String name) {
+        List<String> kinds = jdbc.queryForList("SELECT relkind::text FROM pg_class WHERE relname = ?", String.class, name);
+        return kinds.isEmpty() ? null : kinds.get(0);
+    }
+
+    private static long count(String table) {
+        return jdbc.queryForObject("SELECT count(*) FROM " + table, Long.class);
+    }
+}
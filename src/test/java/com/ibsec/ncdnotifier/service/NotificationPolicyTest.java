@@ -0,0 +1,189 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.config.NotificationPolicyProperties;
+import com.ibsec.ncdnotifier.entity.NotificationCalendarEntry;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationPolicyTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+    private static final String CORPORATE = "INE001A07RS1";
+    private static final String GSEC = "IN0020230085";
+    private static final ZoneId ZONE = ZoneId.of("Asia/Kolkata");
+
+    @Test
+    void overlappingOffsetsFireTheSmallestOneCoveringTheDay() {
+        // 7 covers 7..5, 6 covers 6..4, 3 covers 3..1
+        NotificationPolicy policy = policy("7,6,3", 2);
+
+        NotificationCalendarEntry exact = due(CORPORATE, 7, 7);
+        NotificationCalendarEntry caughtUp = due(CORPORATE, 6, 5);
+        NotificationCalendarEntry superseded = due(CORPORATE, 7, 5);
+        NotificationCalendarEntry supersededLater = due(CORPORATE, 7, 4);
+        NotificationCalendarEntry pastWindow = due(CORPORATE, 3, 0);
+        NotificationCalendarEntry matured = due(CORPORATE, 3, -1);
+
+        NotificationPolicy.WorkSet work = policy.select(
+                List.of(exact, caughtUp, superseded, supersededLater, pastWindow, matured), TODAY);
+
+        assertEquals(List.of(exact, caughtUp), work.due());
+        assertEquals(7, exact.getDaysLeft());
+        assertEquals(5, caughtUp.getDaysLeft());
+        assertEquals(Map.of("default", new NotificationPolicy.RuleCounts(6, 1, 1, 2, 2)), work.counts());
+    }
+
+    @Test
+    void maturityDayIsDueWhenAnOffsetOrCatchUpReachesIt() {
+        NotificationPolicy withZero = policy("3,0", 3);
+        NotificationCalendarEntry onTheDay = due(CORPORATE, 0, 0);
+        NotificationCalendarEntry older = due(CORPORATE, 3, 0);
+
+        NotificationPolicy.WorkSet work = withZero.select(List.of(onTheDay, older), TODAY);
+
+        assertEquals(List.of(onTheDay), work.due());
+        assertEquals(new NotificationPolicy.RuleCounts(2, 1, 0, 1, 0), work.counts().get("default"));
+
+        NotificationCalendarEntry late = due(CORPORATE, 3, 0);
+        work = policy("3", 3).select(List.of(late), TODAY);
+
+        assertEquals(List.of(late), work.due());
+        assertEquals(0, late.getDaysLeft());
+        assertEquals(new NotificationPolicy.RuleCounts(1, 0, 1, 0, 0), work.counts().get("default"));
+    }
+
+    @Test
+    void countsArePerRule() {
+        NotificationPolicyProperties properties = new NotificationPolicyProperties();
+        properties.setCatchUpDays(2);
+        NotificationPolicyProperties.Rule gsec = new NotificationPolicyProperties.Rule();
+        gsec.setBondType("gsec");
+        gsec.setOffsets(List.of(1, 7));
+        gsec.setCatchUpDays(0);
+        properties.setRules(List.of(gsec));
+        NotificationPolicy policy = new NotificationPolicy(properties, "7,3", "Asia/Kolkata");
+
+        assertEquals(List.of(7, 1), policy.offsetsFor(GSEC));
+        assertEquals(List.of(7, 3), policy.offsetsFor(CORPORATE));
+        assertEquals(2, policy.maxCatchUpDays());
+
+        NotificationPolicy.WorkSet work = policy.select(List.of(
+                due(GSEC, 1, 1), due(GSEC, 7, 6),               // exact, missed (no catch-up)
+                due(CORPORATE, 7, 6), due(CORPORATE, 3, 1)),     // caught up, caught up
+                TODAY);
+
+        assertEquals(3, work.due().size());
+        assertEquals(new NotificationPolicy.RuleCounts(2, 0, 2, 0, 0), work.counts().get("default"));
+        assertEquals(new NotificationPolicy.RuleCounts(2, 1, 0, 0, 1), work.counts().get("gsec"));
+    }
+
+    @Test
+    void negativeCatchUpIsRejected() {
+        NotificationPolicyProperties properties = new NotificationPolicyProperties();
+        properties.setCatchUpDays(-1);
+
+        assertThrows(IllegalArgumentException.class, () -> new NotificationPolicy(properties, "7", "UTC"));
+    }
+
+    @Test
+    void bondTypeByIsinPrefix() {
+        assertEquals(NotificationPolicy.BondType.GSEC, NotificationPolicy.BondType.of("IN0020230085"));
+        assertEquals(NotificationPolicy.BondType.GSEC, NotificationPolicy.BondType.of("IN3320150011"));
+        assertEquals(NotificationPolicy.BondType.CORPORATE, NotificationPolicy.BondType.of("INE001A07RS1"));
+        assertEquals(NotificationPolicy.BondType.OTHER, NotificationPolicy.BondType.of("IN4120150011"));
+        assertEquals(NotificationPolicy.BondType.OTHER, NotificationPolicy.BondType.of("INF209K01YN0"));
+        assertEquals(NotificationPolicy.BondType.OTHER, NotificationPolicy.BondType.of("US0378331005"));
+        assertEquals(NotificationPolicy.BondType.OTHER, NotificationPolicy.BondType.of("IN"));
+        assertEquals(NotificationPolicy.BondType.OTHER, NotificationPolicy.BondType.of(null));
+    }
+
+    @Test
+    void quietHoursAcrossMidnightEndTheNextMorning() {
+        NotificationPolicy.QuietHours night = NotificationPolicy.QuietHours.parse("21:00-09:00");
+
+        assertEquals(at(11, 9, 0), night.until(at(10, 23, 0)));
+        assertEquals(at(11, 9, 0), night.until(at(10, 21, 0)));
+        assertEquals(at(11, 9, 0), night.until(at(11, 8, 59)));
+        assertNull(night.until(at(11, 9, 0)));
+        assertNull(night.until(at(10, 12, 0)));
+        assertNull(night.until(at(10, 20, 59)));
+    }
+
+    @Test
+    void quietHoursWithinADay() {
+        NotificationPolicy.QuietHours lunch = NotificationPolicy.QuietHours.parse(" 13:00 - 14:30 ");
+
+        assertEquals(at(10, 14, 30), lunch.until(at(10, 13, 0)));
+        assertNull(lunch.until(at(10, 14, 30)));
+        assertNull(lunch.until(at(10, 12, 59)));
+        assertThrows(IllegalArgumentException.class, () -> NotificationPolicy.QuietHours.parse("21:00"));
+    }
+
+    @Test
+    void quietChannelsComeWithTheWorkSet() {
+        NotificationPolicyProperties properties = new NotificationPolicyProperties();
+        // start == end: quiet all day
+        properties.setQuietHours(Map.of("sms", "00:00-00:00", "email", ""));
+        NotificationPolicy policy = new NotificationPolicy(properties, "7", "Asia/Kolkata");
+
+        NotificationPolicy.WorkSet work = policy.select(List.of(), TODAY);
+
+        assertEquals(Set.of(NotificationType.SMS), work.quiet().keySet());
+        assertTrue(policy("7", 0).select(List.of(), TODAY).quiet().isEmpty());
+    }
+
+    @Test
+    void rowHeldOvernightStaysDueWithoutCatchUp() {
+        // held at 22:00 yesterday for the 3-day alert; today is 2 days out and 2 is no offset
+        NotificationCalendarEntry held = due(CORPORATE, 3, 2);
+        held.setQuietHeldOn(TODAY.minusDays(1).atTime(22, 0));
+        NotificationCalendarEntry notHeld = due(CORPORATE, 3, 2);
+
+        NotificationPolicy.WorkSet work = policy("7,3", 0).select(List.of(held, notHeld), TODAY);
+
+        assertEquals(List.of(held), work.due());
+        assertEquals(2, held.getDaysLeft());
+        assertEquals(new NotificationPolicy.RuleCounts(2, 0, 1, 0, 1), work.counts().get("default"));
+        assertTrue(work.settled().isEmpty());
+    }
+
+    @Test
+    void heldRowIsSettledWhenANearerOffsetFiresOrTheBondMatured() {
+        NotificationCalendarEntry held = due(CORPORATE, 3, 2);
+        held.setQuietHeldOn(TODAY.minusDays(1).atTime(22, 0));
+        NotificationCalendarEntry nearer = due(CORPORATE, 2, 2);
+        NotificationCalendarEntry matured = due(GSEC, 1, -1);
+        matured.setQuietHeldOn(TODAY.minusDays(2).atTime(22, 0));
+
+        NotificationPolicy.WorkSet work = policy("3,2,1", 0).select(List.of(held, nearer, matured), TODAY);
+
+        assertEquals(List.of(nearer), work.due());
+        assertEquals(List.of(matured, held), work.settled());
+        assertEquals(new NotificationPolicy.RuleCounts(3, 1, 0, 1, 1), work.counts().get("default"));
+    }
+
+    private static NotificationPolicy policy(String offsets, int catchUpDays) {
+        NotificationPolicyProperties properties = new NotificationPolicyProperties();
+        properties.setCatchUpDays(catchUpDays);
+        return new NotificationPolicy(properties, offsets, "Asia/Kolkata");
+    }
+
+    // the row planned for {@code offset}, seen today with {@code daysLeft} to maturity
+    private static NotificationCalendarEntry due(String isin, int offset, int daysLeft) {
+        LocalDate maturity = TODAY.plusDays(daysLeft);
+        return new NotificationCalendarEntry(maturity.minusDays(offset), isin, offset, "NCD", maturity);
+    }
+
+    private static ZonedDateTime at(int day, int hour, int minute) {
+        return ZonedDateTime.of(2026, 3, day, hour, minute, 0, 0, ZONE);
+    }
+}
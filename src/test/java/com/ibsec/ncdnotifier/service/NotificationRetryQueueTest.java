@@ -0,0 +1,152 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.config.ResilienceProperties;
+import com.ibsec.ncdnotifier.entity.BondMaturityNotificationLog;
+import com.ibsec.ncdnotifier.notification.request.MessageTemplate;
+import com.ibsec.ncdnotifier.notification.request.NotificationStatus;
+import com.ibsec.ncdnotifier.notification.request.NotificationType;
+import com.ibsec.ncdnotifier.repository.BondMaturityNotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NotificationRetryQueueTest {
+
+    private static final LocalDateTime DEFERRED_AT = LocalDateTime.of(2026, 12, 28, 9, 0);
+
+    private final BondMaturityNotificationRepository logRepo = mock(BondMaturityNotificationRepository.class);
+    private final ResilienceProperties properties = new ResilienceProperties();
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:retry-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbc.execute("""
+                CREATE TABLE bond_maturity_notification_log (id BIGINT PRIMARY KEY,
+                    notified_on TIMESTAMP(6) NOT NULL, status VARCHAR(255), claimed_at TIMESTAMP(6))""");
+        properties.setRetryPageSize(100);
+    }
+
+    @Test
+    void claimsDeferredRowsGroupingSharedRecipients() {
+        BondMaturityNotificationLog first = row(11, "1", NotificationType.EMAIL, "Family@Example.com");
+        BondMaturityNotificationLog sharer = row(12, "2", NotificationType.EMAIL, "family@example.com");
+        BondMaturityNotificationLog sms = row(13, "1", NotificationType.SMS, "+919800000001");
+        BondMaturityNotificationLog noRecipient = row(14, "3", NotificationType.SMS, null);
+        when(logRepo.findByStatusAndIdGreaterThanOrderByIdAsc(NotificationStatus.DEFERRED, 10L, PageRequest.of(0, 100)))
+                .thenReturn(List.of(first, sharer, sms, noRecipient));
+
+        NotificationRetryQueue.Page page = queue().claim(10);
+
+        assertEquals(List.of(first, sms, noRecipient), page.sends());
+        assertEquals(List.of(sharer), first.getSharedWith());
+        assertEquals(14, page.lastId());
+        assertEquals(NotificationStatus.RETRYING, sharer.getStatus());
+        assertNotNull(sharer.getClaimedAt());
+        assertEquals(4, count("RETRYING"));
+    }
+
+    @Test
+    void rowsClaimedByAnotherProcessAreSkipped() {
+        BondMaturityNotificationLog mine = row(21, "1", NotificationType.SMS, "+919800000001");
+        BondMaturityNotificationLog theirs = row(22, "2", NotificationType.SMS, "+919800000002");
+        // another pod read the same page and claimed row 22 first
+        jdbc.update("UPDATE bond_maturity_notification_log SET status = 'RETRYING', claimed_at = ? WHERE id = 22",
+                Timestamp.valueOf(LocalDateTime.now()));
+        when(logRepo.findByStatusAndIdGreaterThanOrderByIdAsc(eq(NotificationStatus.DEFERRED), eq(0L), any()))
+                .thenReturn(List.of(mine, theirs));
+
+        NotificationRetryQueue.Page page = queue().claim(0);
+
+        assertEquals(List.of(mine), page.sends());
+        assertEquals(22, page.lastId());
+        assertEquals(NotificationStatus.DEFERRED, theirs.getStatus());
+
+        // the same page read again gets nothing: both rows are claimed now
+        NotificationRetryQueue.Page again = queue().claim(0);
+        assertTrue(again.sends().isEmpty());
+        assertEquals(22, again.lastId());
+    }
+
+    @Test
+    void claimAmongIdsReadsOnlyThoseRows() {
+        BondMaturityNotificationLog own = row(31, "1", NotificationType.SMS, "+919800000001");
+        row(32, "2", NotificationType.SMS, "+919800000002");
+        when(logRepo.findByStatusAndIdIn(NotificationStatus.DEFERRED, List.of(31L))).thenReturn(List.of(own));
+
+        NotificationRetryQueue.Page page = queue().claim(0, List.of(31L));
+
+        assertEquals(List.of(own), page.sends());
+        assertEquals(31, page.lastId());
+        assertEquals(1, count("DEFERRED"));
+        assertTrue(queue().claim(31, List.of(31L)).sends().isEmpty());
+        verify(logRepo, never()).findByStatusAndIdGreaterThanOrderByIdAsc(any(), anyLong(), any());
+    }
+
+    @Test
+    void lapsedClaimsGoBackToDeferred() {
+        properties.setRetryClaimLeaseMs(60_000);
+        row(41, "1", NotificationType.SMS, "+919800000001");
+        row(42, "2", NotificationType.SMS, "+919800000002");
+        jdbc.update("UPDATE bond_maturity_notification_log SET status = 'RETRYING', claimed_at = ? WHERE id = 41",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(1)));
+        jdbc.update("UPDATE bond_maturity_notification_log SET status = 'RETRYING', claimed_at = ? WHERE id = 42",
+                Timestamp.valueOf(LocalDateTime.now()));
+
+        assertEquals(1, queue().releaseLapsedClaims());
+        assertEquals(List.of(41L), jdbc.queryForList(
+                "SELECT id FROM bond_maturity_notification_log WHERE status = 'DEFERRED' AND claimed_at IS NULL", Long.class));
+    }
+
+    @Test
+    void emptyPageKeepsItsStart() {
+        when(logRepo.findByStatusAndIdGreaterThanOrderByIdAsc(eq(NotificationStatus.DEFERRED), eq(42L), any()))
+                .thenReturn(List.of());
+
+        NotificationRetryQueue.Page page = queue().claim(42);
+
+        assertTrue(page.sends().isEmpty());
+        assertEquals(42, page.lastId());
+        assertEquals(42, queue().claim(42, List.of(7L, 42L)).lastId());
+    }
+
+    private NotificationRetryQueue queue() {
+        return new NotificationRetryQueue(logRepo, jdbc, properties);
+    }
+
+    private long count(String status) {
+        return jdbc.queryForObject("SELECT count(*) FROM bond_maturity_notification_log WHERE status = ?", Long.class, status);
+    }
+
+    // a DEFERRED log row, also stored in the H2 table the claims run against
+    private BondMaturityNotificationLog row(long id, String clientId, NotificationType channel, String recipient) {
+        jdbc.update("INSERT INTO bond_maturity_notification_log (id, notified_on, status) VALUES (?, ?, 'DEFERRED')",
+                id, Timestamp.valueOf(DEFERRED_AT));
+        return BondMaturityNotificationLog.builder()
+                .id(id)
+                .clientId(clientId)
+                .bondName("NCD 7")
+                .isin("INE007")
+                .maturityDate(LocalDate.of(2026, 12, 31))
+                .templateId(MessageTemplate.MATURITY_ALERT_V1)
+                .templateParams("3")
+                .channel(channel)
+                .recipient(recipient)
+                .status(NotificationStatus.DEFERRED)
+                .notifiedOn(DEFERRED_AT)
+                .build();
+    }
+}
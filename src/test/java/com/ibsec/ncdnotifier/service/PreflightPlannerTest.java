@@ -0,0 +1,68 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.entity.NotificationCalendarEntry;
+import com.ibsec.ncdnotifier.repository.HoldingsDao;
+import com.ibsec.ncdnotifier.repository.NotificationCalendarRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PreflightPlannerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 2);
+
+    private final HoldingsSnapshotService holdings = mock(HoldingsSnapshotService.class);
+    private final ContactIndexService contactIndex = mock(ContactIndexService.class);
+    private final HoldingsDao holdingsDao = mock(HoldingsDao.class);
+
+    @Test
+    void expiredHolderCountsArePruned() {
+        when(contactIndex.getAvailability()).thenReturn(new ContactIndexService.ContactAvailability(2, 2, 1, Instant.now()));
+        when(holdingsDao.holderCounts(List.of("INE001", "INE002"))).thenReturn(Map.of("INE001", 3L, "INE002", 5L));
+        when(holdingsDao.holderCounts(List.of("INE001"))).thenReturn(Map.of("INE001", 4L));
+        PreflightPlanner planner = planner(60_000);
+
+        assertEquals(8, planner.estimate(TODAY, List.of(due("INE001"), due("INE002"))).expectedHolders());
+        assertEquals(3, planner.estimate(TODAY, List.of(due("INE001"))).expectedHolders());
+        assertEquals(Map.of("INE001", 3L, "INE002", 5L), cachedCounts(planner));
+
+        // once expired, a count is reloaded if still due and dropped otherwise
+        ReflectionTestUtils.setField(planner, "countTtlMs", 0L);
+        assertEquals(4, planner.estimate(TODAY, List.of(due("INE001"))).expectedHolders());
+        assertEquals(Map.of("INE001", 4L), cachedCounts(planner));
+        verify(holdingsDao).holderCounts(List.of("INE001"));
+    }
+
+    private PreflightPlanner planner(long countTtlMs) {
+        PreflightPlanner planner = new PreflightPlanner(mock(NotificationCalendarRepository.class),
+                mock(NotificationPolicy.class), holdings, contactIndex, holdingsDao, mock(JdbcTemplate.class));
+        ReflectionTestUtils.setField(planner, "maxWorkers", 8);
+        ReflectionTestUtils.setField(planner, "messagesPerWorker", 500);
+        ReflectionTestUtils.setField(planner, "maxInFlight", 8000);
+        ReflectionTestUtils.setField(planner, "countTtlMs", countTtlMs);
+        return planner;
+    }
+
+    // the cached count per ISIN
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> cachedCounts(PreflightPlanner planner) {
+        Map<String, ?> cache = (Map<String, ?>) ReflectionTestUtils.getField(planner, "holderCounts");
+        Map<String, Long> counts = new HashMap<>();
+        cache.forEach((isin, cached) -> counts.put(isin, ReflectionTestUtils.<Long>invokeMethod(cached, "count")));
+        return counts;
+    }
+
+    private static NotificationCalendarEntry due(String isin) {
+        LocalDate maturity = TODAY.plusDays(7);
+        return new NotificationCalendarEntry(TODAY, isin, 7, "NCD", maturity);
+    }
+}
@@ -0,0 +1,111 @@
+package com.ibsec.ncdnotifier.service;
+
+import com.ibsec.ncdnotifier.entity.NotificationRun;
+import com.ibsec.ncdnotifier.repository.NotificationRunRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RunHistoryTest {
+
+    private static final Instant YESTERDAY_RUN = Instant.now().minusSeconds(20 * 3600);
+
+    private NotificationRunRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(NotificationRunRepository.class);
+    }
+
+    @Test
+    void savedRunsAreReadBackAndNumberingContinues() {
+        when(repository.findByOrderByIdDesc(any())).thenReturn(List.of(
+                saved(7, "RUNNING", YESTERDAY_RUN.plusSeconds(3600)),
+                saved(6, "SUCCEEDED", YESTERDAY_RUN)));
+        RunHistory history = new RunHistory(repository, 10);
+
+        assertEquals(YESTERDAY_RUN.plusSeconds(3600), history.lastStartedAt());
+        RunHistory.RunRecord interrupted = history.recent(1).get(0);
+        assertEquals(RunHistory.Outcome.FAILED, interrupted.outcome());
+        assertTrue(history.current().isEmpty(), "a run left RUNNING by a stopped process is not current");
+
+        long id = history.start(TriggerSource.ON_DEMAND, Instant.now());
+
+        assertEquals(8, id);
+        ArgumentCaptor<NotificationRun> saved = ArgumentCaptor.forClass(NotificationRun.class);
+        verify(repository, times(2)).save(saved.capture());
+        assertEquals(List.of("7 FAILED", "8 RUNNING"),
+                saved.getAllValues().stream().map(r -> r.getId() + " " + r.getOutcome()).toList());
+        verify(repository, times(1)).findByOrderByIdDesc(any());
+    }
+
+    @Test
+    void databaseFailuresNeverFailTheRun() {
+        when(repository.findByOrderByIdDesc(any())).thenThrow(new DataAccessResourceFailureException("down"));
+        when(repository.save(any())).thenThrow(new DataAccessResourceFailureException("down"));
+        RunHistory history = new RunHistory(repository, 10);
+
+        long id = history.start(TriggerSource.DAY_ROLLOVER, Instant.now());
+        RunHistory.RunRecord done = history.finish(id, null, new IllegalStateException("boom"));
+
+        assertEquals(1, id);
+        assertEquals(RunHistory.Outcome.FAILED, done.outcome());
+        assertEquals(1, history.recent(10).size());
+    }
+
+    @Test
+    void watchdogAfterARestartSeesTheRunOfTheDay() {
+        when(repository.findByOrderByIdDesc(any())).thenReturn(List.of(saved(3, "SUCCEEDED", Instant.now().minusSeconds(3600))));
+        RunHistory history = new RunHistory(repository, 10);
+        ExecutorService jobExecutor = mock(ExecutorService.class);
+
+        scheduler(history, jobExecutor).watch();
+
+        assertTrue(history.alarms().isEmpty());
+        verify(jobExecutor, never()).execute(any());
+    }
+
+    @Test
+    void watchdogStillCatchesUpAMissedRun() {
+        when(repository.findByOrderByIdDesc(any())).thenReturn(List.of(saved(3, "SUCCEEDED", Instant.now().minusSeconds(3 * 86400))));
+        RunHistory history = new RunHistory(repository, 10);
+        ExecutorService jobExecutor = mock(ExecutorService.class);
+
+        scheduler(history, jobExecutor).watch();
+
+        assertEquals(List.of(RunHistory.RunAlarm.Type.MISSED_RUN),
+                history.alarms().stream().map(RunHistory.RunAlarm::type).toList());
+        verify(jobExecutor).execute(any());
+    }
+
+    // daily rollover two hours ago (the run an hour ago is after it), no grace period
+    private static NotificationScheduler scheduler(RunHistory history, ExecutorService jobExecutor) {
+        NotificationScheduler scheduler = new NotificationScheduler(mock(NcdNotificationService.class),
+                mock(BondFileService.class), mock(HoldingsSnapshotService.class), mock(ContactIndexService.class),
+                mock(NotificationLogPartitionManager.class), jobExecutor, history);
+        ReflectionTestUtils.setField(scheduler, "dayRolloverCron",
+                "0 0 " + ZonedDateTime.now(ZoneId.of("Asia/Kolkata")).minusHours(2).getHour() + " * * *");
+        ReflectionTestUtils.setField(scheduler, "zone", "Asia/Kolkata");
+        ReflectionTestUtils.setField(scheduler, "missedRunGraceMs", 0L);
+        ReflectionTestUtils.setField(scheduler, "maxRunDurationMs", 1_800_000L);
+        ReflectionTestUtils.setField(scheduler, "catchUpMissedRun", true);
+        return scheduler;
+    }
+
+    private static NotificationRun saved(long id, String outcome, Instant startedAt) {
+        return new NotificationRun(id, "DAY_ROLLOVER", outcome, startedAt, startedAt,
+                "RUNNING".equals(outcome) ? null : startedAt.plusSeconds(60), 60_000, 100, 0, 0, null);
+    }
+}
@@ -0,0 +1,64 @@
+package com.ibsec.ncdnotifier.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SendPermitsTest {
+
+    @Test
+    void routineSendsNeverTakeTheUrgentShare() throws Exception {
+        SendPermits permits = new SendPermits(3, 1);
+        permits.acquire(PriorityClass.ROUTINE);
+        permits.acquire(PriorityClass.ROUTINE);
+
+        CompletableFuture<Void> thirdRoutine = CompletableFuture.runAsync(() -> permits.acquire(PriorityClass.ROUTINE));
+        assertThrows(TimeoutException.class, () -> thirdRoutine.get(200, TimeUnit.MILLISECONDS));
+
+        // the reserved permit is there for an urgent slice while routine ones wait
+        CompletableFuture.runAsync(() -> permits.acquire(PriorityClass.URGENT)).get(1, TimeUnit.SECONDS);
+        assertFalse(thirdRoutine.isDone());
+
+        // a free permit is not enough while two routine slices are in flight
+        permits.release(PriorityClass.URGENT);
+        assertThrows(TimeoutException.class, () -> thirdRoutine.get(200, TimeUnit.MILLISECONDS));
+        permits.release(PriorityClass.ROUTINE);
+        thirdRoutine.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void urgentSendsMayUseEveryPermit() throws Exception {
+        SendPermits permits = new SendPermits(2, 1);
+        permits.acquire(PriorityClass.URGENT);
+        permits.acquire(PriorityClass.URGENT);
+
+        CompletableFuture<Void> routine = CompletableFuture.runAsync(() -> permits.acquire(PriorityClass.ROUTINE));
+        assertThrows(TimeoutException.class, () -> routine.get(200, TimeUnit.MILLISECONDS));
+        permits.release(PriorityClass.URGENT);
+        routine.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void aSinglePermitIsNotReserved() {
+        SendPermits permits = new SendPermits(1, 2);
+
+        assertEquals(0, permits.reserved());
+        permits.acquire(PriorityClass.ROUTINE);
+        permits.release(PriorityClass.ROUTINE);
+    }
+
+    @Test
+    void reservedWorkersOnlyClaimTheUrgentPrefix() {
+        AtomicInteger next = new AtomicInteger();
+
+        assertEquals(0, NcdNotificationService.claim(next, 2));
+        assertEquals(1, NcdNotificationService.claim(next, 2));
+        assertEquals(-1, NcdNotificationService.claim(next, 2));
+        assertEquals(2, NcdNotificationService.claim(next, 5));
+    }
+}